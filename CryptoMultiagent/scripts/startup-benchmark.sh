@@ -0,0 +1,81 @@
+#!/usr/bin/env bash
+# Сравнение времени запуска в разных режимах.
+#
+# Перед запуском соберите приложение с профилем быстрого запуска:
+#   mvn -Pfast-start package -DskipTests
+# Запуск:
+#   scripts/startup-benchmark.sh [количество прогонов, по умолчанию 5]
+#
+# Для каждого режима выводится медиана двух величин:
+#   started - время запуска по сообщению Spring Boot "Started ... in N seconds";
+#   ready   - время от запуска процесса до UP в /actuator/health/readiness (включая прогрев).
+# Все режимы запускаются с одинаковыми настройками прогрева, без предрасчета и gRPC на случайном порту,
+# поэтому различия объясняются только режимом запуска. В режиме aot условия бинов зафиксированы при сборке:
+# -Dcrypto.watchlist.enabled=false на него не влияет, предрасчет выключен значением по умолчанию,
+# с которым выполнялась сборка.
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+
+RUNS="${1:-5}"
+PORT="${BENCHMARK_PORT:-18080}"
+WARMUP_ITERATIONS="${WARMUP_ITERATIONS:-30}"
+JAR="target/crypto-multiagent-1.0.0.jar"
+EXTRACTED="target/extracted"
+
+if [[ ! -f "$JAR" || ! -f "$EXTRACTED/application.jsa" ]]; then
+    echo "Не найдены $JAR или $EXTRACTED/application.jsa, выполните: mvn -Pfast-start package -DskipTests" >&2
+    exit 1
+fi
+
+COMMON=(-Dserver.port="$PORT" -Dcrypto.grpc.port=0 -Dcrypto.watchlist.enabled=false
+        -Dcrypto.lifecycle.warmup.iterations="$WARMUP_ITERATIONS" -Dcrypto.lifecycle.warmup.model-call=false)
+
+# Режим: название|рабочий каталог|параметры JVM
+MODES=(
+    "jar|.|-Dspring.profiles.active=default -jar $JAR"
+    "jar+lazy|.|-Dspring.profiles.active=fast-start -jar $JAR"
+    "cds+lazy|$EXTRACTED|-XX:SharedArchiveFile=application.jsa -Xlog:cds=error -Dspring.profiles.active=fast-start -jar crypto-multiagent-1.0.0.jar"
+    "aot+cds+lazy|$EXTRACTED|-XX:SharedArchiveFile=application.jsa -Xlog:cds=error -Dspring.aot.enabled=true -Dspring.profiles.active=fast-start -jar crypto-multiagent-1.0.0.jar"
+)
+
+now_millis() {
+    date +%s%3N
+}
+
+median() {
+    sort -n | awk '{ values[NR] = $1 } END { print (NR % 2 ? values[(NR + 1) / 2] : (values[NR / 2] + values[NR / 2 + 1]) / 2) }'
+}
+
+run_once() {
+    local directory="$1" arguments="$2" log
+    log="$(mktemp)"
+    local start
+    start="$(now_millis)"
+    # shellcheck disable=SC2086
+    (cd "$directory" && exec java "${COMMON[@]}" $arguments) > "$log" 2>&1 &
+    local pid=$!
+    until curl -sf "http://localhost:$PORT/actuator/health/readiness" > /dev/null; do
+        if ! kill -0 "$pid" 2> /dev/null; then
+            echo "Приложение завершилось при запуске, лог: $log" >&2
+            exit 1
+        fi
+        sleep 0.05
+    done
+    local ready=$(( $(now_millis) - start ))
+    kill "$pid"
+    wait "$pid" 2> /dev/null || true
+    local started
+    started="$(grep -oE 'Started [A-Za-z]+ in [0-9.]+ seconds' "$log" | grep -oE '[0-9.]+' | head -1)"
+    rm -f "$log"
+    echo "$(awk -v s="$started" 'BEGIN { printf "%d", s * 1000 }') $ready"
+}
+
+printf "%-14s %12s %12s\n" "режим" "started, мс" "ready, мс"
+for mode in "${MODES[@]}"; do
+    IFS='|' read -r name directory arguments <<< "$mode"
+    results="$(for _ in $(seq "$RUNS"); do run_once "$directory" "$arguments"; done)"
+    started="$(awk '{ print $1 }' <<< "$results" | median)"
+    ready="$(awk '{ print $2 }' <<< "$results" | median)"
+    printf "%-14s %12s %12s\n" "$name" "$started" "$ready"
+done
@@ -0,0 +1,26 @@
+package com.multiagent.actuator;
+
+import com.multiagent.model.PopularRequest;
+import com.multiagent.service.RequestPopularityTracker;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Actuator-эндпоинт со списком самых популярных запросов анализа: GET /actuator/popularity
+ */
+@Component
+@RequiredArgsConstructor
+@Endpoint(id = "popularity")
+public class PopularityEndpoint {
+
+    private final RequestPopularityTracker popularityTracker;
+
+    @ReadOperation
+    public List<PopularRequest> heavyHitters() {
+        return popularityTracker.getHeavyHitters();
+    }
+}
@@ -0,0 +1,34 @@
+package com.multiagent.actuator;
+
+import com.multiagent.model.TokenUsageReport;
+import com.multiagent.model.TokenUsageReport.TokenStats;
+import com.multiagent.service.TokenUsageTracker;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Actuator-эндпоинт с расходом токенов: GET /actuator/tokens - сводка по агентам и криптовалютам,
+ * GET /actuator/tokens/{coin} - расход по агентам для одной криптовалюты
+ */
+@Component
+@RequiredArgsConstructor
+@Endpoint(id = "tokens")
+public class TokenUsageEndpoint {
+
+    private final TokenUsageTracker tokenUsageTracker;
+
+    @ReadOperation
+    public TokenUsageReport report() {
+        return tokenUsageTracker.getReport();
+    }
+
+    @ReadOperation
+    public Map<String, TokenStats> coin(@Selector String coin) {
+        return tokenUsageTracker.getCoinUsage(coin).orElse(null);
+    }
+}
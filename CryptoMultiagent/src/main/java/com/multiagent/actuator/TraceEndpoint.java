@@ -0,0 +1,36 @@
+package com.multiagent.actuator;
+
+import com.multiagent.tracing.InMemorySpanExporter;
+import com.multiagent.tracing.InMemorySpanExporter.TraceSummary;
+import com.multiagent.tracing.SpanRecord;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Actuator-эндпоинт с трассировками из памяти приложения: GET /actuator/traces - последние трассировки,
+ * GET /actuator/traces/{traceId} - спаны одной трассировки
+ */
+@Component
+@RequiredArgsConstructor
+@Endpoint(id = "traces")
+public class TraceEndpoint {
+
+    private static final int RECENT_TRACES = 50;
+
+    private final InMemorySpanExporter spanExporter;
+
+    @ReadOperation
+    public List<TraceSummary> traces() {
+        return spanExporter.getRecentTraces(RECENT_TRACES);
+    }
+
+    @ReadOperation
+    public List<SpanRecord> trace(@Selector String traceId) {
+        return spanExporter.getTrace(traceId);
+    }
+}
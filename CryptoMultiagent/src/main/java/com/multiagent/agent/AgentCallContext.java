@@ -0,0 +1,157 @@
+package com.multiagent.agent;
+
+import com.multiagent.model.TokenUsage;
+import io.micrometer.observation.ObservationRegistry;
+import org.springframework.ai.chat.metadata.ChatResponseMetadata;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.openai.api.OpenAiApi;
+
+import java.util.function.Supplier;
+
+/**
+ * Параметры и учет токенов текущего вызова агента. Реестр агентов устанавливает контекст
+ * на время вызова в потоке агента, а {@link BaseAgent} применяет лимит токенов и краткий режим
+ * к запросам к модели и суммирует расход токенов по метаданным ответа.
+ * Через контекст также передается реестр наблюдений для спанов вызовов модели
+ * и счетчик повторных попыток.
+ * <p>
+ * Контекст прогрева ({@link #withModel(ChatModel)}) направляет запросы агентов в переданную
+ * модель вместо модели агента, чтобы выполнить путь анализа без обращения к провайдеру.
+ */
+public final class AgentCallContext {
+
+    private static final ThreadLocal<AgentCallContext> CURRENT = new ThreadLocal<>();
+
+    private final Integer maxTokens;
+
+    private final boolean brief;
+
+    private final ObservationRegistry observationRegistry;
+
+    private final ChatModel chatModel;
+
+    private long promptTokens;
+
+    private long completionTokens;
+
+    private long cachedTokens;
+
+    private int retryAttempts;
+
+    public AgentCallContext(Integer maxTokens, boolean brief) {
+        this(maxTokens, brief, ObservationRegistry.NOOP);
+    }
+
+    public AgentCallContext(Integer maxTokens, boolean brief, ObservationRegistry observationRegistry) {
+        this(maxTokens, brief, observationRegistry, null);
+    }
+
+    private AgentCallContext(Integer maxTokens, boolean brief, ObservationRegistry observationRegistry,
+                             ChatModel chatModel) {
+        this.maxTokens = maxTokens;
+        this.brief = brief;
+        this.observationRegistry = observationRegistry;
+        this.chatModel = chatModel;
+    }
+
+    /**
+     * Контекст, в котором агенты обращаются к переданной модели вместо своей
+     */
+    public static AgentCallContext withModel(ChatModel chatModel) {
+        return new AgentCallContext(null, false, ObservationRegistry.NOOP, chatModel);
+    }
+
+    /**
+     * Контекст текущего вызова; вне реестра (например, при прямом вызове агента) - без ограничений
+     */
+    static AgentCallContext current() {
+        AgentCallContext context = CURRENT.get();
+        return context != null ? context : new AgentCallContext(null, false);
+    }
+
+    /**
+     * Выполняет действие с установленным контекстом вызова
+     */
+    public static <T> T callWith(AgentCallContext context, Supplier<T> action) {
+        AgentCallContext previous = CURRENT.get();
+        CURRENT.set(context);
+        try {
+            return action.get();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    public Integer getMaxTokens() {
+        return maxTokens;
+    }
+
+    public boolean isBrief() {
+        return brief;
+    }
+
+    public ObservationRegistry getObservationRegistry() {
+        return observationRegistry;
+    }
+
+    /**
+     * Модель, заменяющая модель агента; null - используется модель агента
+     */
+    public ChatModel getChatModel() {
+        return chatModel;
+    }
+
+    /**
+     * Суммирует расход токенов; повторные попытки вызова модели учитываются все
+     *
+     * @return расход токенов этого ответа модели
+     */
+    synchronized TokenUsage recordUsage(ChatResponseMetadata metadata) {
+        Usage usage = metadata == null ? null : metadata.getUsage();
+        if (usage == null) {
+            return new TokenUsage(0, 0);
+        }
+        TokenUsage response = new TokenUsage(
+                usage.getPromptTokens() == null ? 0 : usage.getPromptTokens(),
+                usage.getCompletionTokens() == null ? 0 : usage.getCompletionTokens(),
+                cachedTokens(usage));
+        promptTokens += response.getPromptTokens();
+        completionTokens += response.getCompletionTokens();
+        cachedTokens += response.getCachedTokens();
+        return response;
+    }
+
+    /**
+     * Учитывает неудачную попытку вызова модели, после которой будет выполнен повтор
+     */
+    synchronized void recordRetry() {
+        retryAttempts++;
+    }
+
+    synchronized int getRetryAttempts() {
+        return retryAttempts;
+    }
+
+    /**
+     * Токены промпта из кэша префиксов провайдера. OpenAI и провайдеры за OpenRouter сообщают
+     * их в prompt_tokens_details.cached_tokens, DeepSeek - в prompt_cache_hit_tokens.
+     */
+    private static long cachedTokens(Usage usage) {
+        if (!(usage.getNativeUsage() instanceof OpenAiApi.Usage nativeUsage)) {
+            return 0;
+        }
+        if (nativeUsage.promptTokensDetails() != null && nativeUsage.promptTokensDetails().cachedTokens() != null) {
+            return nativeUsage.promptTokensDetails().cachedTokens();
+        }
+        return nativeUsage.promptCacheHitTokens() == null ? 0 : nativeUsage.promptCacheHitTokens();
+    }
+
+    public synchronized TokenUsage getUsage() {
+        return new TokenUsage(promptTokens, completionTokens, cachedTokens);
+    }
+}
@@ -0,0 +1,14 @@
+package com.multiagent.agent;
+
+import java.time.Duration;
+
+/**
+ * Текущая нагрузка на агента
+ *
+ * @param pending  вызовы, которые будут обслужены раньше нового вызова: выполняющиеся
+ *                 и ожидающие разрешения в полосах с тем же или более высоким приоритетом
+ * @param capacity максимальное количество одновременных вызовов
+ * @param latency  сглаженная длительность вызова; null, пока не было ни одного вызова
+ */
+public record AgentLoad(int pending, int capacity, Duration latency) {
+}
@@ -0,0 +1,363 @@
+package com.multiagent.agent;
+
+import com.multiagent.config.AgentProperties;
+import com.multiagent.config.LaneProperties;
+import com.multiagent.model.AgentAnalysis;
+import com.multiagent.model.AnalysisOptions;
+import com.multiagent.model.ExecutionLane;
+import com.multiagent.tracing.AnalysisObservations;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToIntFunction;
+
+/**
+ * Реестр агентов, обнаруженных в Spring контексте.
+ * Определяет состав агентов для запроса, их веса и ограничивает
+ * количество одновременных вызовов каждого агента с разделением по полосам выполнения
+ * (см. {@link LanePermits}).
+ * Агенты хранятся в топологическом порядке: зависимости всегда идут раньше зависимых агентов.
+ */
+@Slf4j
+@Component
+public class AgentRegistry {
+
+    private final Map<String, BaseAgent> agents;
+
+    private final Map<String, LanePermits> permits = new LinkedHashMap<>();
+
+    private final Map<String, LoadStats> loads = new HashMap<>();
+
+    private final AgentProperties properties;
+
+    private final ObservationRegistry observationRegistry;
+
+    private final Map<ExecutionLane, Timer> waitTimers = new EnumMap<>(ExecutionLane.class);
+
+    private final Map<ExecutionLane, Timer> callTimers = new EnumMap<>(ExecutionLane.class);
+
+    public AgentRegistry(List<BaseAgent> discoveredAgents, AgentProperties properties) {
+        this(discoveredAgents, properties, new LaneProperties(), ObservationRegistry.NOOP, new SimpleMeterRegistry());
+    }
+
+    @Autowired
+    public AgentRegistry(List<BaseAgent> discoveredAgents, AgentProperties properties, LaneProperties laneProperties,
+                         ObservationRegistry observationRegistry, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.observationRegistry = observationRegistry;
+        Map<String, BaseAgent> byId = new LinkedHashMap<>();
+        for (BaseAgent agent : discoveredAgents) {
+            if (agent.isModerator()) {
+                // Модератор вызывается только при разногласиях, а не в общем запуске
+                continue;
+            }
+            if (byId.putIfAbsent(agent.getId(), agent) != null) {
+                throw new IllegalStateException("Дублирующийся идентификатор агента: " + agent.getId());
+            }
+            int maxConcurrency = Math.max(1, properties.getSettings(agent.getId()).getMaxConcurrency());
+            permits.put(agent.getId(), new LanePermits(maxConcurrency,
+                    laneProperties.reserved(ExecutionLane.INTERACTIVE, maxConcurrency),
+                    laneProperties.reserved(ExecutionLane.BULK, maxConcurrency)));
+            loads.put(agent.getId(), new LoadStats());
+        }
+        this.agents = topologicalOrder(byId);
+        registerLaneMetrics(meterRegistry);
+        log.info("Зарегистрировано агентов: {} ({})", agents.size(), agents.keySet());
+    }
+
+    /**
+     * Все зарегистрированные агенты
+     */
+    public Collection<BaseAgent> getAgents() {
+        return Collections.unmodifiableCollection(agents.values());
+    }
+
+    /**
+     * Возвращает агентов для запроса: явно запрошенных или включенных в конфигурации.
+     * Зависимости выбранных агентов добавляются автоматически.
+     *
+     * @param requestedIds идентификаторы агентов из запроса, может быть пустым
+     * @throws IllegalArgumentException если запрошен неизвестный агент
+     */
+    public List<BaseAgent> resolve(Collection<String> requestedIds) {
+        Set<String> selected = new LinkedHashSet<>();
+        if (requestedIds == null || requestedIds.isEmpty()) {
+            agents.values().stream()
+                    .filter(this::isEnabled)
+                    .forEach(agent -> selected.add(agent.getId()));
+        } else {
+            validate(requestedIds);
+            selected.addAll(requestedIds);
+        }
+
+        Deque<String> pending = new ArrayDeque<>(selected);
+        while (!pending.isEmpty()) {
+            for (String dependency : agents.get(pending.pop()).getDependencies()) {
+                if (selected.add(dependency)) {
+                    pending.push(dependency);
+                }
+            }
+        }
+
+        return agents.values().stream()
+                .filter(agent -> selected.contains(agent.getId()))
+                .toList();
+    }
+
+    /**
+     * Проверяет, что все запрошенные агенты зарегистрированы
+     */
+    public void validate(Collection<String> requestedIds) {
+        if (requestedIds == null) {
+            return;
+        }
+        for (String id : requestedIds) {
+            if (!agents.containsKey(id)) {
+                throw new IllegalArgumentException("Неизвестный агент: " + id + ". Доступные агенты: " + agents.keySet());
+            }
+        }
+    }
+
+    /**
+     * Нагрузка на агента для оценки задержки нового вызова в полосе: учитываются все выполняющиеся
+     * вызовы и ожидающие в полосах с тем же или более высоким приоритетом.
+     * Модератор не ограничен и не учитывается.
+     */
+    public AgentLoad getLoad(BaseAgent agent, ExecutionLane lane) {
+        LanePermits lanePermits = permits.get(agent.getId());
+        if (lanePermits == null) {
+            return new AgentLoad(0, Integer.MAX_VALUE, null);
+        }
+        return new AgentLoad(lanePermits.ahead(lane), lanePermits.capacity(), loads.get(agent.getId()).latency());
+    }
+
+    public double getWeight(BaseAgent agent) {
+        return properties.getSettings(agent.getId()).getWeight();
+    }
+
+    /**
+     * Выполняет анализ агентом с учетом ограничения одновременных вызовов
+     */
+    public AgentAnalysis invoke(BaseAgent agent, String cryptocurrency, String timeframe) {
+        return invoke(agent, cryptocurrency, timeframe, Map.of());
+    }
+
+    /**
+     * Выполняет анализ агентом, передавая ему результаты его зависимостей
+     */
+    public AgentAnalysis invoke(BaseAgent agent, String cryptocurrency, String timeframe,
+                                Map<String, AgentAnalysis> inputs) {
+        return invoke(agent, cryptocurrency, timeframe, inputs, AnalysisOptions.defaults());
+    }
+
+    /**
+     * Выполняет анализ агентом с лимитом токенов и кратким режимом из параметров запроса.
+     * Расход токенов вызова сохраняется в результате анализа.
+     * Модератор не входит в реестр и вызывается без ограничения одновременных вызовов.
+     * Вызов выполняется в спане агента, включая ожидание разрешения на вызов.
+     */
+    public AgentAnalysis invoke(BaseAgent agent, String cryptocurrency, String timeframe,
+                                Map<String, AgentAnalysis> inputs, AnalysisOptions options) {
+        Observation observation = Observation.createNotStarted(AnalysisObservations.AGENT, observationRegistry)
+                .contextualName(AnalysisObservations.AGENT + " " + agent.getId())
+                .lowCardinalityKeyValue(AnalysisObservations.AGENT_ID, agent.getId())
+                .highCardinalityKeyValue(AnalysisObservations.COIN, cryptocurrency)
+                .highCardinalityKeyValue(AnalysisObservations.TIMEFRAME, timeframe)
+                .start();
+        try (Observation.Scope scope = observation.openScope()) {
+            AgentAnalysis analysis = invokeWithPermit(agent, cryptocurrency, timeframe, inputs, options, observation);
+            if (analysis != null) {
+                AnalysisObservations.tagUsage(observation, analysis.getTokenUsage());
+                observation.highCardinalityKeyValue(AnalysisObservations.RECOMMENDATION, analysis.getRecommendation());
+            }
+            return analysis;
+        } catch (RuntimeException e) {
+            observation.error(e);
+            throw e;
+        } finally {
+            observation.stop();
+        }
+    }
+
+    private AgentAnalysis invokeWithPermit(BaseAgent agent, String cryptocurrency, String timeframe,
+                                           Map<String, AgentAnalysis> inputs, AnalysisOptions options,
+                                           Observation observation) {
+        LanePermits lanePermits = permits.get(agent.getId());
+        ExecutionLane lane = options.getLane();
+        if (lanePermits != null) {
+            long waitStart = System.nanoTime();
+            try {
+                lanePermits.acquire(lane);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Ожидание агента " + agent.getId() + " прервано", e);
+            }
+            long waitNanos = System.nanoTime() - waitStart;
+            waitTimers.get(lane).record(waitNanos, TimeUnit.NANOSECONDS);
+            observation.highCardinalityKeyValue(AnalysisObservations.PERMIT_WAIT_MILLIS,
+                    String.valueOf(TimeUnit.NANOSECONDS.toMillis(waitNanos)));
+        }
+        long callStart = System.nanoTime();
+        try {
+            AgentCallContext context = new AgentCallContext(
+                    getMaxTokens(agent, options), options.isBrief(), observationRegistry);
+            AgentAnalysis analysis = AgentCallContext.callWith(context,
+                    () -> agent.analyze(cryptocurrency, timeframe, inputs));
+            if (analysis != null) {
+                analysis.setTokenUsage(context.getUsage());
+            }
+            return analysis;
+        } finally {
+            if (lanePermits != null) {
+                long callNanos = System.nanoTime() - callStart;
+                loads.get(agent.getId()).recordLatency(callNanos);
+                callTimers.get(lane).record(callNanos, TimeUnit.NANOSECONDS);
+                lanePermits.release(lane);
+            }
+        }
+    }
+
+    /**
+     * Лимит токенов ответа агента: минимум из настройки агента и лимита запроса
+     */
+    public Integer getMaxTokens(BaseAgent agent, AnalysisOptions options) {
+        Integer agentLimit = properties.getSettings(agent.getId()).getMaxTokens();
+        Integer requestLimit = options.getMaxTokens();
+        if (agentLimit == null || requestLimit == null) {
+            return agentLimit != null ? agentLimit : requestLimit;
+        }
+        return Math.min(agentLimit, requestLimit);
+    }
+
+    /**
+     * Лимит токенов запроса, если он ограничивает хотя бы одного агента запроса, иначе null.
+     * Когда собственные лимиты всех агентов не больше лимита запроса, анализ выполняется так же,
+     * как без него, и не должен получать отдельный ключ кэша.
+     *
+     * @param requestedIds идентификаторы агентов из запроса, может быть пустым
+     */
+    public Integer limitingMaxTokens(Collection<String> requestedIds, Integer requestLimit) {
+        if (requestLimit == null) {
+            return null;
+        }
+        for (BaseAgent agent : resolve(requestedIds)) {
+            Integer agentLimit = properties.getSettings(agent.getId()).getMaxTokens();
+            if (agentLimit == null || agentLimit > requestLimit) {
+                return requestLimit;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Глубина очереди и выполняющиеся вызовы полосы (сумма по агентам), ожидание разрешения и длительность вызова
+     */
+    private void registerLaneMetrics(MeterRegistry meterRegistry) {
+        for (ExecutionLane lane : ExecutionLane.values()) {
+            Gauge.builder("crypto.lane.queue.depth", () -> sum(lanePermits -> lanePermits.waiting(lane)))
+                    .description("Вызовы агентов, ожидающие разрешения в полосе")
+                    .tag("lane", lane.tag())
+                    .register(meterRegistry);
+            Gauge.builder("crypto.lane.active", () -> sum(lanePermits -> lanePermits.active(lane)))
+                    .description("Выполняющиеся вызовы агентов в полосе")
+                    .tag("lane", lane.tag())
+                    .register(meterRegistry);
+            waitTimers.put(lane, Timer.builder("crypto.lane.wait")
+                    .description("Ожидание разрешения на вызов агента в полосе")
+                    .tag("lane", lane.tag())
+                    .register(meterRegistry));
+            callTimers.put(lane, Timer.builder("crypto.lane.duration")
+                    .description("Длительность вызова агента в полосе")
+                    .tag("lane", lane.tag())
+                    .register(meterRegistry));
+        }
+    }
+
+    private int sum(ToIntFunction<LanePermits> metric) {
+        return permits.values().stream().mapToInt(metric).sum();
+    }
+
+    private boolean isEnabled(BaseAgent agent) {
+        Boolean configured = properties.getSettings(agent.getId()).getEnabled();
+        return configured != null ? configured : agent.isEnabledByDefault();
+    }
+
+    /**
+     * Упорядочивает агентов так, чтобы зависимости шли раньше зависимых (алгоритм Кана),
+     * сохраняя исходный порядок среди независимых агентов
+     */
+    private static Map<String, BaseAgent> topologicalOrder(Map<String, BaseAgent> byId) {
+        Map<String, Integer> inDegree = new HashMap<>();
+        Map<String, List<String>> dependents = new HashMap<>();
+        for (BaseAgent agent : byId.values()) {
+            inDegree.putIfAbsent(agent.getId(), 0);
+            for (String dependency : agent.getDependencies()) {
+                if (!byId.containsKey(dependency)) {
+                    throw new IllegalStateException(
+                            "Агент " + agent.getId() + " зависит от незарегистрированного агента " + dependency);
+                }
+                inDegree.merge(agent.getId(), 1, Integer::sum);
+                dependents.computeIfAbsent(dependency, key -> new ArrayList<>()).add(agent.getId());
+            }
+        }
+
+        Map<String, BaseAgent> ordered = new LinkedHashMap<>();
+        List<String> ready = new ArrayList<>();
+        byId.keySet().stream().filter(id -> inDegree.get(id) == 0).forEach(ready::add);
+        while (!ready.isEmpty()) {
+            String id = ready.remove(0);
+            ordered.put(id, byId.get(id));
+            for (String dependent : dependents.getOrDefault(id, List.of())) {
+                if (inDegree.merge(dependent, -1, Integer::sum) == 0) {
+                    ready.add(dependent);
+                }
+            }
+        }
+
+        if (ordered.size() != byId.size()) {
+            throw new IllegalStateException("Обнаружена циклическая зависимость между агентами");
+        }
+        return ordered;
+    }
+
+    /**
+     * Экспоненциально сглаженная длительность вызова агента
+     * (вес последнего вызова - {@value #LATENCY_SMOOTHING})
+     */
+    private static final class LoadStats {
+
+        private static final double LATENCY_SMOOTHING = 0.2;
+
+        private long latencyNanos = -1;
+
+        private synchronized void recordLatency(long nanos) {
+            latencyNanos = latencyNanos < 0 ? nanos
+                    : Math.round(LATENCY_SMOOTHING * nanos + (1 - LATENCY_SMOOTHING) * latencyNanos);
+        }
+
+        private synchronized Duration latency() {
+            return latencyNanos < 0 ? null : Duration.ofNanos(latencyNanos);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.multiagent.agent;
+
+import com.multiagent.tracing.AnalysisObservations;
+import io.micrometer.observation.Observation;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.retry.RetryCallback;
+import org.springframework.retry.RetryContext;
+import org.springframework.retry.RetryListener;
+import org.springframework.retry.support.RetryTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Учитывает повторные попытки вызова модели. Spring AI повторяет запросы к провайдеру
+ * через собственный RetryTemplate в потоке агента, поэтому неудачная попытка относится
+ * к текущему контексту вызова агента и отмечается событием в спане вызова модели:
+ * промежуток до следующего события или конца спана - ожидание перед повтором.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AgentRetryListener implements RetryListener {
+
+    private final ObjectProvider<RetryTemplate> retryTemplates;
+
+    @PostConstruct
+    public void register() {
+        retryTemplates.orderedStream().forEach(retryTemplate -> retryTemplate.registerListener(this));
+    }
+
+    @Override
+    public <T, E extends Throwable> void onError(RetryContext context, RetryCallback<T, E> callback, Throwable throwable) {
+        AgentCallContext callContext = AgentCallContext.current();
+        callContext.recordRetry();
+        Observation observation = callContext.getObservationRegistry().getCurrentObservation();
+        if (observation != null) {
+            observation.event(Observation.Event.of(AnalysisObservations.RETRY_EVENT,
+                    AnalysisObservations.RETRY_EVENT + ": попытка " + context.getRetryCount()
+                            + " не удалась: " + throwable.getMessage()));
+        }
+        log.debug("Попытка {} вызова модели не удалась: {}", context.getRetryCount(), throwable.getMessage());
+    }
+}
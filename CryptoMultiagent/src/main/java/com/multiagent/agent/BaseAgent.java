@@ -1,67 +1,197 @@
 package com.multiagent.agent;
 
+import com.multiagent.logging.LogPayload;
 import com.multiagent.model.AgentAnalysis;
-import lombok.RequiredArgsConstructor;
+import com.multiagent.model.TokenUsage;
+import com.multiagent.tracing.AnalysisObservations;
+import io.micrometer.observation.Observation;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.ChatOptions;
 import org.springframework.ai.chat.prompt.Prompt;
-import org.springframework.ai.chat.prompt.PromptTemplate;
 import org.springframework.ai.chat.messages.UserMessage;
 
-import org.springframework.retry.annotation.Backoff;
-import org.springframework.retry.annotation.Retryable;
 
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
 
 @Slf4j
-@RequiredArgsConstructor
 public abstract class BaseAgent {
 
+    public static final String AI_ERROR_PREFIX = "Ошибка при получении анализа: ";
+
+    // Добавляется к промпту в кратком режиме: рекомендация и уверенность должны остаться в ответе
+    private static final String BRIEF_INSTRUCTION = """
+
+            Ответь кратко, не более трех предложений. Обязательно укажи рекомендацию
+            (ПОКУПАТЬ/ПРОДАВАТЬ/ДЕРЖАТЬ) и уровень уверенности (высокая/умеренная/низкая уверенность).
+            """;
+
     protected final ChatModel openAiChatModel;
 
+    private final PromptRenderer promptRenderer;
+
+    protected BaseAgent(ChatModel openAiChatModel) {
+        this(openAiChatModel, PromptRenderer.defaults());
+    }
+
+    protected BaseAgent(ChatModel openAiChatModel, PromptRenderer promptRenderer) {
+        this.openAiChatModel = openAiChatModel;
+        this.promptRenderer = promptRenderer;
+    }
+
+    /**
+     * Уникальный идентификатор агента, используемый в запросах и конфигурации
+     */
+    public abstract String getId();
+
+    /**
+     * Отображаемое название агента
+     */
+    public abstract String getName();
+
+    /**
+     * Идентификаторы агентов, результаты которых нужны этому агенту на входе
+     */
+    public Set<String> getDependencies() {
+        return Set.of();
+    }
+
+    /**
+     * Участвует ли агент в анализе, если это не переопределено конфигурацией или запросом
+     */
+    public boolean isEnabledByDefault() {
+        return true;
+    }
+
+    /**
+     * Является ли агент модератором. Модератор не участвует в общем запуске агентов,
+     * а вызывается отдельно для разрешения разногласий между ними.
+     */
+    public boolean isModerator() {
+        return false;
+    }
+
     public abstract AgentAnalysis analyze(String cryptocurrency, String timeframe);
 
-    @Retryable(value = {Exception.class}, maxAttempts = 3, backoff = @Backoff(delay = 1000))
-    protected String getAiResponse(String promptText, Map<String, Object> templateValues) {
+    /**
+     * Выполняет анализ с учетом результатов агентов, от которых зависит данный агент.
+     * По умолчанию входные данные игнорируются.
+     *
+     * @param inputs результаты зависимостей по идентификатору агента
+     */
+    public AgentAnalysis analyze(String cryptocurrency, String timeframe, Map<String, AgentAnalysis> inputs) {
+        return analyze(cryptocurrency, timeframe);
+    }
+
+    /**
+     * Форматирует выводы других агентов для вставки в промпт.
+     * Сортировка по идентификатору агента сохраняет текст промпта стабильным.
+     *
+     * @param maxLength максимальная длина текста одного анализа
+     */
+    protected static String formatAnalyses(Map<String, AgentAnalysis> analyses, int maxLength) {
+        StringBuilder builder = new StringBuilder();
+        new TreeMap<>(analyses).values().forEach(input -> {
+            String text = input.getAnalysis();
+            if (text.length() > maxLength) {
+                text = text.substring(0, maxLength) + "...";
+            }
+            builder.append(input.getAgentName())
+                    .append(" (рекомендация: ").append(input.getRecommendation())
+                    .append(", уверенность: ").append(input.getConfidence()).append("):\n")
+                    .append(text).append("\n\n");
+        });
+        return builder.toString().trim();
+    }
+
+    /**
+     * Отправляет запрос к модели: неизменные инструкции агента передаются системным сообщением,
+     * параметры запроса - коротким сообщением пользователя (см. {@link PromptRenderer}).
+     * Повторные попытки выполняет RetryTemplate клиента модели (см. {@link AgentRetryListener})
+     *
+     * @param systemPrompt инструкции агента без подстановок
+     * @param userTemplate шаблон сообщения пользователя
+     */
+    protected String getAiResponse(String systemPrompt, String userTemplate, Map<String, Object> templateValues) {
         log.debug("Отправка запроса к AI с шаблоном для криптовалюты: {}", templateValues.get("cryptocurrency"));
-        log.trace("Текст промпта: {}", promptText);
+        log.trace("Текст промпта: {}", LogPayload.of(userTemplate));
         
         try {
-            PromptTemplate promptTemplate = new PromptTemplate(promptText);
-            Prompt prompt = promptTemplate.create(templateValues);
+            AgentCallContext context = AgentCallContext.current();
+            Prompt prompt = promptRenderer.render(getId(), systemPrompt, userTemplate, templateValues,
+                    context.isBrief() ? BRIEF_INSTRUCTION : "", chatOptions(context));
 
-            String response = openAiChatModel.call(prompt)
-                    .getResult().toString();
+            String response = call(prompt, context);
             
             log.debug("Получен ответ от AI для криптовалюты: {}", templateValues.get("cryptocurrency"));
-            log.trace("Ответ AI: {}", response);
+            log.trace("Ответ AI: {}", LogPayload.of(response));
             
             return response;
         } catch (Exception e) {
             log.error("Ошибка при получении ответа от AI для криптовалюты: {} - {}", 
                     templateValues.get("cryptocurrency"), e.getMessage(), e);
-            return "Ошибка при получении анализа: " + e.getMessage();
+            return AI_ERROR_PREFIX + e.getMessage();
         }
     }
 
     protected String getAiResponse(String promptText) {
         log.debug("Отправка простого запроса к AI");
-        log.trace("Текст промпта: {}", promptText);
+        log.trace("Текст промпта: {}", LogPayload.of(promptText));
         
         try {
-            UserMessage userMessage = new UserMessage(promptText);
-            Prompt prompt = new Prompt(userMessage);
+            AgentCallContext context = AgentCallContext.current();
+            UserMessage userMessage = new UserMessage(withBriefInstruction(promptText, context));
+            Prompt prompt = new Prompt(userMessage, chatOptions(context));
 
-            String response = openAiChatModel.call(prompt)
-                    .getResult().toString();
+            String response = call(prompt, context);
             
             log.debug("Получен ответ от AI");
-            log.trace("Ответ AI: {}", response);
+            log.trace("Ответ AI: {}", LogPayload.of(response));
             
             return response;
         } catch (Exception e) {
             log.error("Ошибка при получении ответа от AI - {}", e.getMessage(), e);
-            return "Ошибка при получении анализа: " + e.getMessage();
+            return AI_ERROR_PREFIX + e.getMessage();
         }
     }
+
+    /**
+     * Вызывает модель в отдельном спане: в нем видны время ответа провайдера,
+     * повторные попытки и расход токенов
+     */
+    private String call(Prompt prompt, AgentCallContext context) {
+        Observation observation = Observation.createNotStarted(AnalysisObservations.MODEL_CALL,
+                        context.getObservationRegistry())
+                .lowCardinalityKeyValue(AnalysisObservations.AGENT_ID, getId())
+                .start();
+        int retriesBefore = context.getRetryAttempts();
+        try (Observation.Scope scope = observation.openScope()) {
+            ChatModel chatModel = context.getChatModel() != null ? context.getChatModel() : openAiChatModel;
+            ChatResponse chatResponse = chatModel.call(prompt);
+            TokenUsage usage = context.recordUsage(chatResponse.getMetadata());
+            AnalysisObservations.tagUsage(observation, usage);
+            return chatResponse.getResult().toString();
+        } catch (RuntimeException e) {
+            observation.error(e);
+            throw e;
+        } finally {
+            observation.highCardinalityKeyValue(AnalysisObservations.RETRY_ATTEMPTS,
+                    String.valueOf(context.getRetryAttempts() - retriesBefore));
+            observation.stop();
+        }
+    }
+
+    /**
+     * Лимит токенов ответа текущего вызова; без лимита используются настройки модели по умолчанию
+     */
+    private static ChatOptions chatOptions(AgentCallContext context) {
+        return context.getMaxTokens() == null ? null : ChatOptions.builder().maxTokens(context.getMaxTokens()).build();
+    }
+
+    private static String withBriefInstruction(String promptText, AgentCallContext context) {
+        return context.isBrief() ? promptText + BRIEF_INSTRUCTION : promptText;
+    }
 }
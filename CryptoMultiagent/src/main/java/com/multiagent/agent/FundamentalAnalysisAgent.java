@@ -1,21 +1,29 @@
 package com.multiagent.agent;
 
+import com.multiagent.logging.LogPayload;
 import com.multiagent.model.AgentAnalysis;
 import com.multiagent.util.AnalysisUtils;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Component;
 
 import java.util.Map;
 
 @Slf4j
 @Component
+@Order(2)
 public class FundamentalAnalysisAgent extends BaseAgent {
 
-    private static final String FUNDAMENTAL_ANALYSIS_PROMPT = """
+    public static final String ID = "fundamental";
+
+    public static final String NAME = "Фундаментальный Аналитик";
+
+    private static final String FUNDAMENTAL_ANALYSIS_SYSTEM_PROMPT = """
         Ты - эксперт по фундаментальному анализу криптовалют и блокчейн проектов.
         
-        Проведи глубокий фундаментальный анализ криптовалюты {cryptocurrency} с учетом временного горизонта {timeframe}.
+        Пользователь указывает криптовалюту и временной горизонт. Проведи глубокий фундаментальный
+        анализ криптовалюты с учетом указанного горизонта.
         
         Проанализируй следующие аспекты:
         1. Технология и инновации проекта
@@ -37,11 +45,25 @@ public class FundamentalAnalysisAgent extends BaseAgent {
         Основывай выводы на фактах и логическом анализе.
         """;
 
-    public FundamentalAnalysisAgent(ChatModel openAiChatModel) {
-        super(openAiChatModel);
+    private static final String FUNDAMENTAL_ANALYSIS_USER_PROMPT = """
+        Проведи фундаментальный анализ криптовалюты {cryptocurrency} с учетом временного горизонта {timeframe}.
+        """;
+
+    public FundamentalAnalysisAgent(ChatModel openAiChatModel, PromptRenderer promptRenderer) {
+        super(openAiChatModel, promptRenderer);
         log.info("Агент: Фундаментальный Аналитик - инициализирован");
     }
 
+    @Override
+    public String getId() {
+        return ID;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
     @Override
     public AgentAnalysis analyze(String cryptocurrency, String timeframe) {
         log.info("Начинаю фундаментальный анализ криптовалюты: {} с временным интервалом: {}", cryptocurrency, timeframe);
@@ -53,16 +75,16 @@ public class FundamentalAnalysisAgent extends BaseAgent {
             );
 
             log.debug("Отправка запроса к AI для фундаментального анализа с параметрами: {}", templateValues);
-            String analysis = getAiResponse(FUNDAMENTAL_ANALYSIS_PROMPT, templateValues);
+            String analysis = getAiResponse(FUNDAMENTAL_ANALYSIS_SYSTEM_PROMPT, FUNDAMENTAL_ANALYSIS_USER_PROMPT, templateValues);
             
             log.debug("Получен ответ от AI, извлекаю рекомендацию и уверенность");
             String recommendation = AnalysisUtils.extractRecommendation(analysis);
             double confidence = AnalysisUtils.extractConfidence(analysis);
 
             log.info("Фундаментальный анализ завершен. Рекомендация: {}, Уверенность: {}", recommendation, confidence);
-            log.debug("Полный анализ: {}", analysis);
+            log.debug("Полный анализ: {}", LogPayload.of(analysis));
             
-            return new AgentAnalysis("Фундаментальный Аналитик", analysis, recommendation, confidence);
+            return new AgentAnalysis(NAME, analysis, recommendation, confidence);
         } catch (Exception e) {
             log.error("Ошибка при фундаментальном анализе криптовалюты {}: {}", cryptocurrency, e.getMessage(), e);
             throw e;
@@ -0,0 +1,166 @@
+package com.multiagent.agent;
+
+import com.multiagent.model.ExecutionLane;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Разрешения на одновременные вызовы агента с разделением по полосам выполнения.
+ * <p>
+ * Каждая полоса может занять свой резерв в любой момент. Остальная часть лимита общая:
+ * полоса занимает общее место, только если после этого хватит мест на неиспользованные
+ * резервы других полос, и только если не ждут полосы с более высоким приоритетом.
+ * Освободившееся место предлагается полосам в порядке приоритета, поэтому интерактивный
+ * вызов не ждет за пакетными, а пакетные не голодают благодаря собственному резерву.
+ */
+final class LanePermits {
+
+    private static final ExecutionLane[] LANES = ExecutionLane.values();
+
+    private final int capacity;
+
+    private final int[] reserved = new int[LANES.length];
+
+    private final int[] active = new int[LANES.length];
+
+    private final int[] waiting = new int[LANES.length];
+
+    private final ReentrantLock lock = new ReentrantLock(true);
+
+    private final Condition[] available = new Condition[LANES.length];
+
+    /**
+     * @param capacity максимальное количество одновременных вызовов агента
+     * @param reserved резерв каждой полосы (по порядку {@link ExecutionLane}); сумма не больше capacity
+     */
+    LanePermits(int capacity, int... reserved) {
+        int total = 0;
+        for (int i = 0; i < LANES.length; i++) {
+            this.reserved[i] = i < reserved.length ? Math.max(0, reserved[i]) : 0;
+            total += this.reserved[i];
+            available[i] = lock.newCondition();
+        }
+        if (capacity < 1 || total > capacity) {
+            throw new IllegalArgumentException("Резервы полос (" + total + ") превышают лимит вызовов агента " + capacity);
+        }
+        this.capacity = capacity;
+    }
+
+    /**
+     * Ожидает разрешения на вызов в указанной полосе
+     */
+    void acquire(ExecutionLane lane) throws InterruptedException {
+        int index = lane.ordinal();
+        lock.lock();
+        try {
+            waiting[index]++;
+            try {
+                while (!canAcquire(index)) {
+                    available[index].await();
+                }
+                active[index]++;
+            } finally {
+                waiting[index]--;
+                // Уход ожидающего из очереди мог открыть общие места полосам с более низким приоритетом
+                signalAvailable();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void release(ExecutionLane lane) {
+        lock.lock();
+        try {
+            active[lane.ordinal()]--;
+            signalAvailable();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Вызовы полосы, ожидающие разрешения
+     */
+    int waiting(ExecutionLane lane) {
+        lock.lock();
+        try {
+            return waiting[lane.ordinal()];
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Выполняющиеся вызовы полосы
+     */
+    int active(ExecutionLane lane) {
+        lock.lock();
+        try {
+            return active[lane.ordinal()];
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Вызовы, которые будут обслужены раньше нового вызова полосы: все выполняющиеся
+     * и ожидающие в полосах с тем же или более высоким приоритетом
+     */
+    int ahead(ExecutionLane lane) {
+        lock.lock();
+        try {
+            int ahead = 0;
+            for (int i = 0; i < LANES.length; i++) {
+                ahead += active[i] + (i <= lane.ordinal() ? waiting[i] : 0);
+            }
+            return ahead;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean canAcquire(int lane) {
+        int free = capacity;
+        for (int count : active) {
+            free -= count;
+        }
+        if (free <= 0) {
+            return false;
+        }
+        if (active[lane] < reserved[lane]) {
+            return true;
+        }
+        for (int other = 0; other < LANES.length; other++) {
+            if (other != lane) {
+                free -= Math.max(0, reserved[other] - active[other]);
+            }
+        }
+        if (free <= 0) {
+            return false;
+        }
+        for (int higher = 0; higher < lane; higher++) {
+            if (waiting[higher] > 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Будит по одному ожидающему в каждой полосе, которой сейчас доступно место;
+     * получивший разрешение снова вызывает этот метод, поэтому пробуждения идут по цепочке
+     */
+    private void signalAvailable() {
+        for (int lane = 0; lane < LANES.length; lane++) {
+            if (waiting[lane] > 0 && canAcquire(lane)) {
+                available[lane].signal();
+            }
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.multiagent.agent;
+
+import com.multiagent.logging.LogPayload;
+import com.multiagent.model.AgentAnalysis;
+import com.multiagent.util.AnalysisUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Агент-модератор инвестиционного комитета. Синтезирует выводы остальных агентов
+ * в итоговое решение. Не входит в общий запуск агентов: сервис анализа вызывает его
+ * только когда агенты расходятся во мнениях или их уверенность низкая.
+ */
+@Slf4j
+@Component
+public class ModeratorAgent extends BaseAgent {
+
+    public static final String ID = "moderator";
+
+    public static final String NAME = "Модератор";
+
+    private static final int MAX_INPUT_LENGTH = 2000;
+
+    private static final String MODERATOR_SYSTEM_PROMPT = """
+        Ты - председатель инвестиционного комитета криптовалютного фонда.
+
+        Пользователь указывает криптовалюту, горизонт и выводы аналитиков, которые разошлись
+        во мнениях или не уверены в своих выводах.
+
+        Твоя задача - вынести итоговое решение:
+        1. Сопоставь аргументы аналитиков и найди в чем они расходятся
+        2. Оцени, чьи аргументы лучше обоснованы для данного горизонта
+        3. Учти, что при слабых аргументах с обеих сторон разумнее не открывать позицию
+
+        Структура ответа:
+        - Ключевые разногласия
+        - Наиболее сильные аргументы
+        - Итоговое решение с обоснованием
+        - Рекомендация: ПОКУПАТЬ/ПРОДАВАТЬ/ДЕРЖАТЬ
+        - Уровень уверенности (высокая/умеренная/низкая уверенность)
+
+        Будь беспристрастен и опирайся только на приведенные выводы.
+        """;
+
+    private static final String MODERATOR_USER_PROMPT = """
+        Криптовалюта: {cryptocurrency}
+        Горизонт: {timeframe}
+
+        Выводы аналитиков:
+
+        {inputs}
+        """;
+
+    public ModeratorAgent(ChatModel openAiChatModel, PromptRenderer promptRenderer) {
+        super(openAiChatModel, promptRenderer);
+        log.info("Агент: Модератор - инициализирован");
+    }
+
+    @Override
+    public String getId() {
+        return ID;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public boolean isModerator() {
+        return true;
+    }
+
+    @Override
+    public AgentAnalysis analyze(String cryptocurrency, String timeframe) {
+        return analyze(cryptocurrency, timeframe, Map.of());
+    }
+
+    /**
+     * Выносит итоговое решение по выводам агентов
+     *
+     * @param inputs анализы агентов по их идентификатору
+     */
+    @Override
+    public AgentAnalysis analyze(String cryptocurrency, String timeframe, Map<String, AgentAnalysis> inputs) {
+        log.info("Модератор разрешает разногласия по криптовалюте: {} с временным интервалом: {}", cryptocurrency, timeframe);
+
+        try {
+            Map<String, Object> templateValues = Map.of(
+                    "cryptocurrency", cryptocurrency,
+                    "timeframe", timeframe,
+                    "inputs", formatAnalyses(inputs, MAX_INPUT_LENGTH)
+            );
+
+            log.debug("Отправка запроса к AI для модерации, входных анализов: {}", inputs.size());
+            String analysis = getAiResponse(MODERATOR_SYSTEM_PROMPT, MODERATOR_USER_PROMPT, templateValues);
+
+            log.debug("Получен ответ от AI, извлекаю рекомендацию и уверенность");
+            String recommendation = AnalysisUtils.extractRecommendation(analysis);
+            double confidence = AnalysisUtils.extractConfidence(analysis);
+
+            log.info("Модерация завершена. Рекомендация: {}, Уверенность: {}", recommendation, confidence);
+            log.debug("Полный анализ: {}", LogPayload.of(analysis));
+
+            return new AgentAnalysis(NAME, analysis, recommendation, confidence);
+        } catch (Exception e) {
+            log.error("Ошибка при модерации анализа криптовалюты {}: {}", cryptocurrency, e.getMessage(), e);
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.multiagent.agent;
+
+import com.multiagent.config.PromptProperties;
+import com.multiagent.config.PromptProperties.Layout;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.chat.prompt.PromptTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Строит промпты агентов в заданной раскладке и измеряет стоимость их построения.
+ * В раскладке split шаблонизатор обрабатывает только короткое сообщение пользователя,
+ * а системное сообщение передается без изменений.
+ */
+@Component
+public class PromptRenderer {
+
+    private final PromptProperties properties;
+
+    private final MeterRegistry meterRegistry;
+
+    public PromptRenderer(PromptProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Раскладка split без сбора метрик - для агентов, созданных вне Spring контекста
+     */
+    static PromptRenderer defaults() {
+        return new PromptRenderer(new PromptProperties(), null);
+    }
+
+    public Layout getLayout() {
+        return properties.getLayout();
+    }
+
+    /**
+     * @param systemPrompt неизменные инструкции агента без подстановок
+     * @param userTemplate шаблон сообщения пользователя с параметрами запроса
+     * @param suffix       дополнительная инструкция запроса (например, краткий режим); добавляется
+     *                     в конец сообщения пользователя, чтобы не менять системное сообщение
+     */
+    public Prompt render(String agentId, String systemPrompt, String userTemplate, Map<String, Object> values,
+                         String suffix, ChatOptions options) {
+        long startedAt = System.nanoTime();
+        Layout layout = properties.getLayout();
+        List<Message> messages = switch (layout) {
+            case SPLIT -> List.of(
+                    new SystemMessage(systemPrompt),
+                    new UserMessage(new PromptTemplate(userTemplate).render(values) + suffix));
+            case LEGACY -> List.of(new UserMessage(
+                    new PromptTemplate(legacyTemplate(systemPrompt, userTemplate)).render(values) + suffix));
+        };
+        Prompt prompt = new Prompt(messages, options);
+        if (meterRegistry != null) {
+            Timer.builder("crypto.prompt.render")
+                    .description("Время построения промпта агента")
+                    .tag("agent", agentId)
+                    .tag("layout", layout.name().toLowerCase(Locale.ROOT))
+                    .register(meterRegistry)
+                    .record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+        }
+        return prompt;
+    }
+
+    /**
+     * Прежняя раскладка: роль агента, затем параметры запроса, затем остальные инструкции
+     */
+    static String legacyTemplate(String systemPrompt, String userTemplate) {
+        int roleEnd = systemPrompt.indexOf("\n\n");
+        if (roleEnd < 0) {
+            return userTemplate.strip() + "\n\n" + systemPrompt;
+        }
+        return systemPrompt.substring(0, roleEnd) + "\n\n" + userTemplate.strip() + systemPrompt.substring(roleEnd);
+    }
+}
@@ -0,0 +1,126 @@
+package com.multiagent.agent;
+
+import com.multiagent.logging.LogPayload;
+import com.multiagent.model.AgentAnalysis;
+import com.multiagent.util.AnalysisUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Агент оценки рисков. Использует выводы технического аналитика и аналитика настроений,
+ * поэтому запускается после них. По умолчанию отключен, включается в конфигурации
+ * (crypto.agents.risk.enabled) или в запросе.
+ */
+@Slf4j
+@Component
+@Order(4)
+public class RiskAssessmentAgent extends BaseAgent {
+
+    public static final String ID = "risk";
+
+    public static final String NAME = "Риск-Менеджер";
+
+    private static final int MAX_INPUT_LENGTH = 1500;
+
+    private static final String RISK_ASSESSMENT_SYSTEM_PROMPT = """
+        Ты - риск-менеджер криптовалютного инвестиционного фонда.
+
+        Пользователь указывает криптовалюту, горизонт и выводы других аналитиков. Оцени риски
+        инвестиций в криптовалюту на указанном горизонте, опираясь на эти выводы.
+
+        Проанализируй следующие аспекты:
+        1. Согласованность выводов аналитиков
+        2. Волатильность и риск просадки
+        3. Риск ликвидности
+        4. Риск резкой смены настроений рынка
+        5. Допустимый размер позиции и уровни стоп-лосса
+
+        Структура ответа:
+        - Ключевые риски
+        - Сценарии неблагоприятного развития
+        - Рекомендации по управлению позицией
+        - Рекомендация: ПОКУПАТЬ/ПРОДАВАТЬ/ДЕРЖАТЬ
+        - Уровень уверенности (высокая/умеренная/низкая уверенность)
+
+        Будь консервативен в оценках.
+        """;
+
+    private static final String RISK_ASSESSMENT_USER_PROMPT = """
+        Криптовалюта: {cryptocurrency}
+        Горизонт: {timeframe}
+
+        Выводы аналитиков:
+
+        {inputs}
+        """;
+
+    public RiskAssessmentAgent(ChatModel openAiChatModel, PromptRenderer promptRenderer) {
+        super(openAiChatModel, promptRenderer);
+        log.info("Агент: Риск-Менеджер - инициализирован");
+    }
+
+    @Override
+    public String getId() {
+        return ID;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public Set<String> getDependencies() {
+        return Set.of(TechnicalAnalysisAgent.ID, SentimentAnalysisAgent.ID);
+    }
+
+    @Override
+    public boolean isEnabledByDefault() {
+        return false;
+    }
+
+    @Override
+    public AgentAnalysis analyze(String cryptocurrency, String timeframe) {
+        return analyze(cryptocurrency, timeframe, Map.of());
+    }
+
+    @Override
+    public AgentAnalysis analyze(String cryptocurrency, String timeframe, Map<String, AgentAnalysis> inputs) {
+        log.info("Начинаю оценку рисков криптовалюты: {} с временным интервалом: {}", cryptocurrency, timeframe);
+
+        try {
+            Map<String, Object> templateValues = Map.of(
+                    "cryptocurrency", cryptocurrency,
+                    "timeframe", timeframe,
+                    "inputs", formatInputs(inputs)
+            );
+
+            log.debug("Отправка запроса к AI для оценки рисков, входных анализов: {}", inputs.size());
+            String analysis = getAiResponse(RISK_ASSESSMENT_SYSTEM_PROMPT, RISK_ASSESSMENT_USER_PROMPT, templateValues);
+
+            log.debug("Получен ответ от AI, извлекаю рекомендацию и уверенность");
+            String recommendation = AnalysisUtils.extractRecommendation(analysis);
+            double confidence = AnalysisUtils.extractConfidence(analysis);
+
+            log.info("Оценка рисков завершена. Рекомендация: {}, Уверенность: {}", recommendation, confidence);
+            log.debug("Полный анализ: {}", LogPayload.of(analysis));
+
+            return new AgentAnalysis(NAME, analysis, recommendation, confidence);
+        } catch (Exception e) {
+            log.error("Ошибка при оценке рисков криптовалюты {}: {}", cryptocurrency, e.getMessage(), e);
+            throw e;
+        }
+    }
+
+    private String formatInputs(Map<String, AgentAnalysis> inputs) {
+        if (inputs.isEmpty()) {
+            return "Выводы других аналитиков недоступны, оцени риски самостоятельно.";
+        }
+        return formatAnalyses(inputs, MAX_INPUT_LENGTH);
+    }
+}
@@ -1,21 +1,29 @@
 package com.multiagent.agent;
 
+import com.multiagent.logging.LogPayload;
 import com.multiagent.model.AgentAnalysis;
 import com.multiagent.util.AnalysisUtils;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Component;
 
 import java.util.Map;
 
 @Slf4j
 @Component
+@Order(3)
 public class SentimentAnalysisAgent extends BaseAgent {
 
-    private static final String SENTIMENT_ANALYSIS_PROMPT = """
+    public static final String ID = "sentiment";
+
+    public static final String NAME = "Аналитик Настроений";
+
+    private static final String SENTIMENT_ANALYSIS_SYSTEM_PROMPT = """
         Ты - специалист по анализу настроений криптовалютного рынка и социальных медиа.
         
-        Проанализируй текущие настроения рынка относительно криптовалюты {cryptocurrency} в период {timeframe}.
+        Пользователь указывает криптовалюту и период. Проанализируй текущие настроения рынка
+        относительно криптовалюты в указанный период.
         
         Рассмотри следующие факторы:
         1. Новости и медиа освещение
@@ -38,11 +46,25 @@ public class SentimentAnalysisAgent extends BaseAgent {
         Учитывай психологические аспекты рынка и поведение толпы.
         """;
 
-    public SentimentAnalysisAgent(ChatModel openAiChatModel) {
-        super(openAiChatModel);
+    private static final String SENTIMENT_ANALYSIS_USER_PROMPT = """
+        Проанализируй настроения рынка относительно криптовалюты {cryptocurrency} в период {timeframe}.
+        """;
+
+    public SentimentAnalysisAgent(ChatModel openAiChatModel, PromptRenderer promptRenderer) {
+        super(openAiChatModel, promptRenderer);
         log.info("Агент: Аналитик Настроений - инициализирован");
     }
 
+    @Override
+    public String getId() {
+        return ID;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
     @Override
     public AgentAnalysis analyze(String cryptocurrency, String timeframe) {
         log.info("Начинаю анализ настроений криптовалюты: {} с временным интервалом: {}", cryptocurrency, timeframe);
@@ -54,16 +76,16 @@ public class SentimentAnalysisAgent extends BaseAgent {
             );
 
             log.debug("Отправка запроса к AI для анализа настроений с параметрами: {}", templateValues);
-            String analysis = getAiResponse(SENTIMENT_ANALYSIS_PROMPT, templateValues);
+            String analysis = getAiResponse(SENTIMENT_ANALYSIS_SYSTEM_PROMPT, SENTIMENT_ANALYSIS_USER_PROMPT, templateValues);
             
             log.debug("Получен ответ от AI, извлекаю рекомендацию и уверенность");
             String recommendation = AnalysisUtils.extractRecommendation(analysis);
             double confidence = AnalysisUtils.extractConfidence(analysis);
 
             log.info("Анализ настроений завершен. Рекомендация: {}, Уверенность: {}", recommendation, confidence);
-            log.debug("Полный анализ: {}", analysis);
+            log.debug("Полный анализ: {}", LogPayload.of(analysis));
             
-            return new AgentAnalysis("Аналитик Настроений", analysis, recommendation, confidence);
+            return new AgentAnalysis(NAME, analysis, recommendation, confidence);
         } catch (Exception e) {
             log.error("Ошибка при анализе настроений криптовалюты {}: {}", cryptocurrency, e.getMessage(), e);
             throw e;
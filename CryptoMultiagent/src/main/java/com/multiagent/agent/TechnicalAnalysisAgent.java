@@ -1,21 +1,35 @@
 package com.multiagent.agent;
 
+import com.multiagent.config.IndicatorProperties;
+import com.multiagent.logging.LogPayload;
+import com.multiagent.market.IndicatorEngine;
+import com.multiagent.market.IndicatorSnapshot;
 import com.multiagent.model.AgentAnalysis;
 import com.multiagent.util.AnalysisUtils;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Component;
 
+import java.math.BigDecimal;
+import java.math.MathContext;
 import java.util.Map;
+import java.util.Optional;
 
 @Slf4j
 @Component
+@Order(1)
 public class TechnicalAnalysisAgent extends BaseAgent {
 
-    private static final String TECHNICAL_ANALYSIS_PROMPT = """
+    public static final String ID = "technical";
+
+    public static final String NAME = "Технический Аналитик";
+
+    private static final String TECHNICAL_ANALYSIS_SYSTEM_PROMPT = """
         Ты - опытный технический аналитик криптовалют.
         
-        Выполни детальный технический анализ криптовалюты {cryptocurrency} за период {timeframe}.
+        Пользователь указывает криптовалюту и период. Выполни детальный технический анализ
+        криптовалюты за указанный период.
         
         Проанализируй следующие аспекты:
         1. Ценовые тренды и паттерны
@@ -24,6 +38,10 @@ public class TechnicalAnalysisAgent extends BaseAgent {
         4. Объемы торгов
         5. Графические паттерны
         
+        Если в запросе переданы значения индикаторов, рассчитанные по рыночным данным, опирайся
+        на них и не подменяй их своими оценками. Если значения не переданы или их недостаточно,
+        прямо укажи, какие выводы сделаны без расчетных данных.
+        
         Структура ответа:
         - Краткий обзор текущей ситуации
         - Ключевые технические сигналы
@@ -34,11 +52,40 @@ public class TechnicalAnalysisAgent extends BaseAgent {
         Будь конкретен и обоснован в своих выводах.
         """;
 
-    public TechnicalAnalysisAgent(ChatModel openAiChatModel) {
-        super(openAiChatModel);
+    private static final String TECHNICAL_ANALYSIS_USER_PROMPT = """
+        Выполни технический анализ криптовалюты {cryptocurrency} за период {timeframe}.
+        
+        {indicators}
+        """;
+
+    private static final String NO_INDICATORS = "Рассчитанных значений индикаторов нет: локальные рыночные данные отсутствуют.";
+
+    private static final String NOT_ENOUGH_DATA = "недостаточно данных";
+
+    private static final MathContext PRECISION = new MathContext(6);
+
+    private final IndicatorEngine indicatorEngine;
+
+    private final IndicatorProperties indicatorProperties;
+
+    public TechnicalAnalysisAgent(ChatModel openAiChatModel, PromptRenderer promptRenderer,
+                                  IndicatorEngine indicatorEngine, IndicatorProperties indicatorProperties) {
+        super(openAiChatModel, promptRenderer);
+        this.indicatorEngine = indicatorEngine;
+        this.indicatorProperties = indicatorProperties;
         log.info("Агент: Технический Аналитик - инициализирован");
     }
 
+    @Override
+    public String getId() {
+        return ID;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
     @Override
     public AgentAnalysis analyze(String cryptocurrency, String timeframe) {
         log.info("Начинаю технический анализ криптовалюты: {} с временным интервалом: {}", cryptocurrency, timeframe);
@@ -46,23 +93,66 @@ public class TechnicalAnalysisAgent extends BaseAgent {
         try {
             Map<String, Object> templateValues = Map.of(
                     "cryptocurrency", cryptocurrency,
-                    "timeframe", timeframe
+                    "timeframe", timeframe,
+                    "indicators", describeIndicators(cryptocurrency, timeframe)
             );
 
             log.debug("Отправка запроса к AI для технического анализа с параметрами: {}", templateValues);
-            String analysis = getAiResponse(TECHNICAL_ANALYSIS_PROMPT, templateValues);
+            String analysis = getAiResponse(TECHNICAL_ANALYSIS_SYSTEM_PROMPT, TECHNICAL_ANALYSIS_USER_PROMPT, templateValues);
             
             log.debug("Получен ответ от AI, извлекаю рекомендацию и уверенность");
             String recommendation = AnalysisUtils.extractRecommendation(analysis);
             double confidence = AnalysisUtils.extractConfidence(analysis);
 
             log.info("Технический анализ завершен. Рекомендация: {}, Уверенность: {}", recommendation, confidence);
-            log.debug("Полный анализ: {}", analysis);
+            log.debug("Полный анализ: {}", LogPayload.of(analysis));
             
-            return new AgentAnalysis("Технический Аналитик", analysis, recommendation, confidence);
+            return new AgentAnalysis(NAME, analysis, recommendation, confidence);
         } catch (Exception e) {
             log.error("Ошибка при техническом анализе криптовалюты {}: {}", cryptocurrency, e.getMessage(), e);
             throw e;
         }
     }
+
+    /**
+     * Текущие значения индикаторов по локальным свечам в виде блока промпта. Ошибка чтения
+     * локальных данных не должна ломать анализ, поэтому в этом случае индикаторы не передаются.
+     */
+    private String describeIndicators(String cryptocurrency, String timeframe) {
+        Optional<IndicatorSnapshot> found;
+        try {
+            found = indicatorEngine.forAnalysis(cryptocurrency, timeframe);
+        } catch (RuntimeException e) {
+            log.warn("Не удалось получить индикаторы для {}: {}", cryptocurrency, e.getMessage());
+            found = Optional.empty();
+        }
+        if (found.isEmpty()) {
+            return NO_INDICATORS;
+        }
+        IndicatorSnapshot snapshot = found.get();
+        log.debug("Индикаторы {} {} на {}: RSI {}", snapshot.symbol(), snapshot.interval().getCode(),
+                snapshot.timestamp(), snapshot.rsi());
+        return "Значения индикаторов, рассчитанные по свечам " + snapshot.symbol() + " " + snapshot.interval().getCode()
+                + " (последняя свеча " + snapshot.timestamp() + ", свечей в расчете: " + snapshot.candles() + "):\n"
+                + "- Цена закрытия: " + format(snapshot.close()) + "\n"
+                + "- SMA(" + indicatorProperties.getSmaPeriod() + "): " + format(snapshot.sma()) + "\n"
+                + "- EMA(" + indicatorProperties.getEmaPeriod() + "): " + format(snapshot.ema()) + "\n"
+                + "- RSI(" + indicatorProperties.getRsiPeriod() + "): " + format(snapshot.rsi()) + "\n"
+                + "- MACD(" + indicatorProperties.getMacdFastPeriod() + ", " + indicatorProperties.getMacdSlowPeriod() + ", "
+                + indicatorProperties.getMacdSignalPeriod() + "): линия " + format(snapshot.macd())
+                + ", сигнальная " + format(snapshot.macdSignal())
+                + ", гистограмма " + format(snapshot.macdHistogram()) + "\n"
+                + "- Полосы Боллинджера(" + indicatorProperties.getBollingerPeriod() + ", " + format(indicatorProperties.getBollingerWidth())
+                + "): верхняя " + format(snapshot.bollingerUpper())
+                + ", средняя " + format(snapshot.bollingerMiddle())
+                + ", нижняя " + format(snapshot.bollingerLower()) + "\n"
+                + "- VWAP с начала суток UTC: " + format(snapshot.vwap());
+    }
+
+    private static String format(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return NOT_ENOUGH_DATA;
+        }
+        return new BigDecimal(value).round(PRECISION).stripTrailingZeros().toPlainString();
+    }
 }
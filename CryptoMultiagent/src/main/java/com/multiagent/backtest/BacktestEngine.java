@@ -0,0 +1,497 @@
+package com.multiagent.backtest;
+
+import com.multiagent.agent.AgentRegistry;
+import com.multiagent.backtest.BacktestReport.PerformanceStats;
+import com.multiagent.config.BacktestProperties;
+import com.multiagent.config.IndicatorProperties;
+import com.multiagent.market.CandleInterval;
+import com.multiagent.market.CandleRange;
+import com.multiagent.market.CandleSeries;
+import com.multiagent.market.IndicatorEngine;
+import com.multiagent.market.IndicatorSnapshot;
+import com.multiagent.market.MarketDataStore;
+import com.multiagent.model.AgentAnalysis;
+import com.multiagent.model.Timeframe;
+import com.multiagent.service.RecommendationAggregator;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import static com.multiagent.service.RecommendationAggregator.BUY;
+import static com.multiagent.service.RecommendationAggregator.HOLD;
+import static com.multiagent.service.RecommendationAggregator.SELL;
+
+/**
+ * Бэктест рекомендаций на исторических ценах локального хранилища.
+ * <p>
+ * Рекомендации берутся из журнала выданных рекомендаций или воспроизводятся детерминированно:
+ * агенты-правила голосуют по техническим индикаторам на каждой свече истории с шагом в горизонт
+ * удержания. Вызовы LLM-агентов по истории не воспроизводятся - они недетерминированы и
+ * слишком дороги для многолетней истории.
+ * <p>
+ * История каждого символа делится на временные окна, окна рассчитываются параллельно
+ * в пуле fork-join: задача делится пополам до одного окна, показатели окон объединяются
+ * при слиянии подзадач. Для каждого агента и способа агрегации голосов считаются доля
+ * верных рекомендаций и доходность позиций.
+ */
+@Slf4j
+@Component
+public class BacktestEngine {
+
+    static final String TREND_RULE = "Правило: тренд (EMA/SMA)";
+
+    static final String MOMENTUM_RULE = "Правило: импульс (MACD)";
+
+    static final String OSCILLATOR_RULE = "Правило: осцилляторы (RSI, Боллинджер)";
+
+    static final String RECORDED_STRATEGY = "Итоговая рекомендация";
+
+    static final String WEIGHTED_STRATEGY = "Взвешенное голосование";
+
+    static final String MAJORITY_STRATEGY = "Большинство";
+
+    static final String UNANIMOUS_STRATEGY = "Единогласие";
+
+    static final String BUY_AND_HOLD_STRATEGY = "Купить и держать";
+
+    // Уверенность агентов-правил: выше порога низкой уверенности агрегатора
+    private static final double RULE_CONFIDENCE = 0.7;
+
+    private static final double RSI_OVERSOLD = 30;
+
+    private static final double RSI_OVERBOUGHT = 70;
+
+    private final MarketDataStore store;
+
+    private final IndicatorEngine indicatorEngine;
+
+    private final IndicatorProperties indicatorProperties;
+
+    private final RecommendationJournal journal;
+
+    private final RecommendationAggregator aggregator;
+
+    private final AgentRegistry agentRegistry;
+
+    private final BacktestProperties properties;
+
+    private final ForkJoinPool pool;
+
+    public BacktestEngine(MarketDataStore store, IndicatorEngine indicatorEngine, IndicatorProperties indicatorProperties,
+                          RecommendationJournal journal, RecommendationAggregator aggregator, AgentRegistry agentRegistry,
+                          BacktestProperties properties) {
+        this.store = store;
+        this.indicatorEngine = indicatorEngine;
+        this.indicatorProperties = indicatorProperties;
+        this.journal = journal;
+        this.aggregator = aggregator;
+        this.agentRegistry = agentRegistry;
+        this.properties = properties;
+        this.pool = new ForkJoinPool(properties.getParallelism() > 0
+                ? properties.getParallelism()
+                : Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Выполняет бэктест
+     *
+     * @throws IllegalArgumentException при некорректных параметрах
+     */
+    public BacktestReport run(BacktestRequest request) {
+        long startedAt = System.nanoTime();
+        CandleInterval interval = CandleInterval.fromCode(request.getInterval());
+        double holdBand = request.getHoldBand() != null ? request.getHoldBand() : properties.getHoldBand();
+        if (holdBand < 0 || properties.getWindowDays() < 1) {
+            throw new IllegalArgumentException("Допуск ДЕРЖАТЬ не может быть отрицательным, а окно - пустым");
+        }
+        long from = request.getFrom() != null ? request.getFrom().toEpochMilli() : Long.MIN_VALUE;
+        long to = request.getTo() != null ? request.getTo().toEpochMilli() : Long.MAX_VALUE;
+        if (from >= to) {
+            throw new IllegalArgumentException("Начало периода бэктеста должно быть раньше конца");
+        }
+        Timeframe horizon = request.getHorizon() != null ? Timeframe.parse(request.getHorizon()) : null;
+        BacktestSource source = request.getSource() != null ? request.getSource() : BacktestSource.INDICATORS;
+
+        List<Window> windows;
+        WindowEvaluator evaluator;
+        String horizonLabel;
+        if (source == BacktestSource.JOURNAL) {
+            windows = journalWindows(request.getSymbols(), interval, from, to);
+            evaluator = journalEvaluator(interval, horizon, holdBand);
+            horizonLabel = horizon != null ? horizon.getLabel() : "период анализа рекомендации";
+        } else {
+            Timeframe holding = horizon != null ? horizon : Timeframe.parse(properties.getDefaultHorizon());
+            int horizonCandles = (int) Math.max(1, Duration.ofDays(holding.getDays()).toMillis()
+                    / interval.getDuration().toMillis());
+            windows = historyWindows(request.getSymbols(), interval, from, to);
+            evaluator = indicatorEvaluator(interval, horizonCandles, holdBand);
+            horizonLabel = holding.getLabel();
+        }
+
+        Tally total = windows.isEmpty() ? new Tally() : pool.invoke(new WindowTask(windows, 0, windows.size(), evaluator));
+        long elapsedMillis = (System.nanoTime() - startedAt) / 1_000_000;
+        log.info("Бэктест {} по {} окнам завершен за {} мс: рекомендаций {}, пропущено {}",
+                source, windows.size(), elapsedMillis, total.signals, total.skipped);
+
+        List<String> symbols = windows.stream().map(Window::symbol).distinct().toList();
+        Instant effectiveFrom = windows.stream().map(window -> Instant.ofEpochMilli(window.from()))
+                .min(Comparator.naturalOrder()).orElse(request.getFrom());
+        Instant effectiveTo = windows.stream().map(window -> Instant.ofEpochMilli(window.to()))
+                .max(Comparator.naturalOrder()).orElse(request.getTo());
+        return new BacktestReport(source, interval.getCode(), effectiveFrom, effectiveTo, horizonLabel, symbols,
+                windows.size(), total.signals, total.skipped,
+                stats(new TreeMap<>(total.agents)), stats(total.strategies), elapsedMillis);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * Окна истории цен: по каждому символу период с данными делится на окна по windowDays дней
+     */
+    private List<Window> historyWindows(List<String> requested, CandleInterval interval, long from, long to) {
+        List<String> symbols = requested == null || requested.isEmpty() ? store.symbols() : resolve(requested);
+        long windowMillis = Duration.ofDays(properties.getWindowDays()).toMillis();
+        List<Window> windows = new ArrayList<>();
+        for (String symbol : symbols) {
+            Optional<CandleSeries> series = store.find(symbol, interval);
+            if (series.isEmpty() || series.get().size() == 0) {
+                continue;
+            }
+            CandleRange candles = series.get().range(Long.MIN_VALUE, Long.MAX_VALUE);
+            long start = Math.max(from, candles.timestamp(0));
+            long end = Math.min(to, candles.timestamp(candles.size() - 1) + 1);
+            for (long windowFrom = start; windowFrom < end; windowFrom += windowMillis) {
+                windows.add(new Window(symbol, windowFrom, Math.min(end, windowFrom + windowMillis), candles, List.of()));
+            }
+        }
+        return windows;
+    }
+
+    /**
+     * Окна журнала: рекомендации каждого символа делятся на окна по времени анализа
+     */
+    private List<Window> journalWindows(List<String> requested, CandleInterval interval, long from, long to) {
+        Set<String> symbols = requested == null || requested.isEmpty() ? null : new LinkedHashSet<>(resolve(requested));
+        Map<String, List<RecordedRecommendation>> bySymbol = new TreeMap<>();
+        // Журнал читается потоком: в памяти остаются только рекомендации запрошенного периода и символов
+        try {
+            journal.forEach(recommendation -> {
+                if (recommendation.analyzedAt() == null || recommendation.cryptocurrency() == null) {
+                    return;
+                }
+                long analyzedAt = recommendation.analyzedAt().toEpochMilli();
+                if (analyzedAt < from || analyzedAt >= to) {
+                    return;
+                }
+                Optional<String> symbol = indicatorEngine.resolveSymbol(recommendation.cryptocurrency());
+                if (symbol.isEmpty() || (symbols != null && !symbols.contains(symbol.get()))) {
+                    return;
+                }
+                bySymbol.computeIfAbsent(symbol.get(), key -> new ArrayList<>()).add(recommendation);
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось прочитать журнал рекомендаций", e);
+        }
+
+        long windowMillis = Duration.ofDays(properties.getWindowDays()).toMillis();
+        List<Window> windows = new ArrayList<>();
+        bySymbol.forEach((symbol, recommendations) -> {
+            CandleRange candles = store.find(symbol, interval)
+                    .map(series -> series.range(Long.MIN_VALUE, Long.MAX_VALUE))
+                    .orElse(null);
+            recommendations.sort(Comparator.comparing(RecordedRecommendation::analyzedAt));
+            int start = 0;
+            while (start < recommendations.size()) {
+                long windowFrom = recommendations.get(start).analyzedAt().toEpochMilli();
+                long windowTo = windowFrom + windowMillis;
+                int end = start;
+                while (end < recommendations.size() && recommendations.get(end).analyzedAt().toEpochMilli() < windowTo) {
+                    end++;
+                }
+                long lastAnalyzedAt = recommendations.get(end - 1).analyzedAt().toEpochMilli();
+                windows.add(new Window(symbol, windowFrom, lastAnalyzedAt + 1, candles,
+                        List.copyOf(recommendations.subList(start, end))));
+                start = end;
+            }
+        });
+        return windows;
+    }
+
+    /**
+     * Воспроизведение по индикаторам: на свечах окна с шагом в горизонт голосуют агенты-правила,
+     * позиция открывается по закрытию свечи сигнала и закрывается через горизонт
+     */
+    private WindowEvaluator indicatorEvaluator(CandleInterval interval, int horizonCandles, double holdBand) {
+        int warmup = indicatorProperties.getWarmupCandles();
+        return window -> {
+            Tally tally = new Tally();
+            CandleRange candles = window.candles();
+            int first = candles.indexOf(window.from());
+            int last = candles.indexOf(window.to());
+            if (first >= last) {
+                return tally;
+            }
+            int start = Math.max(0, first - warmup);
+            int signalsEnd = last - start;
+            CandleRange part = candles.slice(start, Math.min(candles.size(), last + horizonCandles));
+            indicatorEngine.replay(window.symbol(), interval, part, first - start, horizonCandles, (snapshot, index) -> {
+                if (index >= signalsEnd || !isWarm(snapshot)) {
+                    return;
+                }
+                int exit = index + horizonCandles;
+                if (exit >= part.size()) {
+                    tally.skipped++;
+                    return;
+                }
+                double priceReturn = part.close(exit) / part.close(index) - 1;
+                List<AgentAnalysis> votes = List.of(
+                        vote(TREND_RULE, trend(snapshot)),
+                        vote(MOMENTUM_RULE, momentum(snapshot)),
+                        vote(OSCILLATOR_RULE, oscillators(snapshot)));
+                votes.forEach(analysis -> tally.agent(analysis.getAgentName())
+                        .add(analysis.getRecommendation(), priceReturn, holdBand));
+                tally.strategy(WEIGHTED_STRATEGY).add(aggregator.determineFinalRecommendation(votes, Map.of()),
+                        priceReturn, holdBand);
+                addVotingStrategies(tally, votes, priceReturn, holdBand);
+                tally.signals++;
+            });
+            return tally;
+        };
+    }
+
+    /**
+     * Журнал: позиция открывается по открытию первой свечи после анализа и закрывается
+     * по закрытию последней свечи горизонта
+     */
+    private WindowEvaluator journalEvaluator(CandleInterval interval, Timeframe horizon, double holdBand) {
+        Map<String, Double> weights = new HashMap<>();
+        agentRegistry.getAgents().forEach(agent -> weights.put(agent.getName(), agentRegistry.getWeight(agent)));
+        long intervalMillis = interval.getDuration().toMillis();
+        return window -> {
+            Tally tally = new Tally();
+            CandleRange candles = window.candles();
+            for (RecordedRecommendation recommendation : window.recommendations()) {
+                Long horizonMillis = horizonMillis(recommendation, horizon);
+                long entryAt = recommendation.analyzedAt().toEpochMilli();
+                int entry = candles == null ? 0 : candles.indexOf(entryAt);
+                int exit = candles == null || horizonMillis == null ? -1 : candles.indexOf(entryAt + horizonMillis) - 1;
+                if (candles == null || horizonMillis == null || entry >= candles.size() || exit < entry
+                        || candles.timestamp(exit) + intervalMillis < entryAt + horizonMillis) {
+                    tally.skipped++;
+                    continue;
+                }
+                double priceReturn = candles.close(exit) / candles.open(entry) - 1;
+                List<AgentAnalysis> votes = recommendation.analyses();
+                votes.forEach(analysis -> tally.agent(analysis.getAgentName())
+                        .add(analysis.getRecommendation(), priceReturn, holdBand));
+                tally.strategy(RECORDED_STRATEGY).add(recommendation.finalRecommendation(), priceReturn, holdBand);
+                tally.strategy(WEIGHTED_STRATEGY).add(aggregator.determineFinalRecommendation(votes, weights),
+                        priceReturn, holdBand);
+                addVotingStrategies(tally, votes, priceReturn, holdBand);
+                tally.signals++;
+            }
+            return tally;
+        };
+    }
+
+    private static Long horizonMillis(RecordedRecommendation recommendation, Timeframe horizon) {
+        try {
+            Timeframe timeframe = horizon != null ? horizon : Timeframe.parse(recommendation.timeframe());
+            return Duration.ofDays(timeframe.getDays()).toMillis();
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static void addVotingStrategies(Tally tally, List<AgentAnalysis> votes, double priceReturn, double holdBand) {
+        tally.strategy(MAJORITY_STRATEGY).add(majority(votes), priceReturn, holdBand);
+        tally.strategy(UNANIMOUS_STRATEGY).add(unanimous(votes), priceReturn, holdBand);
+        tally.strategy(BUY_AND_HOLD_STRATEGY).add(BUY, priceReturn, holdBand);
+    }
+
+    /**
+     * Рекомендация, за которую проголосовало больше агентов, чем за любую другую; при равенстве - ДЕРЖАТЬ
+     */
+    static String majority(List<AgentAnalysis> votes) {
+        Map<String, Integer> counts = new HashMap<>();
+        votes.forEach(vote -> counts.merge(vote.getRecommendation(), 1, Integer::sum));
+        String leader = HOLD;
+        int best = 0;
+        boolean tie = false;
+        for (Map.Entry<String, Integer> count : counts.entrySet()) {
+            if (count.getValue() > best) {
+                leader = count.getKey();
+                best = count.getValue();
+                tie = false;
+            } else if (count.getValue() == best) {
+                tie = true;
+            }
+        }
+        return tie ? HOLD : leader;
+    }
+
+    /**
+     * Рекомендация, если все агенты согласны, иначе ДЕРЖАТЬ
+     */
+    static String unanimous(List<AgentAnalysis> votes) {
+        if (votes.isEmpty()) {
+            return HOLD;
+        }
+        String first = votes.get(0).getRecommendation();
+        return votes.stream().allMatch(vote -> first.equals(vote.getRecommendation())) ? first : HOLD;
+    }
+
+    private static boolean isWarm(IndicatorSnapshot snapshot) {
+        return !Double.isNaN(snapshot.sma()) && !Double.isNaN(snapshot.ema()) && !Double.isNaN(snapshot.rsi())
+                && !Double.isNaN(snapshot.macdSignal()) && !Double.isNaN(snapshot.bollingerMiddle());
+    }
+
+    private static String trend(IndicatorSnapshot snapshot) {
+        if (snapshot.ema() > snapshot.sma() && snapshot.close() > snapshot.ema()) {
+            return BUY;
+        }
+        if (snapshot.ema() < snapshot.sma() && snapshot.close() < snapshot.ema()) {
+            return SELL;
+        }
+        return HOLD;
+    }
+
+    private static String momentum(IndicatorSnapshot snapshot) {
+        if (snapshot.macd() > 0 && snapshot.macdHistogram() > 0) {
+            return BUY;
+        }
+        if (snapshot.macd() < 0 && snapshot.macdHistogram() < 0) {
+            return SELL;
+        }
+        return HOLD;
+    }
+
+    private static String oscillators(IndicatorSnapshot snapshot) {
+        if (snapshot.rsi() < RSI_OVERSOLD || snapshot.close() < snapshot.bollingerLower()) {
+            return BUY;
+        }
+        if (snapshot.rsi() > RSI_OVERBOUGHT || snapshot.close() > snapshot.bollingerUpper()) {
+            return SELL;
+        }
+        return HOLD;
+    }
+
+    private static AgentAnalysis vote(String rule, String recommendation) {
+        return new AgentAnalysis(rule, "", recommendation, RULE_CONFIDENCE);
+    }
+
+    private List<String> resolve(List<String> requested) {
+        List<String> symbols = new ArrayList<>();
+        for (String name : requested) {
+            symbols.add(indicatorEngine.resolveSymbol(name)
+                    .orElseThrow(() -> new IllegalArgumentException("Недопустимый символ: '" + name + "'")));
+        }
+        return symbols.stream().distinct().toList();
+    }
+
+    private static List<PerformanceStats> stats(Map<String, PerformanceTally> tallies) {
+        return tallies.entrySet().stream()
+                .map(entry -> entry.getValue().toStats(entry.getKey()))
+                .toList();
+    }
+
+    /**
+     * Временное окно одного символа - единица параллельного расчета
+     *
+     * @param candles         все свечи символа; null, если цен нет
+     * @param recommendations рекомендации журнала в окне
+     */
+    private record Window(String symbol, long from, long to, CandleRange candles,
+                          List<RecordedRecommendation> recommendations) {
+    }
+
+    @FunctionalInterface
+    private interface WindowEvaluator {
+
+        Tally evaluate(Window window);
+    }
+
+    /**
+     * Показатели окна или объединения окон
+     */
+    private static final class Tally {
+
+        private final Map<String, PerformanceTally> agents = new HashMap<>();
+
+        // Порядок добавления задает порядок способов агрегации в отчете
+        private final Map<String, PerformanceTally> strategies = new LinkedHashMap<>();
+
+        private long signals;
+
+        private long skipped;
+
+        private PerformanceTally agent(String name) {
+            return agents.computeIfAbsent(name, key -> new PerformanceTally());
+        }
+
+        private PerformanceTally strategy(String name) {
+            return strategies.computeIfAbsent(name, key -> new PerformanceTally());
+        }
+
+        private Tally merge(Tally other) {
+            other.agents.forEach((name, tally) -> agent(name).merge(tally));
+            other.strategies.forEach((name, tally) -> strategy(name).merge(tally));
+            signals += other.signals;
+            skipped += other.skipped;
+            return this;
+        }
+    }
+
+    /**
+     * Делит окна пополам до одного окна и объединяет показатели подзадач
+     */
+    private static final class WindowTask extends RecursiveTask<Tally> {
+
+        private final List<Window> windows;
+
+        private final int from;
+
+        private final int to;
+
+        private final WindowEvaluator evaluator;
+
+        private WindowTask(List<Window> windows, int from, int to, WindowEvaluator evaluator) {
+            this.windows = windows;
+            this.from = from;
+            this.to = to;
+            this.evaluator = evaluator;
+        }
+
+        @Override
+        protected Tally compute() {
+            if (to - from == 1) {
+                return evaluator.evaluate(windows.get(from));
+            }
+            int middle = (from + to) >>> 1;
+            WindowTask left = new WindowTask(windows, from, middle, evaluator);
+            left.fork();
+            Tally right = new WindowTask(windows, middle, to, evaluator).compute();
+            return left.join().merge(right);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.multiagent.backtest;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Результат бэктеста
+ *
+ * @param windows       количество пар символ/временное окно, рассчитанных параллельно
+ * @param signals       количество проверенных рекомендаций
+ * @param skipped       рекомендации, для которых нет цен на весь горизонт
+ * @param agents        показатели по агентам
+ * @param strategies    показатели по способам агрегации голосов агентов
+ * @param elapsedMillis длительность расчета
+ */
+public record BacktestReport(BacktestSource source, String interval, Instant from, Instant to, String horizon,
+                             List<String> symbols, int windows, long signals, long skipped,
+                             List<PerformanceStats> agents, List<PerformanceStats> strategies, long elapsedMillis) {
+
+    /**
+     * Показатели рекомендаций одного агента или способа агрегации. Доходность позиции:
+     * изменение цены за горизонт для ПОКУПАТЬ, с обратным знаком для ПРОДАВАТЬ, ноль для ДЕРЖАТЬ.
+     *
+     * @param hitRate          доля верных рекомендаций: ПОКУПАТЬ перед ростом, ПРОДАВАТЬ перед падением,
+     *                         ДЕРЖАТЬ при изменении цены в пределах holdBand
+     * @param averageReturn    средняя доходность позиции
+     * @param cumulativeReturn сумма доходностей позиций
+     * @param activeHitRate    доля верных рекомендаций среди ПОКУПАТЬ и ПРОДАВАТЬ
+     */
+    public record PerformanceStats(String name, long signals, long hits, double hitRate,
+                                   double averageReturn, double cumulativeReturn,
+                                   long buySignals, long sellSignals, long holdSignals, double activeHitRate) {
+    }
+}
@@ -0,0 +1,38 @@
+package com.multiagent.backtest;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@Schema(description = "Параметры бэктеста рекомендаций на исторических ценах")
+public class BacktestRequest {
+
+    @Schema(description = "Источник рекомендаций: журнал выданных рекомендаций или воспроизведение по индикаторам",
+            example = "INDICATORS")
+    private BacktestSource source = BacktestSource.INDICATORS;
+
+    @Schema(description = "Символы или названия криптовалют; пусто - все, для которых есть данные", example = "[\"BTC\", \"ETH\"]")
+    private List<String> symbols = new ArrayList<>();
+
+    @Schema(description = "Интервал свечей исторических цен", example = "1d")
+    private String interval = "1d";
+
+    @Schema(description = "Начало периода проверки; по умолчанию - с первой свечи", example = "2021-01-01T00:00:00Z")
+    private Instant from;
+
+    @Schema(description = "Конец периода проверки (не включительно); по умолчанию - до последней свечи",
+            example = "2025-01-01T00:00:00Z")
+    private Instant to;
+
+    @Schema(description = "Горизонт удержания позиции; для журнала по умолчанию - период анализа рекомендации",
+            example = "1 неделя")
+    private String horizon;
+
+    @Schema(description = "Изменение цены, в пределах которого ДЕРЖАТЬ считается верной рекомендацией (доля)",
+            example = "0.02")
+    private Double holdBand;
+}
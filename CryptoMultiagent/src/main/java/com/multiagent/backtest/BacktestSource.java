@@ -0,0 +1,17 @@
+package com.multiagent.backtest;
+
+/**
+ * Источник рекомендаций для бэктеста
+ */
+public enum BacktestSource {
+
+    /**
+     * Рекомендации, выданные клиентам и сохраненные в журнал
+     */
+    JOURNAL,
+
+    /**
+     * Детерминированное воспроизведение по истории цен: голоса агентов-правил по техническим индикаторам
+     */
+    INDICATORS
+}
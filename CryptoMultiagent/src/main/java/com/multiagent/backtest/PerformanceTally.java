@@ -0,0 +1,79 @@
+package com.multiagent.backtest;
+
+import com.multiagent.backtest.BacktestReport.PerformanceStats;
+
+import static com.multiagent.service.RecommendationAggregator.BUY;
+import static com.multiagent.service.RecommendationAggregator.SELL;
+
+/**
+ * Накопитель показателей рекомендаций одного агента или способа агрегации. Накопители
+ * отдельных временных окон считаются независимо и затем объединяются.
+ */
+final class PerformanceTally {
+
+    private long signals;
+
+    private long hits;
+
+    private long buySignals;
+
+    private long sellSignals;
+
+    private long holdSignals;
+
+    private long activeHits;
+
+    private double returnSum;
+
+    /**
+     * Учитывает рекомендацию
+     *
+     * @param priceReturn изменение цены за горизонт (доля)
+     * @param holdBand    изменение цены, в пределах которого ДЕРЖАТЬ считается верной рекомендацией
+     */
+    void add(String recommendation, double priceReturn, double holdBand) {
+        signals++;
+        boolean hit;
+        boolean active = true;
+        if (BUY.equals(recommendation)) {
+            buySignals++;
+            returnSum += priceReturn;
+            hit = priceReturn > 0;
+        } else if (SELL.equals(recommendation)) {
+            sellSignals++;
+            returnSum -= priceReturn;
+            hit = priceReturn < 0;
+        } else {
+            holdSignals++;
+            hit = Math.abs(priceReturn) <= holdBand;
+            active = false;
+        }
+        if (hit) {
+            hits++;
+            if (active) {
+                activeHits++;
+            }
+        }
+    }
+
+    void merge(PerformanceTally other) {
+        signals += other.signals;
+        hits += other.hits;
+        buySignals += other.buySignals;
+        sellSignals += other.sellSignals;
+        holdSignals += other.holdSignals;
+        activeHits += other.activeHits;
+        returnSum += other.returnSum;
+    }
+
+    PerformanceStats toStats(String name) {
+        long active = buySignals + sellSignals;
+        return new PerformanceStats(name, signals, hits, ratio(hits, signals),
+                signals == 0 ? 0 : returnSum / signals, returnSum,
+                buySignals, sellSignals, holdSignals, ratio(activeHits, active));
+    }
+
+    private static double ratio(long part, long total) {
+        return total == 0 ? 0 : (double) part / total;
+    }
+}
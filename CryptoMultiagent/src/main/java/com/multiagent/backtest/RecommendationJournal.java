@@ -0,0 +1,165 @@
+package com.multiagent.backtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.multiagent.cache.AnalysisCache;
+import com.multiagent.config.BacktestProperties;
+import com.multiagent.model.CryptoAnalysisResponse;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+
+/**
+ * Журнал выданных рекомендаций: каждый выполненный анализ дописывается в файл одной
+ * строкой JSON. Ответы из кэша и ответы с ошибками агентов не записываются. По журналу
+ * бэктест проверяет рекомендации на исторических ценах.
+ * Файл, превысивший journal-max-file-size, ротируется в journal-file.1 (старые номера сдвигаются),
+ * хранится не более journal-max-files ротированных файлов.
+ */
+@Slf4j
+@Component
+public class RecommendationJournal {
+
+    private final BacktestProperties properties;
+
+    private final ObjectMapper objectMapper;
+
+    private BufferedWriter writer;
+
+    private long size;
+
+    public RecommendationJournal(BacktestProperties properties, ObjectMapper objectMapper) {
+        this.properties = properties;
+        this.objectMapper = objectMapper;
+    }
+
+    public boolean isEnabled() {
+        return properties.getJournalFile() != null && !properties.getJournalFile().isBlank();
+    }
+
+    /**
+     * Записывает рекомендацию; ошибка записи не должна ломать анализ
+     */
+    public void record(CryptoAnalysisResponse response) {
+        if (!isEnabled() || response.getAnalyzedAt() == null || !AnalysisCache.isCacheable(response)) {
+            return;
+        }
+        try {
+            String line = objectMapper.writeValueAsString(RecordedRecommendation.from(response));
+            long length = line.getBytes(StandardCharsets.UTF_8).length + System.lineSeparator().length();
+            synchronized (this) {
+                BufferedWriter out = writer();
+                if (size > 0 && size + length > properties.getJournalMaxFileSize()) {
+                    rotate();
+                    out = writer();
+                }
+                out.write(line);
+                out.newLine();
+                out.flush();
+                size += length;
+            }
+        } catch (IOException e) {
+            log.warn("Не удалось записать рекомендацию в журнал {}: {}", properties.getJournalFile(), e.getMessage());
+        }
+    }
+
+    /**
+     * Передает рекомендации журнала по одной, от старых файлов к текущему, не загружая журнал
+     * в память целиком; поврежденные строки пропускаются
+     */
+    public void forEach(Consumer<RecordedRecommendation> consumer) throws IOException {
+        if (!isEnabled()) {
+            return;
+        }
+        Path file = Path.of(properties.getJournalFile());
+        for (int index = properties.getJournalMaxFiles(); index >= 0; index--) {
+            Path part = index == 0 ? file : rotated(file, index);
+            if (Files.exists(part)) {
+                read(part, consumer);
+            }
+        }
+    }
+
+    private void read(Path file, Consumer<RecordedRecommendation> consumer) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                RecordedRecommendation recommendation;
+                try {
+                    recommendation = objectMapper.readValue(line, RecordedRecommendation.class);
+                } catch (IOException e) {
+                    log.warn("Строка {} журнала рекомендаций {} пропущена: {}", lineNumber, file.getFileName(), e.getMessage());
+                    continue;
+                }
+                consumer.accept(recommendation);
+            }
+        }
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                log.warn("Ошибка закрытия журнала рекомендаций {}: {}", properties.getJournalFile(), e.getMessage());
+            }
+            writer = null;
+        }
+    }
+
+    /**
+     * Сдвигает ротированные файлы на один номер, удаляя самый старый, и переносит текущий в .1
+     */
+    private void rotate() throws IOException {
+        close();
+        Path file = Path.of(properties.getJournalFile());
+        int maxFiles = properties.getJournalMaxFiles();
+        if (maxFiles <= 0) {
+            Files.deleteIfExists(file);
+        } else {
+            Files.deleteIfExists(rotated(file, maxFiles));
+            for (int index = maxFiles - 1; index >= 1; index--) {
+                Path source = rotated(file, index);
+                if (Files.exists(source)) {
+                    Files.move(source, rotated(file, index + 1), StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+            Files.move(file, rotated(file, 1), StandardCopyOption.REPLACE_EXISTING);
+        }
+        log.info("Журнал рекомендаций {} ротирован", file.toAbsolutePath());
+    }
+
+    private static Path rotated(Path file, int index) {
+        return file.resolveSibling(file.getFileName() + "." + index);
+    }
+
+    private BufferedWriter writer() throws IOException {
+        if (writer == null) {
+            Path file = Path.of(properties.getJournalFile());
+            Path parent = file.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            size = Files.size(file);
+            log.info("Рекомендации записываются в журнал: {}", file.toAbsolutePath());
+        }
+        return writer;
+    }
+}
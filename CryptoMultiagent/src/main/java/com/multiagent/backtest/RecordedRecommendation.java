@@ -0,0 +1,38 @@
+package com.multiagent.backtest;
+
+import com.multiagent.model.AgentAnalysis;
+import com.multiagent.model.CryptoAnalysisResponse;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Рекомендация, выданная клиенту, в том виде, в каком она сохраняется в журнал для бэктеста
+ *
+ * @param timeframe           канонический временной период анализа - горизонт проверки рекомендации
+ * @param finalRecommendation итоговая рекомендация с учетом решения модератора
+ * @param votes               рекомендации отдельных агентов
+ */
+public record RecordedRecommendation(String cryptocurrency, String timeframe, Instant analyzedAt,
+                                     String finalRecommendation, List<Vote> votes) {
+
+    public static RecordedRecommendation from(CryptoAnalysisResponse response) {
+        List<Vote> votes = response.getAgentAnalyses() == null ? List.of() : response.getAgentAnalyses().stream()
+                .map(analysis -> new Vote(analysis.getAgentName(), analysis.getRecommendation(), analysis.getConfidence()))
+                .toList();
+        return new RecordedRecommendation(response.getCryptocurrency(), response.getTimeframe(),
+                response.getAnalyzedAt(), response.getFinalRecommendation(), votes);
+    }
+
+    /**
+     * Голоса агентов в виде анализов для повторной агрегации
+     */
+    public List<AgentAnalysis> analyses() {
+        return votes.stream()
+                .map(vote -> new AgentAnalysis(vote.agentName(), "", vote.recommendation(), vote.confidence()))
+                .toList();
+    }
+
+    public record Vote(String agentName, String recommendation, double confidence) {
+    }
+}
@@ -0,0 +1,287 @@
+package com.multiagent.cache;
+
+import com.multiagent.agent.BaseAgent;
+import com.multiagent.config.CacheProperties;
+import com.multiagent.model.CryptoAnalysisResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * In-memory кэш результатов анализа с TTL и объединением одновременных запросов
+ * на один и тот же ключ (single-flight). При переполнении новая запись допускается
+ * в кэш только если она запрашивается не реже вытесняемой (по оценке популярности).
+ * Допуск, вытеснение и вставка выполняются под одной блокировкой, поэтому одновременные
+ * записи не превышают максимальный размер; чтение выполняется без блокировок.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AnalysisCache {
+
+    private final CacheProperties properties;
+
+    private final PopularityEstimator popularityEstimator;
+
+    private final Map<String, CacheEntry> entries = new ConcurrentHashMap<>();
+
+    private final Map<String, CompletableFuture<CryptoAnalysisResponse>> inFlight = new ConcurrentHashMap<>();
+
+    // Записи добавляются только под этой блокировкой; удаление устаревших записей ее не требует
+    private final Object admissionLock = new Object();
+
+    private Clock clock = Clock.systemUTC();
+
+    /**
+     * Формирует ключ кэша для пары криптовалюта/временной период
+     */
+    public static String key(String cryptocurrency, String timeframe) {
+        return normalize(cryptocurrency) + "|" + normalize(timeframe);
+    }
+
+    /**
+     * Отбрасывает от ключа суффикс параметров запроса ({@link com.multiagent.model.AnalysisOptions#cacheKeySuffix()}):
+     * популярность учитывается по паре криптовалюта/временной период
+     */
+    static String baseKey(String key) {
+        int separator = key.indexOf('|');
+        int suffix = separator < 0 ? -1 : key.indexOf('|', separator + 1);
+        return suffix < 0 ? key : key.substring(0, suffix);
+    }
+
+    /**
+     * Возвращает актуальный результат из кэша, если он есть
+     */
+    public Optional<CryptoAnalysisResponse> get(String key) {
+        if (!properties.isEnabled()) {
+            return Optional.empty();
+        }
+        CacheEntry entry = entries.get(key);
+        if (entry == null) {
+            log.debug("Промах кэша для ключа: {}", key);
+            return Optional.empty();
+        }
+        if (entry.isExpired(clock.instant())) {
+            log.debug("Запись кэша устарела для ключа: {}", key);
+            entries.remove(key, entry);
+            return Optional.empty();
+        }
+        log.debug("Попадание в кэш для ключа: {}", key);
+        return Optional.of(entry.response());
+    }
+
+    /**
+     * Сохраняет результат в кэш, вытесняя самую старую запись при переполнении
+     */
+    public void put(String key, CryptoAnalysisResponse response) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        Instant now = clock.instant();
+        synchronized (admissionLock) {
+            if (!entries.containsKey(key) && entries.size() >= properties.getMaxEntries() && !admitByEviction(key)) {
+                log.debug("Запись отклонена политикой допуска в кэш: {}", key);
+                return;
+            }
+            entries.put(key, new CacheEntry(response, now, now.plus(properties.getTtl())));
+        }
+        log.debug("Результат сохранен в кэш для ключа: {}", key);
+    }
+
+    /**
+     * Синхронно возвращает результат из кэша или вычисляет его.
+     * Одновременные вызовы с одним ключом ожидают единственного вычисления.
+     */
+    public CryptoAnalysisResponse getOrCompute(String key, Supplier<CryptoAnalysisResponse> loader) {
+        Optional<CryptoAnalysisResponse> cached = get(key);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+        return compute(key, loader);
+    }
+
+    /**
+     * Асинхронный вариант {@link #getOrCompute(String, Supplier)}
+     */
+    public CompletableFuture<CryptoAnalysisResponse> getOrComputeAsync(
+            String key, Supplier<CompletableFuture<CryptoAnalysisResponse>> loader) {
+        Optional<CryptoAnalysisResponse> cached = get(key);
+        if (cached.isPresent()) {
+            return CompletableFuture.completedFuture(cached.get());
+        }
+
+        CompletableFuture<CryptoAnalysisResponse> mine = new CompletableFuture<>();
+        CompletableFuture<CryptoAnalysisResponse> existing = inFlight.putIfAbsent(key, mine);
+        if (existing != null) {
+            log.debug("Присоединение к выполняющемуся анализу для ключа: {}", key);
+            return existing;
+        }
+
+        try {
+            loader.get().whenComplete((response, ex) -> {
+                inFlight.remove(key, mine);
+                if (ex != null) {
+                    mine.completeExceptionally(ex);
+                } else {
+                    storeIfCacheable(key, response);
+                    mine.complete(response);
+                }
+            });
+        } catch (RuntimeException e) {
+            inFlight.remove(key, mine);
+            mine.completeExceptionally(e);
+        }
+        return mine;
+    }
+
+    /**
+     * Принудительно пересчитывает результат, игнорируя содержимое кэша.
+     * Если вычисление по ключу уже выполняется, ожидает его завершения.
+     */
+    public CryptoAnalysisResponse refresh(String key, Supplier<CryptoAnalysisResponse> loader) {
+        return compute(key, loader);
+    }
+
+    public void invalidateAll() {
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Актуальные записи кэша для сохранения между перезапусками
+     */
+    public List<SnapshotEntry> snapshot() {
+        Instant now = clock.instant();
+        return entries.entrySet().stream()
+                .filter(entry -> !entry.getValue().isExpired(now))
+                .map(entry -> new SnapshotEntry(entry.getKey(), entry.getValue().response(),
+                        entry.getValue().storedAt(), entry.getValue().expiresAt()))
+                .toList();
+    }
+
+    /**
+     * Загружает сохраненные записи с исходным сроком жизни; устаревшие записи и записи
+     * сверх максимального размера кэша пропускаются, существующие записи не заменяются
+     *
+     * @return количество загруженных записей
+     */
+    public int restore(List<SnapshotEntry> snapshot) {
+        if (!properties.isEnabled()) {
+            return 0;
+        }
+        Instant now = clock.instant();
+        int restored = 0;
+        synchronized (admissionLock) {
+            for (SnapshotEntry entry : snapshot) {
+                if (!now.isBefore(entry.expiresAt()) || entries.size() >= properties.getMaxEntries()) {
+                    continue;
+                }
+                if (entries.putIfAbsent(entry.key(), new CacheEntry(entry.response(), entry.storedAt(), entry.expiresAt())) == null) {
+                    restored++;
+                }
+            }
+        }
+        return restored;
+    }
+
+    void setClock(Clock clock) {
+        this.clock = clock;
+    }
+
+    private CryptoAnalysisResponse compute(String key, Supplier<CryptoAnalysisResponse> loader) {
+        CompletableFuture<CryptoAnalysisResponse> mine = new CompletableFuture<>();
+        CompletableFuture<CryptoAnalysisResponse> existing = inFlight.putIfAbsent(key, mine);
+        if (existing != null) {
+            log.debug("Ожидание выполняющегося анализа для ключа: {}", key);
+            try {
+                return existing.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException runtimeException) {
+                    throw runtimeException;
+                }
+                throw e;
+            }
+        }
+
+        try {
+            CryptoAnalysisResponse response = loader.get();
+            storeIfCacheable(key, response);
+            mine.complete(response);
+            return response;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    /**
+     * Ответы с ошибками агентов не кэшируются, чтобы следующий запрос повторил попытку
+     */
+    public static boolean isCacheable(CryptoAnalysisResponse response) {
+        return response.getAgentAnalyses() == null || response.getAgentAnalyses().stream()
+                .noneMatch(analysis -> analysis.getAnalysis() != null
+                        && analysis.getAnalysis().startsWith(BaseAgent.AI_ERROR_PREFIX));
+    }
+
+    private void storeIfCacheable(String key, CryptoAnalysisResponse response) {
+        if (!isCacheable(response)) {
+            log.debug("Ответ содержит ошибки агентов и не будет сохранен в кэш: {}", key);
+            return;
+        }
+        put(key, response);
+    }
+
+    /**
+     * Вытесняет самую старую запись, если кандидат запрашивается не реже нее.
+     * Частота оценивается без параметров запроса, поэтому краткий ответ или ответ кворума
+     * популярной криптовалюты не уступает редкому запросу. Вызывается под блокировкой допуска.
+     */
+    private boolean admitByEviction(String candidateKey) {
+        Optional<Map.Entry<String, CacheEntry>> victim = entries.entrySet().stream()
+                .min(Comparator.comparing(entry -> entry.getValue().storedAt()));
+        if (victim.isEmpty()) {
+            return true;
+        }
+        String victimKey = victim.get().getKey();
+        if (popularityEstimator.estimate(baseKey(candidateKey)) < popularityEstimator.estimate(baseKey(victimKey))) {
+            return false;
+        }
+        entries.remove(victimKey, victim.get().getValue());
+        log.debug("Вытеснена запись кэша: {}", victimKey);
+        return true;
+    }
+
+    private static String normalize(String value) {
+        return value == null ? "" : value.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Запись кэша в сохраняемом виде
+     */
+    public record SnapshotEntry(String key, CryptoAnalysisResponse response, Instant storedAt, Instant expiresAt) {
+    }
+
+    private record CacheEntry(CryptoAnalysisResponse response, Instant storedAt, Instant expiresAt) {
+
+        boolean isExpired(Instant now) {
+            return !now.isBefore(expiresAt);
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.multiagent.cache;
+
+/**
+ * Ключ идемпотентности уже использован для запроса с другими параметрами
+ */
+public class IdempotencyKeyReuseException extends RuntimeException {
+
+    public IdempotencyKeyReuseException(String key) {
+        super("Ключ идемпотентности '" + key + "' уже использован для другого запроса");
+    }
+}
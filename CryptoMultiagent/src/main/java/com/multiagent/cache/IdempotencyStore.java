@@ -0,0 +1,162 @@
+package com.multiagent.cache;
+
+import com.multiagent.config.IdempotencyProperties;
+import com.multiagent.model.CryptoAnalysisResponse;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Хранилище ключей идемпотентности. Первый запрос с ключом запускает анализ, повтор с тем же
+ * ключом присоединяется к выполняющемуся анализу или получает сохраненный ответ. Ключ привязан
+ * к параметрам запроса: повтор с другими параметрами отклоняется.
+ * <p>
+ * Записи хранятся в порядке получения и живут одинаковое время, поэтому устаревшие записи
+ * всегда в начале и удаляются при каждом обращении. Количество записей ограничено, при
+ * переполнении вытесняется самая старая. Неудачный анализ и ответ с ошибками агентов
+ * ({@link AnalysisCache#isCacheable}) не сохраняются, чтобы повтор запроса выполнил анализ заново.
+ */
+@Slf4j
+@Component
+public class IdempotencyStore {
+
+    private final IdempotencyProperties properties;
+
+    private final MeterRegistry meterRegistry;
+
+    private final LinkedHashMap<String, IdempotencyEntry> entries = new LinkedHashMap<>();
+
+    private Clock clock = Clock.systemUTC();
+
+    public IdempotencyStore(IdempotencyProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        Gauge.builder("crypto.idempotency.keys", this, IdempotencyStore::size)
+                .description("Хранимые ключи идемпотентности")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Выполняет анализ один раз для ключа идемпотентности
+     *
+     * @param key         ключ из заголовка запроса; null - запрос не идемпотентный, анализ выполняется всегда
+     * @param fingerprint параметры запроса, с которыми связан ключ
+     * @param computation запуск анализа; синхронный анализ возвращает завершенный результат
+     * @throws IdempotencyKeyReuseException если ключ уже использован с другими параметрами
+     * @throws IllegalArgumentException     если ключ пустой или слишком длинный
+     */
+    public Execution execute(String key, String fingerprint,
+                             Supplier<CompletableFuture<CryptoAnalysisResponse>> computation) {
+        if (key == null || !properties.isEnabled()) {
+            return new Execution(start(computation), false);
+        }
+        validate(key);
+
+        CompletableFuture<CryptoAnalysisResponse> mine = new CompletableFuture<>();
+        IdempotencyEntry entry = new IdempotencyEntry(fingerprint, mine, clock.instant().plus(properties.getRetention()));
+        synchronized (this) {
+            evictExpired();
+            IdempotencyEntry existing = entries.get(key);
+            if (existing != null) {
+                if (!existing.fingerprint().equals(fingerprint)) {
+                    meterRegistry.counter("crypto.idempotency.requests", "outcome", "conflict").increment();
+                    throw new IdempotencyKeyReuseException(key);
+                }
+                meterRegistry.counter("crypto.idempotency.requests", "outcome", "replayed").increment();
+                log.debug("Повтор запроса с ключом идемпотентности {}, анализ {}", key,
+                        existing.response().isDone() ? "уже завершен" : "выполняется");
+                return new Execution(existing.response(), true);
+            }
+            entries.put(key, entry);
+            evictOverflow();
+        }
+        meterRegistry.counter("crypto.idempotency.requests", "outcome", "new").increment();
+
+        start(computation).whenComplete((response, error) -> {
+            if (error != null) {
+                remove(key, entry);
+                mine.completeExceptionally(error);
+            } else {
+                if (!AnalysisCache.isCacheable(response)) {
+                    log.debug("Ответ с ошибками агентов не сохраняется для ключа идемпотентности {}", key);
+                    remove(key, entry);
+                }
+                mine.complete(response);
+            }
+        });
+        return new Execution(mine, false);
+    }
+
+    /**
+     * Проверяет ключ из заголовка запроса; отсутствующий ключ допустим
+     *
+     * @throws IllegalArgumentException если ключ пустой или слишком длинный
+     */
+    public void validate(String key) {
+        if (key == null) {
+            return;
+        }
+        if (key.isBlank() || key.length() > properties.getMaxKeyLength()) {
+            throw new IllegalArgumentException("Ключ идемпотентности должен быть непустым и не длиннее "
+                    + properties.getMaxKeyLength() + " символов");
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    void setClock(Clock clock) {
+        this.clock = clock;
+    }
+
+    private static CompletableFuture<CryptoAnalysisResponse> start(
+            Supplier<CompletableFuture<CryptoAnalysisResponse>> computation) {
+        try {
+            return computation.get();
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private synchronized void remove(String key, IdempotencyEntry entry) {
+        entries.remove(key, entry);
+    }
+
+    private void evictExpired() {
+        Instant now = clock.instant();
+        Iterator<IdempotencyEntry> iterator = entries.values().iterator();
+        while (iterator.hasNext() && !now.isBefore(iterator.next().expiresAt())) {
+            iterator.remove();
+        }
+    }
+
+    private void evictOverflow() {
+        Iterator<Map.Entry<String, IdempotencyEntry>> iterator = entries.entrySet().iterator();
+        while (entries.size() > properties.getMaxEntries() && iterator.hasNext()) {
+            log.debug("Вытеснен ключ идемпотентности: {}", iterator.next().getKey());
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Результат запроса с ключом идемпотентности
+     *
+     * @param replayed true, если запрос повторный и результат получен первым запросом с этим ключом
+     */
+    public record Execution(CompletableFuture<CryptoAnalysisResponse> response, boolean replayed) {
+    }
+
+    private record IdempotencyEntry(String fingerprint, CompletableFuture<CryptoAnalysisResponse> response,
+                                    Instant expiresAt) {
+    }
+}
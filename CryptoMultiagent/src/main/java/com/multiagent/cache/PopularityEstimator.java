@@ -0,0 +1,16 @@
+package com.multiagent.cache;
+
+/**
+ * Оценка частоты запросов по ключу кэша для политики допуска при переполнении.
+ * Реализуется отслеживанием популярности запросов; кэш зависит только от этого интерфейса.
+ */
+@FunctionalInterface
+public interface PopularityEstimator {
+
+    /**
+     * Оценка частоты запросов по ключу {@link AnalysisCache#key(String, String)}. Кэш передает
+     * ключ без суффикса параметров запроса, поэтому все варианты ответа по одной паре
+     * криптовалюта/временной период получают одну оценку.
+     */
+    long estimate(String key);
+}
@@ -0,0 +1,247 @@
+package com.multiagent.cache;
+
+import com.multiagent.config.SemanticCacheProperties;
+import com.multiagent.model.CryptoAnalysisResponse;
+import com.multiagent.util.HnswIndex;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Семантический уровень кэша: ответ, сохраненный для одного названия актива, используется
+ * повторно для других названий того же актива, так "BTC" и "Bitcoin" получают один результат анализа.
+ * <p>
+ * Сначала запрос сопоставляется по тикеру ({@link SemanticCacheProperties#getAliases()}): записи
+ * хранятся по тикеру, и совпадение тикера само по себе считается попаданием без сравнения эмбеддингов.
+ * Названия, тикер которых неизвестен псевдонимам, переводятся в эмбеддинг и ищутся по HNSW индексу
+ * среди таких же неизвестных названий с порогом сходства. Записи известных активов в индекс не
+ * попадают, поэтому близкое по эмбеддингу название другой монеты ("Bitcoin Cash") не получит ответ
+ * по известному активу ("Bitcoin").
+ * <p>
+ * Записи разделены по разделам (временной период и параметры запроса должны совпадать точно).
+ * Количество записей ограничено, при переполнении вытесняется самая старая запись.
+ */
+@Slf4j
+@Component
+public class SemanticAnalysisCache {
+
+    // Количество ближайших кандидатов: ближайший мог устареть, тогда проверяется следующий
+    private static final int CANDIDATES = 3;
+
+    private final SemanticCacheProperties properties;
+
+    private final ObjectProvider<EmbeddingModel> embeddingModelProvider;
+
+    private final Map<String, HnswIndex<String>> indexes = new HashMap<>();
+
+    // Порядок вставки используется для вытеснения самых старых записей
+    private final LinkedHashMap<String, SemanticEntry> entries = new LinkedHashMap<>();
+
+    private final Map<String, float[]> embeddings;
+
+    private Clock clock = Clock.systemUTC();
+
+    public SemanticAnalysisCache(SemanticCacheProperties properties, ObjectProvider<EmbeddingModel> embeddingModelProvider) {
+        this.properties = properties;
+        this.embeddingModelProvider = embeddingModelProvider;
+        int maxEmbeddings = properties.getMaxEmbeddings();
+        this.embeddings = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, float[]> eldest) {
+                return size() > maxEmbeddings;
+            }
+        };
+    }
+
+    /**
+     * Ищет сохраненный ответ для того же актива: по тикеру, а для названий без псевдонима -
+     * по сходству эмбеддингов
+     *
+     * @param partition раздел кэша, в котором параметры запроса совпадают точно
+     */
+    public Optional<CryptoAnalysisResponse> lookup(String cryptocurrency, String partition) {
+        if (!properties.isEnabled()) {
+            return Optional.empty();
+        }
+        String identity = identity(cryptocurrency);
+        Optional<CryptoAnalysisResponse> sameAsset = getIfFresh(key(partition, identity));
+        if (sameAsset.isPresent()) {
+            log.debug("Попадание в семантический кэш по тикеру: '{}' -> {}", cryptocurrency, identity);
+            return sameAsset;
+        }
+        if (isKnown(identity)) {
+            return Optional.empty();
+        }
+
+        HnswIndex<String> index;
+        synchronized (this) {
+            index = indexes.get(partition);
+        }
+        if (index == null) {
+            return Optional.empty();
+        }
+        float[] vector = embed(cryptocurrency);
+        if (vector == null) {
+            return Optional.empty();
+        }
+
+        for (HnswIndex.Match<String> match : index.search(vector, CANDIDATES, properties.getHnswEfSearch())) {
+            if (match.similarity() < properties.getSimilarityThreshold()) {
+                break;
+            }
+            Optional<CryptoAnalysisResponse> response = getIfFresh(match.key());
+            if (response.isPresent()) {
+                log.debug("Семантическое попадание в кэш: '{}' -> {} (сходство {})",
+                        cryptocurrency, match.key(), match.similarity());
+                return response;
+            }
+        }
+        log.debug("Семантический промах кэша для '{}' в разделе {}", cryptocurrency, partition);
+        return Optional.empty();
+    }
+
+    /**
+     * Сохраняет ответ, вытесняя самую старую запись при переполнении.
+     * Эмбеддинг вычисляется только для названия без псевдонима.
+     */
+    public void store(String cryptocurrency, String partition, CryptoAnalysisResponse response) {
+        if (!properties.isEnabled() || !AnalysisCache.isCacheable(response)) {
+            return;
+        }
+        String identity = identity(cryptocurrency);
+        float[] vector = null;
+        if (!isKnown(identity)) {
+            vector = embed(cryptocurrency);
+            if (vector == null) {
+                return;
+            }
+        }
+        String key = key(partition, identity);
+        Instant now = clock.instant();
+        synchronized (this) {
+            entries.remove(key);
+            entries.put(key, new SemanticEntry(partition, response, now.plus(properties.getTtl())));
+            if (vector != null) {
+                indexes.computeIfAbsent(partition, p ->
+                        new HnswIndex<>(properties.getHnswMaxConnections(), properties.getHnswEfConstruction()))
+                        .add(key, vector);
+            }
+            evictOverflow();
+        }
+        log.debug("Ответ сохранен в семантический кэш: {}", key);
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized void invalidateAll() {
+        entries.clear();
+        indexes.clear();
+    }
+
+    void setClock(Clock clock) {
+        this.clock = clock;
+    }
+
+    private synchronized Optional<CryptoAnalysisResponse> getIfFresh(String key) {
+        SemanticEntry entry = entries.get(key);
+        if (entry == null) {
+            return Optional.empty();
+        }
+        if (!clock.instant().isBefore(entry.expiresAt())) {
+            removeEntry(key, entry);
+            return Optional.empty();
+        }
+        return Optional.of(entry.response());
+    }
+
+    private void evictOverflow() {
+        Iterator<Map.Entry<String, SemanticEntry>> iterator = entries.entrySet().iterator();
+        while (entries.size() > properties.getMaxEntries() && iterator.hasNext()) {
+            Map.Entry<String, SemanticEntry> eldest = iterator.next();
+            iterator.remove();
+            removeFromIndex(eldest.getKey(), eldest.getValue());
+            log.debug("Вытеснена запись семантического кэша: {}", eldest.getKey());
+        }
+    }
+
+    private void removeEntry(String key, SemanticEntry entry) {
+        entries.remove(key);
+        removeFromIndex(key, entry);
+    }
+
+    private void removeFromIndex(String key, SemanticEntry entry) {
+        HnswIndex<String> index = indexes.get(entry.partition());
+        if (index != null) {
+            index.remove(key);
+        }
+    }
+
+    /**
+     * Возвращает эмбеддинг текста запроса; ошибка модели эмбеддингов не должна ломать анализ,
+     * поэтому в этом случае семантический уровень пропускается
+     */
+    private float[] embed(String cryptocurrency) {
+        String text = normalize(cryptocurrency);
+        synchronized (this) {
+            float[] cached = embeddings.get(text);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        EmbeddingModel embeddingModel = embeddingModelProvider.getIfAvailable();
+        if (embeddingModel == null) {
+            log.warn("Модель эмбеддингов не настроена, семантический кэш пропускается");
+            return null;
+        }
+        try {
+            float[] vector = embeddingModel.embed(text);
+            synchronized (this) {
+                embeddings.put(text, vector);
+            }
+            return vector;
+        } catch (Exception e) {
+            log.warn("Ошибка получения эмбеддинга для '{}': {}", text, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Тикер актива: по псевдониму, иначе само название
+     */
+    private String identity(String cryptocurrency) {
+        String name = normalize(cryptocurrency);
+        String ticker = properties.getAliases().get(name);
+        return (ticker != null ? ticker : name).trim().toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * Тикер известен, если он задан в псевдонимах: такой актив сопоставляется только по тикеру
+     */
+    private boolean isKnown(String identity) {
+        return properties.getAliases().values().stream()
+                .anyMatch(ticker -> ticker.trim().equalsIgnoreCase(identity));
+    }
+
+    private static String key(String partition, String identity) {
+        return partition + "|" + identity;
+    }
+
+    private static String normalize(String value) {
+        return value == null ? "" : value.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    private record SemanticEntry(String partition, CryptoAnalysisResponse response, Instant expiresAt) {
+    }
+}
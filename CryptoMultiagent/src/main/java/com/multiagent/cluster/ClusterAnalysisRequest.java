@@ -0,0 +1,12 @@
+package com.multiagent.cluster;
+
+import com.multiagent.model.AnalysisOptions;
+
+/**
+ * Запрос анализа, переданный реплике-владельцу. Параметры передаются как есть, включая
+ * лимит токенов, чтобы ключ кэша на владельце совпадал с ключом на исходной реплике.
+ *
+ * @param timeframe канонический временной период
+ */
+public record ClusterAnalysisRequest(String cryptocurrency, String timeframe, AnalysisOptions options) {
+}
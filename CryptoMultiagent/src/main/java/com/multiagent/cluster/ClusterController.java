@@ -0,0 +1,29 @@
+package com.multiagent.cluster;
+
+import com.multiagent.model.AnalysisOptions;
+import com.multiagent.model.CryptoAnalysisResponse;
+import com.multiagent.service.CryptoAnalysisService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Внутренний эндпоинт для запросов от других реплик. Анализ выполняется на этой реплике
+ * без повторной маршрутизации, даже если списки реплик на узлах временно расходятся.
+ */
+@RestController
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "crypto.cluster", name = "enabled", havingValue = "true")
+public class ClusterController {
+
+    private final CryptoAnalysisService analysisService;
+
+    @PostMapping(ClusterRouter.FORWARD_PATH)
+    public ResponseEntity<CryptoAnalysisResponse> analyze(@RequestBody ClusterAnalysisRequest request) {
+        AnalysisOptions options = request.options() != null ? request.options() : AnalysisOptions.defaults();
+        return ResponseEntity.ok(analysisService.analyzeAsOwner(request.cryptocurrency(), request.timeframe(), options));
+    }
+}
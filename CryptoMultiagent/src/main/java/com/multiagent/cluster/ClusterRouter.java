@@ -0,0 +1,193 @@
+package com.multiagent.cluster;
+
+import com.multiagent.config.ClusterProperties;
+import com.multiagent.model.AnalysisOptions;
+import com.multiagent.model.CryptoAnalysisResponse;
+import com.multiagent.util.ConsistentHashRing;
+import io.micrometer.context.ContextSnapshotFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.web.client.ClientHttpRequestFactories;
+import org.springframework.boot.web.client.ClientHttpRequestFactorySettings;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestClientResponseException;
+
+import java.time.Duration;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Определяет реплику-владельца криптовалюты и передает ей анализ по HTTP.
+ * Все реплики используют одинаковый список адресов, поэтому владелец определяется одинаково
+ * на любой реплике, и анализ одной криптовалюты выполняется в кластере один раз:
+ * одинаковые запросы объединяются кэшем владельца, а его результат кэшируется и на исходной реплике.
+ * Если владелец недоступен (ошибка соединения или таймаут), анализ выполняется локально;
+ * отказ перегруженного владельца (503) передается клиенту.
+ */
+@Slf4j
+@Component
+public class ClusterRouter {
+
+    public static final String FORWARD_PATH = "/internal/cluster/analyze";
+
+    // Если владелец не указал Retry-After
+    private static final Duration DEFAULT_RETRY_AFTER = Duration.ofSeconds(1);
+
+    private static final ContextSnapshotFactory CONTEXT_SNAPSHOTS = ContextSnapshotFactory.builder().build();
+
+    private final MeterRegistry meterRegistry;
+
+    private final String selfUrl;
+
+    private final ConsistentHashRing<String> ring;
+
+    private final RestClient restClient;
+
+    private final AtomicInteger threadCounter = new AtomicInteger();
+
+    // Запросы к владельцу блокирующие, поэтому выполняются в отдельном пуле, а не в пуле агентов
+    private final ExecutorService forwardExecutor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "cluster-forward-" + threadCounter.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Autowired
+    public ClusterRouter(ClusterProperties properties, RestClient.Builder restClientBuilder, MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        if (!properties.isEnabled()) {
+            this.selfUrl = null;
+            this.ring = null;
+            this.restClient = null;
+            return;
+        }
+        if (properties.getSelfUrl() == null || properties.getSelfUrl().isBlank()) {
+            throw new IllegalStateException("Для работы в кластере необходимо задать crypto.cluster.self-url");
+        }
+        this.selfUrl = normalizeUrl(properties.getSelfUrl());
+        Set<String> nodes = new LinkedHashSet<>();
+        nodes.add(selfUrl);
+        properties.getPeers().stream().filter(peer -> !peer.isBlank()).map(ClusterRouter::normalizeUrl).forEach(nodes::add);
+        this.ring = new ConsistentHashRing<>(nodes, properties.getVirtualNodes());
+        this.restClient = restClientBuilder
+                .requestFactory(ClientHttpRequestFactories.get(ClientHttpRequestFactorySettings.DEFAULTS
+                        .withConnectTimeout(properties.getConnectTimeout())
+                        .withReadTimeout(properties.getForwardTimeout())))
+                .build();
+        log.info("Кластер реплик: эта реплика {}, всего реплик {} ({})", selfUrl, nodes.size(), nodes);
+    }
+
+    /**
+     * Маршрутизатор без кластера: все криптовалюты принадлежат этой реплике
+     */
+    public static ClusterRouter standalone() {
+        return new ClusterRouter(new ClusterProperties(), RestClient.builder(), new SimpleMeterRegistry());
+    }
+
+    public boolean isEnabled() {
+        return ring != null;
+    }
+
+    /**
+     * Адрес реплики-владельца криптовалюты; пусто, если владелец - эта реплика или кластер выключен
+     */
+    public Optional<String> remoteOwner(String cryptocurrency) {
+        if (ring == null) {
+            return Optional.empty();
+        }
+        String owner = ring.owner(normalizeCoin(cryptocurrency));
+        return owner.equals(selfUrl) ? Optional.empty() : Optional.of(owner);
+    }
+
+    public boolean isOwnedLocally(String cryptocurrency) {
+        return remoteOwner(cryptocurrency).isEmpty();
+    }
+
+    /**
+     * Запрашивает анализ у реплики-владельца
+     *
+     * @param timeframe канонический временной период
+     * @return результат владельца; пусто, если владелец недоступен и анализ нужно выполнить локально
+     * @throws OwnerRejectedException если владелец перегружен или останавливается (503)
+     * @throws RestClientException    при другой ошибке владельца
+     */
+    public Optional<CryptoAnalysisResponse> forward(String owner, String cryptocurrency, String timeframe,
+                                                    AnalysisOptions options) {
+        log.debug("Передаю анализ {} ({}) реплике-владельцу {}", cryptocurrency, timeframe, owner);
+        try {
+            CryptoAnalysisResponse response = restClient.post()
+                    .uri(owner + FORWARD_PATH)
+                    .body(new ClusterAnalysisRequest(cryptocurrency, timeframe, options))
+                    .retrieve()
+                    .body(CryptoAnalysisResponse.class);
+            countForward("success");
+            return Optional.ofNullable(response);
+        } catch (ResourceAccessException e) {
+            log.warn("Реплика-владелец {} недоступна для анализа {} ({}), выполняю локально: {}",
+                    owner, cryptocurrency, timeframe, e.getMessage());
+            countForward("failed");
+            return Optional.empty();
+        } catch (RestClientResponseException e) {
+            if (e.getStatusCode().value() == HttpStatus.SERVICE_UNAVAILABLE.value()) {
+                countForward("rejected");
+                throw new OwnerRejectedException("Реплика-владелец " + owner + " не принимает анализ: "
+                        + e.getStatusText(), retryAfter(e.getResponseHeaders()));
+            }
+            countForward("error");
+            throw e;
+        }
+    }
+
+    /**
+     * Асинхронный вариант {@link #forward}; запрос выполняется с контекстом трассировки вызывающего потока
+     */
+    public CompletableFuture<Optional<CryptoAnalysisResponse>> forwardAsync(String owner, String cryptocurrency,
+                                                                             String timeframe, AnalysisOptions options) {
+        return CompletableFuture.supplyAsync(() -> forward(owner, cryptocurrency, timeframe, options),
+                CONTEXT_SNAPSHOTS.captureAll().wrapExecutor(forwardExecutor));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        forwardExecutor.shutdownNow();
+    }
+
+    private void countForward(String outcome) {
+        meterRegistry.counter("crypto.cluster.forwards", "outcome", outcome).increment();
+    }
+
+    private static Duration retryAfter(HttpHeaders headers) {
+        String value = headers == null ? null : headers.getFirst(HttpHeaders.RETRY_AFTER);
+        if (value != null) {
+            try {
+                return Duration.ofSeconds(Math.max(0, Long.parseLong(value.trim())));
+            } catch (NumberFormatException e) {
+                log.debug("Нечисловой Retry-After владельца: {}", value);
+            }
+        }
+        return DEFAULT_RETRY_AFTER;
+    }
+
+    private static String normalizeUrl(String url) {
+        String trimmed = url.trim();
+        return trimmed.endsWith("/") ? trimmed.substring(0, trimmed.length() - 1) : trimmed;
+    }
+
+    private static String normalizeCoin(String cryptocurrency) {
+        return cryptocurrency == null ? "" : cryptocurrency.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+}
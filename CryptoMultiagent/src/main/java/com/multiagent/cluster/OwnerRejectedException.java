@@ -0,0 +1,24 @@
+package com.multiagent.cluster;
+
+import java.time.Duration;
+
+/**
+ * Реплика-владелец ответила 503: она перегружена или останавливается. Анализ не выполняется
+ * локально, чтобы не обходить ограничение нагрузки владельца, а клиент получает 503 с тем же Retry-After.
+ */
+public class OwnerRejectedException extends RuntimeException {
+
+    private final Duration retryAfter;
+
+    public OwnerRejectedException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+
+    /**
+     * Через сколько времени владелец предлагает повторить запрос
+     */
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
@@ -0,0 +1,27 @@
+package com.multiagent.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Настройки допуска запросов: анализ, который по оценке не успеет завершиться
+ * до истечения времени ожидания клиента, сразу отклоняется
+ */
+@Data
+@ConfigurationProperties(prefix = "crypto.admission")
+public class AdmissionProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * Время ожидания клиента, если оно не передано в запросе (заголовок X-Request-Timeout или дедлайн gRPC)
+     */
+    private Duration defaultTimeout = Duration.ofSeconds(60);
+
+    /**
+     * Предполагаемая длительность вызова агента, пока не накоплена статистика вызовов
+     */
+    private Duration initialLatency = Duration.ofSeconds(10);
+}
@@ -0,0 +1,49 @@
+package com.multiagent.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Настройки агентов: включение по умолчанию, вес в итоговом голосовании,
+ * ограничение количества одновременных обращений к модели и лимит токенов ответа.
+ * Ключ - идентификатор агента (technical, fundamental, sentiment, ...).
+ */
+@Data
+@ConfigurationProperties(prefix = "crypto")
+public class AgentProperties {
+
+    private Map<String, AgentSettings> agents = new HashMap<>();
+
+    public AgentSettings getSettings(String agentId) {
+        return agents.getOrDefault(agentId, new AgentSettings());
+    }
+
+    @Data
+    public static class AgentSettings {
+
+        /**
+         * Участвует ли агент в анализе, если состав агентов не указан в запросе.
+         * Если не задано, используется значение по умолчанию самого агента.
+         */
+        private Boolean enabled;
+
+        /**
+         * Вес рекомендации агента при определении финальной рекомендации
+         */
+        private double weight = 1.0;
+
+        /**
+         * Максимальное количество одновременных вызовов агента
+         */
+        private int maxConcurrency = 8;
+
+        /**
+         * Лимит токенов ответа агента. Если не задан, используется
+         * spring.ai.openai.chat.options.maxTokens
+         */
+        private Integer maxTokens;
+    }
+}
@@ -0,0 +1,47 @@
+package com.multiagent.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Настройки журнала рекомендаций и бэктеста по историческим ценам
+ */
+@Data
+@ConfigurationProperties(prefix = "crypto.backtest")
+public class BacktestProperties {
+
+    /**
+     * Файл журнала рекомендаций (JSON по строке на анализ); пусто - рекомендации не записываются
+     */
+    private String journalFile;
+
+    /**
+     * Размер файла журнала в байтах, после которого он ротируется в journal-file.1
+     */
+    private long journalMaxFileSize = 64L * 1024 * 1024;
+
+    /**
+     * Сколько ротированных файлов журнала хранится; более старые удаляются
+     */
+    private int journalMaxFiles = 5;
+
+    /**
+     * Количество потоков расчета; 0 - по числу процессоров
+     */
+    private int parallelism = 0;
+
+    /**
+     * Длина временного окна - единицы параллельного расчета
+     */
+    private int windowDays = 365;
+
+    /**
+     * Горизонт удержания позиции по умолчанию для воспроизведения по индикаторам
+     */
+    private String defaultHorizon = "1 неделя";
+
+    /**
+     * Изменение цены, в пределах которого рекомендация ДЕРЖАТЬ считается верной (доля)
+     */
+    private double holdBand = 0.02;
+}
@@ -0,0 +1,29 @@
+package com.multiagent.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Настройки in-memory кэша результатов анализа
+ */
+@Data
+@ConfigurationProperties(prefix = "crypto.cache")
+public class CacheProperties {
+
+    /**
+     * Включает кэширование результатов анализа
+     */
+    private boolean enabled = true;
+
+    /**
+     * Время жизни записи в кэше
+     */
+    private Duration ttl = Duration.ofMinutes(10);
+
+    /**
+     * Максимальное количество записей в кэше
+     */
+    private int maxEntries = 500;
+}
@@ -0,0 +1,44 @@
+package com.multiagent.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Настройки кластера реплик: у каждой криптовалюты есть реплика-владелец, выбранная
+ * согласованным хешированием, и промахи кэша на остальных репликах передаются ей
+ */
+@Data
+@ConfigurationProperties(prefix = "crypto.cluster")
+public class ClusterProperties {
+
+    /**
+     * Передавать ли анализ реплике-владельцу; выключено - каждая реплика работает независимо
+     */
+    private boolean enabled = false;
+
+    /**
+     * Адрес этой реплики в том виде, в котором он указан в списке реплик, например http://10.0.0.5:8080
+     */
+    private String selfUrl;
+
+    /**
+     * Адреса всех реплик кластера; список одинаков на всех репликах, адрес этой реплики можно не указывать
+     */
+    private List<String> peers = new ArrayList<>();
+
+    /**
+     * Количество виртуальных узлов реплики на кольце: больше - равномернее распределение
+     */
+    private int virtualNodes = 128;
+
+    private Duration connectTimeout = Duration.ofSeconds(2);
+
+    /**
+     * Максимальное время ожидания анализа от реплики-владельца; после него анализ выполняется локально
+     */
+    private Duration forwardTimeout = Duration.ofSeconds(90);
+}
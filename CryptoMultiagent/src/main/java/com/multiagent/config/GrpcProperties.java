@@ -0,0 +1,32 @@
+package com.multiagent.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Настройки gRPC сервера, работающего параллельно с REST API
+ */
+@Data
+@ConfigurationProperties(prefix = "crypto.grpc")
+public class GrpcProperties {
+
+    /**
+     * Запускать gRPC сервер
+     */
+    private boolean enabled = false;
+
+    private int port = 9090;
+
+    /**
+     * Максимум одновременно выполняющихся анализов в одном пакетном потоке;
+     * следующие запросы пакета читаются из соединения по мере освобождения мест
+     */
+    private int maxInFlightPerStream = 4;
+
+    /**
+     * Время ожидания завершения активных вызовов при остановке сервера
+     */
+    private Duration shutdownTimeout = Duration.ofSeconds(10);
+}
@@ -0,0 +1,23 @@
+package com.multiagent.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Настройки HTTP-кэширования ответов GET-эндпоинтов анализа: ETag по версии анализа
+ * и Cache-Control по оставшемуся времени жизни результата в кэше сервиса
+ */
+@Data
+@ConfigurationProperties(prefix = "crypto.http-cache")
+public class HttpCacheProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * Сколько после истечения свежести браузер или CDN может отдавать устаревший ответ,
+     * обновляя его в фоне (stale-while-revalidate)
+     */
+    private Duration staleWhileRevalidate = Duration.ofMinutes(1);
+}
@@ -0,0 +1,32 @@
+package com.multiagent.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Настройки ключей идемпотентности (заголовок Idempotency-Key): повтор запроса с тем же ключом
+ * получает результат первого запроса, а не запускает анализ заново
+ */
+@Data
+@ConfigurationProperties(prefix = "crypto.idempotency")
+public class IdempotencyProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * Сколько хранится ключ и результат запроса с момента его получения
+     */
+    private Duration retention = Duration.ofHours(1);
+
+    /**
+     * Максимальное количество хранимых ключей; при переполнении вытесняется самый старый
+     */
+    private int maxEntries = 2000;
+
+    /**
+     * Максимальная длина ключа
+     */
+    private int maxKeyLength = 255;
+}
@@ -0,0 +1,53 @@
+package com.multiagent.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Настройки потокового расчета технических индикаторов по локальным свечам
+ */
+@Data
+@ConfigurationProperties(prefix = "crypto.indicators")
+public class IndicatorProperties {
+
+    private boolean enabled = true;
+
+    private int smaPeriod = 50;
+
+    private int emaPeriod = 20;
+
+    private int rsiPeriod = 14;
+
+    private int macdFastPeriod = 12;
+
+    private int macdSlowPeriod = 26;
+
+    private int macdSignalPeriod = 9;
+
+    private int bollingerPeriod = 20;
+
+    /**
+     * Ширина полос Боллинджера в стандартных отклонениях
+     */
+    private double bollingerWidth = 2.0;
+
+    /**
+     * Сколько последних свечей прогоняется через индикаторы при первом обращении к символу
+     */
+    private int warmupCandles = 500;
+
+    /**
+     * Период фонового досчета индикаторов по всем символам хранилища
+     */
+    private Duration refreshInterval = Duration.ofMinutes(1);
+
+    /**
+     * Символы хранилища для названий криптовалют из запросов (bitcoin -> BTC);
+     * название, которое само является допустимым символом, используется как есть
+     */
+    private Map<String, String> symbols = new LinkedHashMap<>();
+}
@@ -0,0 +1,47 @@
+package com.multiagent.config;
+
+import com.multiagent.model.ExecutionLane;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Настройки полос выполнения: доля лимита одновременных вызовов агента
+ * (crypto.agents.*.max-concurrency), зарезервированная за каждой полосой,
+ * и потоки пакетной полосы. Незарезервированная часть лимита общая.
+ */
+@Data
+@ConfigurationProperties(prefix = "crypto.lanes")
+public class LaneProperties {
+
+    /**
+     * Доля вызовов агента, доступная только интерактивным запросам
+     */
+    private double interactiveReservedShare = 0.5;
+
+    /**
+     * Доля вызовов агента, гарантированная фоновым и пакетным задачам
+     */
+    private double bulkReservedShare = 0.25;
+
+    /**
+     * Количество потоков для асинхронных вызовов агентов пакетной полосы;
+     * интерактивная полоса использует общий пул
+     */
+    private int bulkThreads = 4;
+
+    /**
+     * Количество зарезервированных вызовов полосы при заданном лимите агента;
+     * сумма резервов не превышает лимит
+     */
+    public int reserved(ExecutionLane lane, int capacity) {
+        int interactive = (int) Math.floor(capacity * clamp(interactiveReservedShare));
+        if (lane == ExecutionLane.INTERACTIVE) {
+            return interactive;
+        }
+        return Math.min(capacity - interactive, (int) Math.floor(capacity * clamp(bulkReservedShare)));
+    }
+
+    private static double clamp(double share) {
+        return Math.max(0, Math.min(1, share));
+    }
+}
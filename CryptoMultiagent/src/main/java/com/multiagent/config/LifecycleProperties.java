@@ -0,0 +1,53 @@
+package com.multiagent.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Настройки жизненного цикла реплики: дозавершение анализов при остановке,
+ * сохранение кэша между перезапусками и прогрев перед приемом трафика
+ */
+@Data
+@ConfigurationProperties(prefix = "crypto.lifecycle")
+public class LifecycleProperties {
+
+    /**
+     * Сколько ждать завершения начатых анализов при остановке; после этого остановка продолжается
+     */
+    private Duration drainTimeout = Duration.ofSeconds(30);
+
+    /**
+     * Файл, в который при остановке сохраняются актуальные записи кэша и из которого
+     * они загружаются при запуске; пусто - кэш не сохраняется
+     */
+    private String snapshotFile;
+
+    private Warmup warmup = new Warmup();
+
+    @Data
+    public static class Warmup {
+
+        /**
+         * Прогревать ли приложение до того, как оно начнет принимать трафик
+         */
+        private boolean enabled = true;
+
+        /**
+         * Количество прогонов каждого агента на заглушке модели: рендеринг промптов,
+         * разбор ответов и сериализация ответа прогреваются без обращения к провайдеру
+         */
+        private int iterations = 200;
+
+        /**
+         * Выполнить ли один короткий запрос к модели, чтобы заранее открыть соединение с провайдером
+         */
+        private boolean modelCall = false;
+
+        /**
+         * Максимальное время прогрева; по истечении приложение начинает принимать трафик непрогретым
+         */
+        private Duration timeout = Duration.ofSeconds(20);
+    }
+}
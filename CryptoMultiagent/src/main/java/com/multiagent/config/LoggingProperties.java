@@ -0,0 +1,48 @@
+package com.multiagent.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Настройки логирования пути анализа: асинхронная очередь, выборочное логирование
+ * по категориям и ограничение размера логируемых текстов
+ */
+@Data
+@ConfigurationProperties(prefix = "crypto.logging")
+public class LoggingProperties {
+
+    /**
+     * Доля сохраняемых событий ниже WARN по категориям (префиксам имени логгера), от 0 до 1.
+     * Для вложенных категорий действует самый длинный совпавший префикс.
+     * WARN и ERROR сохраняются всегда.
+     */
+    private Map<String, Double> sampling = new LinkedHashMap<>();
+
+    /**
+     * Максимальная длина текста анализа, промпта или ответа модели в логе;
+     * 0 - в лог попадает только длина текста
+     */
+    private int payloadMaxLength = 500;
+
+    private Async async = new Async();
+
+    /**
+     * Параметры асинхронной очереди логов; читаются logback-spring.xml при старте
+     */
+    @Data
+    public static class Async {
+
+        /**
+         * Емкость очереди событий
+         */
+        private int queueSize = 8192;
+
+        /**
+         * Остаток свободной емкости очереди, при котором события ниже WARN отбрасываются
+         */
+        private int discardingThreshold = 1024;
+    }
+}
@@ -0,0 +1,27 @@
+package com.multiagent.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Настройки локального хранилища рыночных данных (свечи OHLCV)
+ */
+@Data
+@ConfigurationProperties(prefix = "crypto.market-data")
+public class MarketDataProperties {
+
+    /**
+     * Каталог файлов свечей: по файлу на символ и интервал (BTC/1h.ohlcv)
+     */
+    private String directory = "data/market";
+
+    /**
+     * Каталог CSV-файлов для импорта при запуске (BTC_1h.csv); пусто - импорт не выполняется
+     */
+    private String importDirectory;
+
+    /**
+     * Начальная емкость нового файла свечей; при заполнении емкость удваивается
+     */
+    private int initialCapacity = 4096;
+}
@@ -0,0 +1,22 @@
+package com.multiagent.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Настройки агента-модератора, разрешающего разногласия между агентами
+ */
+@Data
+@ConfigurationProperties(prefix = "crypto.moderator")
+public class ModeratorProperties {
+
+    /**
+     * Включает вызов модератора. Если выключен, используется взвешенное голосование агентов
+     */
+    private boolean enabled = false;
+
+    /**
+     * Средняя уверенность агентов, ниже которой модератор вызывается даже при единогласии
+     */
+    private double minAverageConfidence = 0.6;
+}
@@ -0,0 +1,39 @@
+package com.multiagent.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Настройки отслеживания популярности запросов
+ */
+@Data
+@ConfigurationProperties(prefix = "crypto.popularity")
+public class PopularityProperties {
+
+    /**
+     * Ширина count-min sketch (количество счетчиков в строке)
+     */
+    private int width = 2048;
+
+    /**
+     * Глубина count-min sketch (количество хеш-функций)
+     */
+    private int depth = 4;
+
+    /**
+     * Количество отслеживаемых самых популярных запросов
+     */
+    private int topK = 20;
+
+    /**
+     * Интервал применения затухания счетчиков
+     */
+    private Duration decayInterval = Duration.ofMinutes(10);
+
+    /**
+     * Коэффициент затухания счетчиков (0.5 - период полураспада равен интервалу)
+     */
+    private double decayFactor = 0.5;
+}
@@ -0,0 +1,33 @@
+package com.multiagent.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Настройки построения промптов агентов
+ */
+@Data
+@ConfigurationProperties(prefix = "crypto.prompts")
+public class PromptProperties {
+
+    /**
+     * Раскладка промпта: split - неизменное системное сообщение и короткое сообщение пользователя,
+     * legacy - одно сообщение с подстановкой криптовалюты в середину инструкций
+     */
+    private Layout layout = Layout.SPLIT;
+
+    public enum Layout {
+
+        /**
+         * Инструкции агента - неизменное системное сообщение, криптовалюта и период - в сообщении
+         * пользователя. Префикс промпта одинаков для всех запросов, и провайдер может его кэшировать.
+         */
+        SPLIT,
+
+        /**
+         * Прежняя раскладка: инструкции и параметры запроса в одном сообщении пользователя,
+         * параметры подставляются после первого абзаца. Оставлена для сравнения.
+         */
+        LEGACY
+    }
+}
@@ -0,0 +1,66 @@
+package com.multiagent.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Настройки семантического кэша: поиск ранее выполненного анализа по сходству эмбеддингов запроса
+ */
+@Data
+@ConfigurationProperties(prefix = "crypto.cache.semantic")
+public class SemanticCacheProperties {
+
+    /**
+     * Включает семантический уровень кэша
+     */
+    private boolean enabled = false;
+
+    /**
+     * Минимальное косинусное сходство запросов, при котором используется сохраненный ответ.
+     * Применяется только к названиям, тикер которых не задан в псевдонимах: запросы с одинаковым
+     * известным тикером используют один ответ без сравнения эмбеддингов
+     */
+    private double similarityThreshold = 0.93;
+
+    /**
+     * Тикеры по названиям криптовалют (bitcoin: BTC). Запросы с одним тикером ("Bitcoin", "BTC")
+     * сопоставляются напрямую. Название, тикер которого здесь не задан, ищется по сходству
+     * эмбеддингов только среди таких же неизвестных названий, поэтому близкие по эмбеддингу
+     * разные активы ("Bitcoin Cash" и "Bitcoin") не объединяются
+     */
+    private Map<String, String> aliases = new HashMap<>();
+
+    /**
+     * Время жизни записи
+     */
+    private Duration ttl = Duration.ofMinutes(10);
+
+    /**
+     * Максимальное количество записей; ограничивает память, занятую векторами
+     */
+    private int maxEntries = 1000;
+
+    /**
+     * Максимальное количество эмбеддингов запросов, кэшируемых для повторных промахов
+     */
+    private int maxEmbeddings = 1000;
+
+    /**
+     * Количество связей узла HNSW графа (M)
+     */
+    private int hnswMaxConnections = 16;
+
+    /**
+     * Ширина поиска при построении HNSW графа
+     */
+    private int hnswEfConstruction = 100;
+
+    /**
+     * Ширина поиска при запросе к HNSW графу
+     */
+    private int hnswEfSearch = 50;
+}
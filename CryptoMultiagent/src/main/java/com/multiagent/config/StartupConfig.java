@@ -0,0 +1,65 @@
+package com.multiagent.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.AnnotatedBeanDefinition;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.type.MethodMetadata;
+
+import java.util.List;
+
+/**
+ * Ленивое создание некритичных бинов. В отличие от spring.main.lazy-initialization,
+ * откладываются только бины из {@code crypto.startup.lazy-packages}: пулы, жизненные циклы
+ * и агенты создаются при запуске, чтобы ошибки конфигурации проявлялись сразу, а прогрев
+ * затрагивал реальные бины.
+ * <p>
+ * Постпроцессор работает до привязки свойств, поэтому настройки читаются напрямую из окружения.
+ * При AOT-сборке он выполняется на этапе сборки, и признак ленивости попадает в сгенерированные
+ * определения бинов.
+ */
+@Slf4j
+@Configuration
+public class StartupConfig {
+
+    @Bean
+    public static BeanFactoryPostProcessor lazyNonCriticalBeans(Environment environment) {
+        List<String> prefixes = Binder.get(environment)
+                .bind("crypto.startup", StartupProperties.class)
+                .orElseGet(StartupProperties::new)
+                .getLazyPackages();
+        return beanFactory -> {
+            if (prefixes.isEmpty()) {
+                return;
+            }
+            int lazy = 0;
+            for (String name : beanFactory.getBeanDefinitionNames()) {
+                BeanDefinition definition = beanFactory.getBeanDefinition(name);
+                String source = sourceClassName(definition);
+                if (source != null && !definition.isLazyInit()
+                        && prefixes.stream().anyMatch(source::startsWith)) {
+                    definition.setLazyInit(true);
+                    lazy++;
+                }
+            }
+            log.debug("Ленивая инициализация включена для бинов: {} (префиксы {})", lazy, prefixes);
+        };
+    }
+
+    /**
+     * Класс, объявивший бин: для @Bean методов - конфигурация с методом, иначе класс бина
+     */
+    private static String sourceClassName(BeanDefinition definition) {
+        if (definition instanceof AnnotatedBeanDefinition annotated) {
+            MethodMetadata factoryMethod = annotated.getFactoryMethodMetadata();
+            if (factoryMethod != null) {
+                return factoryMethod.getDeclaringClassName();
+            }
+        }
+        return definition.getBeanClassName();
+    }
+}
@@ -0,0 +1,21 @@
+package com.multiagent.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Настройки быстрого запуска
+ */
+@Data
+@ConfigurationProperties(prefix = "crypto.startup")
+public class StartupProperties {
+
+    /**
+     * Префиксы классов бинов, создание которых откладывается до первого обращения,
+     * например org.springdoc: документация API не нужна для обслуживания анализов
+     */
+    private List<String> lazyPackages = new ArrayList<>();
+}
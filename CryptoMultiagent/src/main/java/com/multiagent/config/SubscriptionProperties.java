@@ -0,0 +1,69 @@
+package com.multiagent.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Настройки подписок на анализ по WebSocket
+ */
+@Data
+@ConfigurationProperties(prefix = "crypto.subscriptions")
+public class SubscriptionProperties {
+
+    /**
+     * Включает точку подключения WebSocket
+     */
+    private boolean enabled = true;
+
+    /**
+     * Путь точки подключения
+     */
+    private String path = "/ws/analysis";
+
+    /**
+     * Разрешенные источники (шаблоны Origin) для подключения из браузера; пусто - только тот же источник.
+     * Каждая подписка периодически запрашивает анализ, поэтому открывать точку подключения всем не стоит.
+     */
+    private List<String> allowedOrigins = new ArrayList<>();
+
+    /**
+     * Интервал, с которым анализ тем с подписчиками запрашивается заново
+     * (пока результат в кэше, новый расчет не выполняется)
+     */
+    private Duration refreshInterval = Duration.ofSeconds(30);
+
+    /**
+     * Максимальное количество подписок одного подключения
+     */
+    private int maxTopicsPerSession = 20;
+
+    /**
+     * Максимальное количество тем на сервере; ограничивает число анализов, которые подписки
+     * запрашивают за каждое обновление
+     */
+    private int maxTopics = 200;
+
+    /**
+     * Максимальное время отправки одного сообщения подписчику; при превышении подписчик отключается
+     */
+    private Duration sendTimeLimit = Duration.ofSeconds(10);
+
+    /**
+     * Интервал проверки подписчиков, отправка которым длится дольше send-time-limit
+     */
+    private Duration sendCheckInterval = Duration.ofSeconds(1);
+
+    /**
+     * Размер буфера неотправленных сообщений подписчика в байтах; при превышении подписчик отключается
+     */
+    private int sendBufferSizeLimit = 256 * 1024;
+
+    /**
+     * Количество потоков рассылки
+     */
+    private int sendThreads = 4;
+}
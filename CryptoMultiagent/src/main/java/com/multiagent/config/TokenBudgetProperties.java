@@ -0,0 +1,50 @@
+package com.multiagent.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Бюджеты токенов ответа модели для эндпоинтов и краткого режима, а также учет расхода токенов.
+ * Итоговый лимит агента - минимум из лимита агента ({@link AgentProperties.AgentSettings#getMaxTokens()}),
+ * лимита эндпоинта и лимита краткого режима.
+ */
+@Data
+@ConfigurationProperties(prefix = "crypto.tokens")
+public class TokenBudgetProperties {
+
+    public static final String ENDPOINT_ANALYZE = "analyze";
+
+    public static final String ENDPOINT_ANALYZE_ASYNC = "analyze-async";
+
+    public static final String ENDPOINT_GRPC = "grpc";
+
+    /**
+     * Лимит токенов ответа агента в кратком режиме
+     */
+    private int briefMaxTokens = 250;
+
+    /**
+     * Лимиты токенов ответа агента по эндпоинтам: analyze, analyze-async, grpc
+     */
+    private Map<String, Integer> endpoints = new HashMap<>();
+
+    /**
+     * Количество криптовалют, расход по которым учитывается отдельно;
+     * остальные суммируются в общую группу
+     */
+    private int maxTrackedCoins = 500;
+
+    /**
+     * Лимит токенов ответа для запроса к эндпоинту; null - лимит эндпоинта не задан
+     */
+    public Integer resolveMaxTokens(String endpoint, boolean brief) {
+        Integer endpointLimit = endpoints.get(endpoint);
+        if (!brief) {
+            return endpointLimit;
+        }
+        return endpointLimit == null ? briefMaxTokens : Math.min(endpointLimit, briefMaxTokens);
+    }
+}
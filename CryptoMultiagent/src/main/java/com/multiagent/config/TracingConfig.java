@@ -0,0 +1,37 @@
+package com.multiagent.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.multiagent.tracing.InMemorySpanExporter;
+import com.multiagent.tracing.JsonLinesSpanExporter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.core.task.support.ContextPropagatingTaskDecorator;
+
+import java.nio.file.Path;
+
+/**
+ * Локальные экспортеры спанов и передача контекста трассировки в асинхронные задачи.
+ * Spring Boot подключает все бины SpanExporter к BatchSpanProcessor, а TaskDecorator -
+ * к пулу @Async, поэтому спаны сервиса и агентов остаются в трассировке HTTP запроса.
+ */
+@Configuration
+public class TracingConfig {
+
+    @Bean
+    public InMemorySpanExporter inMemorySpanExporter(TracingProperties properties) {
+        return new InMemorySpanExporter(properties.getMemoryCapacity());
+    }
+
+    @Bean
+    @ConditionalOnExpression("!'${crypto.tracing.file:}'.isBlank()")
+    public JsonLinesSpanExporter jsonLinesSpanExporter(TracingProperties properties, ObjectMapper objectMapper) {
+        return new JsonLinesSpanExporter(Path.of(properties.getFile()), objectMapper);
+    }
+
+    @Bean
+    public TaskDecorator contextPropagatingTaskDecorator() {
+        return new ContextPropagatingTaskDecorator();
+    }
+}
@@ -0,0 +1,23 @@
+package com.multiagent.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Настройки локальной выгрузки спанов трассировки: без внешнего коллектора
+ * спаны доступны в памяти через /actuator/traces и, при необходимости, в файле
+ */
+@Data
+@ConfigurationProperties(prefix = "crypto.tracing")
+public class TracingProperties {
+
+    /**
+     * Количество последних завершенных спанов, хранимых в памяти
+     */
+    private int memoryCapacity = 2000;
+
+    /**
+     * Файл для выгрузки спанов в формате JSON Lines; пусто - выгрузка в файл отключена
+     */
+    private String file;
+}
@@ -0,0 +1,57 @@
+package com.multiagent.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Настройки фонового предрасчета анализа для популярных криптовалют
+ */
+@Data
+@ConfigurationProperties(prefix = "crypto.watchlist")
+public class WatchlistProperties {
+
+    /**
+     * Включает фоновый предрасчет
+     */
+    private boolean enabled = false;
+
+    /**
+     * Криптовалюты, анализ которых поддерживается в прогретом состоянии
+     */
+    private List<String> coins = new ArrayList<>();
+
+    /**
+     * Сколько самых популярных запросов (по данным трекера популярности)
+     * добавлять к списку наблюдения в каждом цикле
+     */
+    private int includeTopRequested = 0;
+
+    /**
+     * Временные периоды, для которых выполняется предрасчет
+     */
+    private List<String> timeframes = new ArrayList<>(List.of("1 месяц"));
+
+    /**
+     * Задержка перед первым циклом предрасчета
+     */
+    private Duration initialDelay = Duration.ofSeconds(30);
+
+    /**
+     * Интервал между циклами предрасчета (должен быть меньше TTL кэша)
+     */
+    private Duration refreshInterval = Duration.ofMinutes(5);
+
+    /**
+     * Максимальное количество одновременно выполняемых анализов
+     */
+    private int maxConcurrency = 2;
+
+    /**
+     * Максимальное количество запускаемых анализов в минуту
+     */
+    private int maxRequestsPerMinute = 12;
+}
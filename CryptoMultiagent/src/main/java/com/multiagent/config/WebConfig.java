@@ -0,0 +1,16 @@
+package com.multiagent.config;
+
+import com.multiagent.model.ResponseView;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.format.FormatterRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    @Override
+    public void addFormatters(FormatterRegistry registry) {
+        // Параметр view принимается в любом регистре: compact, COMPACT
+        registry.addConverter(String.class, ResponseView.class, ResponseView::from);
+    }
+}
@@ -0,0 +1,76 @@
+package com.multiagent.controller;
+
+import com.multiagent.cache.AnalysisCache;
+import com.multiagent.config.CacheProperties;
+import com.multiagent.config.HttpCacheProperties;
+import com.multiagent.model.CryptoAnalysisResponse;
+import com.multiagent.model.ResponseView;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+
+/**
+ * Заголовки HTTP-кэширования ответа анализа.
+ * <p>
+ * ETag вычисляется по версии анализа (ключ запроса, время выполнения анализа и представление ответа),
+ * поэтому не требует сериализации тела. Для ответа с ETag Spring MVC сам отвечает 304 на GET-запрос
+ * с совпадающим If-None-Match, не записывая тело. Свежесть (max-age) равна оставшемуся времени жизни
+ * результата в кэше сервиса: до этого момента сервис вернул бы тот же ответ.
+ */
+@Component
+@RequiredArgsConstructor
+public class AnalysisHttpCaching {
+
+    private final HttpCacheProperties properties;
+
+    private final CacheProperties cacheProperties;
+
+    private Clock clock = Clock.systemUTC();
+
+    /**
+     * Ответ 200 с ETag, Last-Modified и Cache-Control.
+     * Ответы с ошибками агентов не кэшируются (no-store), как и в кэше сервиса.
+     *
+     * @param version ключ запроса: криптовалюта, период и параметры, влияющие на результат
+     */
+    public ResponseEntity<CryptoAnalysisResponse> ok(CryptoAnalysisResponse response, String version, ResponseView view) {
+        if (!properties.isEnabled() || response.getAnalyzedAt() == null) {
+            return ResponseEntity.ok(response);
+        }
+        if (!AnalysisCache.isCacheable(response)) {
+            return ResponseEntity.ok().cacheControl(CacheControl.noStore()).body(response);
+        }
+        return ResponseEntity.ok()
+                .eTag(etag(response, version, view))
+                .lastModified(response.getAnalyzedAt())
+                .cacheControl(cacheControl(response))
+                .body(response);
+    }
+
+    void setClock(Clock clock) {
+        this.clock = clock;
+    }
+
+    private CacheControl cacheControl(CryptoAnalysisResponse response) {
+        Duration age = Duration.between(response.getAnalyzedAt(), clock.instant());
+        Duration freshness = cacheProperties.isEnabled() ? cacheProperties.getTtl().minus(age) : Duration.ZERO;
+        if (freshness.toSeconds() <= 0) {
+            // Результат уже не свежий: клиент должен каждый раз проверять его по ETag
+            return CacheControl.noCache();
+        }
+        return CacheControl.maxAge(freshness)
+                .cachePublic()
+                .staleWhileRevalidate(properties.getStaleWhileRevalidate());
+    }
+
+    private static String etag(CryptoAnalysisResponse response, String version, ResponseView view) {
+        String source = version + "|" + response.getAnalyzedAt().toEpochMilli() + "|" + view.name();
+        return "\"" + DigestUtils.md5DigestAsHex(source.getBytes(StandardCharsets.UTF_8)) + "\"";
+    }
+}
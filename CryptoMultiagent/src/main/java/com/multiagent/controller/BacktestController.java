@@ -0,0 +1,51 @@
+package com.multiagent.controller;
+
+import com.multiagent.backtest.BacktestEngine;
+import com.multiagent.backtest.BacktestReport;
+import com.multiagent.backtest.BacktestRequest;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/crypto")
+@CrossOrigin(origins = "*")
+@RequiredArgsConstructor
+@Tag(name = "Backtest", description = "Проверка рекомендаций на исторических ценах")
+public class BacktestController {
+
+    private final BacktestEngine backtestEngine;
+
+    @PostMapping("/backtest")
+    @Operation(
+            summary = "Бэктест рекомендаций",
+            description = "Проверяет рекомендации из журнала или воспроизведенные по индикаторам на исторических "
+                    + "свечах локального хранилища. Возвращает долю верных рекомендаций и доходность "
+                    + "по агентам и способам агрегации"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Бэктест выполнен",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = BacktestReport.class))
+            ),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Некорректные параметры: неизвестный интервал, символ или период"
+            )
+    })
+    public ResponseEntity<BacktestReport> backtest(@RequestBody BacktestRequest request) {
+        return ResponseEntity.ok(backtestEngine.run(request));
+    }
+}
@@ -1,8 +1,20 @@
 package com.multiagent.controller;
 
+import com.multiagent.agent.AgentRegistry;
+import com.multiagent.cache.AnalysisCache;
+import com.multiagent.cache.IdempotencyKeyReuseException;
+import com.multiagent.cache.IdempotencyStore;
+import com.multiagent.config.TokenBudgetProperties;
+import com.multiagent.model.AnalysisOptions;
 import com.multiagent.model.CryptoAnalysisRequest;
 import com.multiagent.model.CryptoAnalysisResponse;
+import com.multiagent.model.ResponseView;
+import com.multiagent.model.Timeframe;
+import com.multiagent.service.AnalysisRejectedException;
 import com.multiagent.service.CryptoAnalysisService;
+import com.multiagent.service.RequestPopularityTracker;
+import com.multiagent.tracing.AnalysisObservations;
+import io.micrometer.observation.ObservationRegistry;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -15,11 +27,16 @@ import jakarta.validation.Valid;
 import jakarta.validation.constraints.Pattern;
 import jakarta.validation.constraints.Size;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.Duration;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @Validated
 @RestController
@@ -29,8 +46,35 @@ import java.util.concurrent.CompletableFuture;
 @Tag(name = "Crypto Analysis", description = "API для анализа криптовалют с использованием мульти-агентной системы")
 public class CryptoAnalysisController {
 
+    /**
+     * Сколько секунд клиент готов ждать ответа
+     */
+    public static final String REQUEST_TIMEOUT_HEADER = "X-Request-Timeout";
+
+    /**
+     * Ключ идемпотентности: повтор POST-запроса с тем же ключом не запускает анализ заново
+     */
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
+    /**
+     * Признак ответа на повторный запрос, полученного первым запросом с тем же ключом
+     */
+    public static final String IDEMPOTENT_REPLAYED_HEADER = "Idempotent-Replayed";
+
     private final CryptoAnalysisService analysisService;
 
+    private final RequestPopularityTracker popularityTracker;
+
+    private final AgentRegistry agentRegistry;
+
+    private final TokenBudgetProperties tokenBudgetProperties;
+
+    private final ObservationRegistry observationRegistry;
+
+    private final IdempotencyStore idempotencyStore;
+
+    private final AnalysisHttpCaching httpCaching;
+
     @PostMapping("/analyze")
     @Operation(
             summary = "Анализ криптовалюты (синхронный)",
@@ -81,22 +125,47 @@ public class CryptoAnalysisController {
                             )
                     )
             ),
+            @ApiResponse(
+                    responseCode = "422",
+                    description = "Ключ идемпотентности уже использован для запроса с другими параметрами"
+            ),
             @ApiResponse(
                     responseCode = "500",
                     description = "Внутренняя ошибка сервера"
+            ),
+            @ApiResponse(
+                    responseCode = "503",
+                    description = "Сервис останавливается или перегружен, запрос следует повторить через Retry-After секунд"
             )
     })
     public ResponseEntity<CryptoAnalysisResponse> analyzeCryptocurrency(
-            @Valid @RequestBody CryptoAnalysisRequest request) {
+            @Valid @RequestBody CryptoAnalysisRequest request,
+            @Parameter(description = "Представление ответа: compact - без текстов анализа, full - полный ответ",
+                    example = "full")
+            @RequestParam(name = ResponseViewAdvice.VIEW_PARAMETER, defaultValue = "full") ResponseView view,
+            @Parameter(description = "Сколько секунд клиент готов ждать ответа; анализ, который не успеет, отклоняется с 503",
+                    example = "30")
+            @RequestHeader(name = REQUEST_TIMEOUT_HEADER, required = false) Long timeoutSeconds,
+            @Parameter(description = "Ключ идемпотентности: повтор запроса с тем же ключом получает результат первого запроса",
+                    example = "7c9e6679-7425-40de-944b-e07fc1f90ae7")
+            @RequestHeader(name = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
 
+        AnalysisOptions options = toOptions(request.getAgents(), request.getQuorum(), request.getBrief(),
+                TokenBudgetProperties.ENDPOINT_ANALYZE, timeoutSeconds);
+        idempotencyStore.validate(idempotencyKey);
+        String timeframe = Timeframe.canonicalize(request.getTimeframe());
+        trackRequest(request.getCryptocurrency(), timeframe);
         try {
-            CryptoAnalysisResponse response = analysisService.analyzeCryptocurrency(
-                    request.getCryptocurrency(),
-                    request.getTimeframe()
-            );
-            return ResponseEntity.ok(response);
+            IdempotencyStore.Execution execution = idempotencyStore.execute(idempotencyKey,
+                    fingerprint(request.getCryptocurrency(), timeframe, options),
+                    () -> CompletableFuture.completedFuture(analysisService.analyzeCryptocurrency(
+                            request.getCryptocurrency(),
+                            timeframe,
+                            options
+                    )));
+            return okResponse(execution.response().join(), execution.replayed());
         } catch (Exception e) {
-            return ResponseEntity.internalServerError().build();
+            return errorResponse(e);
         }
     }
 
@@ -118,20 +187,46 @@ public class CryptoAnalysisController {
                     responseCode = "400",
                     description = "Некорректные данные запроса"
             ),
+            @ApiResponse(
+                    responseCode = "422",
+                    description = "Ключ идемпотентности уже использован для запроса с другими параметрами"
+            ),
             @ApiResponse(
                     responseCode = "500",
                     description = "Внутренняя ошибка сервера"
+            ),
+            @ApiResponse(
+                    responseCode = "503",
+                    description = "Сервис останавливается или перегружен, запрос следует повторить через Retry-After секунд"
             )
     })
     public CompletableFuture<ResponseEntity<CryptoAnalysisResponse>> analyzeCryptocurrencyAsync(
-            @Valid @RequestBody CryptoAnalysisRequest request) {
+            @Valid @RequestBody CryptoAnalysisRequest request,
+            @Parameter(description = "Представление ответа: compact - без текстов анализа, full - полный ответ",
+                    example = "full")
+            @RequestParam(name = ResponseViewAdvice.VIEW_PARAMETER, defaultValue = "full") ResponseView view,
+            @Parameter(description = "Сколько секунд клиент готов ждать ответа; анализ, который не успеет, отклоняется с 503",
+                    example = "30")
+            @RequestHeader(name = REQUEST_TIMEOUT_HEADER, required = false) Long timeoutSeconds,
+            @Parameter(description = "Ключ идемпотентности: повтор запроса с тем же ключом получает результат первого запроса",
+                    example = "7c9e6679-7425-40de-944b-e07fc1f90ae7")
+            @RequestHeader(name = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
 
-        return analysisService.analyzeCryptocurrencyAsync(
+        AnalysisOptions options = toOptions(request.getAgents(), request.getQuorum(), request.getBrief(),
+                TokenBudgetProperties.ENDPOINT_ANALYZE_ASYNC, timeoutSeconds);
+        idempotencyStore.validate(idempotencyKey);
+        String timeframe = Timeframe.canonicalize(request.getTimeframe());
+        trackRequest(request.getCryptocurrency(), timeframe);
+        IdempotencyStore.Execution execution = idempotencyStore.execute(idempotencyKey,
+                fingerprint(request.getCryptocurrency(), timeframe, options),
+                () -> analysisService.analyzeCryptocurrencyAsync(
                         request.getCryptocurrency(),
-                        request.getTimeframe()
-                )
-                .thenApply(ResponseEntity::ok)
-                .exceptionally(ex -> ResponseEntity.internalServerError().build());
+                        timeframe,
+                        options
+                ));
+        return execution.response()
+                .thenApply(response -> okResponse(response, execution.replayed()))
+                .exceptionally(CryptoAnalysisController::errorResponse);
     }
 
     @GetMapping("/analyze/{crypto}")
@@ -148,6 +243,10 @@ public class CryptoAnalysisController {
                             schema = @Schema(implementation = CryptoAnalysisResponse.class)
                     )
             ),
+            @ApiResponse(
+                    responseCode = "304",
+                    description = "Ответ не изменился с версии из If-None-Match (ETag)"
+            ),
             @ApiResponse(
                     responseCode = "400",
                     description = "Некорректные параметры запроса"
@@ -155,6 +254,10 @@ public class CryptoAnalysisController {
             @ApiResponse(
                     responseCode = "500",
                     description = "Внутренняя ошибка сервера"
+            ),
+            @ApiResponse(
+                    responseCode = "503",
+                    description = "Сервис останавливается или перегружен, запрос следует повторить через Retry-After секунд"
             )
     })
     public ResponseEntity<CryptoAnalysisResponse> analyzeCryptocurrency(
@@ -163,14 +266,29 @@ public class CryptoAnalysisController {
             @Size(min = 2, max = 50, message = "Название криптовалюты должно быть от 2 до 50 символов")
             @Pattern(regexp = "^[a-zA-Z0-9\\s-]+$", message = "Недопустимые символы в названии криптовалюты")
             String crypto,
-            @Parameter(description = "Временной период для анализа", example = "1 месяц")
-            @RequestParam(defaultValue = "1 месяц") String timeframe) {
+            @Parameter(description = "Временной период для анализа (например: 1 месяц, 30 дней, 1 month, 1M)", example = "1 месяц")
+            @RequestParam(defaultValue = "1 месяц") String timeframe,
+            @Parameter(description = "Идентификаторы агентов через запятую", example = "technical,sentiment")
+            @RequestParam(required = false) List<String> agents,
+            @Parameter(description = "Режим кворума: не ждать агентов, не влияющих на итог", example = "false")
+            @RequestParam(required = false) Boolean quorum,
+            @Parameter(description = "Краткий режим: агенты отвечают несколькими предложениями", example = "false")
+            @RequestParam(required = false) Boolean brief,
+            @Parameter(description = "Представление ответа: compact - без текстов анализа, full - полный ответ",
+                    example = "full")
+            @RequestParam(name = ResponseViewAdvice.VIEW_PARAMETER, defaultValue = "full") ResponseView view,
+            @Parameter(description = "Сколько секунд клиент готов ждать ответа; анализ, который не успеет, отклоняется с 503",
+                    example = "30")
+            @RequestHeader(name = REQUEST_TIMEOUT_HEADER, required = false) Long timeoutSeconds) {
 
+        AnalysisOptions options = toOptions(agents, quorum, brief, TokenBudgetProperties.ENDPOINT_ANALYZE, timeoutSeconds);
+        String canonicalTimeframe = Timeframe.canonicalize(timeframe);
+        trackRequest(crypto, canonicalTimeframe);
         try {
-            CryptoAnalysisResponse response = analysisService.analyzeCryptocurrency(crypto, timeframe);
-            return ResponseEntity.ok(response);
+            CryptoAnalysisResponse response = analysisService.analyzeCryptocurrency(crypto, canonicalTimeframe, options);
+            return httpCaching.ok(response, fingerprint(crypto, canonicalTimeframe, options), view);
         } catch (Exception e) {
-            return ResponseEntity.internalServerError().build();
+            return errorResponse(e);
         }
     }
 
@@ -188,6 +306,10 @@ public class CryptoAnalysisController {
                             schema = @Schema(implementation = CryptoAnalysisResponse.class)
                     )
             ),
+            @ApiResponse(
+                    responseCode = "304",
+                    description = "Ответ не изменился с версии из If-None-Match (ETag)"
+            ),
             @ApiResponse(
                     responseCode = "400",
                     description = "Некорректные параметры запроса"
@@ -195,6 +317,10 @@ public class CryptoAnalysisController {
             @ApiResponse(
                     responseCode = "500",
                     description = "Внутренняя ошибка сервера"
+            ),
+            @ApiResponse(
+                    responseCode = "503",
+                    description = "Сервис останавливается или перегружен, запрос следует повторить через Retry-After секунд"
             )
     })
     public CompletableFuture<ResponseEntity<CryptoAnalysisResponse>> analyzeCryptocurrencyAsync(
@@ -202,12 +328,28 @@ public class CryptoAnalysisController {
             @PathVariable
             @Size(min = 2, max = 50, message = "Название криптовалюты должно быть от 2 до 50 символов")
             String crypto,
-            @Parameter(description = "Временной период для анализа", example = "1 месяц")
-            @RequestParam(defaultValue = "1 месяц") String timeframe) {
+            @Parameter(description = "Временной период для анализа (например: 1 месяц, 30 дней, 1 month, 1M)", example = "1 месяц")
+            @RequestParam(defaultValue = "1 месяц") String timeframe,
+            @Parameter(description = "Идентификаторы агентов через запятую", example = "technical,sentiment")
+            @RequestParam(required = false) List<String> agents,
+            @Parameter(description = "Режим кворума: не ждать агентов, не влияющих на итог", example = "false")
+            @RequestParam(required = false) Boolean quorum,
+            @Parameter(description = "Краткий режим: агенты отвечают несколькими предложениями", example = "false")
+            @RequestParam(required = false) Boolean brief,
+            @Parameter(description = "Представление ответа: compact - без текстов анализа, full - полный ответ",
+                    example = "full")
+            @RequestParam(name = ResponseViewAdvice.VIEW_PARAMETER, defaultValue = "full") ResponseView view,
+            @Parameter(description = "Сколько секунд клиент готов ждать ответа; анализ, который не успеет, отклоняется с 503",
+                    example = "30")
+            @RequestHeader(name = REQUEST_TIMEOUT_HEADER, required = false) Long timeoutSeconds) {
 
-        return analysisService.analyzeCryptocurrencyAsync(crypto, timeframe)
-                .thenApply(ResponseEntity::ok)
-                .exceptionally(ex -> ResponseEntity.internalServerError().build());
+        AnalysisOptions options = toOptions(agents, quorum, brief, TokenBudgetProperties.ENDPOINT_ANALYZE_ASYNC,
+                timeoutSeconds);
+        String canonicalTimeframe = Timeframe.canonicalize(timeframe);
+        trackRequest(crypto, canonicalTimeframe);
+        return analysisService.analyzeCryptocurrencyAsync(crypto, canonicalTimeframe, options)
+                .thenApply(response -> httpCaching.ok(response, fingerprint(crypto, canonicalTimeframe, options), view))
+                .exceptionally(CryptoAnalysisController::errorResponse);
     }
 
     @GetMapping("/agents/status")
@@ -235,4 +377,60 @@ public class CryptoAnalysisController {
     public ResponseEntity<String> getAgentsStatus() {
         return ResponseEntity.ok(analysisService.getAgentsStatus());
     }
+
+    /**
+     * Учитывает популярность запроса и добавляет криптовалюту и период к спану HTTP запроса
+     */
+    private void trackRequest(String cryptocurrency, String timeframe) {
+        popularityTracker.record(cryptocurrency, timeframe);
+        AnalysisObservations.tagCurrent(observationRegistry, cryptocurrency, timeframe);
+    }
+
+    private static ResponseEntity<CryptoAnalysisResponse> okResponse(CryptoAnalysisResponse response, boolean replayed) {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok();
+        if (replayed) {
+            builder.header(IDEMPOTENT_REPLAYED_HEADER, "true");
+        }
+        return builder.body(response);
+    }
+
+    /**
+     * Отклоненный анализ возвращается как 503 с Retry-After, повторное использование ключа
+     * идемпотентности - как 422, остальные ошибки - как 500
+     */
+    private static ResponseEntity<CryptoAnalysisResponse> errorResponse(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause instanceof AnalysisRejectedException rejected) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(rejected.getRetryAfter().toSeconds()))
+                    .build();
+        }
+        if (cause instanceof IdempotencyKeyReuseException) {
+            return ResponseEntity.unprocessableEntity().build();
+        }
+        return ResponseEntity.internalServerError().build();
+    }
+
+    /**
+     * Параметры запроса, определяющие результат анализа: те же, что в ключе кэша.
+     * С ними связываются ключ идемпотентности и версия ответа (ETag)
+     */
+    private static String fingerprint(String cryptocurrency, String timeframe, AnalysisOptions options) {
+        return AnalysisCache.key(cryptocurrency, timeframe) + options.cacheKeySuffix();
+    }
+
+    private AnalysisOptions toOptions(List<String> agents, Boolean quorum, Boolean brief, String endpoint,
+                                      Long timeoutSeconds) {
+        agentRegistry.validate(agents);
+        if (timeoutSeconds != null && timeoutSeconds <= 0) {
+            throw new IllegalArgumentException("Заголовок " + REQUEST_TIMEOUT_HEADER + " должен быть положительным числом секунд");
+        }
+        AnalysisOptions options = AnalysisOptions.forAgents(agents);
+        options.setQuorum(Boolean.TRUE.equals(quorum));
+        options.setBrief(Boolean.TRUE.equals(brief));
+        options.setMaxTokens(agentRegistry.limitingMaxTokens(agents,
+                tokenBudgetProperties.resolveMaxTokens(endpoint, options.isBrief())));
+        options.setTimeout(timeoutSeconds == null ? null : Duration.ofSeconds(timeoutSeconds));
+        return options;
+    }
 }
@@ -1,6 +1,9 @@
 package com.multiagent.controller;
 
+import com.multiagent.cache.IdempotencyKeyReuseException;
+import com.multiagent.service.AnalysisRejectedException;
 import lombok.Data;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
@@ -72,6 +75,32 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(errorResponse);
     }
 
+    // Анализ не принят: сервис останавливается или перегружен
+    @ExceptionHandler(AnalysisRejectedException.class)
+    public ResponseEntity<ErrorResponse> handleAnalysisRejectedException(AnalysisRejectedException ex) {
+        ErrorResponse errorResponse = new ErrorResponse(
+                "SERVICE_UNAVAILABLE",
+                ex.getMessage(),
+                LocalDateTime.now()
+        );
+
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfter().toSeconds()))
+                .body(errorResponse);
+    }
+
+    // Ключ идемпотентности повторно использован с другими параметрами запроса
+    @ExceptionHandler(IdempotencyKeyReuseException.class)
+    public ResponseEntity<ErrorResponse> handleIdempotencyKeyReuseException(IdempotencyKeyReuseException ex) {
+        ErrorResponse errorResponse = new ErrorResponse(
+                "IDEMPOTENCY_KEY_REUSED",
+                ex.getMessage(),
+                LocalDateTime.now()
+        );
+
+        return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).body(errorResponse);
+    }
+
     // Обработка исключений "Не найдено"
     @ExceptionHandler(RuntimeException.class)
     public ResponseEntity<ErrorResponse> handleRuntimeException(RuntimeException ex) {
@@ -0,0 +1,40 @@
+package com.multiagent.controller;
+
+import com.multiagent.model.CryptoAnalysisResponse;
+import com.multiagent.model.ResponseView;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.MappingJacksonValue;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.AbstractMappingJacksonResponseBodyAdvice;
+
+/**
+ * Применяет представление ответа, выбранное параметром {@code view}.
+ * Компактное представление не содержит текстов анализа агентов, поэтому
+ * клиенты, опрашивающие только рекомендации, получают ответ в разы меньше.
+ */
+@Slf4j
+@RestControllerAdvice
+public class ResponseViewAdvice extends AbstractMappingJacksonResponseBodyAdvice {
+
+    public static final String VIEW_PARAMETER = "view";
+
+    @Override
+    protected void beforeBodyWriteInternal(MappingJacksonValue bodyContainer, MediaType contentType,
+                                           MethodParameter returnType, ServerHttpRequest request,
+                                           ServerHttpResponse response) {
+        // Ответы об ошибках и другие модели сериализуются без представления
+        if (!(bodyContainer.getValue() instanceof CryptoAnalysisResponse)
+                || !(request instanceof ServletServerHttpRequest servletRequest)) {
+            return;
+        }
+        String view = servletRequest.getServletRequest().getParameter(VIEW_PARAMETER);
+        ResponseView responseView = ResponseView.from(view);
+        bodyContainer.setSerializationView(responseView.getJsonView());
+        log.trace("Ответ сериализуется в представлении: {}", responseView);
+    }
+}
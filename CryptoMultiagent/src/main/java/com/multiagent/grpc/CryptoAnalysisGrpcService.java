@@ -0,0 +1,223 @@
+package com.multiagent.grpc;
+
+import com.multiagent.agent.AgentRegistry;
+import com.multiagent.config.GrpcProperties;
+import com.multiagent.config.TokenBudgetProperties;
+import com.multiagent.grpc.proto.AnalysisEvent;
+import com.multiagent.grpc.proto.AnalyzeRequest;
+import com.multiagent.grpc.proto.AnalyzeResponse;
+import com.multiagent.grpc.proto.CryptoAnalysisGrpc;
+import com.multiagent.model.AgentAnalysis;
+import com.multiagent.model.AnalysisOptions;
+import com.multiagent.model.CryptoAnalysisResponse;
+import com.multiagent.model.ExecutionLane;
+import com.multiagent.model.Timeframe;
+import com.multiagent.service.AnalysisRejectedException;
+import com.multiagent.service.CryptoAnalysisService;
+import com.multiagent.service.RequestPopularityTracker;
+import io.grpc.Status;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+
+/**
+ * gRPC интерфейс анализа криптовалют. Использует тот же {@link CryptoAnalysisService},
+ * что и REST контроллер, поэтому кэш, single-flight и режим кворума общие для обоих API.
+ * Вызовы не блокируют потоки gRPC: ответ отправляется по завершении асинхронного анализа.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CryptoAnalysisGrpcService extends CryptoAnalysisGrpc.CryptoAnalysisImplBase {
+
+    private static final int MIN_NAME_LENGTH = 2;
+
+    private static final int MAX_NAME_LENGTH = 50;
+
+    private final CryptoAnalysisService analysisService;
+
+    private final RequestPopularityTracker popularityTracker;
+
+    private final AgentRegistry agentRegistry;
+
+    private final GrpcProperties properties;
+
+    private final TokenBudgetProperties tokenBudgetProperties;
+
+    @Override
+    public void analyze(AnalyzeRequest request, StreamObserver<AnalyzeResponse> responseObserver) {
+        ServerCallStreamObserver<AnalyzeResponse> observer = (ServerCallStreamObserver<AnalyzeResponse>) responseObserver;
+        start(request, analysis -> { }).whenComplete((response, error) -> {
+            if (observer.isCancelled()) {
+                log.debug("gRPC вызов отменен клиентом: {}", request.getCryptocurrency());
+                return;
+            }
+            if (error != null) {
+                observer.onError(toStatus(error).asRuntimeException());
+                return;
+            }
+            observer.onNext(GrpcMapper.toProto(request, response));
+            observer.onCompleted();
+        });
+    }
+
+    @Override
+    public void streamAnalysis(AnalyzeRequest request, StreamObserver<AnalysisEvent> responseObserver) {
+        ServerCallStreamObserver<AnalysisEvent> observer = (ServerCallStreamObserver<AnalysisEvent>) responseObserver;
+        // Агенты завершаются в разных потоках, а StreamObserver не потокобезопасен
+        Object lock = new Object();
+        start(request, analysis -> {
+            synchronized (lock) {
+                if (!observer.isCancelled()) {
+                    observer.onNext(AnalysisEvent.newBuilder()
+                            .setAgentResult(GrpcMapper.toProto(analysis, request.getCompact()))
+                            .build());
+                }
+            }
+        }).whenComplete((response, error) -> {
+            synchronized (lock) {
+                if (observer.isCancelled()) {
+                    log.debug("gRPC поток отменен клиентом: {}", request.getCryptocurrency());
+                    return;
+                }
+                if (error != null) {
+                    observer.onError(toStatus(error).asRuntimeException());
+                    return;
+                }
+                observer.onNext(AnalysisEvent.newBuilder()
+                        .setSummary(GrpcMapper.toProto(request, response))
+                        .build());
+                observer.onCompleted();
+            }
+        });
+    }
+
+    @Override
+    public StreamObserver<AnalyzeRequest> analyzeBatch(StreamObserver<AnalyzeResponse> responseObserver) {
+        ServerCallStreamObserver<AnalyzeResponse> observer = (ServerCallStreamObserver<AnalyzeResponse>) responseObserver;
+        BatchStream batch = new BatchStream(observer);
+        // Запросы читаются из соединения только при наличии свободных мест
+        observer.disableAutoRequest();
+        observer.request(Math.max(1, properties.getMaxInFlightPerStream()));
+        return batch;
+    }
+
+    /**
+     * Проверяет запрос и запускает анализ; ошибка проверки возвращается в результате,
+     * чтобы все методы обрабатывали ее одинаково
+     */
+    private CompletableFuture<CryptoAnalysisResponse> start(AnalyzeRequest request,
+                                                            Consumer<AgentAnalysis> onAgentCompleted) {
+        return start(request, ExecutionLane.INTERACTIVE, onAgentCompleted);
+    }
+
+    private CompletableFuture<CryptoAnalysisResponse> start(AnalyzeRequest request, ExecutionLane lane,
+                                                            Consumer<AgentAnalysis> onAgentCompleted) {
+        try {
+            String cryptocurrency = validateCryptocurrency(request.getCryptocurrency());
+            String timeframe = Timeframe.canonicalize(GrpcMapper.timeframe(request));
+            AnalysisOptions options = GrpcMapper.toOptions(request, tokenBudgetProperties);
+            options.setLane(lane);
+            agentRegistry.validate(options.getAgents());
+            options.setMaxTokens(agentRegistry.limitingMaxTokens(options.getAgents(), options.getMaxTokens()));
+            popularityTracker.record(cryptocurrency, timeframe);
+            log.debug("gRPC запрос анализа: {} с временным интервалом: {}", cryptocurrency, timeframe);
+            return analysisService.analyzeCryptocurrencyAsync(cryptocurrency, timeframe, options, onAgentCompleted);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private static String validateCryptocurrency(String cryptocurrency) {
+        String value = cryptocurrency.trim();
+        if (value.isEmpty()) {
+            throw new IllegalArgumentException("Название криптовалюты не может быть пустым");
+        }
+        if (value.length() < MIN_NAME_LENGTH || value.length() > MAX_NAME_LENGTH) {
+            throw new IllegalArgumentException("Название криптовалюты должно быть от 2 до 50 символов");
+        }
+        return value;
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    private static Status toStatus(Throwable error) {
+        Throwable cause = unwrap(error);
+        if (cause instanceof IllegalArgumentException) {
+            return Status.INVALID_ARGUMENT.withDescription(cause.getMessage());
+        }
+        if (cause instanceof AnalysisRejectedException) {
+            return Status.UNAVAILABLE.withDescription(cause.getMessage());
+        }
+        log.error("Ошибка при выполнении gRPC анализа: {}", cause.getMessage(), cause);
+        return Status.INTERNAL.withDescription("Внутренняя ошибка сервера");
+    }
+
+    /**
+     * Пакетный поток: ответы отправляются по мере готовности, ошибка одного запроса
+     * возвращается в поле error и не прерывает остальные. Поток завершается, когда клиент
+     * закончил передачу и все начатые анализы отправлены.
+     */
+    private final class BatchStream implements StreamObserver<AnalyzeRequest> {
+
+        private final ServerCallStreamObserver<AnalyzeResponse> observer;
+
+        private int inFlight;
+
+        private boolean clientCompleted;
+
+        private boolean finished;
+
+        BatchStream(ServerCallStreamObserver<AnalyzeResponse> observer) {
+            this.observer = observer;
+        }
+
+        @Override
+        public void onNext(AnalyzeRequest request) {
+            synchronized (this) {
+                inFlight++;
+            }
+            // Пакетный анализ не должен задерживать интерактивные запросы
+            start(request, ExecutionLane.BULK, analysis -> { }).whenComplete((response, error) -> send(error == null
+                    ? GrpcMapper.toProto(request, response)
+                    : GrpcMapper.toError(request, toStatus(error).getDescription())));
+        }
+
+        @Override
+        public synchronized void onError(Throwable error) {
+            log.debug("Пакетный gRPC поток прерван клиентом: {}", error.getMessage());
+            finished = true;
+        }
+
+        @Override
+        public synchronized void onCompleted() {
+            clientCompleted = true;
+            completeIfDone();
+        }
+
+        private synchronized void send(AnalyzeResponse response) {
+            inFlight--;
+            if (finished || observer.isCancelled()) {
+                return;
+            }
+            observer.onNext(response);
+            observer.request(1);
+            completeIfDone();
+        }
+
+        private void completeIfDone() {
+            if (clientCompleted && inFlight == 0 && !finished) {
+                finished = true;
+                observer.onCompleted();
+            }
+        }
+    }
+}
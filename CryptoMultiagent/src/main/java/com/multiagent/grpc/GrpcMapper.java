@@ -0,0 +1,95 @@
+package com.multiagent.grpc;
+
+import com.multiagent.config.TokenBudgetProperties;
+import com.multiagent.grpc.proto.AgentResult;
+import com.multiagent.grpc.proto.AnalyzeRequest;
+import com.multiagent.grpc.proto.AnalyzeResponse;
+import com.multiagent.model.AgentAnalysis;
+import com.multiagent.model.AnalysisOptions;
+import com.multiagent.model.CryptoAnalysisResponse;
+import io.grpc.Context;
+import io.grpc.Deadline;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Преобразование между protobuf сообщениями и моделью REST API
+ */
+final class GrpcMapper {
+
+    // Значение по умолчанию совпадает с GET /api/crypto/analyze/{crypto}
+    static final String DEFAULT_TIMEFRAME = "1 месяц";
+
+    private GrpcMapper() {
+    }
+
+    static AnalysisOptions toOptions(AnalyzeRequest request, TokenBudgetProperties tokenBudget) {
+        List<String> agents = request.getAgentsCount() == 0 ? null : List.copyOf(request.getAgentsList());
+        AnalysisOptions options = AnalysisOptions.forAgents(agents);
+        options.setQuorum(request.getQuorum());
+        options.setBrief(request.getBrief());
+        options.setMaxTokens(tokenBudget.resolveMaxTokens(TokenBudgetProperties.ENDPOINT_GRPC, request.getBrief()));
+        // Дедлайн вызова gRPC определяет, сколько клиент готов ждать анализа
+        Deadline deadline = Context.current().getDeadline();
+        if (deadline != null) {
+            options.setTimeout(Duration.ofMillis(Math.max(0, deadline.timeRemaining(TimeUnit.MILLISECONDS))));
+        }
+        return options;
+    }
+
+    static String timeframe(AnalyzeRequest request) {
+        return request.getTimeframe().isBlank() ? DEFAULT_TIMEFRAME : request.getTimeframe();
+    }
+
+    static AnalyzeResponse toProto(AnalyzeRequest request, CryptoAnalysisResponse response) {
+        AnalyzeResponse.Builder builder = AnalyzeResponse.newBuilder()
+                .setRequestId(request.getRequestId())
+                .setCryptocurrency(nullToEmpty(response.getCryptocurrency()))
+                .setTimeframe(nullToEmpty(response.getTimeframe()))
+                .setFinalRecommendation(nullToEmpty(response.getFinalRecommendation()))
+                .setAverageConfidence(response.getAverageConfidence())
+                .setExecutionMillis(response.getExecutionMillis());
+        if (response.getAgentAnalyses() != null) {
+            response.getAgentAnalyses().forEach(analysis ->
+                    builder.addAgentAnalyses(toProto(analysis, request.getCompact())));
+        }
+        if (response.getModeratorAnalysis() != null) {
+            builder.setModeratorAnalysis(toProto(response.getModeratorAnalysis(), request.getCompact()));
+        }
+        if (response.getSkippedAgents() != null) {
+            builder.addAllSkippedAgents(response.getSkippedAgents());
+        }
+        return builder.build();
+    }
+
+    /**
+     * @param compact не передавать текст анализа, как в представлении {@code view=compact} REST API
+     */
+    static AgentResult toProto(AgentAnalysis analysis, boolean compact) {
+        AgentResult.Builder builder = AgentResult.newBuilder()
+                .setAgentName(nullToEmpty(analysis.getAgentName()))
+                .setAnalysis(compact ? "" : nullToEmpty(analysis.getAnalysis()))
+                .setRecommendation(nullToEmpty(analysis.getRecommendation()))
+                .setConfidence(analysis.getConfidence());
+        if (analysis.getTokenUsage() != null) {
+            builder.setPromptTokens(analysis.getTokenUsage().getPromptTokens())
+                    .setCompletionTokens(analysis.getTokenUsage().getCompletionTokens())
+                    .setCachedTokens(analysis.getTokenUsage().getCachedTokens());
+        }
+        return builder.build();
+    }
+
+    static AnalyzeResponse toError(AnalyzeRequest request, String message) {
+        return AnalyzeResponse.newBuilder()
+                .setRequestId(request.getRequestId())
+                .setCryptocurrency(request.getCryptocurrency())
+                .setError(nullToEmpty(message))
+                .build();
+    }
+
+    private static String nullToEmpty(String value) {
+        return value == null ? "" : value;
+    }
+}
@@ -0,0 +1,78 @@
+package com.multiagent.grpc;
+
+import com.multiagent.config.GrpcProperties;
+import io.grpc.Server;
+import io.grpc.netty.shaded.io.grpc.netty.NettyServerBuilder;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Запускает gRPC сервер вместе с контекстом приложения и останавливает его при завершении,
+ * давая активным вызовам время на завершение. Все вызовы клиента мультиплексируются
+ * в одном HTTP/2 соединении.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "crypto.grpc", name = "enabled", havingValue = "true")
+public class GrpcServerLifecycle implements SmartLifecycle {
+
+    private final CryptoAnalysisGrpcService grpcService;
+
+    private final GrpcProperties properties;
+
+    private volatile Server server;
+
+    @Override
+    public void start() {
+        try {
+            server = NettyServerBuilder.forPort(properties.getPort())
+                    .addService(grpcService)
+                    .build()
+                    .start();
+            log.info("gRPC сервер запущен на порту {}", server.getPort());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось запустить gRPC сервер на порту " + properties.getPort(), e);
+        }
+    }
+
+    @Override
+    public void stop() {
+        Server current = server;
+        if (current == null) {
+            return;
+        }
+        log.info("Остановка gRPC сервера");
+        current.shutdown();
+        try {
+            if (!current.awaitTermination(properties.getShutdownTimeout().toMillis(), TimeUnit.MILLISECONDS)) {
+                log.warn("gRPC вызовы не завершились за {}, соединения закрываются принудительно",
+                        properties.getShutdownTimeout());
+                current.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            current.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        server = null;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return server != null;
+    }
+
+    /**
+     * Порт, на котором фактически запущен сервер (при port=0 выбирается свободный)
+     */
+    public int getPort() {
+        return server == null ? -1 : server.getPort();
+    }
+}
@@ -0,0 +1,185 @@
+package com.multiagent.lifecycle;
+
+import com.multiagent.config.LifecycleProperties;
+import com.multiagent.service.AnalysisRejectedException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.web.context.WebServerGracefulShutdownLifecycle;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Учитывает выполняющиеся анализы и дозавершает их при остановке приложения.
+ * <p>
+ * Остановка выполняется в той же фазе, что и плавная остановка веб-сервера: новые анализы
+ * отклоняются с {@link AnalysisRejectedException} (503 и Retry-After, клиент или балансировщик
+ * повторяет запрос на другой реплике), а начатые получают время до {@code drain-timeout},
+ * чтобы ответы дошли до ожидающих клиентов и попали в кэш. После этого кэш сохраняется
+ * в снимок для следующего запуска.
+ */
+@Slf4j
+@Component
+public class AnalysisDrainer implements SmartLifecycle {
+
+    // Остановка занимает секунды: за это время клиент успеет переключиться на другую реплику
+    private static final Duration RETRY_AFTER = Duration.ofSeconds(5);
+
+    private final LifecycleProperties properties;
+
+    private final CacheSnapshotStore snapshotStore;
+
+    private final Object monitor = new Object();
+
+    private int inFlight;
+
+    private boolean accepting = true;
+
+    private volatile boolean running;
+
+    public AnalysisDrainer(LifecycleProperties properties, CacheSnapshotStore snapshotStore, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.snapshotStore = snapshotStore;
+        Gauge.builder("crypto.analysis.inflight", this, AnalysisDrainer::getInFlight)
+                .description("Количество выполняющихся анализов")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Выполняет синхронный анализ с учетом его в числе выполняющихся
+     *
+     * @throws AnalysisRejectedException если приложение останавливается
+     */
+    public <T> T run(Supplier<T> analysis) {
+        acquire();
+        try {
+            return analysis.get();
+        } finally {
+            release();
+        }
+    }
+
+    /**
+     * Асинхронный вариант {@link #run(Supplier)}: анализ считается выполняющимся до завершения результата
+     */
+    public <T> CompletableFuture<T> track(Supplier<CompletableFuture<T>> analysis) {
+        acquire();
+        try {
+            return analysis.get().whenComplete((result, error) -> release());
+        } catch (RuntimeException e) {
+            release();
+            throw e;
+        }
+    }
+
+    public int getInFlight() {
+        synchronized (monitor) {
+            return inFlight;
+        }
+    }
+
+    public boolean isAccepting() {
+        synchronized (monitor) {
+            return accepting;
+        }
+    }
+
+    @Override
+    public void start() {
+        synchronized (monitor) {
+            accepting = true;
+        }
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        drainAndSnapshot();
+    }
+
+    /**
+     * Ожидание выполняется в отдельном потоке, чтобы веб-сервер в той же фазе
+     * одновременно дожидался ответов на активные запросы
+     */
+    @Override
+    public void stop(Runnable callback) {
+        Thread drain = new Thread(() -> {
+            try {
+                drainAndSnapshot();
+            } finally {
+                callback.run();
+            }
+        }, "analysis-drain");
+        drain.start();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return WebServerGracefulShutdownLifecycle.SMART_LIFECYCLE_PHASE;
+    }
+
+    /**
+     * Прекращает прием анализов и ожидает завершения начатых
+     *
+     * @return true, если все анализы завершились до истечения времени ожидания
+     */
+    boolean drain(Duration timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        synchronized (monitor) {
+            accepting = false;
+            if (inFlight > 0) {
+                log.info("Остановка: ожидание завершения выполняющихся анализов ({}), не дольше {}", inFlight, timeout);
+            }
+            while (inFlight > 0) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                TimeUnit.NANOSECONDS.timedWait(monitor, remaining);
+            }
+            return true;
+        }
+    }
+
+    private void drainAndSnapshot() {
+        try {
+            if (!drain(properties.getDrainTimeout())) {
+                log.warn("Остановка: {} анализов не завершились за {}, их результаты будут потеряны",
+                        getInFlight(), properties.getDrainTimeout());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Остановка: ожидание выполняющихся анализов прервано");
+        }
+        snapshotStore.save();
+        running = false;
+    }
+
+    private void acquire() {
+        synchronized (monitor) {
+            if (!accepting) {
+                throw new AnalysisRejectedException("Сервис останавливается, анализ не принят", RETRY_AFTER);
+            }
+            inFlight++;
+        }
+    }
+
+    private void release() {
+        synchronized (monitor) {
+            inFlight--;
+            if (inFlight == 0) {
+                monitor.notifyAll();
+            }
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.multiagent.lifecycle;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.multiagent.cache.AnalysisCache;
+import com.multiagent.config.LifecycleProperties;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+
+/**
+ * Сохраняет актуальные записи кэша анализов в файл при остановке и загружает их при запуске,
+ * чтобы перезапущенная реплика не пересчитывала только что полученные результаты.
+ * Файл записывается через временный файл и переименование, поэтому прерванная запись
+ * не оставляет поврежденный снимок.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CacheSnapshotStore {
+
+    private static final TypeReference<List<AnalysisCache.SnapshotEntry>> ENTRIES = new TypeReference<>() {
+    };
+
+    private final AnalysisCache analysisCache;
+
+    private final LifecycleProperties properties;
+
+    private final ObjectMapper objectMapper;
+
+    public boolean isEnabled() {
+        return properties.getSnapshotFile() != null && !properties.getSnapshotFile().isBlank();
+    }
+
+    /**
+     * Сохраняет снимок кэша; ошибка записи не должна мешать остановке
+     *
+     * @return количество сохраненных записей
+     */
+    public int save() {
+        if (!isEnabled()) {
+            return 0;
+        }
+        Path file = Path.of(properties.getSnapshotFile());
+        List<AnalysisCache.SnapshotEntry> entries = analysisCache.snapshot();
+        try {
+            Path parent = file.toAbsolutePath().getParent();
+            Files.createDirectories(parent);
+            Path temporary = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+            objectMapper.writeValue(temporary.toFile(), entries);
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.info("Снимок кэша сохранен: {} записей в {}", entries.size(), file);
+            return entries.size();
+        } catch (IOException e) {
+            log.warn("Не удалось сохранить снимок кэша в {}: {}", file, e.getMessage());
+            return 0;
+        }
+    }
+
+    /**
+     * Загружает снимок кэша, если файл есть; поврежденный снимок пропускается
+     *
+     * @return количество загруженных записей
+     */
+    public int restore() {
+        if (!isEnabled()) {
+            return 0;
+        }
+        Path file = Path.of(properties.getSnapshotFile());
+        if (!Files.exists(file)) {
+            log.debug("Снимок кэша не найден: {}", file);
+            return 0;
+        }
+        try {
+            int restored = analysisCache.restore(objectMapper.readValue(file.toFile(), ENTRIES));
+            log.info("Из снимка {} загружено записей кэша: {}", file, restored);
+            return restored;
+        } catch (IOException e) {
+            log.warn("Не удалось загрузить снимок кэша из {}: {}", file, e.getMessage());
+            return 0;
+        }
+    }
+}
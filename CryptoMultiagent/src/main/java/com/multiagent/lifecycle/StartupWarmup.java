@@ -0,0 +1,159 @@
+package com.multiagent.lifecycle;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.multiagent.agent.AgentCallContext;
+import com.multiagent.agent.BaseAgent;
+import com.multiagent.config.LifecycleProperties;
+import com.multiagent.logging.QuietThreadTurboFilter;
+import com.multiagent.model.AgentAnalysis;
+import com.multiagent.model.CryptoAnalysisResponse;
+import com.multiagent.model.ResponseView;
+import com.multiagent.model.Timeframe;
+import com.multiagent.service.RecommendationAggregator;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.MDC;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Подготавливает реплику до того, как она начнет принимать трафик: загружает снимок кэша
+ * и прогревает путь анализа. Раннеры приложения выполняются до перехода readiness в
+ * ACCEPTING_TRAFFIC, поэтому первые запросы не платят за загрузку классов, JIT-компиляцию
+ * рендеринга промптов, разбора ответов и сериализации ответа.
+ * <p>
+ * Агенты вызываются на заглушке модели, без обращения к провайдеру и без записи в кэш.
+ * Соединение с провайдером по желанию открывается одним запросом с ответом в один токен.
+ * Ошибки прогрева не мешают запуску.
+ */
+@Slf4j
+@Component
+public class StartupWarmup implements ApplicationRunner {
+
+    private static final String[] TIMEFRAMES = {"1 месяц", "30 дней", "1 week", "3M", "полгода"};
+
+    private static final String SAMPLE_ANSWER = """
+            Цена находится в восходящем тренде, объемы торгов растут, уровень поддержки удерживается.
+            Рекомендую ПОКУПАТЬ. Высокая уверенность в прогнозе.
+            """;
+
+    private static final ChatModel STUB_MODEL = prompt ->
+            new ChatResponse(List.of(new Generation(new AssistantMessage(SAMPLE_ANSWER))));
+
+    private final LifecycleProperties properties;
+
+    private final CacheSnapshotStore snapshotStore;
+
+    private final List<BaseAgent> agents;
+
+    private final RecommendationAggregator recommendationAggregator;
+
+    private final ObjectMapper objectMapper;
+
+    private final ChatModel chatModel;
+
+    public StartupWarmup(LifecycleProperties properties, CacheSnapshotStore snapshotStore, List<BaseAgent> agents,
+                         RecommendationAggregator recommendationAggregator, ObjectMapper objectMapper,
+                         ChatModel chatModel) {
+        this.properties = properties;
+        this.snapshotStore = snapshotStore;
+        this.agents = agents;
+        this.recommendationAggregator = recommendationAggregator;
+        this.objectMapper = objectMapper;
+        this.chatModel = chatModel;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        snapshotStore.restore();
+        LifecycleProperties.Warmup warmup = properties.getWarmup();
+        if (!warmup.isEnabled()) {
+            return;
+        }
+
+        long started = System.nanoTime();
+        long deadline = started + warmup.getTimeout().toNanos();
+        int iterations = 0;
+        // Каждый прогон агента пишет сообщения на INFO; они подавляются только в потоке прогрева
+        try (MDC.MDCCloseable quiet = MDC.putCloseable(QuietThreadTurboFilter.MDC_KEY, "warmup")) {
+            while (iterations < warmup.getIterations() && System.nanoTime() < deadline) {
+                warmUpAnalysis(TIMEFRAMES[iterations % TIMEFRAMES.length]);
+                iterations++;
+            }
+        } catch (RuntimeException e) {
+            log.warn("Ошибка прогрева пути анализа: {}", e.getMessage());
+        }
+        if (warmup.isModelCall()) {
+            warmUpConnection(deadline);
+        }
+        log.info("Прогрев завершен за {} мс, прогонов анализа: {}",
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started), iterations);
+    }
+
+    /**
+     * Один прогон пути анализа: разбор периода, все агенты (включая модератора) на заглушке модели,
+     * голосование и сериализация ответа в обоих представлениях
+     */
+    private void warmUpAnalysis(String timeframe) {
+        String canonicalTimeframe = Timeframe.canonicalize(timeframe);
+        Map<String, AgentAnalysis> inputs = new LinkedHashMap<>();
+        Map<String, Double> weights = new HashMap<>();
+        List<AgentAnalysis> analyses = new ArrayList<>();
+        AgentCallContext.callWith(AgentCallContext.withModel(STUB_MODEL), () -> {
+            for (BaseAgent agent : agents) {
+                AgentAnalysis analysis = agent.analyze("Bitcoin", canonicalTimeframe, inputs);
+                inputs.put(agent.getId(), analysis);
+                weights.put(analysis.getAgentName(), 1.0);
+                analyses.add(analysis);
+            }
+            return null;
+        });
+
+        CryptoAnalysisResponse response = new CryptoAnalysisResponse("Bitcoin", analyses,
+                recommendationAggregator.determineFinalRecommendation(analyses, weights), 0.8);
+        response.setTimeframe(canonicalTimeframe);
+        try {
+            objectMapper.writerWithView(ResponseView.Compact.class).writeValueAsBytes(response);
+            byte[] full = objectMapper.writerWithView(ResponseView.Full.class).writeValueAsBytes(response);
+            objectMapper.readValue(full, CryptoAnalysisResponse.class);
+        } catch (IOException e) {
+            throw new IllegalStateException("Ошибка сериализации ответа: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Открывает соединение с провайдером модели (DNS, TLS, пул соединений) запросом с ответом в один токен
+     */
+    private void warmUpConnection(long deadline) {
+        long remaining = Math.max(deadline - System.nanoTime(), TimeUnit.SECONDS.toNanos(1));
+        Prompt prompt = new Prompt("ping", ChatOptions.builder().maxTokens(1).build());
+        CompletableFuture<ChatResponse> call = CompletableFuture.supplyAsync(() -> chatModel.call(prompt));
+        try {
+            call.get(remaining, TimeUnit.NANOSECONDS);
+            log.info("Соединение с провайдером модели открыто");
+        } catch (TimeoutException e) {
+            call.cancel(true);
+            log.warn("Провайдер модели не ответил при прогреве за отведенное время");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.warn("Не удалось открыть соединение с провайдером модели при прогреве: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.multiagent.logging;
+
+/**
+ * Обертка для больших текстов в логах (анализ, промпт, ответ модели). Текст обрезается
+ * до заданной длины только при форматировании сообщения, поэтому для отключенных
+ * или отброшенных выборкой событий обертка ничего не стоит.
+ */
+public final class LogPayload {
+
+    private static volatile int maxLength = 500;
+
+    private final String text;
+
+    private LogPayload(String text) {
+        this.text = text;
+    }
+
+    public static LogPayload of(String text) {
+        return new LogPayload(text);
+    }
+
+    /**
+     * @param length максимальная длина текста; 0 - логируется только длина
+     */
+    public static void setMaxLength(int length) {
+        maxLength = Math.max(0, length);
+    }
+
+    @Override
+    public String toString() {
+        if (text == null) {
+            return "null";
+        }
+        int limit = maxLength;
+        if (text.length() <= limit) {
+            return text;
+        }
+        if (limit == 0) {
+            return "<" + text.length() + " символов>";
+        }
+        return text.substring(0, limit) + "... <еще " + (text.length() - limit) + " символов>";
+    }
+}
@@ -0,0 +1,87 @@
+package com.multiagent.logging;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.core.Appender;
+import com.multiagent.config.LoggingProperties;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Применяет настройки логирования пути анализа к logback: устанавливает фильтры выборочного
+ * логирования и подавления служебных потоков, ограничение размера текстов и публикует метрики
+ * асинхронной очереди логов
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class LoggingConfigurer {
+
+    // Имя асинхронного аппендера из logback-spring.xml
+    static final String ASYNC_APPENDER = "ASYNC_CONSOLE";
+
+    private final LoggingProperties properties;
+
+    private final MeterRegistry meterRegistry;
+
+    private SamplingTurboFilter samplingFilter;
+
+    @PostConstruct
+    public void configure() {
+        LogPayload.setMaxLength(properties.getPayloadMaxLength());
+        if (!(LoggerFactory.getILoggerFactory() instanceof LoggerContext context)) {
+            log.warn("Logback не используется, выборочное логирование не настроено");
+            return;
+        }
+
+        removeFilters(context);
+        QuietThreadTurboFilter quietFilter = new QuietThreadTurboFilter();
+        quietFilter.setContext(context);
+        quietFilter.start();
+        context.addTurboFilter(quietFilter);
+        if (!properties.getSampling().isEmpty()) {
+            samplingFilter = new SamplingTurboFilter(properties.getSampling());
+            samplingFilter.setContext(context);
+            samplingFilter.start();
+            context.addTurboFilter(samplingFilter);
+            samplingFilter.getDropped().forEach((category, counter) ->
+                    FunctionCounter.builder("crypto.logging.sampled.out", counter, LongAdder::doubleValue)
+                            .description("События лога, отброшенные выборочным логированием")
+                            .tag("category", category)
+                            .register(meterRegistry));
+            log.info("Выборочное логирование: {}", properties.getSampling());
+        }
+
+        Appender<?> appender = context.getLogger(Logger.ROOT_LOGGER_NAME).getAppender(ASYNC_APPENDER);
+        if (appender instanceof AsyncAppender asyncAppender) {
+            Gauge.builder("crypto.logging.queue.size", asyncAppender, AsyncAppender::getNumberOfElementsInQueue)
+                    .description("Количество событий в асинхронной очереди логов")
+                    .register(meterRegistry);
+            Gauge.builder("crypto.logging.queue.remaining", asyncAppender, AsyncAppender::getRemainingCapacity)
+                    .description("Свободная емкость асинхронной очереди логов")
+                    .register(meterRegistry);
+        }
+    }
+
+    @PreDestroy
+    public void reset() {
+        if (LoggerFactory.getILoggerFactory() instanceof LoggerContext context) {
+            removeFilters(context);
+        }
+    }
+
+    private void removeFilters(LoggerContext context) {
+        context.getTurboFilterList().removeIf(filter -> SamplingTurboFilter.NAME.equals(filter.getName())
+                || QuietThreadTurboFilter.NAME.equals(filter.getName()));
+    }
+}
@@ -0,0 +1,32 @@
+package com.multiagent.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.MDC;
+import org.slf4j.Marker;
+
+/**
+ * Подавляет события ниже WARN в потоке, где в MDC задан ключ {@link #MDC_KEY}. Служебная работа
+ * (прогрев при запуске) не засоряет лог, а одновременные запросы в других потоках логируются
+ * как обычно, в отличие от изменения уровня логгеров.
+ */
+public class QuietThreadTurboFilter extends TurboFilter {
+
+    public static final String NAME = "crypto-quiet-thread";
+
+    public static final String MDC_KEY = "quiet";
+
+    public QuietThreadTurboFilter() {
+        setName(NAME);
+    }
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        if (level == null || level.isGreaterOrEqual(Level.WARN) || MDC.get(MDC_KEY) == null) {
+            return FilterReply.NEUTRAL;
+        }
+        return FilterReply.DENY;
+    }
+}
@@ -0,0 +1,80 @@
+package com.multiagent.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.Marker;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Выборочное логирование по категориям: для логгеров с заданной долей сохраняется только
+ * часть событий ниже WARN. Решение принимается до форматирования сообщения,
+ * поэтому отброшенные события не нагружают ни поток анализа, ни очередь логов.
+ */
+public class SamplingTurboFilter extends TurboFilter {
+
+    public static final String NAME = "crypto-sampling";
+
+    // Категории отсортированы по убыванию длины: побеждает самый точный префикс
+    private final List<Map.Entry<String, Double>> rates;
+
+    private final Map<String, Category> categoriesByLogger = new ConcurrentHashMap<>();
+
+    private final Map<String, LongAdder> dropped = new ConcurrentHashMap<>();
+
+    public SamplingTurboFilter(Map<String, Double> rates) {
+        this.rates = rates.entrySet().stream()
+                .sorted(Comparator.comparingInt((Map.Entry<String, Double> entry) -> entry.getKey().length()).reversed())
+                .toList();
+        rates.keySet().forEach(category -> dropped.put(category, new LongAdder()));
+        setName(NAME);
+    }
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        if (level == null || level.isGreaterOrEqual(Level.WARN)) {
+            return FilterReply.NEUTRAL;
+        }
+        // Вызов isDebugEnabled() и подобных тоже проходит через фильтр: проверка уровня не отбрасывается
+        if (format == null) {
+            return FilterReply.NEUTRAL;
+        }
+        // Фильтр вызывается до проверки уровня логгера: выключенные события отбросит сам логгер
+        if (!level.isGreaterOrEqual(logger.getEffectiveLevel())) {
+            return FilterReply.NEUTRAL;
+        }
+        Category category = categoriesByLogger.computeIfAbsent(logger.getName(), this::resolve);
+        if (category.rate() >= 1 || ThreadLocalRandom.current().nextDouble() < category.rate()) {
+            return FilterReply.NEUTRAL;
+        }
+        dropped.get(category.name()).increment();
+        return FilterReply.DENY;
+    }
+
+    /**
+     * Количество отброшенных событий по категориям
+     */
+    public Map<String, LongAdder> getDropped() {
+        return dropped;
+    }
+
+    private Category resolve(String loggerName) {
+        for (Map.Entry<String, Double> rate : rates) {
+            String prefix = rate.getKey();
+            if (loggerName.equals(prefix) || loggerName.startsWith(prefix + ".")) {
+                return new Category(prefix, rate.getValue());
+            }
+        }
+        return new Category(null, 1);
+    }
+
+    private record Category(String name, double rate) {
+    }
+}
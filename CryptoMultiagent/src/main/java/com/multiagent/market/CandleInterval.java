@@ -0,0 +1,52 @@
+package com.multiagent.market;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+/**
+ * Интервал свечей OHLCV. Код интервала используется в именах файлов хранилища
+ * и при импорте (BTC_1h.csv)
+ */
+public enum CandleInterval {
+
+    MINUTE_1("1m", Duration.ofMinutes(1)),
+    MINUTE_5("5m", Duration.ofMinutes(5)),
+    MINUTE_15("15m", Duration.ofMinutes(15)),
+    HOUR_1("1h", Duration.ofHours(1)),
+    HOUR_4("4h", Duration.ofHours(4)),
+    DAY_1("1d", Duration.ofDays(1)),
+    WEEK_1("1w", Duration.ofDays(7));
+
+    private final String code;
+
+    private final Duration duration;
+
+    CandleInterval(String code, Duration duration) {
+        this.code = code;
+        this.duration = duration;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public Duration getDuration() {
+        return duration;
+    }
+
+    /**
+     * Интервал по коду (1m, 5m, 15m, 1h, 4h, 1d, 1w)
+     *
+     * @throws IllegalArgumentException для неизвестного кода
+     */
+    public static CandleInterval fromCode(String code) {
+        for (CandleInterval interval : values()) {
+            if (interval.code.equals(code)) {
+                return interval;
+            }
+        }
+        throw new IllegalArgumentException("Неизвестный интервал свечей: '" + code + "'. Допустимые значения: "
+                + Arrays.stream(values()).map(CandleInterval::getCode).collect(Collectors.joining(", ")));
+    }
+}
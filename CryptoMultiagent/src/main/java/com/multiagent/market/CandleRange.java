@@ -0,0 +1,166 @@
+package com.multiagent.market;
+
+import java.nio.DoubleBuffer;
+import java.nio.LongBuffer;
+
+/**
+ * Диапазон свечей - представления столбцов отображенного в память файла без копирования.
+ * Индексы относительны началу диапазона. Диапазон фиксирует количество свечей на момент
+ * чтения: свечи, добавленные позже, в него не попадают. Если диапазон заканчивается последней
+ * свечой серии, которая может обновляться, ее значения скопированы при чтении.
+ */
+public final class CandleRange {
+
+    static final CandleRange EMPTY = new CandleRange(LongBuffer.allocate(0), DoubleBuffer.allocate(0),
+            DoubleBuffer.allocate(0), DoubleBuffer.allocate(0), DoubleBuffer.allocate(0), DoubleBuffer.allocate(0));
+
+    private final LongBuffer timestamps;
+
+    private final DoubleBuffer open;
+
+    private final DoubleBuffer high;
+
+    private final DoubleBuffer low;
+
+    private final DoubleBuffer close;
+
+    private final DoubleBuffer volume;
+
+    // Индекс скопированной последней свечи серии; -1, если диапазон ее не включает
+    private final int lastIndex;
+
+    private final double lastOpen;
+
+    private final double lastHigh;
+
+    private final double lastLow;
+
+    private final double lastClose;
+
+    private final double lastVolume;
+
+    CandleRange(LongBuffer timestamps, DoubleBuffer open, DoubleBuffer high, DoubleBuffer low,
+                DoubleBuffer close, DoubleBuffer volume) {
+        this(timestamps, open, high, low, close, volume, -1, 0, 0, 0, 0, 0);
+    }
+
+    private CandleRange(LongBuffer timestamps, DoubleBuffer open, DoubleBuffer high, DoubleBuffer low,
+                        DoubleBuffer close, DoubleBuffer volume, int lastIndex, double lastOpen, double lastHigh,
+                        double lastLow, double lastClose, double lastVolume) {
+        this.timestamps = timestamps;
+        this.open = open;
+        this.high = high;
+        this.low = low;
+        this.close = close;
+        this.volume = volume;
+        this.lastIndex = lastIndex;
+        this.lastOpen = lastOpen;
+        this.lastHigh = lastHigh;
+        this.lastLow = lastLow;
+        this.lastClose = lastClose;
+        this.lastVolume = lastVolume;
+    }
+
+    /**
+     * Тот же диапазон с согласованной копией значений последней свечи
+     */
+    CandleRange withLast(double open, double high, double low, double close, double volume) {
+        return new CandleRange(timestamps, this.open, this.high, this.low, this.close, this.volume, size() - 1,
+                open, high, low, close, volume);
+    }
+
+    public int size() {
+        return timestamps.limit();
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Время открытия свечи в миллисекундах от эпохи
+     */
+    public long timestamp(int index) {
+        return timestamps.get(index);
+    }
+
+    public double open(int index) {
+        return index == lastIndex ? lastOpen : open.get(index);
+    }
+
+    public double high(int index) {
+        return index == lastIndex ? lastHigh : high.get(index);
+    }
+
+    public double low(int index) {
+        return index == lastIndex ? lastLow : low.get(index);
+    }
+
+    public double close(int index) {
+        return index == lastIndex ? lastClose : close.get(index);
+    }
+
+    public double volume(int index) {
+        return index == lastIndex ? lastVolume : volume.get(index);
+    }
+
+    /**
+     * Индекс первой свечи со временем открытия не меньше timestamp; size(), если таких нет
+     */
+    public int indexOf(long timestamp) {
+        int low = 0;
+        int high = size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (timestamps.get(middle) < timestamp) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Поддиапазон свечей [from, to) без копирования
+     */
+    public CandleRange slice(int from, int to) {
+        if (from < 0 || to > size() || from > to) {
+            throw new IndexOutOfBoundsException("Поддиапазон [" + from + ", " + to + ") вне диапазона размером " + size());
+        }
+        int length = to - from;
+        return new CandleRange(timestamps.slice(from, length), open.slice(from, length), high.slice(from, length),
+                low.slice(from, length), close.slice(from, length), volume.slice(from, length),
+                lastIndex >= from && lastIndex < to ? lastIndex - from : -1,
+                lastOpen, lastHigh, lastLow, lastClose, lastVolume);
+    }
+
+    /**
+     * Столбцы только для чтения; для массовой обработки без обращения по индексу. Столбцы -
+     * представления файла, поэтому последняя свеча серии в них может обновляться во время чтения;
+     * согласованные значения возвращают методы с индексом.
+     */
+    public LongBuffer timestamps() {
+        return timestamps.asReadOnlyBuffer();
+    }
+
+    public DoubleBuffer opens() {
+        return open.asReadOnlyBuffer();
+    }
+
+    public DoubleBuffer highs() {
+        return high.asReadOnlyBuffer();
+    }
+
+    public DoubleBuffer lows() {
+        return low.asReadOnlyBuffer();
+    }
+
+    public DoubleBuffer closes() {
+        return close.asReadOnlyBuffer();
+    }
+
+    public DoubleBuffer volumes() {
+        return volume.asReadOnlyBuffer();
+    }
+}
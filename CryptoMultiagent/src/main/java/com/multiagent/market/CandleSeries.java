@@ -0,0 +1,392 @@
+package com.multiagent.market;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Свечи одного символа и интервала в столбцовом файле, отображенном в память.
+ * <p>
+ * Файл состоит из заголовка и блока из шести столбцов одинаковой емкости: время открытия (long, мс),
+ * open, high, low, close, volume (double). Свечи хранятся по возрастанию времени, поэтому
+ * диапазон по времени находится двоичным поиском и читается как представления столбцов без
+ * копирования. При заполнении в конец того же файла дописывается блок удвоенной емкости, и
+ * заголовок переключается на него. Прежний блок не изменяется, поэтому ранее выданные диапазоны
+ * остаются корректными, а отображенный файл не заменяется (на Windows это невозможно).
+ * Неиспользуемые блоки удаляются при следующем открытии файла.
+ * <p>
+ * Запись выполняется одним потоком за раз, чтение - без блокировок: количество свечей
+ * публикуется после записи столбцов. Последняя свеча обновляется на месте под счетчиком версий:
+ * диапазон, который ее включает, копирует ее значения с проверкой версии и не видит частично
+ * записанную свечу. Один блок ограничен 2 ГБ, то есть примерно 44 млн свечей на файл.
+ */
+public final class CandleSeries implements Closeable {
+
+    private static final int MAGIC = 0x4F484C43;
+
+    private static final int VERSION = 1;
+
+    private static final int HEADER_BYTES = 64;
+
+    private static final int COLUMNS = 6;
+
+    private static final int TIMESTAMP = 0;
+
+    private static final int OPEN = 1;
+
+    private static final int HIGH = 2;
+
+    private static final int LOW = 3;
+
+    private static final int CLOSE = 4;
+
+    private static final int VOLUME = 5;
+
+    private static final int COUNT_OFFSET = 16;
+
+    private static final int CAPACITY_OFFSET = 24;
+
+    // Смещение текущего блока столбцов; 0 в файлах, записанных до появления поля, означает сразу за заголовком
+    private static final int DATA_OFFSET = 32;
+
+    private static final long MAX_CAPACITY = Integer.MAX_VALUE / (COLUMNS * Long.BYTES);
+
+    private final Path file;
+
+    private final CandleInterval interval;
+
+    private FileChannel channel;
+
+    private MappedByteBuffer header;
+
+    // Отображение блока и его емкость меняются вместе при расширении файла
+    private volatile Mapping mapping;
+
+    private volatile int count;
+
+    // Нечетное значение - последняя свеча переписывается
+    private volatile long revision;
+
+    private CandleSeries(Path file, CandleInterval interval) {
+        this.file = file;
+        this.interval = interval;
+    }
+
+    /**
+     * Открывает файл свечей или создает его с начальной емкостью
+     *
+     * @throws IllegalStateException если файл создан для другого интервала или поврежден
+     */
+    public static CandleSeries open(Path file, CandleInterval interval, int initialCapacity) throws IOException {
+        CandleSeries series = new CandleSeries(file, interval);
+        if (Files.exists(file)) {
+            compact(file);
+        } else {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            Path temp = temporary(file);
+            try (FileChannel created = FileChannel.open(temp, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                int capacity = (int) Math.min(MAX_CAPACITY, Math.max(16, initialCapacity));
+                writeHeader(created, interval, capacity, 0);
+                created.write(ByteBuffer.allocate(1), HEADER_BYTES + blockSize(capacity) - 1);
+            }
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE);
+        }
+        series.mapExisting();
+        return series;
+    }
+
+    public CandleInterval getInterval() {
+        return interval;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public int capacity() {
+        return mapping.capacity();
+    }
+
+    /**
+     * Время открытия последней свечи или {@link Long#MIN_VALUE}, если свечей нет
+     */
+    public long lastTimestamp() {
+        Mapping current = mapping;
+        int size = Math.min(count, current.capacity());
+        return size == 0 ? Long.MIN_VALUE : current.buffer().getLong(offset(TIMESTAMP, current.capacity(), size - 1));
+    }
+
+    /**
+     * Добавляет свечу. Свеча с тем же временем, что и последняя, заменяет ее (обновление
+     * текущей свечи), а более ранняя пропускается, поэтому повторный импорт файла идемпотентен.
+     *
+     * @return true, если свеча добавлена или заменила последнюю
+     */
+    public synchronized boolean append(long timestamp, double open, double high, double low, double close,
+                                       double volume) {
+        int size = count;
+        long last = lastTimestamp();
+        if (size > 0 && timestamp < last) {
+            return false;
+        }
+        int index = size > 0 && timestamp == last ? size - 1 : size;
+        if (index == mapping.capacity()) {
+            grow();
+        }
+        MappedByteBuffer target = mapping.buffer();
+        int columnCapacity = mapping.capacity();
+        if (index < size) {
+            // Читатели без блокировок повторяют чтение, если версия изменилась или нечетна
+            revision = revision + 1;
+            VarHandle.storeStoreFence();
+            putCandle(target, columnCapacity, index, timestamp, open, high, low, close, volume);
+            revision = revision + 1;
+            return true;
+        }
+        putCandle(target, columnCapacity, index, timestamp, open, high, low, close, volume);
+        header.putLong(COUNT_OFFSET, size + 1);
+        count = size + 1;
+        return true;
+    }
+
+    /**
+     * Свечи с временем открытия в полуинтервале [from, to), мс от эпохи
+     */
+    public CandleRange range(long from, long to) {
+        Mapping current = mapping;
+        MappedByteBuffer source = current.buffer();
+        int columnCapacity = current.capacity();
+        int size = Math.min(count, columnCapacity);
+        int start = lowerBound(source, columnCapacity, size, from);
+        int end = Math.max(start, lowerBound(source, columnCapacity, size, to));
+        return slice(current, start, end, size);
+    }
+
+    /**
+     * Последние limit свечей
+     */
+    public CandleRange latest(int limit) {
+        Mapping current = mapping;
+        int size = Math.min(count, current.capacity());
+        return slice(current, Math.max(0, size - limit), size, size);
+    }
+
+    /**
+     * Сбрасывает изменения на диск
+     */
+    public synchronized void flush() {
+        mapping.buffer().force();
+        header.force();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        mapping.buffer().force();
+        header.force();
+        channel.close();
+    }
+
+    private void mapExisting() throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (channel.size() < HEADER_BYTES) {
+            throw new IllegalStateException("Файл свечей поврежден или имеет неизвестный формат: " + file);
+        }
+        header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+        header.order(ByteOrder.LITTLE_ENDIAN);
+        if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+            throw new IllegalStateException("Файл свечей поврежден или имеет неизвестный формат: " + file);
+        }
+        if (header.getLong(8) != interval.getDuration().toSeconds()) {
+            throw new IllegalStateException("Файл свечей " + file + " создан для другого интервала");
+        }
+        int storedCapacity = (int) header.getLong(CAPACITY_OFFSET);
+        long dataOffset = dataOffset(header.getLong(DATA_OFFSET));
+        if (channel.size() < dataOffset + blockSize(storedCapacity)) {
+            throw new IllegalStateException("Файл свечей обрезан: " + file);
+        }
+        mapping = map(dataOffset, storedCapacity);
+        count = (int) Math.min(header.getLong(COUNT_OFFSET), storedCapacity);
+    }
+
+    /**
+     * Дописывает в конец файла блок удвоенной емкости, копирует в него свечи и переключает
+     * заголовок; прежний блок остается нетронутым для ранее выданных диапазонов
+     */
+    private void grow() {
+        Mapping previous = mapping;
+        if (previous.capacity() >= MAX_CAPACITY) {
+            throw new IllegalStateException("Превышена максимальная емкость файла свечей " + file + ": " + MAX_CAPACITY);
+        }
+        try {
+            int newCapacity = (int) Math.min(MAX_CAPACITY, (long) previous.capacity() * 2);
+            long dataOffset = channel.size();
+            Mapping grown = map(dataOffset, newCapacity);
+            int size = count;
+            for (int column = 0; column < COLUMNS; column++) {
+                ByteBuffer source = previous.buffer().slice(offset(column, previous.capacity(), 0), size * Long.BYTES);
+                grown.buffer().put(offset(column, newCapacity, 0), source, 0, source.remaining());
+            }
+            grown.buffer().force();
+            header.putLong(CAPACITY_OFFSET, newCapacity);
+            header.putLong(DATA_OFFSET, dataOffset);
+            header.force();
+            mapping = grown;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось расширить файл свечей " + file, e);
+        }
+    }
+
+    private Mapping map(long dataOffset, int columnCapacity) throws IOException {
+        MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, dataOffset, blockSize(columnCapacity));
+        mapped.order(ByteOrder.LITTLE_ENDIAN);
+        return new Mapping(mapped, columnCapacity);
+    }
+
+    /**
+     * Диапазон [start, end); если он включает последнюю свечу серии, ее значения копируются
+     * под проверкой версии, так как она может переписываться одновременно с чтением
+     */
+    private CandleRange slice(Mapping current, int start, int end, int size) {
+        if (start >= end) {
+            return CandleRange.EMPTY;
+        }
+        MappedByteBuffer source = current.buffer();
+        int columnCapacity = current.capacity();
+        int length = (end - start) * Long.BYTES;
+        CandleRange range = new CandleRange(
+                column(source, columnCapacity, TIMESTAMP, start, length).asLongBuffer(),
+                column(source, columnCapacity, OPEN, start, length).asDoubleBuffer(),
+                column(source, columnCapacity, HIGH, start, length).asDoubleBuffer(),
+                column(source, columnCapacity, LOW, start, length).asDoubleBuffer(),
+                column(source, columnCapacity, CLOSE, start, length).asDoubleBuffer(),
+                column(source, columnCapacity, VOLUME, start, length).asDoubleBuffer());
+        if (end < size) {
+            return range;
+        }
+        int last = end - 1;
+        while (true) {
+            long stamp = revision;
+            double open = source.getDouble(offset(OPEN, columnCapacity, last));
+            double high = source.getDouble(offset(HIGH, columnCapacity, last));
+            double low = source.getDouble(offset(LOW, columnCapacity, last));
+            double close = source.getDouble(offset(CLOSE, columnCapacity, last));
+            double volume = source.getDouble(offset(VOLUME, columnCapacity, last));
+            VarHandle.acquireFence();
+            if ((stamp & 1) == 0 && stamp == revision) {
+                return range.withLast(open, high, low, close, volume);
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * Если после расширений в файле остались неиспользуемые блоки, переписывает его с текущим
+     * блоком сразу за заголовком. Выполняется до отображения, поэтому замена файла возможна везде.
+     */
+    private static void compact(Path file) throws IOException {
+        Path temp = temporary(file);
+        try (FileChannel source = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (source.size() < HEADER_BYTES) {
+                return;
+            }
+            ByteBuffer stored = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            source.read(stored, 0);
+            long dataOffset = dataOffset(stored.getLong(DATA_OFFSET));
+            long block = blockSize((int) stored.getLong(CAPACITY_OFFSET));
+            if (stored.getInt(0) != MAGIC || dataOffset == HEADER_BYTES || source.size() < dataOffset + block) {
+                // Некорректный файл не переписывается: ошибку сообщит проверка при отображении
+                return;
+            }
+            try (FileChannel compacted = FileChannel.open(temp, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                stored.putLong(DATA_OFFSET, HEADER_BYTES);
+                compacted.write(stored.clear(), 0);
+                long copied = 0;
+                while (copied < block) {
+                    copied += source.transferTo(dataOffset + copied, block - copied, compacted.position(HEADER_BYTES + copied));
+                }
+                compacted.force(true);
+            }
+        }
+        Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static void writeHeader(FileChannel target, CandleInterval interval, int capacity, long size)
+            throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+        buffer.putLong(8, interval.getDuration().toSeconds());
+        buffer.putLong(COUNT_OFFSET, size);
+        buffer.putLong(CAPACITY_OFFSET, capacity);
+        buffer.putLong(DATA_OFFSET, HEADER_BYTES);
+        target.write(buffer, 0);
+    }
+
+    private static void putCandle(MappedByteBuffer target, int columnCapacity, int index, long timestamp,
+                                  double open, double high, double low, double close, double volume) {
+        target.putLong(offset(TIMESTAMP, columnCapacity, index), timestamp);
+        target.putDouble(offset(OPEN, columnCapacity, index), open);
+        target.putDouble(offset(HIGH, columnCapacity, index), high);
+        target.putDouble(offset(LOW, columnCapacity, index), low);
+        target.putDouble(offset(CLOSE, columnCapacity, index), close);
+        target.putDouble(offset(VOLUME, columnCapacity, index), volume);
+    }
+
+    private static ByteBuffer column(MappedByteBuffer source, int columnCapacity, int column, int start, int length) {
+        return source.slice(offset(column, columnCapacity, start), length).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Индекс первой свечи со временем не меньше timestamp
+     */
+    private static int lowerBound(MappedByteBuffer source, int columnCapacity, int size, long timestamp) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (source.getLong(offset(TIMESTAMP, columnCapacity, middle)) < timestamp) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static Path temporary(Path file) {
+        return file.resolveSibling(file.getFileName() + ".tmp");
+    }
+
+    private static long dataOffset(long stored) {
+        return stored == 0 ? HEADER_BYTES : stored;
+    }
+
+    /**
+     * Смещение значения внутри блока столбцов
+     */
+    private static int offset(int column, int columnCapacity, int index) {
+        return (column * columnCapacity + index) * Long.BYTES;
+    }
+
+    private static long blockSize(int columnCapacity) {
+        return (long) COLUMNS * columnCapacity * Long.BYTES;
+    }
+
+    private record Mapping(MappedByteBuffer buffer, int capacity) {
+    }
+}
@@ -0,0 +1,313 @@
+package com.multiagent.market;
+
+import com.multiagent.config.IndicatorProperties;
+import com.multiagent.model.Timeframe;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.ObjIntConsumer;
+
+import static com.multiagent.market.CandleInterval.DAY_1;
+import static com.multiagent.market.CandleInterval.HOUR_1;
+import static com.multiagent.market.CandleInterval.HOUR_4;
+import static com.multiagent.market.CandleInterval.MINUTE_1;
+import static com.multiagent.market.CandleInterval.MINUTE_15;
+import static com.multiagent.market.CandleInterval.MINUTE_5;
+import static com.multiagent.market.CandleInterval.WEEK_1;
+
+/**
+ * Потоковый расчет технических индикаторов (SMA, EMA, RSI, MACD, полосы Боллинджера, VWAP)
+ * по свечам локального хранилища.
+ * <p>
+ * Для каждой пары символ/интервал ведется {@link IndicatorState}, который обновляется за O(1)
+ * на каждую свечу или сделку без выделения памяти. Сейчас свечи попадают в хранилище импортом CSV
+ * и досчитываются при чтении и фоновым обновлением, которое обрабатывает символы параллельно.
+ * {@link #onCandle} и {@link #onTick} - точки подключения потокового источника котировок:
+ * переданные через них свечи и сделки записываются и в хранилище.
+ * <p>
+ * Символы без свечей запоминаются до следующего фонового обновления, чтобы анализ монеты без
+ * локальных данных не проверял файлы всех интервалов на каждом запросе.
+ */
+@Slf4j
+@Component
+public class IndicatorEngine {
+
+    // Интервалы свечей в порядке предпочтения для горизонта анализа: чем длиннее горизонт, тем крупнее свечи
+    private static final List<CandleInterval> SHORT_TERM = List.of(HOUR_1, MINUTE_15, HOUR_4, MINUTE_5, DAY_1, MINUTE_1, WEEK_1);
+
+    private static final List<CandleInterval> MEDIUM_TERM = List.of(HOUR_4, HOUR_1, DAY_1, MINUTE_15, WEEK_1, MINUTE_5, MINUTE_1);
+
+    private static final List<CandleInterval> LONG_TERM = List.of(DAY_1, HOUR_4, WEEK_1, HOUR_1, MINUTE_15, MINUTE_5, MINUTE_1);
+
+    private static final List<CandleInterval> VERY_LONG_TERM = List.of(WEEK_1, DAY_1, HOUR_4, HOUR_1, MINUTE_15, MINUTE_5, MINUTE_1);
+
+    private final MarketDataStore store;
+
+    private final IndicatorProperties properties;
+
+    // Состояния по символу, внутри - по порядковому номеру интервала, чтобы сделка не создавала ключ
+    private final Map<String, AtomicReferenceArray<IndicatorState>> states = new ConcurrentHashMap<>();
+
+    // Символы, для которых при последнем обращении не нашлось свечей ни одного интервала
+    private final Set<String> missingSymbols = ConcurrentHashMap.newKeySet();
+
+    private final ForkJoinPool pool;
+
+    public IndicatorEngine(MarketDataStore store, IndicatorProperties properties) {
+        this.store = store;
+        this.properties = properties;
+        this.pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Применяет свечу и записывает ее в хранилище. Свеча с тем же временем, что и последняя,
+     * обновляет ее; более ранняя пропускается.
+     * <p>
+     * Для символа в нормализованном виде (см. {@link MarketDataStore#normalizeSymbol(String)})
+     * вызов не выделяет память.
+     *
+     * @return false, если свеча пропущена
+     */
+    public boolean onCandle(String symbol, CandleInterval interval, long timestamp,
+                            double open, double high, double low, double close, double volume) {
+        IndicatorState state = state(symbol, interval);
+        synchronized (state) {
+            warmUp(state);
+            if (!state.update(timestamp, open, high, low, close, volume)) {
+                return false;
+            }
+            state.persistLatest();
+            return true;
+        }
+    }
+
+    /**
+     * Агрегирует сделку в текущую свечу интервала, пересчитывает индикаторы и записывает
+     * свечу в хранилище.
+     * <p>
+     * Для символа в нормализованном виде вызов не выделяет память.
+     *
+     * @param timestamp время сделки, мс от эпохи
+     * @return false, если сделка относится к уже закрытой свече
+     */
+    public boolean onTick(String symbol, CandleInterval interval, long timestamp, double price, double volume) {
+        long intervalMillis = interval.getDuration().toMillis();
+        long candleTimestamp = Math.floorDiv(timestamp, intervalMillis) * intervalMillis;
+        IndicatorState state = state(symbol, interval);
+        synchronized (state) {
+            warmUp(state);
+            if (!state.tick(candleTimestamp, price, volume)) {
+                return false;
+            }
+            state.persistLatest();
+            return true;
+        }
+    }
+
+    /**
+     * Текущие значения индикаторов; свечи, появившиеся в хранилище после последнего
+     * расчета, предварительно досчитываются
+     *
+     * @return пусто, если свечей символа в хранилище нет
+     */
+    public Optional<IndicatorSnapshot> snapshot(String symbol, CandleInterval interval) {
+        String normalized = MarketDataStore.normalizeSymbol(symbol);
+        if (existing(normalized, interval) == null && store.find(normalized, interval).isEmpty()) {
+            return Optional.empty();
+        }
+        IndicatorState state = state(normalized, interval);
+        synchronized (state) {
+            catchUp(state);
+            return state.isEmpty() ? Optional.empty() : Optional.of(state.snapshot(normalized, interval));
+        }
+    }
+
+    /**
+     * Индикаторы для анализа криптовалюты: символ определяется по названию из запроса,
+     * интервал свечей - самый подходящий горизонту анализа из доступных в хранилище
+     *
+     * @return пусто, если расчет выключен или локальных свечей нет
+     */
+    public Optional<IndicatorSnapshot> forAnalysis(String cryptocurrency, String timeframe) {
+        if (!properties.isEnabled()) {
+            return Optional.empty();
+        }
+        Optional<String> symbol = resolveSymbol(cryptocurrency);
+        if (symbol.isEmpty() || missingSymbols.contains(symbol.get())) {
+            return Optional.empty();
+        }
+        for (CandleInterval interval : preferredIntervals(timeframe)) {
+            Optional<IndicatorSnapshot> snapshot = snapshot(symbol.get(), interval);
+            if (snapshot.isPresent()) {
+                return snapshot;
+            }
+        }
+        missingSymbols.add(symbol.get());
+        return Optional.empty();
+    }
+
+    /**
+     * Символ хранилища для названия криптовалюты: по настроенному соответствию,
+     * иначе само название, если оно является допустимым символом
+     */
+    public Optional<String> resolveSymbol(String cryptocurrency) {
+        if (cryptocurrency == null || cryptocurrency.isBlank()) {
+            return Optional.empty();
+        }
+        String name = cryptocurrency.trim();
+        for (Map.Entry<String, String> alias : properties.getSymbols().entrySet()) {
+            if (alias.getKey().equalsIgnoreCase(name)) {
+                return Optional.of(MarketDataStore.normalizeSymbol(alias.getValue()));
+            }
+        }
+        try {
+            return Optional.of(MarketDataStore.normalizeSymbol(name));
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Досчитывает индикаторы по всем символам и интервалам хранилища; символы
+     * обрабатываются параллельно. Символы без свечей проверяются заново при следующем анализе.
+     *
+     * @return количество примененных свечей
+     */
+    public int refreshAll() {
+        missingSymbols.clear();
+        List<IndicatorState> targets = new ArrayList<>();
+        for (String symbol : store.symbols()) {
+            for (CandleInterval interval : store.intervals(symbol)) {
+                targets.add(state(symbol, interval));
+            }
+        }
+        return pool.submit(() -> targets.parallelStream()
+                .mapToInt(state -> {
+                    synchronized (state) {
+                        return catchUp(state);
+                    }
+                })
+                .sum()).join();
+    }
+
+    /**
+     * Прогоняет свечи через отдельный набор индикаторов, не затрагивая текущие значения
+     * и хранилище, и передает значения индикаторов на свечах firstIndex, firstIndex + step, ...
+     * вместе с индексом свечи. Используется для расчета по истории (бэктест).
+     */
+    public void replay(String symbol, CandleInterval interval, CandleRange candles, int firstIndex, int step,
+                       ObjIntConsumer<IndicatorSnapshot> consumer) {
+        if (step < 1) {
+            throw new IllegalArgumentException("Шаг должен быть положительным");
+        }
+        IndicatorState state = new IndicatorState(properties, null);
+        for (int i = 0; i < candles.size(); i++) {
+            state.update(candles.timestamp(i), candles.open(i), candles.high(i), candles.low(i),
+                    candles.close(i), candles.volume(i));
+            if (i >= firstIndex && (i - firstIndex) % step == 0) {
+                consumer.accept(state.snapshot(symbol, interval), i);
+            }
+        }
+    }
+
+    @Scheduled(initialDelayString = "${crypto.indicators.refresh-interval:PT1M}",
+            fixedDelayString = "${crypto.indicators.refresh-interval:PT1M}")
+    public void scheduledRefresh() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        try {
+            long startedAt = System.nanoTime();
+            int applied = refreshAll();
+            if (applied > 0) {
+                log.debug("Индикаторы обновлены: применено свечей {} за {} мс", applied,
+                        (System.nanoTime() - startedAt) / 1_000_000);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Ошибка фонового обновления индикаторов: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * Применяет свечи хранилища, появившиеся после последней примененной; при первом обращении -
+     * последние warmupCandles свечей. Вызывается под блокировкой состояния.
+     */
+    private int catchUp(IndicatorState state) {
+        CandleSeries series = state.series();
+        CandleRange range = state.isEmpty()
+                ? series.latest(properties.getWarmupCandles())
+                : series.range(state.lastTimestamp(), Long.MAX_VALUE);
+        int applied = 0;
+        for (int i = 0; i < range.size(); i++) {
+            if (state.update(range.timestamp(i), range.open(i), range.high(i), range.low(i),
+                    range.close(i), range.volume(i))) {
+                applied++;
+            }
+        }
+        return applied;
+    }
+
+    /**
+     * Перед первой свечой или сделкой подхватывает историю, уже лежащую в хранилище
+     */
+    private void warmUp(IndicatorState state) {
+        if (state.isEmpty()) {
+            catchUp(state);
+        }
+    }
+
+    private IndicatorState existing(String symbol, CandleInterval interval) {
+        AtomicReferenceArray<IndicatorState> byInterval = states.get(symbol);
+        return byInterval == null ? null : byInterval.get(interval.ordinal());
+    }
+
+    private IndicatorState state(String symbol, CandleInterval interval) {
+        IndicatorState state = existing(symbol, interval);
+        if (state != null) {
+            return state;
+        }
+        String normalized = MarketDataStore.normalizeSymbol(symbol);
+        AtomicReferenceArray<IndicatorState> byInterval = states.computeIfAbsent(normalized,
+                key -> new AtomicReferenceArray<>(CandleInterval.values().length));
+        synchronized (byInterval) {
+            state = byInterval.get(interval.ordinal());
+            if (state == null) {
+                state = new IndicatorState(properties, store.series(normalized, interval));
+                byInterval.set(interval.ordinal(), state);
+                missingSymbols.remove(normalized);
+            }
+        }
+        return state;
+    }
+
+    private static List<CandleInterval> preferredIntervals(String timeframe) {
+        int days;
+        try {
+            days = Timeframe.parse(timeframe).getDays();
+        } catch (IllegalArgumentException e) {
+            days = Timeframe.MONTH.getDays();
+        }
+        if (days <= 3) {
+            return SHORT_TERM;
+        }
+        if (days <= 14) {
+            return MEDIUM_TERM;
+        }
+        return days <= 180 ? LONG_TERM : VERY_LONG_TERM;
+    }
+}
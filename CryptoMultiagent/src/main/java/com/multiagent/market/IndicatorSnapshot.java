@@ -0,0 +1,28 @@
+package com.multiagent.market;
+
+import java.time.Instant;
+
+/**
+ * Текущие значения технических индикаторов символа на последней свече. Индикатор, для
+ * которого еще недостаточно свечей, равен {@link Double#NaN}.
+ *
+ * @param timestamp время открытия последней свечи
+ * @param candles   количество свечей, прошедших через индикаторы
+ * @param vwap      средневзвешенная по объему цена с начала суток UTC
+ */
+public record IndicatorSnapshot(String symbol,
+                                CandleInterval interval,
+                                Instant timestamp,
+                                long candles,
+                                double close,
+                                double sma,
+                                double ema,
+                                double rsi,
+                                double macd,
+                                double macdSignal,
+                                double macdHistogram,
+                                double bollingerUpper,
+                                double bollingerMiddle,
+                                double bollingerLower,
+                                double vwap) {
+}
@@ -0,0 +1,342 @@
+package com.multiagent.market;
+
+import com.multiagent.config.IndicatorProperties;
+import com.multiagent.util.DoubleRingBuffer;
+
+import java.time.Instant;
+
+/**
+ * Потоковое состояние индикаторов одного символа и интервала. Каждая свеча обновляет
+ * все индикаторы за O(1): скользящие суммы ведутся по кольцевому буферу цен закрытия,
+ * EMA, RSI и MACD - рекуррентно. Вся память выделяется при создании состояния, поэтому
+ * обновление не создает объектов.
+ * <p>
+ * Свеча с тем же временем, что и последняя, считается обновлением текущей (незакрытой) свечи:
+ * накопители восстанавливаются из копии, сделанной до ее первого применения, и свеча
+ * применяется заново. Более ранние свечи пропускаются.
+ * <p>
+ * Методы синхронизированы на самом состоянии; для серии обновлений вызывающий может
+ * удерживать ту же блокировку.
+ */
+final class IndicatorState {
+
+    private static final long DAY_MILLIS = 86_400_000L;
+
+    private final int smaPeriod;
+
+    private final int rsiPeriod;
+
+    private final int bollingerPeriod;
+
+    private final double bollingerWidth;
+
+    private final CandleSeries series;
+
+    private final DoubleRingBuffer closes;
+
+    private final Accumulators current;
+
+    // Накопители до применения последней свечи - для ее повторного применения при обновлении
+    private final Accumulators committed;
+
+    // Последняя свеча целиком - в нее агрегируются тики
+    private double candleOpen;
+
+    private double candleHigh;
+
+    private double candleLow;
+
+    private double candleClose;
+
+    private double candleVolume;
+
+    /**
+     * @param series файл, в который записывается последняя свеча; null - расчет без записи
+     */
+    IndicatorState(IndicatorProperties properties, CandleSeries series) {
+        if (properties.getSmaPeriod() < 1 || properties.getEmaPeriod() < 1 || properties.getRsiPeriod() < 1
+                || properties.getBollingerPeriod() < 1 || properties.getMacdSignalPeriod() < 1
+                || properties.getMacdFastPeriod() < 1 || properties.getMacdFastPeriod() >= properties.getMacdSlowPeriod()) {
+            throw new IllegalArgumentException("Периоды индикаторов должны быть положительными, "
+                    + "быстрый период MACD - меньше медленного");
+        }
+        this.smaPeriod = properties.getSmaPeriod();
+        this.rsiPeriod = properties.getRsiPeriod();
+        this.bollingerPeriod = properties.getBollingerPeriod();
+        this.bollingerWidth = properties.getBollingerWidth();
+        this.series = series;
+        // Вытесняемая из окна цена находится на period шагов назад, поэтому буфер на один длиннее окна
+        this.closes = new DoubleRingBuffer(Math.max(smaPeriod, bollingerPeriod) + 1);
+        this.current = new Accumulators(properties);
+        this.committed = new Accumulators(properties);
+    }
+
+    CandleSeries series() {
+        return series;
+    }
+
+    synchronized boolean isEmpty() {
+        return current.count == 0;
+    }
+
+    /**
+     * Время открытия последней примененной свечи или {@link Long#MIN_VALUE}
+     */
+    synchronized long lastTimestamp() {
+        return current.lastTimestamp;
+    }
+
+    /**
+     * Применяет свечу
+     *
+     * @return false, если свеча старше последней и пропущена
+     */
+    synchronized boolean update(long timestamp, double open, double high, double low, double close, double volume) {
+        if (current.count > 0 && timestamp < current.lastTimestamp) {
+            return false;
+        }
+        if (current.count > 0 && timestamp == current.lastTimestamp) {
+            current.copyFrom(committed);
+            closes.setLatest(close);
+        } else {
+            committed.copyFrom(current);
+            closes.push(close);
+        }
+        candleOpen = open;
+        candleHigh = high;
+        candleLow = low;
+        candleClose = close;
+        candleVolume = volume;
+        apply(timestamp, high, low, close, volume);
+        return true;
+    }
+
+    /**
+     * Агрегирует сделку в свечу с временем открытия candleTimestamp: первая сделка открывает
+     * новую свечу, следующие обновляют ее максимум, минимум, закрытие и объем
+     *
+     * @return false, если сделка относится к свече старше последней
+     */
+    synchronized boolean tick(long candleTimestamp, double price, double volume) {
+        if (current.count > 0 && candleTimestamp == current.lastTimestamp) {
+            return update(candleTimestamp, candleOpen, Math.max(candleHigh, price), Math.min(candleLow, price),
+                    price, candleVolume + volume);
+        }
+        return update(candleTimestamp, price, price, price, price, volume);
+    }
+
+    /**
+     * Записывает последнюю свечу в файл свечей
+     */
+    synchronized void persistLatest() {
+        series.append(current.lastTimestamp, candleOpen, candleHigh, candleLow, candleClose, candleVolume);
+    }
+
+    synchronized IndicatorSnapshot snapshot(String symbol, CandleInterval interval) {
+        Accumulators state = current;
+        double sma = state.count >= smaPeriod ? state.smaSum / smaPeriod : Double.NaN;
+
+        double bollingerMiddle = Double.NaN;
+        double bollingerUpper = Double.NaN;
+        double bollingerLower = Double.NaN;
+        if (state.count >= bollingerPeriod) {
+            bollingerMiddle = state.bollingerSum / bollingerPeriod;
+            double variance = Math.max(0, state.bollingerSumSquares / bollingerPeriod - bollingerMiddle * bollingerMiddle);
+            double deviation = Math.sqrt(variance);
+            bollingerUpper = bollingerMiddle + bollingerWidth * deviation;
+            bollingerLower = bollingerMiddle - bollingerWidth * deviation;
+        }
+
+        double rsi = Double.NaN;
+        if (state.rsiSamples >= rsiPeriod) {
+            if (state.averageLoss == 0) {
+                rsi = state.averageGain == 0 ? 50 : 100;
+            } else {
+                rsi = 100 - 100 / (1 + state.averageGain / state.averageLoss);
+            }
+        }
+
+        double macd = state.macdSlow.ready() ? state.macdFast.value - state.macdSlow.value : Double.NaN;
+        double macdSignal = state.macdSignal.ready() ? state.macdSignal.value : Double.NaN;
+        double vwap = state.vwapVolume > 0 ? state.vwapPriceVolume / state.vwapVolume : Double.NaN;
+
+        return new IndicatorSnapshot(symbol, interval, Instant.ofEpochMilli(state.lastTimestamp), state.count,
+                candleClose, sma, state.ema.ready() ? state.ema.value : Double.NaN, rsi,
+                macd, macdSignal, macd - macdSignal,
+                bollingerUpper, bollingerMiddle, bollingerLower, vwap);
+    }
+
+    private void apply(long timestamp, double high, double low, double close, double volume) {
+        Accumulators state = current;
+        state.count++;
+        state.lastTimestamp = timestamp;
+
+        int buffered = closes.size();
+        state.smaSum += close;
+        if (buffered > smaPeriod) {
+            state.smaSum -= closes.get(smaPeriod);
+        }
+        state.bollingerSum += close;
+        state.bollingerSumSquares += close * close;
+        if (buffered > bollingerPeriod) {
+            double leaving = closes.get(bollingerPeriod);
+            state.bollingerSum -= leaving;
+            state.bollingerSumSquares -= leaving * leaving;
+        }
+        // Скользящие суммы периодически пересчитываются целиком, чтобы ошибка округления не накапливалась
+        if (state.count % smaPeriod == 0) {
+            state.smaSum = windowSum(smaPeriod, false);
+        }
+        if (state.count % bollingerPeriod == 0) {
+            state.bollingerSum = windowSum(bollingerPeriod, false);
+            state.bollingerSumSquares = windowSum(bollingerPeriod, true);
+        }
+
+        state.ema.add(close);
+        state.macdFast.add(close);
+        state.macdSlow.add(close);
+        if (state.macdSlow.ready()) {
+            state.macdSignal.add(state.macdFast.value - state.macdSlow.value);
+        }
+
+        // RSI по Уайлдеру: первые средние - простые, дальше - сглаживание с весом 1/period
+        if (state.count > 1) {
+            double change = close - state.previousClose;
+            double gain = Math.max(change, 0);
+            double loss = Math.max(-change, 0);
+            if (state.rsiSamples < rsiPeriod) {
+                state.averageGain += gain / rsiPeriod;
+                state.averageLoss += loss / rsiPeriod;
+                state.rsiSamples++;
+            } else {
+                state.averageGain = (state.averageGain * (rsiPeriod - 1) + gain) / rsiPeriod;
+                state.averageLoss = (state.averageLoss * (rsiPeriod - 1) + loss) / rsiPeriod;
+            }
+        }
+        state.previousClose = close;
+
+        // VWAP сессии: накопление сбрасывается в начале суток UTC
+        long day = Math.floorDiv(timestamp, DAY_MILLIS);
+        if (day != state.vwapDay) {
+            state.vwapDay = day;
+            state.vwapPriceVolume = 0;
+            state.vwapVolume = 0;
+        }
+        state.vwapPriceVolume += (high + low + close) / 3 * volume;
+        state.vwapVolume += volume;
+    }
+
+    private double windowSum(int period, boolean squares) {
+        int length = Math.min(period, closes.size());
+        double sum = 0;
+        for (int i = 0; i < length; i++) {
+            double value = closes.get(i);
+            sum += squares ? value * value : value;
+        }
+        return sum;
+    }
+
+    /**
+     * Экспоненциальное среднее; первое значение - простое среднее первых period значений
+     */
+    private static final class Ema {
+
+        private final int period;
+
+        private final double alpha;
+
+        private double value = Double.NaN;
+
+        private double seedSum;
+
+        private int samples;
+
+        private Ema(int period) {
+            this.period = period;
+            this.alpha = 2.0 / (period + 1);
+        }
+
+        private void add(double x) {
+            if (samples < period) {
+                seedSum += x;
+                samples++;
+                if (samples == period) {
+                    value = seedSum / period;
+                }
+            } else {
+                value += alpha * (x - value);
+            }
+        }
+
+        private boolean ready() {
+            return samples >= period;
+        }
+
+        private void copyFrom(Ema other) {
+            value = other.value;
+            seedSum = other.seedSum;
+            samples = other.samples;
+        }
+    }
+
+    private static final class Accumulators {
+
+        private long count;
+
+        private long lastTimestamp = Long.MIN_VALUE;
+
+        private double smaSum;
+
+        private double bollingerSum;
+
+        private double bollingerSumSquares;
+
+        private final Ema ema;
+
+        private final Ema macdFast;
+
+        private final Ema macdSlow;
+
+        private final Ema macdSignal;
+
+        private double previousClose;
+
+        private int rsiSamples;
+
+        private double averageGain;
+
+        private double averageLoss;
+
+        private long vwapDay = Long.MIN_VALUE;
+
+        private double vwapPriceVolume;
+
+        private double vwapVolume;
+
+        private Accumulators(IndicatorProperties properties) {
+            this.ema = new Ema(properties.getEmaPeriod());
+            this.macdFast = new Ema(properties.getMacdFastPeriod());
+            this.macdSlow = new Ema(properties.getMacdSlowPeriod());
+            this.macdSignal = new Ema(properties.getMacdSignalPeriod());
+        }
+
+        private void copyFrom(Accumulators other) {
+            count = other.count;
+            lastTimestamp = other.lastTimestamp;
+            smaSum = other.smaSum;
+            bollingerSum = other.bollingerSum;
+            bollingerSumSquares = other.bollingerSumSquares;
+            ema.copyFrom(other.ema);
+            macdFast.copyFrom(other.macdFast);
+            macdSlow.copyFrom(other.macdSlow);
+            macdSignal.copyFrom(other.macdSignal);
+            previousClose = other.previousClose;
+            rsiSamples = other.rsiSamples;
+            averageGain = other.averageGain;
+            averageLoss = other.averageLoss;
+            vwapDay = other.vwapDay;
+            vwapPriceVolume = other.vwapPriceVolume;
+            vwapVolume = other.vwapVolume;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.multiagent.market;
+
+import com.multiagent.config.MarketDataProperties;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Импортирует CSV-файлы свечей из crypto.market-data.import-directory при запуске.
+ * Уже загруженные свечи пропускаются, поэтому импорт можно оставлять включенным между перезапусками.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class MarketDataImporter implements ApplicationRunner {
+
+    private final MarketDataProperties properties;
+
+    private final MarketDataStore marketDataStore;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (properties.getImportDirectory() == null || properties.getImportDirectory().isBlank()) {
+            return;
+        }
+        Path directory = Paths.get(properties.getImportDirectory());
+        if (!Files.isDirectory(directory)) {
+            log.warn("Каталог импорта рыночных данных не найден: {}", directory.toAbsolutePath());
+            return;
+        }
+        try {
+            int ingested = marketDataStore.importDirectory(directory);
+            log.info("Импорт рыночных данных завершен: {} свечей", ingested);
+        } catch (Exception e) {
+            // Без рыночных данных агенты работают как раньше, поэтому ошибка импорта не останавливает запуск
+            log.error("Ошибка импорта рыночных данных из {}: {}", directory.toAbsolutePath(), e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package com.multiagent.market;
+
+import com.multiagent.config.MarketDataProperties;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.TemporalAccessor;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Локальное хранилище свечей OHLCV: по столбцовому файлу, отображенному в память,
+ * на каждую пару символ/интервал (см. {@link CandleSeries}).
+ * <p>
+ * Свечи загружаются из CSV со столбцами {@code timestamp,open,high,low,close,volume};
+ * строка заголовка необязательна, разделитель - запятая или точка с запятой. Время задается
+ * в миллисекундах или секундах от эпохи либо в формате ISO-8601. Повторный импорт того же
+ * файла не дублирует свечи.
+ */
+@Slf4j
+@Component
+public class MarketDataStore {
+
+    private static final Pattern SYMBOL = Pattern.compile("^[A-Z0-9][A-Z0-9-]{0,19}$");
+
+    // Имя файла импорта: символ и код интервала (BTC_1h.csv)
+    private static final Pattern IMPORT_FILE = Pattern.compile("^([A-Za-z0-9-]+)_(\\w+)\\.csv$");
+
+    // Время в секундах меньше этого порога (это 5138 год в секундах и 1973 год в миллисекундах)
+    private static final long SECONDS_THRESHOLD = 100_000_000_000L;
+
+    private static final String FILE_EXTENSION = ".ohlcv";
+
+    private final MarketDataProperties properties;
+
+    private final Map<String, CandleSeries> series = new ConcurrentHashMap<>();
+
+    public MarketDataStore(MarketDataProperties properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * Приводит символ к виду, используемому в хранилище (BTC, BTC-USDT)
+     *
+     * @throws IllegalArgumentException для недопустимого символа
+     */
+    public static String normalizeSymbol(String symbol) {
+        String normalized = symbol == null ? "" : symbol.trim().toUpperCase(Locale.ROOT);
+        if (!SYMBOL.matcher(normalized).matches()) {
+            throw new IllegalArgumentException("Недопустимый символ: '" + symbol + "'");
+        }
+        return normalized;
+    }
+
+    /**
+     * Свечи символа, если они есть в хранилище
+     */
+    public Optional<CandleSeries> find(String symbol, CandleInterval interval) {
+        String normalized = normalizeSymbol(symbol);
+        CandleSeries opened = series.get(key(normalized, interval));
+        if (opened != null) {
+            return Optional.of(opened);
+        }
+        if (!Files.exists(file(normalized, interval))) {
+            return Optional.empty();
+        }
+        return Optional.of(series(normalized, interval));
+    }
+
+    /**
+     * Свечи символа; файл создается, если его еще нет
+     */
+    public CandleSeries series(String symbol, CandleInterval interval) {
+        String normalized = normalizeSymbol(symbol);
+        return series.computeIfAbsent(key(normalized, interval), key -> {
+            try {
+                return CandleSeries.open(file(normalized, interval), interval, properties.getInitialCapacity());
+            } catch (IOException e) {
+                throw new UncheckedIOException("Не удалось открыть файл свечей " + key, e);
+            }
+        });
+    }
+
+    /**
+     * Символы, для которых в хранилище есть файлы свечей
+     */
+    public List<String> symbols() {
+        Path root = Paths.get(properties.getDirectory());
+        if (!Files.isDirectory(root)) {
+            return List.of();
+        }
+        try (Stream<Path> listing = Files.list(root)) {
+            return listing.filter(Files::isDirectory)
+                    .map(path -> path.getFileName().toString())
+                    .filter(name -> SYMBOL.matcher(name).matches())
+                    .sorted()
+                    .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось прочитать каталог свечей " + root, e);
+        }
+    }
+
+    /**
+     * Интервалы, для которых в хранилище есть свечи символа
+     */
+    public List<CandleInterval> intervals(String symbol) {
+        String normalized = normalizeSymbol(symbol);
+        return Arrays.stream(CandleInterval.values())
+                .filter(interval -> series.containsKey(key(normalized, interval)) || Files.exists(file(normalized, interval)))
+                .toList();
+    }
+
+    /**
+     * Свечи с временем открытия в полуинтервале [from, to); пустой диапазон, если данных нет
+     */
+    public CandleRange range(String symbol, CandleInterval interval, Instant from, Instant to) {
+        return find(symbol, interval)
+                .map(candles -> candles.range(from.toEpochMilli(), to.toEpochMilli()))
+                .orElse(CandleRange.EMPTY);
+    }
+
+    /**
+     * Загружает свечи из CSV
+     *
+     * @return количество добавленных или обновленных свечей
+     * @throws IllegalArgumentException если строка CSV не разбирается
+     */
+    public int ingestCsv(String symbol, CandleInterval interval, Reader reader) throws IOException {
+        CandleSeries candles = series(symbol, interval);
+        BufferedReader lines = reader instanceof BufferedReader buffered ? buffered : new BufferedReader(reader, 1 << 16);
+        int ingested = 0;
+        int lineNumber = 0;
+        String line;
+        while ((line = lines.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank() || (lineNumber == 1 && !startsWithTimestamp(line))) {
+                continue;
+            }
+            if (appendCsvLine(candles, line, lineNumber)) {
+                ingested++;
+            }
+        }
+        candles.flush();
+        return ingested;
+    }
+
+    /**
+     * Импортирует CSV-файлы каталога с именами вида SYMBOL_INTERVAL.csv (BTC_1h.csv)
+     *
+     * @return количество добавленных или обновленных свечей
+     */
+    public int importDirectory(Path directory) throws IOException {
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(directory)) {
+            files = listing.filter(path -> IMPORT_FILE.matcher(path.getFileName().toString()).matches())
+                    .sorted()
+                    .toList();
+        }
+        int total = 0;
+        for (Path csv : files) {
+            Matcher name = IMPORT_FILE.matcher(csv.getFileName().toString());
+            name.matches();
+            CandleInterval interval = CandleInterval.fromCode(name.group(2));
+            long startedAt = System.nanoTime();
+            try (Reader reader = Files.newBufferedReader(csv, StandardCharsets.UTF_8)) {
+                int ingested = ingestCsv(name.group(1), interval, reader);
+                total += ingested;
+                log.info("Импортировано свечей {} {}: {} за {} мс", normalizeSymbol(name.group(1)), interval.getCode(),
+                        ingested, (System.nanoTime() - startedAt) / 1_000_000);
+            }
+        }
+        return total;
+    }
+
+    @PreDestroy
+    public void close() {
+        series.values().forEach(candles -> {
+            try {
+                candles.close();
+            } catch (IOException e) {
+                log.warn("Не удалось закрыть файл свечей {}: {}", candles.getFile(), e.getMessage());
+            }
+        });
+        series.clear();
+    }
+
+    private Path file(String symbol, CandleInterval interval) {
+        return Paths.get(properties.getDirectory(), symbol, interval.getCode() + FILE_EXTENSION);
+    }
+
+    private static String key(String symbol, CandleInterval interval) {
+        return symbol + "/" + interval.getCode();
+    }
+
+    /**
+     * Разбирает строку CSV по позициям разделителей, без регулярных выражений
+     */
+    private static boolean appendCsvLine(CandleSeries candles, String line, int lineNumber) {
+        char separator = line.indexOf(';') >= 0 ? ';' : ',';
+        try {
+            int start = 0;
+            int end = line.indexOf(separator);
+            long timestamp = parseTimestamp(line.substring(start, end).trim());
+            double[] values = new double[5];
+            for (int column = 0; column < values.length; column++) {
+                start = end + 1;
+                end = line.indexOf(separator, start);
+                if (end < 0) {
+                    end = line.length();
+                }
+                values[column] = Double.parseDouble(line.substring(start, end).trim());
+            }
+            return candles.append(timestamp, values[0], values[1], values[2], values[3], values[4]);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Строка " + lineNumber + " CSV не разобрана: '" + line
+                    + "'. Ожидаются столбцы timestamp,open,high,low,close,volume", e);
+        }
+    }
+
+    /**
+     * Время в миллисекундах, секундах или ISO-8601; ISO-время без смещения считается временем UTC
+     */
+    private static long parseTimestamp(String value) {
+        if (value.indexOf('-') > 0 || value.indexOf('T') > 0) {
+            TemporalAccessor parsed = DateTimeFormatter.ISO_DATE_TIME.parseBest(value,
+                    OffsetDateTime::from, LocalDateTime::from);
+            return parsed instanceof OffsetDateTime withOffset
+                    ? withOffset.toInstant().toEpochMilli()
+                    : ((LocalDateTime) parsed).toInstant(ZoneOffset.UTC).toEpochMilli();
+        }
+        long number = Long.parseLong(value);
+        return number < SECONDS_THRESHOLD ? number * 1000 : number;
+    }
+
+    private static boolean startsWithTimestamp(String line) {
+        return Character.isDigit(line.trim().charAt(0));
+    }
+}
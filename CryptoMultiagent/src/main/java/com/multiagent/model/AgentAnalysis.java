@@ -1,26 +1,39 @@
 package com.multiagent.model;
 
+import com.fasterxml.jackson.annotation.JsonView;
 import io.swagger.v3.oas.annotations.media.Schema;
-import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
 @Data
 @NoArgsConstructor
-@AllArgsConstructor
 @Schema(description = "Анализ от конкретного агента")
 public class AgentAnalysis {
 
     @Schema(description = "Название агента", example = "Technical Analysis Agent")
+    @JsonView(ResponseView.Compact.class)
     private String agentName;
     
     @Schema(description = "Результат анализа от агента", example = "Технический анализ показывает восходящий тренд")
+    @JsonView(ResponseView.Full.class)
     private String analysis;
     
     @Schema(description = "Рекомендация от агента", example = "ПОКУПАТЬ")
+    @JsonView(ResponseView.Compact.class)
     private String recommendation;
     
     @Schema(description = "Уверенность агента в рекомендации (0.0 - 1.0)", example = "0.85")
+    @JsonView(ResponseView.Compact.class)
     private double confidence;
 
+    @Schema(description = "Токены, потраченные агентом на этот анализ")
+    @JsonView(ResponseView.Full.class)
+    private TokenUsage tokenUsage;
+
+    public AgentAnalysis(String agentName, String analysis, String recommendation, double confidence) {
+        this.agentName = agentName;
+        this.analysis = analysis;
+        this.recommendation = recommendation;
+        this.confidence = confidence;
+    }
 }
@@ -0,0 +1,106 @@
+package com.multiagent.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Параметры выполнения анализа, заданные в запросе
+ */
+@Data
+@NoArgsConstructor
+public class AnalysisOptions {
+
+    /**
+     * Идентификаторы агентов; пустой список означает агентов, включенных в конфигурации
+     */
+    private List<String> agents;
+
+    /**
+     * Режим кворума: прекратить опрос агентов, как только финальная рекомендация не может измениться
+     */
+    private boolean quorum;
+
+    /**
+     * Краткий режим: агенты отвечают несколькими предложениями, когда клиенту нужна только рекомендация
+     */
+    private boolean brief;
+
+    /**
+     * Лимит токенов ответа для каждого агента, заданный эндпоинтом или кратким режимом;
+     * null - без ограничения сверх настроек агента. Лимит, не меньший собственных лимитов агентов,
+     * не задается (AgentRegistry#limitingMaxTokens), чтобы не разделять ключ кэша без причины.
+     */
+    private Integer maxTokens;
+
+    /**
+     * Сколько клиент готов ждать ответа; используется при допуске анализа и не входит в ключ кэша.
+     * null - значение по умолчанию из crypto.admission.default-timeout
+     */
+    private Duration timeout;
+
+    /**
+     * Полоса выполнения: интерактивные запросы обслуживаются раньше фоновых и пакетных.
+     * Не входит в ключ кэша: результат одинаков для обеих полос.
+     */
+    private ExecutionLane lane = ExecutionLane.INTERACTIVE;
+
+    /**
+     * Записывать ли рекомендацию в журнал бэктеста: в журнал попадают только ответы клиентам,
+     * фоновый предрасчет и рассылка подписчикам не записываются. Не входит в ключ кэша.
+     */
+    private boolean journaled = true;
+
+    public static AnalysisOptions defaults() {
+        return new AnalysisOptions();
+    }
+
+    public static AnalysisOptions forLane(ExecutionLane lane) {
+        AnalysisOptions options = new AnalysisOptions();
+        options.setLane(lane);
+        return options;
+    }
+
+    /**
+     * Фоновый анализ без клиента: предрасчет списка наблюдения и обновление подписок
+     */
+    public static AnalysisOptions background() {
+        AnalysisOptions options = forLane(ExecutionLane.BULK);
+        options.setJournaled(false);
+        return options;
+    }
+
+    public static AnalysisOptions forAgents(List<String> agents) {
+        AnalysisOptions options = new AnalysisOptions();
+        options.setAgents(agents);
+        return options;
+    }
+
+    public boolean hasCustomAgents() {
+        return agents != null && !agents.isEmpty();
+    }
+
+    /**
+     * Суффикс ключа кэша: запросы с разным составом агентов, в режиме кворума,
+     * в кратком режиме и с другим лимитом токенов кэшируются раздельно
+     */
+    public String cacheKeySuffix() {
+        StringBuilder suffix = new StringBuilder();
+        if (hasCustomAgents()) {
+            suffix.append('|').append(String.join(",", new TreeSet<>(agents)));
+        }
+        if (quorum) {
+            suffix.append("|quorum");
+        }
+        if (brief) {
+            suffix.append("|brief");
+        }
+        if (maxTokens != null) {
+            suffix.append("|tokens=").append(maxTokens);
+        }
+        return suffix.toString();
+    }
+}
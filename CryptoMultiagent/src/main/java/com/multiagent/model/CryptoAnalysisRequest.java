@@ -7,6 +7,8 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.util.List;
+
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -18,8 +20,26 @@ public class CryptoAnalysisRequest {
     @Size(min = 2, max = 50, message = "Название криптовалюты должно быть от 2 до 50 символов")
     private String cryptocurrency;
 
-    @Schema(description = "Временной период для анализа", example = "1 месяц")
+    @Schema(description = "Временной период для анализа на русском или английском (1 месяц, 30 дней, 1 month, 1M)",
+            example = "1 месяц")
     @NotBlank(message = "Временной период не может быть пустым")
     private String timeframe;
 
+    @Schema(description = "Идентификаторы агентов для анализа (по умолчанию - все включенные)",
+            example = "[\"technical\", \"sentiment\"]")
+    private List<String> agents;
+
+    @Schema(description = "Режим кворума: не ждать агентов, ответ которых не может изменить итоговую рекомендацию",
+            example = "false")
+    private Boolean quorum;
+
+    @Schema(description = "Краткий режим: агенты отвечают несколькими предложениями, когда нужна только рекомендация",
+            example = "false")
+    private Boolean brief;
+
+    public CryptoAnalysisRequest(String cryptocurrency, String timeframe) {
+        this.cryptocurrency = cryptocurrency;
+        this.timeframe = timeframe;
+    }
+
 }
@@ -1,10 +1,12 @@
 package com.multiagent.model;
 
+import com.fasterxml.jackson.annotation.JsonView;
 import io.swagger.v3.oas.annotations.media.Schema;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.time.Instant;
 import java.util.List;
 
 @Data
@@ -13,15 +15,56 @@ import java.util.List;
 @Schema(description = "Ответ с результатами анализа криптовалюты")
 public class CryptoAnalysisResponse {
     @Schema(description = "Название проанализированной криптовалюты", example = "Bitcoin")
+    @JsonView(ResponseView.Compact.class)
     private String cryptocurrency;
     
+    @Schema(description = "Канонический временной период анализа", example = "1 месяц")
+    @JsonView(ResponseView.Compact.class)
+    private String timeframe;
+
     @Schema(description = "Список анализов от различных агентов")
+    @JsonView(ResponseView.Compact.class)
     private List<AgentAnalysis> agentAnalyses;
     
     @Schema(description = "Финальная рекомендация на основе всех анализов", example = "ПОКУПАТЬ")
+    @JsonView(ResponseView.Compact.class)
     private String finalRecommendation;
     
     @Schema(description = "Средняя уверенность в рекомендации", example = "0.85")
+    @JsonView(ResponseView.Compact.class)
     private double averageConfidence;
 
+    @Schema(description = "Решение модератора, если агенты разошлись во мнениях; отсутствует при согласии агентов")
+    @JsonView(ResponseView.Compact.class)
+    private AgentAnalysis moderatorAnalysis;
+
+    @Schema(description = "Длительность критического пути графа агентов в миллисекундах", example = "8200")
+    @JsonView(ResponseView.Full.class)
+    private long criticalPathMillis;
+
+    @Schema(description = "Агенты, образующие критический путь", example = "[\"Технический Аналитик\", \"Риск-Менеджер\"]")
+    @JsonView(ResponseView.Full.class)
+    private List<String> criticalPath;
+
+    @Schema(description = "Общее время выполнения анализа в миллисекундах", example = "8350")
+    @JsonView(ResponseView.Full.class)
+    private long executionMillis;
+
+    @Schema(description = "Агенты, пропущенные в режиме кворума", example = "[\"Аналитик Настроений\"]")
+    @JsonView(ResponseView.Compact.class)
+    private List<String> skippedAgents;
+
+    @Schema(description = "Время выполнения анализа; по нему определяется версия ответа (ETag)",
+            example = "2025-01-15T10:30:00Z")
+    @JsonView(ResponseView.Compact.class)
+    private Instant analyzedAt;
+
+    public CryptoAnalysisResponse(String cryptocurrency, List<AgentAnalysis> agentAnalyses,
+                                  String finalRecommendation, double averageConfidence) {
+        this.cryptocurrency = cryptocurrency;
+        this.agentAnalyses = agentAnalyses;
+        this.finalRecommendation = finalRecommendation;
+        this.averageConfidence = averageConfidence;
+    }
+
 }
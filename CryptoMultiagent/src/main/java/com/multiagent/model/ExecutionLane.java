@@ -0,0 +1,27 @@
+package com.multiagent.model;
+
+/**
+ * Полоса выполнения анализа. Интерактивные запросы клиентов и фоновые/пакетные задачи
+ * получают у каждого агента собственный резерв одновременных вызовов; свободная емкость
+ * делится между полосами, но интерактивная полоса всегда обслуживается первой.
+ * Порядок констант задает приоритет: чем раньше, тем выше.
+ */
+public enum ExecutionLane {
+
+    /**
+     * Запросы клиентов REST и унарного/потокового gRPC
+     */
+    INTERACTIVE,
+
+    /**
+     * Фоновый предрасчет и пакетный анализ gRPC
+     */
+    BULK;
+
+    /**
+     * Имя полосы в метриках
+     */
+    public String tag() {
+        return name().toLowerCase();
+    }
+}
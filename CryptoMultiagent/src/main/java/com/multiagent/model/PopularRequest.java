@@ -0,0 +1,18 @@
+package com.multiagent.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PopularRequest {
+
+    private String cryptocurrency;
+
+    private String timeframe;
+
+    private long estimatedCount;
+
+}
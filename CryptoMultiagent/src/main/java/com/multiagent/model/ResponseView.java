@@ -0,0 +1,48 @@
+package com.multiagent.model;
+
+import java.util.Locale;
+
+/**
+ * Представление ответа анализа, выбираемое параметром {@code view}.
+ * Классы-маркеры используются в {@link com.fasterxml.jackson.annotation.JsonView}.
+ */
+public enum ResponseView {
+
+    /**
+     * Только рекомендации и уверенность, без текстов анализа агентов
+     */
+    COMPACT(Compact.class),
+
+    /**
+     * Полный ответ, включая тексты анализа и метрики выполнения
+     */
+    FULL(Full.class);
+
+    private final Class<?> jsonView;
+
+    ResponseView(Class<?> jsonView) {
+        this.jsonView = jsonView;
+    }
+
+    public Class<?> getJsonView() {
+        return jsonView;
+    }
+
+    /**
+     * Разбирает значение параметра без учета регистра
+     *
+     * @throws IllegalArgumentException для неизвестного представления
+     */
+    public static ResponseView from(String value) {
+        if (value == null || value.isBlank()) {
+            return FULL;
+        }
+        return valueOf(value.trim().toUpperCase(Locale.ROOT));
+    }
+
+    public interface Compact {
+    }
+
+    public interface Full extends Compact {
+    }
+}
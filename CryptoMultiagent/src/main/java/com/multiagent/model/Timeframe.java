@@ -0,0 +1,166 @@
+package com.multiagent.model;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Канонические временные горизонты анализа.
+ * Клиенты задают период в свободной форме ("1 month", "30 дней", "месяц", "1M"),
+ * {@link #parse(String)} приводит его к ближайшему каноническому горизонту, чтобы
+ * одинаковые по смыслу запросы использовали один ключ кэша и один текст промпта.
+ */
+public enum Timeframe {
+
+    DAY("1 день", 1),
+    THREE_DAYS("3 дня", 3),
+    WEEK("1 неделя", 7),
+    TWO_WEEKS("2 недели", 14),
+    MONTH("1 месяц", 30),
+    QUARTER("3 месяца", 90),
+    HALF_YEAR("6 месяцев", 180),
+    YEAR("1 год", 365),
+    TWO_YEARS("2 года", 730);
+
+    // Периоды длиннее десяти лет не имеют смысла для анализа и считаются ошибкой
+    private static final double MAX_DAYS = 3650;
+
+    // Самый короткий горизонт - сутки; допуск учитывает округление при переводе часов в дни
+    private static final double MIN_DAYS = 1 - 1e-9;
+
+    // Компактная запись в стиле бирж: 1m - минута, 1M - месяц
+    private static final Pattern COMPACT = Pattern.compile("^(\\d+)\\s*([mhdwMy])$", Pattern.CASE_INSENSITIVE);
+
+    private static final Pattern VERBOSE = Pattern.compile("^(\\d+(?:[.,]\\d+)?)?\\s*(\\p{L}+)\\.?$");
+
+    // Префиксы единиц измерения и их длительность в днях; порядок важен для коротких префиксов
+    private static final Map<String, Double> UNIT_PREFIXES = new LinkedHashMap<>();
+
+    static {
+        UNIT_PREFIXES.put("полгода", 180.0);
+        UNIT_PREFIXES.put("мин", 1.0 / 1440);
+        UNIT_PREFIXES.put("minute", 1.0 / 1440);
+        UNIT_PREFIXES.put("min", 1.0 / 1440);
+        UNIT_PREFIXES.put("час", 1.0 / 24);
+        UNIT_PREFIXES.put("hour", 1.0 / 24);
+        UNIT_PREFIXES.put("hr", 1.0 / 24);
+        UNIT_PREFIXES.put("сут", 1.0);
+        UNIT_PREFIXES.put("ден", 1.0);
+        UNIT_PREFIXES.put("дн", 1.0);
+        UNIT_PREFIXES.put("day", 1.0);
+        UNIT_PREFIXES.put("нед", 7.0);
+        UNIT_PREFIXES.put("week", 7.0);
+        UNIT_PREFIXES.put("wk", 7.0);
+        UNIT_PREFIXES.put("квартал", 90.0);
+        UNIT_PREFIXES.put("quarter", 90.0);
+        UNIT_PREFIXES.put("мес", 30.0);
+        UNIT_PREFIXES.put("month", 30.0);
+        UNIT_PREFIXES.put("mo", 30.0);
+        UNIT_PREFIXES.put("год", 365.0);
+        UNIT_PREFIXES.put("лет", 365.0);
+        UNIT_PREFIXES.put("year", 365.0);
+        UNIT_PREFIXES.put("yr", 365.0);
+    }
+
+    private final String label;
+
+    private final int days;
+
+    Timeframe(String label, int days) {
+        this.label = label;
+        this.days = days;
+    }
+
+    /**
+     * Каноническое название периода, используемое в ключах кэша и промптах
+     */
+    public String getLabel() {
+        return label;
+    }
+
+    public int getDays() {
+        return days;
+    }
+
+    /**
+     * Разбирает период на русском или английском языке и возвращает ближайший канонический горизонт
+     *
+     * @throws IllegalArgumentException если период не удалось распознать или он короче суток
+     */
+    public static Timeframe parse(String value) {
+        if (value == null || value.isBlank()) {
+            throw unparseable(value);
+        }
+        double days = toDays(value.trim());
+        if (days <= 0 || days > MAX_DAYS) {
+            throw unparseable(value);
+        }
+        if (days < MIN_DAYS) {
+            // Минуты и часы нельзя молча подменять сутками: клиент получил бы анализ другого горизонта
+            throw new IllegalArgumentException("Временной период короче суток не поддерживается: '" + value
+                    + "'. Минимальный период анализа - 1 день");
+        }
+        return nearest(days);
+    }
+
+    /**
+     * Возвращает каноническое название периода
+     *
+     * @throws IllegalArgumentException если период не удалось распознать
+     */
+    public static String canonicalize(String value) {
+        return parse(value).getLabel();
+    }
+
+    private static double toDays(String value) {
+        Matcher compact = COMPACT.matcher(value);
+        if (compact.matches()) {
+            double amount = Double.parseDouble(compact.group(1));
+            return switch (compact.group(2)) {
+                case "m" -> amount / 1440;
+                case "M" -> amount * 30;
+                case "h", "H" -> amount / 24;
+                case "d", "D" -> amount;
+                case "w", "W" -> amount * 7;
+                default -> amount * 365;
+            };
+        }
+
+        Matcher verbose = VERBOSE.matcher(value.toLowerCase(Locale.ROOT).replaceAll("\\s+", " "));
+        if (!verbose.matches()) {
+            throw unparseable(value);
+        }
+        double amount = verbose.group(1) == null ? 1 : Double.parseDouble(verbose.group(1).replace(',', '.'));
+        String unit = verbose.group(2);
+        for (Map.Entry<String, Double> prefix : UNIT_PREFIXES.entrySet()) {
+            if (unit.startsWith(prefix.getKey())) {
+                return amount * prefix.getValue();
+            }
+        }
+        throw unparseable(value);
+    }
+
+    /**
+     * Ближайший горизонт выбирается по отношению длительностей, а не по разнице:
+     * 5 дней ближе к неделе, чем к трем дням, а 2 месяца - к кварталу
+     */
+    private static Timeframe nearest(double days) {
+        Timeframe best = DAY;
+        double bestDistance = Double.MAX_VALUE;
+        for (Timeframe timeframe : values()) {
+            double distance = Math.abs(Math.log(days / timeframe.days));
+            if (distance < bestDistance) {
+                best = timeframe;
+                bestDistance = distance;
+            }
+        }
+        return best;
+    }
+
+    private static IllegalArgumentException unparseable(String value) {
+        return new IllegalArgumentException("Не удалось распознать временной период: '" + value
+                + "'. Примеры допустимых значений: 1 неделя, 30 дней, 3 месяца, 1 month, 1M");
+    }
+}
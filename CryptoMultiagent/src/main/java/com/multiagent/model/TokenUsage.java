@@ -0,0 +1,36 @@
+package com.multiagent.model;
+
+import com.fasterxml.jackson.annotation.JsonView;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Расход токенов на вызов модели")
+public class TokenUsage {
+
+    @Schema(description = "Токены промпта", example = "420")
+    @JsonView(ResponseView.Full.class)
+    private long promptTokens;
+
+    @Schema(description = "Токены ответа модели", example = "310")
+    @JsonView(ResponseView.Full.class)
+    private long completionTokens;
+
+    @Schema(description = "Токены промпта, взятые провайдером из кэша префиксов", example = "380")
+    @JsonView(ResponseView.Full.class)
+    private long cachedTokens;
+
+    public TokenUsage(long promptTokens, long completionTokens) {
+        this(promptTokens, completionTokens, 0);
+    }
+
+    @Schema(description = "Всего токенов", example = "730")
+    @JsonView(ResponseView.Full.class)
+    public long getTotalTokens() {
+        return promptTokens + completionTokens;
+    }
+}
@@ -0,0 +1,31 @@
+package com.multiagent.model;
+
+import java.util.Map;
+
+/**
+ * Сводка расхода токенов для actuator-эндпоинта
+ *
+ * @param total   расход по всем агентам и криптовалютам
+ * @param byAgent расход по идентификатору агента
+ * @param byCoin  расход по криптовалюте и агенту
+ */
+public record TokenUsageReport(TokenStats total, Map<String, TokenStats> byAgent,
+                               Map<String, Map<String, TokenStats>> byCoin) {
+
+    /**
+     * @param calls            количество вызовов агента
+     * @param promptTokens     токены промптов
+     * @param completionTokens токены ответов модели
+     * @param cachedTokens     токены промптов, взятые провайдером из кэша префиксов
+     * @param totalTokens      всего токенов
+     */
+    public record TokenStats(long calls, long promptTokens, long completionTokens, long cachedTokens, long totalTokens) {
+
+        /**
+         * Доля токенов промпта, взятых из кэша провайдера
+         */
+        public double cachedRatio() {
+            return promptTokens == 0 ? 0 : (double) cachedTokens / promptTokens;
+        }
+    }
+}
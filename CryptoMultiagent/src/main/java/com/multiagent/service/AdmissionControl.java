@@ -0,0 +1,180 @@
+package com.multiagent.service;
+
+import com.multiagent.agent.AgentLoad;
+import com.multiagent.agent.AgentRegistry;
+import com.multiagent.agent.BaseAgent;
+import com.multiagent.config.AdmissionProperties;
+import com.multiagent.model.ExecutionLane;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Допуск анализов с учетом задержки. При промахе кэша оценивается, сколько займет анализ:
+ * очередь к каждому агенту делится на его лимит одновременных вызовов, и каждая "волна"
+ * вызовов впереди занимает сглаженную длительность вызова агента. Если оценка превышает время
+ * ожидания клиента, анализ отклоняется сразу ({@link AnalysisRejectedException}, 503) с
+ * Retry-After, через который очередь успеет сократиться, - вместо того чтобы занять агентов
+ * и все равно не успеть.
+ * <p>
+ * Очередь к агенту - большее из двух значений: вызовы, уже ожидающие агента или выполняющиеся
+ * (включая фоновый предрасчет), и допущенные анализы, которые еще не завершились. Второе
+ * учитывает всплеск запросов, которые допущены, но до агента еще не дошли. Оценка и резервирование
+ * места выполняются под одной блокировкой, поэтому одновременные запросы видят друг друга.
+ * <p>
+ * Очередь считается для полосы выполнения анализа: пакетные вызовы, ожидающие агента,
+ * не задерживают интерактивный запрос, и допущенные пакетные анализы для него не учитываются.
+ */
+@Slf4j
+@Component
+public class AdmissionControl {
+
+    private final AgentRegistry agentRegistry;
+
+    private final AdmissionProperties properties;
+
+    private final Map<String, AtomicInteger> reserved = new ConcurrentHashMap<>();
+
+    private final MeterRegistry meterRegistry;
+
+    private final Timer estimatedDelay;
+
+    private final Object admissionLock = new Object();
+
+    public AdmissionControl(AgentRegistry agentRegistry, AdmissionProperties properties, MeterRegistry meterRegistry) {
+        this.agentRegistry = agentRegistry;
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.estimatedDelay = Timer.builder("crypto.admission.estimated.duration")
+                .description("Оценка длительности анализа при допуске")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Допускает анализ или отклоняет его, если он не успеет завершиться вовремя
+     *
+     * @param parallel выполняются ли независимые агенты параллельно (асинхронный анализ)
+     * @param timeout  время ожидания клиента; null - значение по умолчанию
+     * @return допуск, который нужно закрыть по завершении анализа
+     * @throws AnalysisRejectedException если анализ по оценке не успеет завершиться
+     */
+    public Admission admit(List<BaseAgent> agents, boolean parallel, Duration timeout) {
+        return admit(agents, parallel, timeout, ExecutionLane.INTERACTIVE);
+    }
+
+    /**
+     * Допускает анализ в полосе выполнения или отклоняет его, если он не успеет завершиться вовремя
+     */
+    public Admission admit(List<BaseAgent> agents, boolean parallel, Duration timeout, ExecutionLane lane) {
+        if (!properties.isEnabled()) {
+            return Admission.NONE;
+        }
+        Duration deadline = timeout != null ? timeout : properties.getDefaultTimeout();
+        List<String> ids = agents.stream().map(BaseAgent::getId).toList();
+        Duration estimate;
+        boolean admitted;
+        synchronized (admissionLock) {
+            estimate = estimate(agents, parallel, lane);
+            admitted = estimate.compareTo(deadline) <= 0;
+            if (admitted) {
+                ids.forEach(id -> reserved.computeIfAbsent(reservationKey(id, lane), key -> new AtomicInteger()).incrementAndGet());
+            }
+        }
+        estimatedDelay.record(estimate);
+        if (!admitted) {
+            Duration retryAfter = Duration.ofSeconds(Math.max(1, (long) Math.ceil(
+                    estimate.minus(deadline).toMillis() / 1000.0)));
+            meterRegistry.counter("crypto.admission.decisions", "outcome", "rejected").increment();
+            log.debug("Анализ отклонен: оценка {} мс превышает время ожидания {} мс, повтор через {} с",
+                    estimate.toMillis(), deadline.toMillis(), retryAfter.toSeconds());
+            throw new AnalysisRejectedException("Сервис перегружен: анализ не успеет завершиться за "
+                    + deadline.toSeconds() + " с", retryAfter);
+        }
+        meterRegistry.counter("crypto.admission.decisions", "outcome", "admitted").increment();
+        return new Admission(() -> ids.forEach(id -> reserved.get(reservationKey(id, lane)).decrementAndGet()));
+    }
+
+    /**
+     * Оценка длительности анализа: последовательно - сумма по агентам, параллельно - самый
+     * длинный путь по зависимостям (агенты переданы в топологическом порядке)
+     */
+    public Duration estimate(List<BaseAgent> agents, boolean parallel) {
+        return estimate(agents, parallel, ExecutionLane.INTERACTIVE);
+    }
+
+    /**
+     * Оценка длительности анализа в полосе выполнения
+     */
+    public Duration estimate(List<BaseAgent> agents, boolean parallel, ExecutionLane lane) {
+        Map<String, Long> finishMillis = new HashMap<>();
+        long total = 0;
+        for (BaseAgent agent : agents) {
+            long duration = agentMillis(agent, lane);
+            if (parallel) {
+                long start = agent.getDependencies().stream()
+                        .mapToLong(dependency -> finishMillis.getOrDefault(dependency, 0L))
+                        .max()
+                        .orElse(0);
+                finishMillis.put(agent.getId(), start + duration);
+                total = Math.max(total, start + duration);
+            } else {
+                total += duration;
+            }
+        }
+        return Duration.ofMillis(total);
+    }
+
+    /**
+     * Ожидание очереди к агенту и собственный вызов
+     */
+    private long agentMillis(BaseAgent agent, ExecutionLane lane) {
+        AgentLoad load = agentRegistry.getLoad(agent, lane);
+        long latency = (load.latency() != null ? load.latency() : properties.getInitialLatency()).toMillis();
+        int admitted = 0;
+        for (ExecutionLane ahead : ExecutionLane.values()) {
+            if (ahead.ordinal() <= lane.ordinal()) {
+                AtomicInteger count = reserved.get(reservationKey(agent.getId(), ahead));
+                admitted += count == null ? 0 : count.get();
+            }
+        }
+        int ahead = Math.max(load.pending(), admitted);
+        long waves = ahead / Math.max(1, load.capacity());
+        return (waves + 1) * latency;
+    }
+
+    private static String reservationKey(String agentId, ExecutionLane lane) {
+        return agentId + "|" + lane.tag();
+    }
+
+    /**
+     * Допущенный анализ; закрытие освобождает его место в очереди к агентам
+     */
+    public static final class Admission implements AutoCloseable {
+
+        static final Admission NONE = new Admission(() -> { });
+
+        private final Runnable release;
+
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private Admission(Runnable release) {
+            this.release = release;
+        }
+
+        @Override
+        public void close() {
+            if (closed.compareAndSet(false, true)) {
+                release.run();
+            }
+        }
+    }
+}
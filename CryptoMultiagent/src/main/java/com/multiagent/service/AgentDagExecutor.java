@@ -0,0 +1,433 @@
+package com.multiagent.service;
+
+import com.multiagent.agent.AgentRegistry;
+import com.multiagent.agent.BaseAgent;
+import com.multiagent.config.LaneProperties;
+import com.multiagent.model.AgentAnalysis;
+import com.multiagent.model.AnalysisOptions;
+import com.multiagent.model.ExecutionLane;
+import io.micrometer.context.ContextSnapshot;
+import io.micrometer.context.ContextSnapshotFactory;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Выполняет агентов как ориентированный ациклический граф: независимые агенты
+ * запускаются параллельно, а зависимый агент стартует сразу после готовности своих входов.
+ * Для каждого запуска вычисляется критический путь - самая длинная цепочка зависимостей.
+ * В режиме кворума выполнение прекращается, как только условие остановки выполнено:
+ * оставшиеся агенты отменяются и возвращаются как пропущенные. Отмена не гарантирована:
+ * не запущенные агенты не стартуют, а уже начатый HTTP-запрос к модели прерыванием потока
+ * не останавливается и выполняется до конца, расходуя токены и удерживая разрешение полосы.
+ * Задачи агентов выполняются с контекстом вызывающего потока (текущий спан трассировки),
+ * поэтому спаны агентов остаются дочерними для спана анализа.
+ * Асинхронные вызовы пакетной полосы выполняются в отдельном ограниченном пуле и не занимают
+ * потоки общего пула, в котором выполняются интерактивные запросы.
+ */
+@Slf4j
+@Component
+public class AgentDagExecutor {
+
+    // Вес нового замера в скользящем среднем длительности агента
+    private static final double DURATION_SMOOTHING = 0.2;
+
+    private static final ContextSnapshotFactory CONTEXT_SNAPSHOTS = ContextSnapshotFactory.builder().build();
+
+    private final AgentRegistry agentRegistry;
+
+    // Скользящая средняя длительность агентов, используется для оценки сэкономленного времени
+    private final Map<String, Long> averageDurationNanos = new ConcurrentHashMap<>();
+
+    private final AtomicInteger threadCounter = new AtomicInteger();
+
+    // Отдельный пул для режима кворума: задачи общего пула нельзя прервать при отмене
+    private final ExecutorService quorumExecutor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "agent-quorum-" + threadCounter.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final ExecutorService bulkExecutor;
+
+    public AgentDagExecutor(AgentRegistry agentRegistry) {
+        this(agentRegistry, new LaneProperties());
+    }
+
+    @Autowired
+    public AgentDagExecutor(AgentRegistry agentRegistry, LaneProperties laneProperties) {
+        this.agentRegistry = agentRegistry;
+        this.bulkExecutor = Executors.newFixedThreadPool(Math.max(1, laneProperties.getBulkThreads()), runnable -> {
+            Thread thread = new Thread(runnable, "agent-bulk-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Последовательно выполняет агентов в топологическом порядке
+     *
+     * @param agents агенты в топологическом порядке (см. {@link AgentRegistry#resolve})
+     */
+    public DagResult executeSequentially(List<BaseAgent> agents, String cryptocurrency, String timeframe) {
+        return executeSequentially(agents, cryptocurrency, timeframe, completed -> false);
+    }
+
+    /**
+     * Последовательно выполняет агентов, прекращая выполнение после выполнения условия остановки
+     *
+     * @param decided условие остановки, проверяется по завершенным анализам (по идентификатору агента)
+     */
+    public DagResult executeSequentially(List<BaseAgent> agents, String cryptocurrency, String timeframe,
+                                         Predicate<Map<String, AgentAnalysis>> decided) {
+        return executeSequentially(agents, cryptocurrency, timeframe, AnalysisOptions.defaults(), decided);
+    }
+
+    /**
+     * Последовательно выполняет агентов с параметрами запроса (лимит токенов, краткий режим)
+     */
+    public DagResult executeSequentially(List<BaseAgent> agents, String cryptocurrency, String timeframe,
+                                         AnalysisOptions options, Predicate<Map<String, AgentAnalysis>> decided) {
+        long startedAt = System.nanoTime();
+        Map<String, NodeResult> results = new LinkedHashMap<>();
+        for (BaseAgent agent : agents) {
+            results.put(agent.getId(),
+                    runNode(agent, cryptocurrency, timeframe, options, collectInputs(agent, results), startedAt));
+            if (results.size() < agents.size() && decided.test(analysesById(results))) {
+                List<BaseAgent> skipped = agents.subList(results.size(), agents.size());
+                // Последовательно пропущенные агенты выполнялись бы друг за другом
+                long savedNanos = skipped.stream().mapToLong(this::averageDuration).sum();
+                return toResult(agents, results, startedAt, skipped, savedNanos);
+            }
+        }
+        return toResult(agents, results, startedAt);
+    }
+
+    /**
+     * Выполняет агентов параллельно с учетом зависимостей
+     *
+     * @param agents агенты в топологическом порядке (см. {@link AgentRegistry#resolve})
+     */
+    public CompletableFuture<DagResult> execute(List<BaseAgent> agents, String cryptocurrency, String timeframe) {
+        return execute(agents, cryptocurrency, timeframe, AnalysisOptions.defaults(), analysis -> { });
+    }
+
+    /**
+     * Выполняет агентов параллельно с учетом зависимостей, сообщая о каждом завершенном агенте
+     *
+     * @param options          параметры запроса, передаваемые агентам (лимит токенов, краткий режим)
+     * @param onAgentCompleted вызывается в потоке агента сразу после получения его анализа
+     */
+    public CompletableFuture<DagResult> execute(List<BaseAgent> agents, String cryptocurrency, String timeframe,
+                                                AnalysisOptions options, Consumer<AgentAnalysis> onAgentCompleted) {
+        long startedAt = System.nanoTime();
+        Map<String, CompletableFuture<NodeResult>> futures = new LinkedHashMap<>();
+        // Пул по умолчанию для async-методов CompletableFuture (для пакетной полосы - отдельный),
+        // с контекстом вызывающего потока
+        Executor executor = CONTEXT_SNAPSHOTS.captureAll().wrapExecutor(options.getLane() == ExecutionLane.BULK
+                ? bulkExecutor : new CompletableFuture<>().defaultExecutor());
+
+        for (BaseAgent agent : agents) {
+            List<CompletableFuture<NodeResult>> dependencies = agent.getDependencies().stream()
+                    .map(futures::get)
+                    .toList();
+
+            CompletableFuture<NodeResult> node = CompletableFuture
+                    .allOf(dependencies.toArray(CompletableFuture[]::new))
+                    .thenApplyAsync(v -> {
+                        Map<String, AgentAnalysis> inputs = new HashMap<>();
+                        for (String dependency : agent.getDependencies()) {
+                            inputs.put(dependency, futures.get(dependency).join().analysis());
+                        }
+                        log.debug("Запуск агента {} для криптовалюты: {}", agent.getName(), cryptocurrency);
+                        NodeResult result = runNode(agent, cryptocurrency, timeframe, options, inputs, startedAt);
+                        onAgentCompleted.accept(result.analysis());
+                        return result;
+                    }, executor);
+            futures.put(agent.getId(), node);
+        }
+
+        return CompletableFuture.allOf(futures.values().toArray(CompletableFuture[]::new))
+                .thenApply(v -> {
+                    Map<String, NodeResult> results = new LinkedHashMap<>();
+                    futures.forEach((id, future) -> results.put(id, future.join()));
+                    return toResult(agents, results, startedAt);
+                });
+    }
+
+    /**
+     * Выполняет агентов параллельно, проверяя условие остановки после завершения каждого агента.
+     * Когда условие выполнено, результат возвращается сразу, а не запущенные агенты не стартуют.
+     * Потоки выполняющихся вызовов прерываются, но запрос к модели, уже отправленный по HTTP,
+     * выполняется до конца: его токены расходуются, а разрешение полосы освобождается по завершении.
+     *
+     * @param decided условие остановки, проверяется по завершенным анализам (по идентификатору агента)
+     */
+    public CompletableFuture<DagResult> executeWithQuorum(List<BaseAgent> agents, String cryptocurrency, String timeframe,
+                                                          Predicate<Map<String, AgentAnalysis>> decided) {
+        return executeWithQuorum(agents, cryptocurrency, timeframe, AnalysisOptions.defaults(), decided, analysis -> { });
+    }
+
+    /**
+     * Выполняет агентов в режиме кворума, сообщая о каждом завершенном агенте.
+     * Об агентах, ответивших после достижения кворума, не сообщается.
+     *
+     * @param onAgentCompleted вызывается под блокировкой запуска, поэтому должен быть быстрым
+     */
+    public CompletableFuture<DagResult> executeWithQuorum(List<BaseAgent> agents, String cryptocurrency, String timeframe,
+                                                          AnalysisOptions options,
+                                                          Predicate<Map<String, AgentAnalysis>> decided,
+                                                          Consumer<AgentAnalysis> onAgentCompleted) {
+        return new QuorumRun(agents, cryptocurrency, timeframe, options, decided, onAgentCompleted).start();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        quorumExecutor.shutdownNow();
+        bulkExecutor.shutdownNow();
+    }
+
+    private NodeResult runNode(BaseAgent agent, String cryptocurrency, String timeframe, AnalysisOptions options,
+                               Map<String, AgentAnalysis> inputs, long startedAt) {
+        long nodeStart = System.nanoTime();
+        AgentAnalysis analysis = agentRegistry.invoke(agent, cryptocurrency, timeframe, inputs, options);
+        long nodeEnd = System.nanoTime();
+        averageDurationNanos.merge(agent.getId(), nodeEnd - nodeStart, (average, duration) ->
+                Math.round(average * (1 - DURATION_SMOOTHING) + duration * DURATION_SMOOTHING));
+        return new NodeResult(analysis, nodeStart - startedAt, nodeEnd - startedAt);
+    }
+
+    private long averageDuration(BaseAgent agent) {
+        return averageDurationNanos.getOrDefault(agent.getId(), 0L);
+    }
+
+    private static Map<String, AgentAnalysis> analysesById(Map<String, NodeResult> results) {
+        Map<String, AgentAnalysis> analyses = new LinkedHashMap<>();
+        results.forEach((id, node) -> analyses.put(id, node.analysis()));
+        return analyses;
+    }
+
+    private Map<String, AgentAnalysis> collectInputs(BaseAgent agent, Map<String, NodeResult> results) {
+        Map<String, AgentAnalysis> inputs = new HashMap<>();
+        for (String dependency : agent.getDependencies()) {
+            inputs.put(dependency, results.get(dependency).analysis());
+        }
+        return inputs;
+    }
+
+    /**
+     * Критический путь считается по длительностям узлов: стоимость узла равна его
+     * длительности плюс максимальная стоимость среди его зависимостей. Так оценка
+     * одинаково применима к последовательному и параллельному режимам.
+     */
+    private DagResult toResult(List<BaseAgent> agents, Map<String, NodeResult> results, long startedAt) {
+        return toResult(agents, results, startedAt, List.of(), 0);
+    }
+
+    private DagResult toResult(List<BaseAgent> allAgents, Map<String, NodeResult> results, long startedAt,
+                               List<BaseAgent> skippedAgents, long savedNanos) {
+        List<BaseAgent> agents = allAgents.stream()
+                .filter(agent -> results.containsKey(agent.getId()))
+                .toList();
+        Map<String, Long> pathCost = new HashMap<>();
+        Map<String, String> predecessor = new HashMap<>();
+        String last = null;
+
+        for (BaseAgent agent : agents) {
+            NodeResult node = results.get(agent.getId());
+            long best = 0;
+            for (String dependency : agent.getDependencies()) {
+                long cost = pathCost.get(dependency);
+                if (cost > best) {
+                    best = cost;
+                    predecessor.put(agent.getId(), dependency);
+                }
+            }
+            long cost = best + node.durationNanos();
+            pathCost.put(agent.getId(), cost);
+            if (last == null || cost > pathCost.get(last)) {
+                last = agent.getId();
+            }
+        }
+
+        List<String> criticalPath = new ArrayList<>();
+        for (String id = last; id != null; id = predecessor.get(id)) {
+            criticalPath.add(results.get(id).analysis().getAgentName());
+        }
+        Collections.reverse(criticalPath);
+
+        List<AgentAnalysis> analyses = agents.stream()
+                .map(agent -> results.get(agent.getId()).analysis())
+                .toList();
+        long criticalPathMillis = last == null ? 0 : TimeUnit.NANOSECONDS.toMillis(pathCost.get(last));
+        long executionMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+
+        List<String> skipped = skippedAgents.stream().map(BaseAgent::getName).toList();
+        long savedMillis = TimeUnit.NANOSECONDS.toMillis(savedNanos);
+
+        log.debug("Критический путь: {} ({} мс), общее время: {} мс", criticalPath, criticalPathMillis, executionMillis);
+        if (!skipped.isEmpty()) {
+            log.debug("Кворум достигнут, пропущены агенты: {}, сэкономлено около {} мс", skipped, savedMillis);
+        }
+        return new DagResult(analyses, criticalPath, criticalPathMillis, executionMillis, skipped, savedMillis);
+    }
+
+    /**
+     * Состояние одного запуска в режиме кворума. Все изменения состояния выполняются
+     * под монитором объекта, вызовы агентов - в пуле без блокировки.
+     */
+    private final class QuorumRun {
+
+        private final List<BaseAgent> agents;
+
+        private final String cryptocurrency;
+
+        private final String timeframe;
+
+        private final AnalysisOptions options;
+
+        private final Predicate<Map<String, AgentAnalysis>> decided;
+
+        private final Consumer<AgentAnalysis> onAgentCompleted;
+
+        private final long startedAt = System.nanoTime();
+
+        private final ContextSnapshot context = CONTEXT_SNAPSHOTS.captureAll();
+
+        private final Map<String, NodeResult> results = new LinkedHashMap<>();
+
+        private final Map<String, Future<?>> running = new HashMap<>();
+
+        private final Map<String, Long> launchedAt = new HashMap<>();
+
+        private final CompletableFuture<DagResult> outcome = new CompletableFuture<>();
+
+        QuorumRun(List<BaseAgent> agents, String cryptocurrency, String timeframe, AnalysisOptions options,
+                  Predicate<Map<String, AgentAnalysis>> decided, Consumer<AgentAnalysis> onAgentCompleted) {
+            this.agents = agents;
+            this.cryptocurrency = cryptocurrency;
+            this.timeframe = timeframe;
+            this.options = options;
+            this.decided = decided;
+            this.onAgentCompleted = onAgentCompleted;
+        }
+
+        synchronized CompletableFuture<DagResult> start() {
+            if (agents.isEmpty()) {
+                outcome.complete(toResult(agents, results, startedAt));
+            } else {
+                launchReady();
+            }
+            return outcome;
+        }
+
+        private void launchReady() {
+            for (BaseAgent agent : agents) {
+                String id = agent.getId();
+                if (!results.containsKey(id) && !running.containsKey(id)
+                        && results.keySet().containsAll(agent.getDependencies())) {
+                    Map<String, AgentAnalysis> inputs = collectInputs(agent, results);
+                    launchedAt.put(id, System.nanoTime());
+                    running.put(id, quorumExecutor.submit(context.wrap(() -> run(agent, inputs))));
+                }
+            }
+        }
+
+        private void run(BaseAgent agent, Map<String, AgentAnalysis> inputs) {
+            log.debug("Запуск агента {} для криптовалюты: {}", agent.getName(), cryptocurrency);
+            try {
+                onCompleted(agent, runNode(agent, cryptocurrency, timeframe, options, inputs, startedAt));
+            } catch (RuntimeException e) {
+                onFailed(e);
+            }
+        }
+
+        private synchronized void onCompleted(BaseAgent agent, NodeResult node) {
+            if (outcome.isDone()) {
+                // Ответ пришел после отмены - результат уже сформирован
+                return;
+            }
+            running.remove(agent.getId());
+            results.put(agent.getId(), node);
+            onAgentCompleted.accept(node.analysis());
+
+            if (results.size() == agents.size()) {
+                outcome.complete(toResult(agents, results, startedAt));
+                return;
+            }
+            if (decided.test(analysesById(results))) {
+                List<BaseAgent> skipped = agents.stream()
+                        .filter(candidate -> !results.containsKey(candidate.getId()))
+                        .toList();
+                long savedNanos = estimateSavedNanos(skipped);
+                // Прерывание только снимает ожидание: начатый HTTP-запрос к модели не отменяется
+                running.values().forEach(future -> future.cancel(true));
+                outcome.complete(toResult(agents, results, startedAt, skipped, savedNanos));
+                return;
+            }
+            launchReady();
+        }
+
+        private synchronized void onFailed(RuntimeException e) {
+            if (!outcome.isDone()) {
+                running.values().forEach(future -> future.cancel(true));
+                outcome.completeExceptionally(e);
+            }
+        }
+
+        /**
+         * Пропущенные агенты выполнялись бы параллельно, поэтому экономия оценивается
+         * по самому долгому из них с учетом уже прошедшего с его запуска времени
+         */
+        private long estimateSavedNanos(List<BaseAgent> skipped) {
+            long now = System.nanoTime();
+            long saved = 0;
+            for (BaseAgent agent : skipped) {
+                Long launched = launchedAt.get(agent.getId());
+                long elapsed = launched == null ? 0 : now - launched;
+                saved = Math.max(saved, averageDuration(agent) - elapsed);
+            }
+            return Math.max(0, saved);
+        }
+    }
+
+    private record NodeResult(AgentAnalysis analysis, long startNanos, long endNanos) {
+
+        long durationNanos() {
+            return endNanos - startNanos;
+        }
+    }
+
+    /**
+     * Результат выполнения графа агентов
+     *
+     * @param analyses           анализы в топологическом порядке агентов
+     * @param criticalPath       названия агентов на критическом пути
+     * @param criticalPathMillis длительность критического пути
+     * @param executionMillis    фактическое время выполнения графа
+     * @param skippedAgents      названия агентов, пропущенных после достижения кворума
+     * @param savedMillis        оценка сэкономленного за счет пропуска агентов времени
+     */
+    public record DagResult(List<AgentAnalysis> analyses, List<String> criticalPath,
+                            long criticalPathMillis, long executionMillis,
+                            List<String> skippedAgents, long savedMillis) {
+    }
+}
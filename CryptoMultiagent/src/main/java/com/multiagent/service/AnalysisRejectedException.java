@@ -0,0 +1,25 @@
+package com.multiagent.service;
+
+import java.time.Duration;
+
+/**
+ * Анализ не принят к выполнению: сервис останавливается или перегружен.
+ * Клиенту возвращается 503 с заголовком Retry-After, запрос можно повторить
+ * позже или на другой реплике.
+ */
+public class AnalysisRejectedException extends RuntimeException {
+
+    private final Duration retryAfter;
+
+    public AnalysisRejectedException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+
+    /**
+     * Через сколько времени имеет смысл повторить запрос
+     */
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
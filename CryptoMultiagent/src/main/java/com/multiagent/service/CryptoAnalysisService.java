@@ -1,19 +1,43 @@
 package com.multiagent.service;
 
+import com.multiagent.agent.AgentRegistry;
+import com.multiagent.agent.BaseAgent;
+import com.multiagent.agent.ModeratorAgent;
+import com.multiagent.backtest.RecommendationJournal;
+import com.multiagent.cache.AnalysisCache;
+import com.multiagent.cache.SemanticAnalysisCache;
+import com.multiagent.cluster.ClusterRouter;
+import com.multiagent.cluster.OwnerRejectedException;
+import com.multiagent.config.ModeratorProperties;
+import com.multiagent.lifecycle.AnalysisDrainer;
 import com.multiagent.model.AgentAnalysis;
+import com.multiagent.model.AnalysisOptions;
 import com.multiagent.model.CryptoAnalysisResponse;
-import com.multiagent.agent.FundamentalAnalysisAgent;
-import com.multiagent.agent.SentimentAnalysisAgent;
-import com.multiagent.agent.TechnicalAnalysisAgent;
+import com.multiagent.model.Timeframe;
+import com.multiagent.service.AgentDagExecutor.DagResult;
+import com.multiagent.tracing.AnalysisObservations;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 
-import java.util.Arrays;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -21,79 +45,320 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class CryptoAnalysisService {
 
-    private final TechnicalAnalysisAgent technicalAgent;
+    private final AgentRegistry agentRegistry;
 
-    private final FundamentalAnalysisAgent fundamentalAgent;
+    private final AnalysisCache analysisCache;
 
-    private final SentimentAnalysisAgent sentimentAgent;
+    private final SemanticAnalysisCache semanticCache;
+
+    private final AgentDagExecutor dagExecutor;
+
+    private final RecommendationAggregator recommendationAggregator;
+
+    private final ModeratorAgent moderatorAgent;
+
+    private final ModeratorProperties moderatorProperties;
+
+    private final TokenUsageTracker tokenUsageTracker;
+
+    private final MeterRegistry meterRegistry;
+
+    private final ObservationRegistry observationRegistry;
+
+    private final ClusterRouter clusterRouter;
+
+    private final AnalysisDrainer analysisDrainer;
+
+    private final AdmissionControl admissionControl;
+
+    private final RecommendationJournal recommendationJournal;
 
     public CryptoAnalysisResponse analyzeCryptocurrency(String cryptocurrency, String timeframe) {
+        return analyzeCryptocurrency(cryptocurrency, timeframe, AnalysisOptions.defaults());
+    }
+
+    /**
+     * @throws IllegalArgumentException если временной период не удалось распознать
+     */
+    public CryptoAnalysisResponse analyzeCryptocurrency(String cryptocurrency, String timeframe, AnalysisOptions options) {
+        return analyze(cryptocurrency, timeframe, options, true);
+    }
+
+    /**
+     * Анализ по запросу другой реплики: эта реплика - владелец криптовалюты,
+     * поэтому при промахе кэша анализ выполняется здесь без повторной передачи
+     */
+    public CryptoAnalysisResponse analyzeAsOwner(String cryptocurrency, String timeframe, AnalysisOptions options) {
+        return analyze(cryptocurrency, timeframe, options, false);
+    }
+
+    private CryptoAnalysisResponse analyze(String cryptocurrency, String timeframe, AnalysisOptions options,
+                                           boolean route) {
+        Observation observation = analysisObservation(cryptocurrency, timeframe, route ? "sync" : "owner");
+        return observation.observe(() -> analysisDrainer.run(() -> {
+            String canonicalTimeframe = Timeframe.canonicalize(timeframe);
+            List<BaseAgent> agents = agentRegistry.resolve(options.getAgents());
+            CryptoAnalysisResponse response = analysisCache.getOrCompute(
+                    cacheKey(cryptocurrency, canonicalTimeframe, options),
+                    () -> route
+                            ? routeOrCompute(cryptocurrency, canonicalTimeframe, options,
+                                    () -> semanticOrCompute(cryptocurrency, canonicalTimeframe + options.cacheKeySuffix(),
+                                            () -> runAdmittedAnalysis(cryptocurrency, canonicalTimeframe, agents, options)))
+                            : semanticOrCompute(cryptocurrency, canonicalTimeframe + options.cacheKeySuffix(),
+                                    () -> runAdmittedAnalysis(cryptocurrency, canonicalTimeframe, agents, options))
+            );
+            observation.highCardinalityKeyValue(AnalysisObservations.RECOMMENDATION, response.getFinalRecommendation());
+            return response;
+        }));
+    }
+
+    /**
+     * Пересчитывает анализ в обход кэша и сохраняет свежий результат.
+     * Используется фоновым предрасчетом популярных криптовалют, поэтому выполняется в пакетной полосе.
+     */
+    public CryptoAnalysisResponse refreshCryptocurrency(String cryptocurrency, String timeframe) {
+        log.debug("Обновление анализа в кэше для криптовалюты: {} с временным интервалом: {}", cryptocurrency, timeframe);
+        return analysisObservation(cryptocurrency, timeframe, "refresh").observe(() -> analysisDrainer.run(() -> {
+            String canonicalTimeframe = Timeframe.canonicalize(timeframe);
+            List<BaseAgent> agents = agentRegistry.resolve(null);
+            CryptoAnalysisResponse response = analysisCache.refresh(
+                    AnalysisCache.key(cryptocurrency, canonicalTimeframe),
+                    () -> runSynchronousAnalysis(cryptocurrency, canonicalTimeframe, agents,
+                            AnalysisOptions.background())
+            );
+            semanticCache.store(cryptocurrency, canonicalTimeframe, response);
+            return response;
+        }));
+    }
+
+    /**
+     * Синхронный анализ запроса клиента: перед запуском агентов проверяется, успеет ли он завершиться
+     */
+    private CryptoAnalysisResponse runAdmittedAnalysis(String cryptocurrency, String timeframe, List<BaseAgent> agents,
+                                                       AnalysisOptions options) {
+        try (AdmissionControl.Admission admission = admissionControl.admit(agents, false, options.getTimeout(),
+                options.getLane())) {
+            return runSynchronousAnalysis(cryptocurrency, timeframe, agents, options);
+        }
+    }
+
+    private CryptoAnalysisResponse runSynchronousAnalysis(String cryptocurrency, String timeframe, List<BaseAgent> agents,
+                                                          AnalysisOptions options) {
         log.info("Начинаю синхронный анализ криптовалюты: {} с временным интервалом: {}", cryptocurrency, timeframe);
-        
-        // Получаем анализы от всех агентов синхронно
-        List<AgentAnalysis> analyses = Arrays.asList(
-                technicalAgent.analyze(cryptocurrency, timeframe),
-                fundamentalAgent.analyze(cryptocurrency, timeframe),
-                sentimentAgent.analyze(cryptocurrency, timeframe)
-        );
+
+        // Получаем анализы от выбранных агентов последовательно в порядке зависимостей
+        DagResult result = dagExecutor.executeSequentially(agents, cryptocurrency, timeframe, options,
+                quorumCondition(agents, options));
+        recordQuorumMetrics(result, options);
+        recordTokenUsage(cryptocurrency, agents, result.analyses());
 
         log.debug("Получены анализы от всех агентов для криптовалюты: {}", cryptocurrency);
-        analyses.forEach(analysis -> 
-            log.debug("Агент: {}, Рекомендация: {}, Уверенность: {}", 
+        result.analyses().forEach(analysis ->
+            log.debug("Агент: {}, Рекомендация: {}, Уверенность: {}",
                 analysis.getAgentName(), analysis.getRecommendation(), analysis.getConfidence()));
 
-        CryptoAnalysisResponse response = buildResponse(cryptocurrency, analyses);
-        log.info("Синхронный анализ завершен для криптовалюты: {}, финальная рекомендация: {}, средняя уверенность: {}", 
+        CryptoAnalysisResponse response = buildResponse(cryptocurrency, timeframe, result, agents);
+        moderateIfContested(response, timeframe, agents, options);
+        if (options.isJournaled()) {
+            recommendationJournal.record(response);
+        }
+        log.info("Синхронный анализ завершен для криптовалюты: {}, финальная рекомендация: {}, средняя уверенность: {}",
                 cryptocurrency, response.getFinalRecommendation(), response.getAverageConfidence());
-        
+
         return response;
     }
 
     @Async
     public CompletableFuture<CryptoAnalysisResponse> analyzeCryptocurrencyAsync(String cryptocurrency, String timeframe) {
-        log.info("Начинаю асинхронный анализ криптовалюты: {} с временным интервалом: {}", cryptocurrency, timeframe);
-        
-        // Выполняем анализы параллельно для лучшей производительности
-        CompletableFuture<AgentAnalysis> technicalFuture = CompletableFuture.supplyAsync(() -> {
-            log.debug("Запуск технического анализа для криптовалюты: {}", cryptocurrency);
-            return technicalAgent.analyze(cryptocurrency, timeframe);
+        return analyzeCryptocurrencyAsync(cryptocurrency, timeframe, AnalysisOptions.defaults());
+    }
+
+    @Async
+    public CompletableFuture<CryptoAnalysisResponse> analyzeCryptocurrencyAsync(String cryptocurrency, String timeframe,
+                                                                                AnalysisOptions options) {
+        return analyzeCryptocurrencyAsync(cryptocurrency, timeframe, options, analysis -> { });
+    }
+
+    /**
+     * Асинхронный анализ с уведомлением о каждом агенте по мере готовности его анализа.
+     * Если ответ взят из кэша или запрос присоединился к уже выполняющемуся анализу,
+     * уведомления о всех агентах приходят перед завершением результата.
+     * Каждый агент сообщается не более одного раза.
+     *
+     * Спан анализа завершается вместе с результатом, а не при выходе из метода.
+     * При остановке приложения анализ не принимается ({@link AnalysisRejectedException}).
+     *
+     * @param onAgentCompleted вызывается в потоке агента, поэтому должен быть быстрым
+     */
+    @Async
+    public CompletableFuture<CryptoAnalysisResponse> analyzeCryptocurrencyAsync(String cryptocurrency, String timeframe,
+                                                                                AnalysisOptions options,
+                                                                                Consumer<AgentAnalysis> onAgentCompleted) {
+        Observation observation = analysisObservation(cryptocurrency, timeframe, "async").start();
+        try (Observation.Scope scope = observation.openScope()) {
+            return analysisDrainer.track(() -> startAsynchronousAnalysis(cryptocurrency, timeframe, options, onAgentCompleted))
+                    .whenComplete((response, error) -> {
+                        if (error != null) {
+                            observation.error(error);
+                        } else {
+                            observation.highCardinalityKeyValue(
+                                    AnalysisObservations.RECOMMENDATION, response.getFinalRecommendation());
+                        }
+                        observation.stop();
+                    });
+        } catch (RuntimeException e) {
+            observation.error(e);
+            observation.stop();
+            throw e;
+        }
+    }
+
+    private CompletableFuture<CryptoAnalysisResponse> startAsynchronousAnalysis(String cryptocurrency, String timeframe,
+                                                                               AnalysisOptions options,
+                                                                               Consumer<AgentAnalysis> onAgentCompleted) {
+        String canonicalTimeframe = Timeframe.canonicalize(timeframe);
+        List<BaseAgent> agents = agentRegistry.resolve(options.getAgents());
+        Set<String> reported = new HashSet<>();
+        Consumer<AgentAnalysis> reportOnce = analysis -> {
+            synchronized (reported) {
+                if (!reported.add(analysis.getAgentName())) {
+                    return;
+                }
+            }
+            onAgentCompleted.accept(analysis);
+        };
+        return analysisCache.getOrComputeAsync(
+                cacheKey(cryptocurrency, canonicalTimeframe, options),
+                () -> routeOrComputeAsync(cryptocurrency, canonicalTimeframe, options,
+                        () -> semanticOrComputeAsync(cryptocurrency, canonicalTimeframe + options.cacheKeySuffix(),
+                                () -> runAsynchronousAnalysis(cryptocurrency, canonicalTimeframe, agents, options, reportOnce)))
+        ).thenApply(response -> {
+            response.getAgentAnalyses().forEach(reportOnce);
+            return response;
         });
+    }
+
+    /**
+     * При промахе кэша передает анализ реплике-владельцу криптовалюты, если это другая реплика.
+     * Если владелец недоступен, анализ выполняется локально; отказ перегруженного владельца
+     * передается клиенту как {@link AnalysisRejectedException}.
+     */
+    private CryptoAnalysisResponse routeOrCompute(String cryptocurrency, String timeframe, AnalysisOptions options,
+                                                  Supplier<CryptoAnalysisResponse> loader) {
+        try {
+            return clusterRouter.remoteOwner(cryptocurrency)
+                    .flatMap(owner -> clusterRouter.forward(owner, cryptocurrency, timeframe, options))
+                    .orElseGet(loader);
+        } catch (OwnerRejectedException e) {
+            throw new AnalysisRejectedException(e.getMessage(), e.getRetryAfter());
+        }
+    }
 
-        CompletableFuture<AgentAnalysis> fundamentalFuture = CompletableFuture.supplyAsync(() -> {
-            log.debug("Запуск фундаментального анализа для криптовалюты: {}", cryptocurrency);
-            return fundamentalAgent.analyze(cryptocurrency, timeframe);
+    private CompletableFuture<CryptoAnalysisResponse> routeOrComputeAsync(
+            String cryptocurrency, String timeframe, AnalysisOptions options,
+            Supplier<CompletableFuture<CryptoAnalysisResponse>> loader) {
+        Optional<String> owner = clusterRouter.remoteOwner(cryptocurrency);
+        if (owner.isEmpty()) {
+            return loader.get();
+        }
+        return clusterRouter.forwardAsync(owner.get(), cryptocurrency, timeframe, options)
+                .exceptionally(error -> {
+                    Throwable cause = error instanceof CompletionException && error.getCause() != null
+                            ? error.getCause() : error;
+                    if (cause instanceof OwnerRejectedException rejected) {
+                        throw new AnalysisRejectedException(rejected.getMessage(), rejected.getRetryAfter());
+                    }
+                    throw error instanceof CompletionException completion ? completion : new CompletionException(error);
+                })
+                .thenCompose(response -> response.map(CompletableFuture::completedFuture).orElseGet(loader));
+    }
+
+    /**
+     * Перед запуском агентов проверяет семантический кэш: близкий по смыслу запрос
+     * (например, "BTC" вместо "Bitcoin") мог быть выполнен ранее
+     */
+    private CryptoAnalysisResponse semanticOrCompute(String cryptocurrency, String partition,
+                                                     Supplier<CryptoAnalysisResponse> loader) {
+        return semanticCache.lookup(cryptocurrency, partition).orElseGet(() -> {
+            CryptoAnalysisResponse response = loader.get();
+            semanticCache.store(cryptocurrency, partition, response);
+            return response;
         });
+    }
 
-        CompletableFuture<AgentAnalysis> sentimentFuture = CompletableFuture.supplyAsync(() -> {
-            log.debug("Запуск анализа настроений для криптовалюты: {}", cryptocurrency);
-            return sentimentAgent.analyze(cryptocurrency, timeframe);
+    private CompletableFuture<CryptoAnalysisResponse> semanticOrComputeAsync(
+            String cryptocurrency, String partition, Supplier<CompletableFuture<CryptoAnalysisResponse>> loader) {
+        Optional<CryptoAnalysisResponse> cached = semanticCache.lookup(cryptocurrency, partition);
+        if (cached.isPresent()) {
+            return CompletableFuture.completedFuture(cached.get());
+        }
+        return loader.get().thenApply(response -> {
+            semanticCache.store(cryptocurrency, partition, response);
+            return response;
         });
+    }
 
-        // Ждем завершения всех анализов
-        return CompletableFuture.allOf(technicalFuture, fundamentalFuture, sentimentFuture)
-                .thenApply(v -> {
-                    List<AgentAnalysis> analyses = Arrays.asList(
-                            technicalFuture.join(),
-                            fundamentalFuture.join(),
-                            sentimentFuture.join()
-                    );
-                    
+    private CompletableFuture<CryptoAnalysisResponse> runAsynchronousAnalysis(String cryptocurrency, String timeframe,
+                                                                              List<BaseAgent> agents, AnalysisOptions options,
+                                                                              Consumer<AgentAnalysis> onAgentCompleted) {
+        AdmissionControl.Admission admission = admissionControl.admit(agents, true, options.getTimeout(),
+                options.getLane());
+        log.info("Начинаю асинхронный анализ криптовалюты: {} с временным интервалом: {}", cryptocurrency, timeframe);
+
+        // Независимые агенты выполняются параллельно, зависимые - по готовности входов
+        CompletableFuture<DagResult> execution;
+        try {
+            execution = options.isQuorum()
+                    ? dagExecutor.executeWithQuorum(agents, cryptocurrency, timeframe, options,
+                            quorumCondition(agents, options), onAgentCompleted)
+                    : dagExecutor.execute(agents, cryptocurrency, timeframe, options, onAgentCompleted);
+        } catch (RuntimeException e) {
+            admission.close();
+            throw e;
+        }
+        execution.whenComplete((result, error) -> admission.close());
+        return execution
+                .thenApply(result -> {
+                    recordQuorumMetrics(result, options);
+                    recordTokenUsage(cryptocurrency, agents, result.analyses());
                     log.debug("Все асинхронные анализы завершены для криптовалюты: {}", cryptocurrency);
-                    analyses.forEach(analysis -> 
-                        log.debug("Агент: {}, Рекомендация: {}, Уверенность: {}", 
+                    result.analyses().forEach(analysis ->
+                        log.debug("Агент: {}, Рекомендация: {}, Уверенность: {}",
                             analysis.getAgentName(), analysis.getRecommendation(), analysis.getConfidence()));
 
-                    CryptoAnalysisResponse response = buildResponse(cryptocurrency, analyses);
-                    log.info("Асинхронный анализ завершен для криптовалюты: {}, финальная рекомендация: {}, средняя уверенность: {}", 
+                    CryptoAnalysisResponse response = buildResponse(cryptocurrency, timeframe, result, agents);
+                    moderateIfContested(response, timeframe, agents, options);
+                    if (options.isJournaled()) {
+                        recommendationJournal.record(response);
+                    }
+                    log.info("Асинхронный анализ завершен для криптовалюты: {}, финальная рекомендация: {}, средняя уверенность: {}",
                             cryptocurrency, response.getFinalRecommendation(), response.getAverageConfidence());
-                    
+
                     return response;
                 });
     }
 
-    private CryptoAnalysisResponse buildResponse(String cryptocurrency, List<AgentAnalysis> analyses) {
+    /**
+     * Спан анализа одной криптовалюты: от обращения к кэшу до итоговой рекомендации
+     *
+     * @param mode sync, async, owner (запрос другой реплики) или refresh (фоновый предрасчет)
+     */
+    private Observation analysisObservation(String cryptocurrency, String timeframe, String mode) {
+        return Observation.createNotStarted(AnalysisObservations.ANALYSIS, observationRegistry)
+                .lowCardinalityKeyValue(AnalysisObservations.MODE, mode)
+                .highCardinalityKeyValue(AnalysisObservations.COIN, cryptocurrency)
+                .highCardinalityKeyValue(AnalysisObservations.TIMEFRAME, timeframe);
+    }
+
+    private String cacheKey(String cryptocurrency, String timeframe, AnalysisOptions options) {
+        return AnalysisCache.key(cryptocurrency, timeframe) + options.cacheKeySuffix();
+    }
+
+    private CryptoAnalysisResponse buildResponse(String cryptocurrency, String timeframe, DagResult result,
+                                                 List<BaseAgent> agents) {
         log.debug("Формирование ответа для криптовалюты: {}", cryptocurrency);
-        
+        List<AgentAnalysis> analyses = result.analyses();
+
         // Вычисляем среднюю уверенность
         double averageConfidence = analyses.stream()
                 .mapToDouble(AgentAnalysis::getConfidence)
@@ -103,55 +368,116 @@ public class CryptoAnalysisService {
         log.debug("Средняя уверенность агентов: {}", averageConfidence);
 
         // Определяем финальную рекомендацию на основе мнений агентов
-        String finalRecommendation = determineFinalRecommendation(analyses);
+        String finalRecommendation = recommendationAggregator.determineFinalRecommendation(
+                analyses, weightsByAgentName(agents));
         log.debug("Финальная рекомендация: {}", finalRecommendation);
 
-        return new CryptoAnalysisResponse(cryptocurrency, analyses, finalRecommendation, averageConfidence);
+        CryptoAnalysisResponse response = new CryptoAnalysisResponse(
+                cryptocurrency, analyses, finalRecommendation, averageConfidence);
+        response.setTimeframe(timeframe);
+        response.setCriticalPath(result.criticalPath());
+        response.setCriticalPathMillis(result.criticalPathMillis());
+        response.setExecutionMillis(result.executionMillis());
+        response.setSkippedAgents(result.skippedAgents());
+        response.setAnalyzedAt(Instant.now());
+        return response;
     }
 
-    private String determineFinalRecommendation(List<AgentAnalysis> analyses) {
-        log.debug("Определение финальной рекомендации на основе {} анализов", analyses.size());
-        
-        // Подсчитываем рекомендации с учетом уверенности
-        Map<String, Double> weightedRecommendations = analyses.stream()
-                .collect(Collectors.groupingBy(
-                        AgentAnalysis::getRecommendation,
-                        Collectors.summingDouble(AgentAnalysis::getConfidence)
-                ));
+    /**
+     * Условие остановки для режима кворума: финальная рекомендация не может измениться
+     * при любых ответах агентов, которые еще не ответили
+     */
+    private Predicate<Map<String, AgentAnalysis>> quorumCondition(List<BaseAgent> agents, AnalysisOptions options) {
+        if (!options.isQuorum()) {
+            return completed -> false;
+        }
+        Map<String, Double> weights = weightsByAgentName(agents);
+        return completed -> {
+            List<BaseAgent> remaining = agents.stream()
+                    .filter(agent -> !completed.containsKey(agent.getId()))
+                    .toList();
+            double remainingWeight = remaining.stream().mapToDouble(agentRegistry::getWeight).sum();
+            return recommendationAggregator.isDecided(
+                    List.copyOf(completed.values()), weights, remainingWeight, remaining.size());
+        };
+    }
 
-        log.debug("Взвешенные рекомендации: {}", weightedRecommendations);
+    private void recordQuorumMetrics(DagResult result, AnalysisOptions options) {
+        if (!options.isQuorum()) {
+            return;
+        }
+        boolean early = !result.skippedAgents().isEmpty();
+        meterRegistry.counter("crypto.quorum.decisions", "outcome", early ? "early" : "full").increment();
+        if (early) {
+            meterRegistry.counter("crypto.quorum.skipped.calls").increment(result.skippedAgents().size());
+            meterRegistry.timer("crypto.quorum.saved.latency").record(Duration.ofMillis(result.savedMillis()));
+        }
+    }
 
-        // Находим рекомендацию с наибольшим весом
-        String topRecommendation = weightedRecommendations.entrySet().stream()
-                .max(Map.Entry.comparingByValue())
-                .map(Map.Entry::getKey)
-                .orElse("ДЕРЖАТЬ");
+    /**
+     * Вызывает модератора, если агенты разошлись во мнениях или не уверены в выводах.
+     * При согласии агентов дополнительный запрос к AI не выполняется. Если модератор
+     * не смог ответить, остается результат взвешенного голосования.
+     */
+    private void moderateIfContested(CryptoAnalysisResponse response, String timeframe, List<BaseAgent> agents,
+                                     AnalysisOptions options) {
+        if (!moderatorProperties.isEnabled()) {
+            return;
+        }
+        List<AgentAnalysis> analyses = response.getAgentAnalyses();
+        if (!recommendationAggregator.isContested(analyses, moderatorProperties.getMinAverageConfidence())) {
+            log.debug("Агенты согласны по криптовалюте: {}, модератор не вызывается", response.getCryptocurrency());
+            countModeration("skipped");
+            return;
+        }
 
-        log.debug("Рекомендация с наибольшим весом: {}", topRecommendation);
+        // В режиме кворума часть агентов может быть пропущена, поэтому сопоставляем по названию
+        Map<String, String> idsByName = new HashMap<>();
+        agents.forEach(agent -> idsByName.put(agent.getName(), agent.getId()));
+        Map<String, AgentAnalysis> inputs = new LinkedHashMap<>();
+        analyses.forEach(analysis -> inputs.put(idsByName.get(analysis.getAgentName()), analysis));
 
-        // Дополнительная логика для случаев неопределенности
-        double totalConfidence = analyses.stream()
-                .mapToDouble(AgentAnalysis::getConfidence)
-                .sum();
+        log.info("Агенты разошлись во мнениях по криптовалюте: {}, вызываю модератора", response.getCryptocurrency());
+        AgentAnalysis verdict = agentRegistry.invoke(moderatorAgent, response.getCryptocurrency(), timeframe, inputs, options);
+        tokenUsageTracker.record(response.getCryptocurrency(), moderatorAgent.getId(), verdict.getTokenUsage());
+        if (verdict.getAnalysis().startsWith(BaseAgent.AI_ERROR_PREFIX)) {
+            log.warn("Модератор не смог вынести решение, используется взвешенное голосование: {}",
+                    response.getFinalRecommendation());
+            countModeration("failed");
+            return;
+        }
+
+        countModeration("invoked");
+        response.setModeratorAnalysis(verdict);
+        response.setFinalRecommendation(verdict.getRecommendation());
+    }
 
-        log.debug("Общая уверенность агентов: {}", totalConfidence);
+    /**
+     * Учитывает токены только что выполненных вызовов агентов; ответы из кэша не учитываются
+     */
+    private void recordTokenUsage(String cryptocurrency, List<BaseAgent> agents, List<AgentAnalysis> analyses) {
+        Map<String, String> idsByName = new HashMap<>();
+        agents.forEach(agent -> idsByName.put(agent.getName(), agent.getId()));
+        analyses.forEach(analysis -> tokenUsageTracker.record(cryptocurrency,
+                idsByName.getOrDefault(analysis.getAgentName(), analysis.getAgentName()), analysis.getTokenUsage()));
+    }
 
-        if (totalConfidence < 1.5) { // Если общая уверенность низкая
-            log.debug("Низкая общая уверенность ({}), возвращаем 'ДЕРЖАТЬ'", totalConfidence);
-            return "ДЕРЖАТЬ";
-        }
+    private void countModeration(String outcome) {
+        meterRegistry.counter("crypto.moderator.calls", "outcome", outcome).increment();
+    }
 
-        return topRecommendation;
+    private Map<String, Double> weightsByAgentName(List<BaseAgent> agents) {
+        Map<String, Double> weights = new HashMap<>();
+        agents.forEach(agent -> weights.put(agent.getName(), agentRegistry.getWeight(agent)));
+        return weights;
     }
 
     public String getAgentsStatus() {
         log.debug("Запрос статуса агентов");
-        String status = String.format(
-                "Система мультиагентного анализа активна. Доступные агенты: %s, %s, %s",
-                "Технический Аналитик",
-                "Фундаментальный Аналитик",
-                "Аналитик Настроений"
-        );
+        String status = "Система мультиагентного анализа активна. Доступные агенты: " +
+                agentRegistry.getAgents().stream()
+                        .map(BaseAgent::getName)
+                        .collect(Collectors.joining(", "));
         log.debug("Статус агентов: {}", status);
         return status;
     }
@@ -0,0 +1,136 @@
+package com.multiagent.service;
+
+import com.multiagent.model.AgentAnalysis;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Сводит рекомендации агентов в финальное решение взвешенным голосованием
+ * и определяет, требует ли результат разрешения модератором
+ */
+@Slf4j
+@Component
+public class RecommendationAggregator {
+
+    public static final String BUY = "ПОКУПАТЬ";
+
+    public static final String SELL = "ПРОДАВАТЬ";
+
+    public static final String HOLD = "ДЕРЖАТЬ";
+
+    // Минимальная средняя уверенность агентов, ниже которой возвращается ДЕРЖАТЬ
+    private static final double LOW_CONFIDENCE_PER_AGENT = 0.5;
+
+    /**
+     * Определяет финальную рекомендацию: побеждает рекомендация с наибольшей
+     * суммой уверенности, умноженной на вес агента
+     *
+     * @param weights веса агентов по их названию
+     */
+    public String determineFinalRecommendation(List<AgentAnalysis> analyses, Map<String, Double> weights) {
+        log.debug("Определение финальной рекомендации на основе {} анализов", analyses.size());
+
+        // Подсчитываем рекомендации с учетом уверенности и веса агента
+        Map<String, Double> weightedRecommendations = analyses.stream()
+                .collect(Collectors.groupingBy(
+                        AgentAnalysis::getRecommendation,
+                        Collectors.summingDouble(analysis ->
+                                analysis.getConfidence() * weights.getOrDefault(analysis.getAgentName(), 1.0))
+                ));
+
+        log.debug("Взвешенные рекомендации: {}", weightedRecommendations);
+
+        // Находим рекомендацию с наибольшим весом
+        String topRecommendation = weightedRecommendations.entrySet().stream()
+                .max(Map.Entry.comparingByValue())
+                .map(Map.Entry::getKey)
+                .orElse(HOLD);
+
+        log.debug("Рекомендация с наибольшим весом: {}", topRecommendation);
+
+        // Дополнительная логика для случаев неопределенности
+        double totalConfidence = analyses.stream()
+                .mapToDouble(AgentAnalysis::getConfidence)
+                .sum();
+
+        log.debug("Общая уверенность агентов: {}", totalConfidence);
+
+        if (totalConfidence < analyses.size() * LOW_CONFIDENCE_PER_AGENT) { // Если общая уверенность низкая
+            log.debug("Низкая общая уверенность ({}), возвращаем 'ДЕРЖАТЬ'", totalConfidence);
+            return HOLD;
+        }
+
+        return topRecommendation;
+    }
+
+    /**
+     * Проверяет, может ли финальная рекомендация еще измениться после ответов оставшихся агентов.
+     * Оставшиеся агенты могут добавить к любой рекомендации не больше суммы своих весов
+     * (уверенность не превышает 1), поэтому результат зафиксирован, если:
+     * <ul>
+     *     <li>даже при максимальной уверенности оставшихся общая уверенность останется низкой (итог - ДЕРЖАТЬ), или</li>
+     *     <li>отрыв лидера больше суммы весов оставшихся агентов, а низкая уверенность уже исключена
+     *     или лидер и так ДЕРЖАТЬ.</li>
+     * </ul>
+     * В обоих случаях {@link #determineFinalRecommendation} по уже полученным анализам
+     * дает тот же результат, что и по полному набору.
+     *
+     * @param weights         веса агентов по их названию
+     * @param remainingWeight сумма весов агентов, которые еще не ответили
+     * @param remainingAgents количество агентов, которые еще не ответили
+     */
+    public boolean isDecided(List<AgentAnalysis> completed, Map<String, Double> weights,
+                             double remainingWeight, int remainingAgents) {
+        int totalAgents = completed.size() + remainingAgents;
+        double lowConfidenceThreshold = totalAgents * LOW_CONFIDENCE_PER_AGENT;
+        double totalConfidence = completed.stream()
+                .mapToDouble(AgentAnalysis::getConfidence)
+                .sum();
+
+        if (totalConfidence + remainingAgents < lowConfidenceThreshold) {
+            log.debug("Кворум: уверенность останется низкой при любых ответах оставшихся агентов");
+            return true;
+        }
+
+        Map<String, Double> weightedRecommendations = completed.stream()
+                .collect(Collectors.groupingBy(
+                        AgentAnalysis::getRecommendation,
+                        Collectors.summingDouble(analysis ->
+                                analysis.getConfidence() * weights.getOrDefault(analysis.getAgentName(), 1.0))
+                ));
+        List<Map.Entry<String, Double>> ranked = weightedRecommendations.entrySet().stream()
+                .sorted(Map.Entry.<String, Double>comparingByValue().reversed())
+                .toList();
+        if (ranked.isEmpty()) {
+            return false;
+        }
+
+        String leader = ranked.get(0).getKey();
+        double margin = ranked.get(0).getValue() - (ranked.size() > 1 ? ranked.get(1).getValue() : 0.0);
+        boolean leaderLocked = margin > remainingWeight;
+        boolean confidenceSettled = totalConfidence >= lowConfidenceThreshold || HOLD.equals(leader);
+
+        log.debug("Кворум: лидер {}, отрыв {}, вес оставшихся {}", leader, margin, remainingWeight);
+        return leaderLocked && confidenceSettled;
+    }
+
+    /**
+     * Спорным считается результат, в котором агенты дали разные рекомендации
+     * или их средняя уверенность ниже порога
+     */
+    public boolean isContested(List<AgentAnalysis> analyses, double minAverageConfidence) {
+        long distinctRecommendations = analyses.stream()
+                .map(AgentAnalysis::getRecommendation)
+                .distinct()
+                .count();
+        double averageConfidence = analyses.stream()
+                .mapToDouble(AgentAnalysis::getConfidence)
+                .average()
+                .orElse(0.0);
+        return distinctRecommendations > 1 || averageConfidence < minAverageConfidence;
+    }
+}
@@ -0,0 +1,139 @@
+package com.multiagent.service;
+
+import com.multiagent.cache.AnalysisCache;
+import com.multiagent.cache.PopularityEstimator;
+import com.multiagent.config.PopularityProperties;
+import com.multiagent.model.PopularRequest;
+import com.multiagent.util.CountMinSketch;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Отслеживает самые популярные пары криптовалюта/период в потоке запросов.
+ * Частоты оцениваются count-min sketch, а кандидаты в top-K хранятся в min-куче,
+ * поэтому объем памяти не зависит от количества различных запросов.
+ * Счетчики периодически затухают, чтобы отражать текущую, а не историческую нагрузку.
+ */
+@Slf4j
+@Service
+public class RequestPopularityTracker implements PopularityEstimator {
+
+    private final PopularityProperties properties;
+
+    private final CountMinSketch sketch;
+
+    private final Map<String, HeavyHitter> topK = new HashMap<>();
+
+    private final PriorityQueue<HeavyHitter> minHeap = new PriorityQueue<>(
+            Comparator.comparingLong(HeavyHitter::getCount));
+
+    public RequestPopularityTracker(PopularityProperties properties) {
+        this.properties = properties;
+        this.sketch = new CountMinSketch(properties.getWidth(), properties.getDepth());
+    }
+
+    /**
+     * Регистрирует запрос анализа
+     */
+    public void record(String cryptocurrency, String timeframe) {
+        String key = AnalysisCache.key(cryptocurrency, timeframe);
+        long estimate = sketch.add(key);
+
+        synchronized (this) {
+            HeavyHitter existing = topK.get(key);
+            if (existing != null) {
+                minHeap.remove(existing);
+                existing.count = estimate;
+                minHeap.add(existing);
+                return;
+            }
+
+            if (topK.size() < properties.getTopK()) {
+                add(new HeavyHitter(key, cryptocurrency.trim(), timeframe.trim(), estimate));
+                return;
+            }
+
+            HeavyHitter weakest = minHeap.peek();
+            if (weakest != null && estimate > weakest.count) {
+                minHeap.poll();
+                topK.remove(weakest.key);
+                add(new HeavyHitter(key, cryptocurrency.trim(), timeframe.trim(), estimate));
+            }
+        }
+    }
+
+    /**
+     * Возвращает оценку частоты запросов по ключу кэша
+     */
+    @Override
+    public long estimate(String key) {
+        return sketch.estimate(key);
+    }
+
+    /**
+     * Возвращает самые популярные запросы в порядке убывания частоты
+     */
+    public synchronized List<PopularRequest> getHeavyHitters() {
+        List<PopularRequest> result = new ArrayList<>(topK.size());
+        topK.values().stream()
+                .sorted(Comparator.comparingLong(HeavyHitter::getCount).reversed())
+                .forEach(hitter -> result.add(
+                        new PopularRequest(hitter.cryptocurrency, hitter.timeframe, hitter.count)));
+        return result;
+    }
+
+    @Scheduled(initialDelayString = "${crypto.popularity.decay-interval:PT10M}",
+            fixedDelayString = "${crypto.popularity.decay-interval:PT10M}")
+    public void decay() {
+        double factor = properties.getDecayFactor();
+        sketch.decay(factor);
+
+        synchronized (this) {
+            List<HeavyHitter> hitters = new ArrayList<>(minHeap);
+            minHeap.clear();
+            topK.clear();
+            for (HeavyHitter hitter : hitters) {
+                hitter.count = (long) (hitter.count * factor);
+                if (hitter.count > 0) {
+                    add(hitter);
+                }
+            }
+        }
+        log.debug("Применено затухание счетчиков популярности с коэффициентом {}", factor);
+    }
+
+    private void add(HeavyHitter hitter) {
+        topK.put(hitter.key, hitter);
+        minHeap.add(hitter);
+    }
+
+    private static final class HeavyHitter {
+
+        private final String key;
+
+        private final String cryptocurrency;
+
+        private final String timeframe;
+
+        private long count;
+
+        private HeavyHitter(String key, String cryptocurrency, String timeframe, long count) {
+            this.key = key;
+            this.cryptocurrency = cryptocurrency;
+            this.timeframe = timeframe;
+            this.count = count;
+        }
+
+        private long getCount() {
+            return count;
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.multiagent.service;
+
+import com.multiagent.config.TokenBudgetProperties;
+import com.multiagent.model.TokenUsage;
+import com.multiagent.model.TokenUsageReport;
+import com.multiagent.model.TokenUsageReport.TokenStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+/**
+ * Учет расхода токенов по криптовалютам и агентам.
+ * Количество отдельно учитываемых криптовалют ограничено, остальные попадают в общую группу,
+ * поэтому объем памяти не зависит от разнообразия запросов.
+ * В метрики Micrometer расход попадает только с тегом агента: тег криптовалюты дал бы
+ * неограниченное число временных рядов.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TokenUsageTracker {
+
+    public static final String OTHER_COINS = "другие";
+
+    private final TokenBudgetProperties properties;
+
+    private final MeterRegistry meterRegistry;
+
+    // Криптовалюта -> агент -> накопленный расход
+    private final Map<String, Map<String, MutableStats>> usage = new HashMap<>();
+
+    /**
+     * Учитывает расход токенов одного вызова агента
+     */
+    public void record(String cryptocurrency, String agentId, TokenUsage tokenUsage) {
+        if (tokenUsage == null) {
+            return;
+        }
+        meterRegistry.counter("crypto.tokens", "agent", agentId, "type", "prompt").increment(tokenUsage.getPromptTokens());
+        meterRegistry.counter("crypto.tokens", "agent", agentId, "type", "completion")
+                .increment(tokenUsage.getCompletionTokens());
+        meterRegistry.counter("crypto.tokens", "agent", agentId, "type", "cached").increment(tokenUsage.getCachedTokens());
+        synchronized (usage) {
+            String coin = normalize(cryptocurrency);
+            if (!usage.containsKey(coin) && usage.size() >= properties.getMaxTrackedCoins()) {
+                coin = OTHER_COINS;
+            }
+            usage.computeIfAbsent(coin, key -> new HashMap<>())
+                    .computeIfAbsent(agentId, key -> new MutableStats())
+                    .add(tokenUsage);
+        }
+        log.debug("Расход токенов агента {} для {}: промпт {} (из кэша {}), ответ {}", agentId, cryptocurrency,
+                tokenUsage.getPromptTokens(), tokenUsage.getCachedTokens(), tokenUsage.getCompletionTokens());
+    }
+
+    /**
+     * Сводка расхода: итог, по агентам и по криптовалютам
+     */
+    public TokenUsageReport getReport() {
+        MutableStats total = new MutableStats();
+        Map<String, MutableStats> byAgent = new TreeMap<>();
+        Map<String, Map<String, TokenStats>> byCoin = new TreeMap<>();
+        synchronized (usage) {
+            usage.forEach((coin, agents) -> {
+                byCoin.put(coin, snapshot(agents));
+                agents.forEach((agentId, stats) -> {
+                    byAgent.computeIfAbsent(agentId, key -> new MutableStats()).merge(stats);
+                    total.merge(stats);
+                });
+            });
+        }
+        return new TokenUsageReport(total.toStats(), snapshot(byAgent), byCoin);
+    }
+
+    /**
+     * Расход по агентам для одной криптовалюты
+     */
+    public Optional<Map<String, TokenStats>> getCoinUsage(String cryptocurrency) {
+        synchronized (usage) {
+            return Optional.ofNullable(usage.get(normalize(cryptocurrency))).map(TokenUsageTracker::snapshot);
+        }
+    }
+
+    private static Map<String, TokenStats> snapshot(Map<String, MutableStats> stats) {
+        Map<String, TokenStats> snapshot = new TreeMap<>();
+        stats.forEach((key, value) -> snapshot.put(key, value.toStats()));
+        return snapshot;
+    }
+
+    private static String normalize(String cryptocurrency) {
+        return cryptocurrency == null ? "" : cryptocurrency.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static final class MutableStats {
+
+        private long calls;
+
+        private long promptTokens;
+
+        private long completionTokens;
+
+        private long cachedTokens;
+
+        void add(TokenUsage tokenUsage) {
+            calls++;
+            promptTokens += tokenUsage.getPromptTokens();
+            completionTokens += tokenUsage.getCompletionTokens();
+            cachedTokens += tokenUsage.getCachedTokens();
+        }
+
+        void merge(MutableStats other) {
+            calls += other.calls;
+            promptTokens += other.promptTokens;
+            completionTokens += other.completionTokens;
+            cachedTokens += other.cachedTokens;
+        }
+
+        TokenStats toStats() {
+            return new TokenStats(calls, promptTokens, completionTokens, cachedTokens, promptTokens + completionTokens);
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.multiagent.service;
+
+import com.multiagent.cache.AnalysisCache;
+import com.multiagent.cluster.ClusterRouter;
+import com.multiagent.config.WatchlistProperties;
+import com.multiagent.model.PopularRequest;
+import com.multiagent.model.Timeframe;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Фоновый предрасчет анализа для списка популярных криптовалют.
+ * Запуски равномерно распределяются во времени (ограничение частоты),
+ * а количество одновременно выполняемых анализов ограничено размером пула.
+ * В кластере реплика пересчитывает только криптовалюты, владельцем которых является.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(prefix = "crypto.watchlist", name = "enabled", havingValue = "true")
+public class WatchlistPrecomputeService {
+
+    private final CryptoAnalysisService analysisService;
+
+    private final WatchlistProperties properties;
+
+    private final RequestPopularityTracker popularityTracker;
+
+    private final ClusterRouter clusterRouter;
+
+    private final ScheduledExecutorService executor;
+
+    private final AtomicBoolean cycleInProgress = new AtomicBoolean(false);
+
+    public WatchlistPrecomputeService(CryptoAnalysisService analysisService,
+                                      WatchlistProperties properties,
+                                      RequestPopularityTracker popularityTracker) {
+        this(analysisService, properties, popularityTracker, ClusterRouter.standalone());
+    }
+
+    @Autowired
+    public WatchlistPrecomputeService(CryptoAnalysisService analysisService,
+                                      WatchlistProperties properties,
+                                      RequestPopularityTracker popularityTracker,
+                                      ClusterRouter clusterRouter) {
+        this.analysisService = analysisService;
+        this.properties = properties;
+        this.popularityTracker = popularityTracker;
+        this.clusterRouter = clusterRouter;
+        AtomicInteger threadCounter = new AtomicInteger();
+        this.executor = Executors.newScheduledThreadPool(Math.max(1, properties.getMaxConcurrency()), runnable -> {
+            Thread thread = new Thread(runnable, "watchlist-precompute-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        log.info("Фоновый предрасчет инициализирован: {} криптовалют, {} временных периодов",
+                properties.getCoins().size(), properties.getTimeframes().size());
+    }
+
+    @Scheduled(initialDelayString = "${crypto.watchlist.initial-delay:PT30S}",
+            fixedDelayString = "${crypto.watchlist.refresh-interval:PT5M}")
+    public void refreshWatchlist() {
+        if (!cycleInProgress.compareAndSet(false, true)) {
+            log.warn("Предыдущий цикл предрасчета еще не завершен, пропускаю запуск");
+            return;
+        }
+
+        List<WatchlistEntry> entries = buildEntries();
+        if (entries.isEmpty()) {
+            cycleInProgress.set(false);
+            return;
+        }
+
+        long spacingMillis = TimeUnit.MINUTES.toMillis(1) / Math.max(1, properties.getMaxRequestsPerMinute());
+        long startedAt = System.currentTimeMillis();
+        log.info("Запуск цикла предрасчета: {} задач, интервал между запусками {} мс", entries.size(), spacingMillis);
+
+        List<CompletableFuture<Void>> tasks = new ArrayList<>(entries.size());
+        for (int i = 0; i < entries.size(); i++) {
+            WatchlistEntry entry = entries.get(i);
+            CompletableFuture<Void> task = new CompletableFuture<>();
+            executor.schedule(() -> {
+                try {
+                    refresh(entry);
+                } finally {
+                    task.complete(null);
+                }
+            }, i * spacingMillis, TimeUnit.MILLISECONDS);
+            tasks.add(task);
+        }
+
+        CompletableFuture.allOf(tasks.toArray(CompletableFuture[]::new))
+                .whenComplete((v, ex) -> {
+                    cycleInProgress.set(false);
+                    log.info("Цикл предрасчета завершен за {} мс", System.currentTimeMillis() - startedAt);
+                });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    List<WatchlistEntry> buildEntries() {
+        Map<String, WatchlistEntry> entries = new LinkedHashMap<>();
+        List<String> timeframes = canonicalTimeframes();
+        for (String coin : properties.getCoins()) {
+            for (String timeframe : timeframes) {
+                entries.putIfAbsent(AnalysisCache.key(coin, timeframe), new WatchlistEntry(coin, timeframe));
+            }
+        }
+
+        // Дополняем список самыми популярными запросами клиентов
+        List<PopularRequest> heavyHitters = popularityTracker.getHeavyHitters();
+        for (PopularRequest popular : heavyHitters.subList(0,
+                Math.min(properties.getIncludeTopRequested(), heavyHitters.size()))) {
+            entries.putIfAbsent(AnalysisCache.key(popular.getCryptocurrency(), popular.getTimeframe()),
+                    new WatchlistEntry(popular.getCryptocurrency(), popular.getTimeframe()));
+        }
+        return entries.values().stream()
+                .filter(entry -> clusterRouter.isOwnedLocally(entry.cryptocurrency()))
+                .toList();
+    }
+
+    /**
+     * Приводит периоды из конфигурации к каноническому виду, чтобы "1 month" и "1 месяц"
+     * не пересчитывались дважды. Нераспознанные периоды пропускаются.
+     */
+    private List<String> canonicalTimeframes() {
+        List<String> timeframes = new ArrayList<>();
+        for (String timeframe : properties.getTimeframes()) {
+            try {
+                String canonical = Timeframe.canonicalize(timeframe);
+                if (!timeframes.contains(canonical)) {
+                    timeframes.add(canonical);
+                }
+            } catch (IllegalArgumentException e) {
+                log.warn("Период '{}' в crypto.watchlist.timeframes пропущен: {}", timeframe, e.getMessage());
+            }
+        }
+        return timeframes;
+    }
+
+    private void refresh(WatchlistEntry entry) {
+        try {
+            analysisService.refreshCryptocurrency(entry.cryptocurrency(), entry.timeframe());
+            log.debug("Предрасчет выполнен для криптовалюты: {} с временным интервалом: {}",
+                    entry.cryptocurrency(), entry.timeframe());
+        } catch (Exception e) {
+            log.warn("Ошибка предрасчета для криптовалюты {} ({}): {}",
+                    entry.cryptocurrency(), entry.timeframe(), e.getMessage());
+        }
+    }
+
+    record WatchlistEntry(String cryptocurrency, String timeframe) {
+    }
+}
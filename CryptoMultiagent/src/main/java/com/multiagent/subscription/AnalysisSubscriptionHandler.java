@@ -0,0 +1,80 @@
+package com.multiagent.subscription;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.multiagent.model.ResponseView;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+
+import java.util.regex.Pattern;
+
+/**
+ * Обработчик точки подключения WebSocket: принимает команды подписки
+ * ({@link SubscriptionCommand}) и передает их в {@link AnalysisSubscriptionHub}.
+ * Название криптовалюты проверяется по тем же правилам, что и в REST API.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AnalysisSubscriptionHandler extends TextWebSocketHandler {
+
+    private static final Pattern CRYPTOCURRENCY = Pattern.compile("^[a-zA-Z0-9\\s-]{2,50}$");
+
+    private final AnalysisSubscriptionHub hub;
+
+    private final ObjectMapper objectMapper;
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) {
+        hub.register(session);
+    }
+
+    @Override
+    protected void handleTextMessage(WebSocketSession session, TextMessage message) {
+        SubscriptionCommand command;
+        try {
+            command = objectMapper.readValue(message.getPayload(), SubscriptionCommand.class);
+        } catch (JsonProcessingException e) {
+            hub.sendError(session, "Некорректная команда: ожидается JSON с полями action, cryptocurrency, timeframe, view");
+            return;
+        }
+        if (command.cryptocurrency() == null || !CRYPTOCURRENCY.matcher(command.cryptocurrency()).matches()) {
+            hub.sendError(session, "Название криптовалюты должно быть от 2 до 50 символов: латинские буквы, цифры, пробелы и дефисы");
+            return;
+        }
+        String timeframe = command.timeframe() != null ? command.timeframe() : SubscriptionCommand.DEFAULT_TIMEFRAME;
+        ResponseView view;
+        try {
+            view = ResponseView.from(command.view());
+        } catch (IllegalArgumentException e) {
+            hub.sendError(session, "Неизвестное представление: " + command.view() + "; ожидается compact или full");
+            return;
+        }
+        try {
+            if (SubscriptionCommand.SUBSCRIBE.equalsIgnoreCase(command.action())) {
+                hub.subscribe(session, command.cryptocurrency(), timeframe, view);
+            } else if (SubscriptionCommand.UNSUBSCRIBE.equalsIgnoreCase(command.action())) {
+                hub.unsubscribe(session, command.cryptocurrency(), timeframe, view);
+            } else {
+                hub.sendError(session, "Неизвестное действие: " + command.action() + "; ожидается subscribe или unsubscribe");
+            }
+        } catch (IllegalArgumentException e) {
+            hub.sendError(session, e.getMessage());
+        }
+    }
+
+    @Override
+    public void handleTransportError(WebSocketSession session, Throwable exception) {
+        log.debug("Ошибка транспорта WebSocket {}: {}", session.getId(), exception.getMessage());
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        hub.unregister(session);
+    }
+}
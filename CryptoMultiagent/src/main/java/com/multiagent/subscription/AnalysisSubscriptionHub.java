@@ -0,0 +1,476 @@
+package com.multiagent.subscription;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.multiagent.cache.AnalysisCache;
+import com.multiagent.config.SubscriptionProperties;
+import com.multiagent.model.AnalysisOptions;
+import com.multiagent.model.CryptoAnalysisResponse;
+import com.multiagent.model.ResponseView;
+import com.multiagent.model.Timeframe;
+import com.multiagent.service.CryptoAnalysisService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Подписки клиентов WebSocket на анализ криптовалют. Тема подписки - криптовалюта, период
+ * и представление ответа. Анализ темы запрашивается один раз за обновление, сериализуется
+ * один раз, и одно и то же сообщение рассылается всем подписчикам темы, поэтому стоимость
+ * обновления не зависит от количества подписчиков.
+ * <p>
+ * У каждого подписчика своя очередь отправки, которую по порядку разбирает один поток пула
+ * рассылки: пока предыдущее сообщение не передано клиенту, следующие копятся в очереди.
+ * Превышение размера очереди или времени отправки одного сообщения отключает подписчика,
+ * поэтому медленный клиент не задерживает остальных и не накапливает память сервера. Время
+ * отправки проверяется и периодически: зависший клиент отключается, даже если новых сообщений
+ * для него нет. Количество тем на сервере ограничено, так как каждая тема запрашивает анализ.
+ */
+@Slf4j
+@Component
+public class AnalysisSubscriptionHub {
+
+    public static final String TYPE_ANALYSIS = "analysis";
+
+    public static final String TYPE_SUBSCRIBED = "subscribed";
+
+    public static final String TYPE_UNSUBSCRIBED = "unsubscribed";
+
+    public static final String TYPE_ERROR = "error";
+
+    private final CryptoAnalysisService analysisService;
+
+    private final SubscriptionProperties properties;
+
+    private final ObjectMapper objectMapper;
+
+    private final MeterRegistry meterRegistry;
+
+    private final ExecutorService sendExecutor;
+
+    private final Map<String, Subscriber> subscribers = new ConcurrentHashMap<>();
+
+    private final Map<String, Topic> topics = new ConcurrentHashMap<>();
+
+    private final Counter updates;
+
+    public AnalysisSubscriptionHub(CryptoAnalysisService analysisService, SubscriptionProperties properties,
+                                   ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.analysisService = analysisService;
+        this.properties = properties;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        AtomicInteger threadCounter = new AtomicInteger();
+        this.sendExecutor = Executors.newFixedThreadPool(Math.max(1, properties.getSendThreads()), runnable -> {
+            Thread thread = new Thread(runnable, "subscription-send-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.updates = Counter.builder("crypto.subscriptions.updates")
+                .description("Обновления анализа, разосланные подписчикам темы")
+                .register(meterRegistry);
+        Gauge.builder("crypto.subscriptions.sessions", subscribers, Map::size)
+                .description("Подключения WebSocket")
+                .register(meterRegistry);
+        Gauge.builder("crypto.subscriptions.topics", topics, Map::size)
+                .description("Темы, на которые есть подписчики")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Регистрирует подключение; сообщения ему отправляются через очередь ограниченного размера
+     */
+    public void register(WebSocketSession session) {
+        subscribers.put(session.getId(), new Subscriber(session));
+        log.debug("Подключение WebSocket {} зарегистрировано", session.getId());
+    }
+
+    /**
+     * Удаляет подключение из всех тем
+     */
+    public void unregister(WebSocketSession session) {
+        Subscriber subscriber = subscribers.remove(session.getId());
+        if (subscriber == null) {
+            return;
+        }
+        subscriber.dropped = true;
+        subscriber.pending.clear();
+        for (String key : subscriber.topics) {
+            leave(subscriber, key);
+        }
+        log.debug("Подключение WebSocket {} удалено", session.getId());
+    }
+
+    /**
+     * Подписывает подключение на анализ. Если анализ темы уже рассылался, подписчик сразу
+     * получает последний результат, иначе запускается расчет.
+     *
+     * @throws IllegalArgumentException для неизвестного периода или при превышении количества подписок
+     *                                  подключения или тем сервера
+     * @throws IllegalStateException    если подключение не зарегистрировано
+     */
+    public void subscribe(WebSocketSession session, String cryptocurrency, String timeframe, ResponseView view) {
+        Subscriber subscriber = subscriber(session);
+        String canonicalTimeframe = Timeframe.canonicalize(timeframe);
+        String key = topicKey(cryptocurrency, canonicalTimeframe, view);
+        if (!subscriber.topics.contains(key) && subscriber.topics.size() >= properties.getMaxTopicsPerSession()) {
+            throw new IllegalArgumentException("Превышено количество подписок одного подключения: "
+                    + properties.getMaxTopicsPerSession());
+        }
+        subscriber.topics.add(key);
+        Topic topic;
+        try {
+            topic = topics.compute(key, (k, existing) -> {
+                if (existing == null && topics.size() >= properties.getMaxTopics()) {
+                    throw new IllegalArgumentException("Превышено количество тем подписок сервера: "
+                            + properties.getMaxTopics());
+                }
+                Topic joined = existing != null ? existing : new Topic(cryptocurrency.trim(), canonicalTimeframe, view);
+                joined.subscribers.add(subscriber);
+                return joined;
+            });
+        } catch (IllegalArgumentException e) {
+            subscriber.topics.remove(key);
+            throw e;
+        }
+        // Подключение могло быть удалено, пока подписчик добавлялся в тему: тогда удаление
+        // не увидело его в теме, и подписчик выходит из нее сам
+        if (subscriber.dropped) {
+            leave(subscriber, key);
+            return;
+        }
+        log.debug("Подключение {} подписано на {}", session.getId(), key);
+
+        send(subscriber, control(TYPE_SUBSCRIBED, topic.cryptocurrency, canonicalTimeframe, view, null));
+        TextMessage latest = topic.latest;
+        if (latest != null) {
+            send(subscriber, latest);
+        } else {
+            refresh(topic);
+        }
+    }
+
+    /**
+     * Отписывает подключение от анализа; тема без подписчиков удаляется
+     *
+     * @throws IllegalArgumentException для неизвестного периода
+     * @throws IllegalStateException    если подключение не зарегистрировано
+     */
+    public void unsubscribe(WebSocketSession session, String cryptocurrency, String timeframe, ResponseView view) {
+        Subscriber subscriber = subscriber(session);
+        String canonicalTimeframe = Timeframe.canonicalize(timeframe);
+        String key = topicKey(cryptocurrency, canonicalTimeframe, view);
+        if (subscriber.topics.remove(key)) {
+            leave(subscriber, key);
+        }
+        send(subscriber, control(TYPE_UNSUBSCRIBED, cryptocurrency.trim(), canonicalTimeframe, view, null));
+    }
+
+    /**
+     * Отправляет подключению сообщение об ошибке команды
+     */
+    public void sendError(WebSocketSession session, String message) {
+        Subscriber subscriber = subscribers.get(session.getId());
+        if (subscriber != null) {
+            send(subscriber, control(TYPE_ERROR, null, null, null, message));
+        }
+    }
+
+    /**
+     * Запрашивает анализ всех тем с подписчиками. Пока результат в кэше, сервис возвращает
+     * его без расчета, а одинаковые одновременные запросы объединяются, поэтому новый
+     * расчет выполняется только после истечения кэша. Рассылаются только изменившиеся результаты.
+     *
+     * @return количество запущенных обновлений
+     */
+    @Scheduled(initialDelayString = "${crypto.subscriptions.refresh-interval:PT30S}",
+            fixedDelayString = "${crypto.subscriptions.refresh-interval:PT30S}")
+    public int refreshAll() {
+        int started = 0;
+        for (Topic topic : topics.values()) {
+            if (refresh(topic)) {
+                started++;
+            }
+        }
+        return started;
+    }
+
+    /**
+     * Отключает подписчиков, отправка которым длится дольше send-time-limit. Без этой проверки
+     * зависший клиент, которому больше нечего отправлять, оставался бы подписанным.
+     *
+     * @return количество отключенных подписчиков
+     */
+    @Scheduled(initialDelayString = "${crypto.subscriptions.send-check-interval:PT1S}",
+            fixedDelayString = "${crypto.subscriptions.send-check-interval:PT1S}")
+    public int dropStuckSubscribers() {
+        int dropped = 0;
+        for (Subscriber subscriber : subscribers.values()) {
+            if (sendTimedOut(subscriber)) {
+                drop(subscriber, "slow", "время отправки превысило " + properties.getSendTimeLimit());
+                dropped++;
+            }
+        }
+        return dropped;
+    }
+
+    public int sessionCount() {
+        return subscribers.size();
+    }
+
+    public int topicCount() {
+        return topics.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sendExecutor.shutdownNow();
+    }
+
+    private boolean refresh(Topic topic) {
+        if (!topic.refreshing.compareAndSet(false, true)) {
+            return false;
+        }
+        CompletableFuture<CryptoAnalysisResponse> analysis;
+        try {
+            analysis = analysisService.analyzeCryptocurrencyAsync(topic.cryptocurrency, topic.timeframe,
+                    AnalysisOptions.background());
+        } catch (RuntimeException e) {
+            analysis = CompletableFuture.failedFuture(e);
+        }
+        analysis.whenComplete((response, error) -> {
+            topic.refreshing.set(false);
+            if (error != null) {
+                // Следующая попытка - в очередном цикле; подписчики сохраняют последний результат
+                log.warn("Не удалось обновить анализ для подписчиков {} ({}): {}",
+                        topic.cryptocurrency, topic.timeframe, error.getMessage());
+                return;
+            }
+            publish(topic, response);
+        });
+        return true;
+    }
+
+    private void publish(Topic topic, CryptoAnalysisResponse response) {
+        if (topic.latest != null && Objects.equals(topic.analyzedAt, response.getAnalyzedAt())) {
+            return;
+        }
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("type", TYPE_ANALYSIS);
+        payload.put("cryptocurrency", topic.cryptocurrency);
+        payload.put("timeframe", topic.timeframe);
+        payload.put("view", topic.view.name().toLowerCase(Locale.ROOT));
+        payload.put("analysis", response);
+        TextMessage message;
+        try {
+            message = new TextMessage(objectMapper.writerWithView(topic.view.getJsonView()).writeValueAsString(payload));
+        } catch (JsonProcessingException e) {
+            log.error("Не удалось сериализовать анализ для подписчиков {} ({})", topic.cryptocurrency, topic.timeframe, e);
+            return;
+        }
+        topic.latest = message;
+        topic.analyzedAt = response.getAnalyzedAt();
+        updates.increment();
+        log.debug("Анализ {} ({}) рассылается {} подписчикам",
+                topic.cryptocurrency, topic.timeframe, topic.subscribers.size());
+        for (Subscriber subscriber : topic.subscribers) {
+            send(subscriber, message);
+        }
+    }
+
+    /**
+     * Ставит сообщение в очередь подписчика. Поток, отправляющий сообщение медленному клиенту,
+     * блокируется только для этого клиента; переполнение очереди или слишком долгая отправка
+     * отключают подписчика.
+     */
+    private void send(Subscriber subscriber, TextMessage message) {
+        if (sendTimedOut(subscriber)) {
+            drop(subscriber, "slow", "время отправки превысило " + properties.getSendTimeLimit());
+            return;
+        }
+        // Одно сообщение больше лимита проходит, если очередь пуста
+        long pending = subscriber.pendingBytes.addAndGet(message.getPayloadLength());
+        if (pending > properties.getSendBufferSizeLimit() && pending > message.getPayloadLength()) {
+            drop(subscriber, "slow", "очередь отправки превысила " + properties.getSendBufferSizeLimit() + " байт");
+            return;
+        }
+        subscriber.pending.add(message);
+        schedule(subscriber);
+    }
+
+    private boolean sendTimedOut(Subscriber subscriber) {
+        long sendStartedAt = subscriber.sendStartedAt;
+        return sendStartedAt != 0 && System.nanoTime() - sendStartedAt > properties.getSendTimeLimit().toNanos();
+    }
+
+    private void schedule(Subscriber subscriber) {
+        if (!subscriber.draining.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            sendExecutor.execute(() -> drain(subscriber));
+        } catch (RejectedExecutionException e) {
+            subscriber.draining.set(false);
+            log.debug("Рассылка остановлена, сообщения подключению {} не отправлены", subscriber.session.getId());
+        }
+    }
+
+    private void drain(Subscriber subscriber) {
+        try {
+            TextMessage message;
+            while (!subscriber.dropped && (message = subscriber.pending.poll()) != null) {
+                subscriber.pendingBytes.addAndGet(-message.getPayloadLength());
+                subscriber.sendStartedAt = System.nanoTime();
+                try {
+                    subscriber.session.sendMessage(message);
+                } finally {
+                    subscriber.sendStartedAt = 0;
+                }
+            }
+        } catch (IOException | IllegalStateException e) {
+            drop(subscriber, "error", e.getMessage());
+        } finally {
+            subscriber.draining.set(false);
+        }
+        // Сообщение могло быть добавлено после опустошения очереди, но до снятия флага
+        if (!subscriber.dropped && !subscriber.pending.isEmpty()) {
+            schedule(subscriber);
+        }
+    }
+
+    private void drop(Subscriber subscriber, String reason, String details) {
+        if (!subscribers.remove(subscriber.session.getId(), subscriber)) {
+            return;
+        }
+        subscriber.dropped = true;
+        subscriber.pending.clear();
+        for (String key : subscriber.topics) {
+            leave(subscriber, key);
+        }
+        meterRegistry.counter("crypto.subscriptions.dropped", "reason", reason).increment();
+        log.warn("Подписчик {} отключен: {}", subscriber.session.getId(), details);
+        CloseStatus status = "slow".equals(reason) ? CloseStatus.SESSION_NOT_RELIABLE : CloseStatus.SERVER_ERROR;
+        // Закрытие отправляет клиенту кадр и может блокироваться, поэтому выполняется в пуле рассылки
+        try {
+            sendExecutor.execute(() -> {
+                try {
+                    subscriber.session.close(status);
+                } catch (IOException e) {
+                    log.debug("Ошибка закрытия подключения {}: {}", subscriber.session.getId(), e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            log.debug("Рассылка остановлена, подключение {} не закрыто", subscriber.session.getId());
+        }
+    }
+
+    private void leave(Subscriber subscriber, String key) {
+        topics.computeIfPresent(key, (k, topic) -> {
+            topic.subscribers.remove(subscriber);
+            return topic.subscribers.isEmpty() ? null : topic;
+        });
+    }
+
+    private Subscriber subscriber(WebSocketSession session) {
+        Subscriber subscriber = subscribers.get(session.getId());
+        if (subscriber == null) {
+            throw new IllegalStateException("Подключение " + session.getId() + " не зарегистрировано");
+        }
+        return subscriber;
+    }
+
+    private TextMessage control(String type, String cryptocurrency, String timeframe, ResponseView view, String message) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("type", type);
+        if (cryptocurrency != null) {
+            payload.put("cryptocurrency", cryptocurrency);
+            payload.put("timeframe", timeframe);
+            payload.put("view", view.name().toLowerCase(Locale.ROOT));
+        }
+        if (message != null) {
+            payload.put("message", message);
+        }
+        try {
+            return new TextMessage(objectMapper.writeValueAsString(payload));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Не удалось сериализовать служебное сообщение", e);
+        }
+    }
+
+    private static String topicKey(String cryptocurrency, String canonicalTimeframe, ResponseView view) {
+        return AnalysisCache.key(cryptocurrency, canonicalTimeframe) + "|" + view.name();
+    }
+
+    private static final class Subscriber {
+
+        private final WebSocketSession session;
+
+        private final Set<String> topics = ConcurrentHashMap.newKeySet();
+
+        private final Queue<TextMessage> pending = new ConcurrentLinkedQueue<>();
+
+        // Размер сообщений в очереди, без отправляемого в данный момент
+        private final AtomicLong pendingBytes = new AtomicLong();
+
+        // Очередь разбирается не более чем одним потоком, поэтому порядок сообщений сохраняется
+        private final AtomicBoolean draining = new AtomicBoolean(false);
+
+        // System.nanoTime() начала текущей отправки; 0 - отправки нет
+        private volatile long sendStartedAt;
+
+        private volatile boolean dropped;
+
+        private Subscriber(WebSocketSession session) {
+            this.session = session;
+        }
+    }
+
+    private static final class Topic {
+
+        private final String cryptocurrency;
+
+        private final String timeframe;
+
+        private final ResponseView view;
+
+        private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+        private final AtomicBoolean refreshing = new AtomicBoolean(false);
+
+        // Последнее разосланное сообщение - для новых подписчиков
+        private volatile TextMessage latest;
+
+        private volatile Instant analyzedAt;
+
+        private Topic(String cryptocurrency, String timeframe, ResponseView view) {
+            this.cryptocurrency = cryptocurrency;
+            this.timeframe = timeframe;
+            this.view = view;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.multiagent.subscription;
+
+/**
+ * Команда клиента WebSocket:
+ * {@code {"action": "subscribe", "cryptocurrency": "Bitcoin", "timeframe": "1 месяц", "view": "compact"}}
+ *
+ * @param action    subscribe или unsubscribe
+ * @param timeframe период анализа; по умолчанию "1 месяц"
+ * @param view      представление ответа (compact или full); по умолчанию full
+ */
+public record SubscriptionCommand(String action, String cryptocurrency, String timeframe, String view) {
+
+    public static final String SUBSCRIBE = "subscribe";
+
+    public static final String UNSUBSCRIBE = "unsubscribe";
+
+    public static final String DEFAULT_TIMEFRAME = "1 месяц";
+}
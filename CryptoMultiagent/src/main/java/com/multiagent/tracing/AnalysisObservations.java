@@ -0,0 +1,64 @@
+package com.multiagent.tracing;
+
+import com.multiagent.model.TokenUsage;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+
+/**
+ * Названия наблюдений (спанов) пути анализа и их атрибутов.
+ * Агент - атрибут низкой кардинальности и попадает в метрики, криптовалюта, период
+ * и расход токенов - только в спаны.
+ */
+public final class AnalysisObservations {
+
+    public static final String ANALYSIS = "crypto.analysis";
+
+    public static final String AGENT = "crypto.agent";
+
+    public static final String MODEL_CALL = "crypto.model.call";
+
+    public static final String AGENT_ID = "crypto.agent.id";
+
+    public static final String MODE = "crypto.mode";
+
+    public static final String COIN = "crypto.coin";
+
+    public static final String TIMEFRAME = "crypto.timeframe";
+
+    public static final String PERMIT_WAIT_MILLIS = "crypto.agent.permit.wait.ms";
+
+    public static final String PROMPT_TOKENS = "crypto.tokens.prompt";
+
+    public static final String COMPLETION_TOKENS = "crypto.tokens.completion";
+
+    public static final String CACHED_TOKENS = "crypto.tokens.cached";
+
+    public static final String RETRY_ATTEMPTS = "crypto.retry.attempts";
+
+    public static final String RECOMMENDATION = "crypto.recommendation";
+
+    public static final String RETRY_EVENT = "crypto.retry";
+
+    private AnalysisObservations() {
+    }
+
+    /**
+     * Добавляет криптовалюту и период к текущему наблюдению, например к спану HTTP запроса
+     */
+    public static void tagCurrent(ObservationRegistry registry, String cryptocurrency, String timeframe) {
+        Observation current = registry.getCurrentObservation();
+        if (current != null) {
+            current.highCardinalityKeyValue(COIN, cryptocurrency)
+                    .highCardinalityKeyValue(TIMEFRAME, timeframe);
+        }
+    }
+
+    public static void tagUsage(Observation observation, TokenUsage usage) {
+        if (usage == null) {
+            return;
+        }
+        observation.highCardinalityKeyValue(PROMPT_TOKENS, String.valueOf(usage.getPromptTokens()))
+                .highCardinalityKeyValue(COMPLETION_TOKENS, String.valueOf(usage.getCompletionTokens()))
+                .highCardinalityKeyValue(CACHED_TOKENS, String.valueOf(usage.getCachedTokens()));
+    }
+}
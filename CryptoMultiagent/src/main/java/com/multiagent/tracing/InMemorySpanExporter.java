@@ -0,0 +1,102 @@
+package com.multiagent.tracing;
+
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Хранит последние завершенные спаны в памяти: трассировка работает без внешнего коллектора.
+ * Количество спанов ограничено, при переполнении вытесняются самые старые.
+ */
+public class InMemorySpanExporter implements SpanExporter {
+
+    private final int capacity;
+
+    private final Deque<SpanRecord> spans = new ArrayDeque<>();
+
+    public InMemorySpanExporter(int capacity) {
+        this.capacity = Math.max(1, capacity);
+    }
+
+    @Override
+    public synchronized CompletableResultCode export(Collection<SpanData> batch) {
+        for (SpanData span : batch) {
+            spans.addLast(SpanRecord.from(span));
+            if (spans.size() > capacity) {
+                spans.removeFirst();
+            }
+        }
+        return CompletableResultCode.ofSuccess();
+    }
+
+    @Override
+    public CompletableResultCode flush() {
+        return CompletableResultCode.ofSuccess();
+    }
+
+    @Override
+    public CompletableResultCode shutdown() {
+        return CompletableResultCode.ofSuccess();
+    }
+
+    /**
+     * Спаны трассировки в порядке завершения
+     */
+    public synchronized List<SpanRecord> getTrace(String traceId) {
+        return spans.stream().filter(span -> span.traceId().equals(traceId)).toList();
+    }
+
+    /**
+     * Последние трассировки, начиная с самой свежей
+     *
+     * @param limit максимальное количество трассировок
+     */
+    public synchronized List<TraceSummary> getRecentTraces(int limit) {
+        Map<String, List<SpanRecord>> byTrace = new LinkedHashMap<>();
+        Iterator<SpanRecord> iterator = spans.descendingIterator();
+        while (iterator.hasNext()) {
+            SpanRecord span = iterator.next();
+            List<SpanRecord> trace = byTrace.get(span.traceId());
+            if (trace == null) {
+                if (byTrace.size() == limit) {
+                    continue;
+                }
+                trace = new ArrayList<>();
+                byTrace.put(span.traceId(), trace);
+            }
+            trace.add(span);
+        }
+        return byTrace.values().stream().map(TraceSummary::of).toList();
+    }
+
+    public synchronized void clear() {
+        spans.clear();
+    }
+
+    /**
+     * Краткие сведения о трассировке
+     *
+     * @param rootSpan       название корневого спана; null, если корневой спан еще не завершен или вытеснен
+     * @param durationMicros длительность корневого спана, иначе - самого долгого из сохраненных
+     */
+    public record TraceSummary(String traceId, String rootSpan, long durationMicros, int spans,
+                               Map<String, String> attributes) {
+
+        static TraceSummary of(List<SpanRecord> trace) {
+            SpanRecord root = trace.stream().filter(SpanRecord::isRoot).findFirst().orElse(null);
+            long duration = root != null ? root.durationMicros()
+                    : trace.stream().mapToLong(SpanRecord::durationMicros).max().orElse(0);
+            return new TraceSummary(trace.get(0).traceId(), root == null ? null : root.name(), duration,
+                    trace.size(), root == null ? Map.of() : root.attributes());
+        }
+    }
+}
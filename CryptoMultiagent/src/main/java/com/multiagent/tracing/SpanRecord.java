@@ -0,0 +1,47 @@
+package com.multiagent.tracing;
+
+import io.opentelemetry.sdk.trace.data.EventData;
+import io.opentelemetry.sdk.trace.data.SpanData;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Завершенный спан в виде, удобном для выдачи через actuator и записи в файл
+ *
+ * @param parentSpanId   идентификатор родительского спана, null для корневого
+ * @param durationMicros длительность спана в микросекундах
+ * @param error          описание ошибки, если спан завершился с ошибкой
+ * @param events         события спана, например повторные попытки вызова модели
+ */
+public record SpanRecord(String traceId, String spanId, String parentSpanId, String name,
+                         Instant start, long durationMicros, String error,
+                         Map<String, String> attributes, List<String> events) {
+
+    public static SpanRecord from(SpanData span) {
+        Map<String, String> attributes = new LinkedHashMap<>();
+        span.getAttributes().forEach((key, value) -> attributes.put(key.getKey(), String.valueOf(value)));
+        String parentSpanId = span.getParentSpanContext().isValid() ? span.getParentSpanId() : null;
+        String error = switch (span.getStatus().getStatusCode()) {
+            case ERROR -> span.getStatus().getDescription().isEmpty() ? "ERROR" : span.getStatus().getDescription();
+            default -> null;
+        };
+        return new SpanRecord(
+                span.getTraceId(),
+                span.getSpanId(),
+                parentSpanId,
+                span.getName(),
+                Instant.ofEpochSecond(0, span.getStartEpochNanos()),
+                TimeUnit.NANOSECONDS.toMicros(span.getEndEpochNanos() - span.getStartEpochNanos()),
+                error,
+                attributes,
+                span.getEvents().stream().map(EventData::getName).toList());
+    }
+
+    public boolean isRoot() {
+        return parentSpanId == null;
+    }
+}
@@ -14,18 +14,18 @@ public class AnalysisUtils {
      * @return рекомендация (ПОКУПАТЬ/ПРОДАВАТЬ/ДЕРЖАТЬ)
      */
     public static String extractRecommendation(String analysis) {
-        log.debug("Извлечение рекомендации из анализа длиной {} символов", analysis.length());
+        log.trace("Извлечение рекомендации из анализа длиной {} символов", analysis.length());
         
         String lowerAnalysis = analysis.toLowerCase();
         
         if (containsBuySignals(lowerAnalysis)) {
-            log.debug("Обнаружены сигналы покупки, рекомендация: ПОКУПАТЬ");
+            log.trace("Обнаружены сигналы покупки, рекомендация: ПОКУПАТЬ");
             return "ПОКУПАТЬ";
         } else if (containsSellSignals(lowerAnalysis)) {
-            log.debug("Обнаружены сигналы продажи, рекомендация: ПРОДАВАТЬ");
+            log.trace("Обнаружены сигналы продажи, рекомендация: ПРОДАВАТЬ");
             return "ПРОДАВАТЬ";
         } else {
-            log.debug("Сигналы неоднозначны, рекомендация: ДЕРЖАТЬ");
+            log.trace("Сигналы неоднозначны, рекомендация: ДЕРЖАТЬ");
             return "ДЕРЖАТЬ";
         }
     }
@@ -36,32 +36,32 @@ public class AnalysisUtils {
      * @return уровень уверенности (0.0 - 1.0)
      */
     public static double extractConfidence(String analysis) {
-        log.debug("Извлечение уровня уверенности из анализа");
+        log.trace("Извлечение уровня уверенности из анализа");
         
         String lowerAnalysis = analysis.toLowerCase();
         
         if (lowerAnalysis.contains("высокая уверенность") ||
                 lowerAnalysis.contains("настоятельно рекомендую") ||
                 lowerAnalysis.contains("очень уверен")) {
-            log.debug("Обнаружена высокая уверенность: 0.9");
+            log.trace("Обнаружена высокая уверенность: 0.9");
             return 0.9;
         } else if (lowerAnalysis.contains("умеренная уверенность") ||
                 lowerAnalysis.contains("рекомендую") ||
                 lowerAnalysis.contains("довольно уверен")) {
-            log.debug("Обнаружена умеренная уверенность: 0.7");
+            log.trace("Обнаружена умеренная уверенность: 0.7");
             return 0.7;
         } else if (lowerAnalysis.contains("низкая уверенность") ||
                 lowerAnalysis.contains("осторожно") ||
                 lowerAnalysis.contains("не уверен")) {
-            log.debug("Обнаружена низкая уверенность: 0.5");
+            log.trace("Обнаружена низкая уверенность: 0.5");
             return 0.5;
         } else if (lowerAnalysis.contains("неопределенность") ||
                 lowerAnalysis.contains("сложно сказать")) {
-            log.debug("Обнаружена неопределенность: 0.3");
+            log.trace("Обнаружена неопределенность: 0.3");
             return 0.3;
         }
         
-        log.debug("Используется значение по умолчанию: 0.6");
+        log.trace("Используется значение по умолчанию: 0.6");
         return 0.6; // значение по умолчанию
     }
 
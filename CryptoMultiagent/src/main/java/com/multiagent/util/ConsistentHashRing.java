@@ -0,0 +1,59 @@
+package com.multiagent.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Кольцо согласованного хеширования: ключ принадлежит первому узлу по часовой стрелке от хеша ключа.
+ * Каждый узел занимает несколько виртуальных позиций, поэтому ключи распределяются равномерно,
+ * а при добавлении или удалении узла переезжает только его доля ключей.
+ * Кольцо неизменяемо и может использоваться из нескольких потоков.
+ *
+ * @param <T> тип узла; строковое представление узла должно быть одинаковым на всех репликах
+ */
+public class ConsistentHashRing<T> {
+
+    private final TreeMap<Long, T> ring = new TreeMap<>();
+
+    /**
+     * @param virtualNodes количество позиций каждого узла на кольце
+     */
+    public ConsistentHashRing(Collection<T> nodes, int virtualNodes) {
+        if (nodes.isEmpty() || virtualNodes < 1) {
+            throw new IllegalArgumentException("Кольцо должно содержать хотя бы один узел и одну виртуальную позицию");
+        }
+        for (T node : nodes) {
+            for (int i = 0; i < virtualNodes; i++) {
+                ring.put(hash(node + "#" + i), node);
+            }
+        }
+    }
+
+    /**
+     * Узел-владелец ключа
+     */
+    public T owner(String key) {
+        Map.Entry<Long, T> entry = ring.ceilingEntry(hash(key));
+        return entry != null ? entry.getValue() : ring.firstEntry().getValue();
+    }
+
+    /**
+     * Первые 8 байт MD5: хеш одинаков на всех репликах и не зависит от реализации hashCode
+     */
+    static long hash(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(value.getBytes(StandardCharsets.UTF_8));
+            long hash = 0;
+            for (int i = 0; i < Long.BYTES; i++) {
+                hash = (hash << 8) | (digest[i] & 0xFF);
+            }
+            return hash;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5 недоступен", e);
+        }
+    }
+}
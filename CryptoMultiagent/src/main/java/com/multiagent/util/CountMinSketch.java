@@ -0,0 +1,87 @@
+package com.multiagent.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Count-min sketch — вероятностная структура для оценки частот с фиксированным объемом памяти.
+ * Оценка никогда не бывает меньше реальной частоты и превышает ее не более чем на
+ * e/width * N с вероятностью 1 - exp(-depth).
+ */
+public class CountMinSketch {
+
+    private final int width;
+
+    private final int depth;
+
+    private final AtomicLongArray counters;
+
+    private final long[] seeds;
+
+    public CountMinSketch(int width, int depth) {
+        if (width <= 0 || depth <= 0) {
+            throw new IllegalArgumentException("Размеры count-min sketch должны быть положительными");
+        }
+        this.width = width;
+        this.depth = depth;
+        this.counters = new AtomicLongArray(width * depth);
+        this.seeds = new long[depth];
+        for (int i = 0; i < depth; i++) {
+            seeds[i] = 0x9E3779B97F4A7C15L * (i + 1);
+        }
+    }
+
+    /**
+     * Увеличивает счетчик элемента и возвращает новую оценку его частоты
+     */
+    public long add(String item) {
+        long hash = hash(item);
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            long value = counters.incrementAndGet(index(row, hash));
+            estimate = Math.min(estimate, value);
+        }
+        return estimate;
+    }
+
+    /**
+     * Возвращает оценку частоты элемента
+     */
+    public long estimate(String item) {
+        long hash = hash(item);
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, counters.get(index(row, hash)));
+        }
+        return estimate;
+    }
+
+    /**
+     * Умножает все счетчики на коэффициент затухания, чтобы старые запросы теряли вес
+     */
+    public void decay(double factor) {
+        for (int i = 0; i < counters.length(); i++) {
+            counters.updateAndGet(i, value -> (long) (value * factor));
+        }
+    }
+
+    private int index(int row, long hash) {
+        long mixed = mix(hash ^ seeds[row]);
+        return row * width + (int) Math.floorMod(mixed, (long) width);
+    }
+
+    private static long hash(String item) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : item.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private static long mix(long value) {
+        value = (value ^ (value >>> 33)) * 0xff51afd7ed558ccdL;
+        value = (value ^ (value >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return value ^ (value >>> 33);
+    }
+}
@@ -0,0 +1,72 @@
+package com.multiagent.util;
+
+/**
+ * Кольцевой буфер последних значений double фиксированной емкости. Память выделяется один раз
+ * при создании, добавление и чтение выполняются за O(1) без выделения объектов; при заполнении
+ * новое значение вытесняет самое старое.
+ */
+public final class DoubleRingBuffer {
+
+    private final double[] values;
+
+    // Индекс последнего добавленного значения
+    private int head = -1;
+
+    private int size;
+
+    public DoubleRingBuffer(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Емкость кольцевого буфера должна быть положительной");
+        }
+        this.values = new double[capacity];
+    }
+
+    /**
+     * Добавляет значение, вытесняя самое старое при заполнении
+     */
+    public void push(double value) {
+        head = head + 1 == values.length ? 0 : head + 1;
+        values[head] = value;
+        if (size < values.length) {
+            size++;
+        }
+    }
+
+    /**
+     * Заменяет последнее добавленное значение
+     *
+     * @throws IllegalStateException если буфер пуст
+     */
+    public void setLatest(double value) {
+        if (size == 0) {
+            throw new IllegalStateException("Кольцевой буфер пуст");
+        }
+        values[head] = value;
+    }
+
+    /**
+     * Значение, добавленное back шагов назад: 0 - последнее, size() - 1 - самое старое
+     *
+     * @throws IndexOutOfBoundsException если значения нет в буфере
+     */
+    public double get(int back) {
+        if (back < 0 || back >= size) {
+            throw new IndexOutOfBoundsException("Индекс " + back + " вне буфера размером " + size);
+        }
+        int index = head - back;
+        return values[index < 0 ? index + values.length : index];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return values.length;
+    }
+
+    public void clear() {
+        head = -1;
+        size = 0;
+    }
+}
@@ -0,0 +1,306 @@
+package com.multiagent.util;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * In-memory индекс приближенного поиска ближайших соседей (HNSW - Hierarchical Navigable Small World)
+ * по косинусному сходству. Векторы нормализуются при добавлении, поэтому сходство считается
+ * скалярным произведением. Удаление помечает узел, а при накоплении удаленных узлов граф
+ * перестраивается, поэтому объем памяти ограничен числом живых элементов.
+ *
+ * @param <K> тип ключа элемента
+ */
+public class HnswIndex<K> {
+
+    private final int maxConnections;
+
+    private final int maxConnectionsBase;
+
+    private final int efConstruction;
+
+    private final double levelMultiplier;
+
+    private final Random random;
+
+    private final Map<K, Integer> idsByKey = new HashMap<>();
+
+    private List<Node<K>> nodes = new ArrayList<>();
+
+    private int entryPoint = -1;
+
+    private int maxLevel = -1;
+
+    private int deletedCount;
+
+    /**
+     * @param maxConnections количество связей узла на верхних уровнях (M), на нижнем уровне - 2M
+     * @param efConstruction ширина поиска соседей при добавлении
+     */
+    public HnswIndex(int maxConnections, int efConstruction) {
+        if (maxConnections < 2 || efConstruction < 1) {
+            throw new IllegalArgumentException("Параметры HNSW индекса должны быть положительными, M >= 2");
+        }
+        this.maxConnections = maxConnections;
+        this.maxConnectionsBase = maxConnections * 2;
+        this.efConstruction = efConstruction;
+        this.levelMultiplier = 1 / Math.log(maxConnections);
+        this.random = new Random(42);
+    }
+
+    /**
+     * Добавляет или заменяет элемент
+     */
+    public synchronized void add(K key, float[] vector) {
+        Integer previous = idsByKey.remove(key);
+        if (previous != null) {
+            markDeleted(previous);
+        }
+        insert(key, normalize(vector));
+    }
+
+    /**
+     * Удаляет элемент; при накоплении удаленных узлов граф перестраивается
+     */
+    public synchronized void remove(K key) {
+        Integer id = idsByKey.remove(key);
+        if (id == null) {
+            return;
+        }
+        markDeleted(id);
+    }
+
+    /**
+     * Ищет до k ближайших элементов, отсортированных по убыванию сходства
+     *
+     * @param ef ширина поиска на нижнем уровне; больше - точнее, но медленнее
+     */
+    public synchronized List<Match<K>> search(float[] vector, int k, int ef) {
+        if (entryPoint < 0 || k <= 0) {
+            return List.of();
+        }
+        float[] query = normalize(vector);
+        int current = entryPoint;
+        for (int level = maxLevel; level > 0; level--) {
+            current = greedyClosest(query, current, level);
+        }
+
+        List<Integer> candidates = searchLayer(query, List.of(current), Math.max(ef, k), 0);
+        List<Match<K>> matches = new ArrayList<>();
+        for (int id : candidates) {
+            Node<K> node = nodes.get(id);
+            if (!node.deleted) {
+                matches.add(new Match<>(node.key, similarity(query, node.vector)));
+                if (matches.size() == k) {
+                    break;
+                }
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Количество живых элементов
+     */
+    public synchronized int size() {
+        return idsByKey.size();
+    }
+
+    /**
+     * Количество узлов графа, включая помеченные как удаленные
+     */
+    public synchronized int nodeCount() {
+        return nodes.size();
+    }
+
+    private void insert(K key, float[] vector) {
+        int level = (int) Math.floor(-Math.log(1 - random.nextDouble()) * levelMultiplier);
+        Node<K> node = new Node<>(key, vector, level);
+        int id = nodes.size();
+        nodes.add(node);
+        idsByKey.put(key, id);
+
+        if (entryPoint < 0) {
+            entryPoint = id;
+            maxLevel = level;
+            return;
+        }
+
+        int current = entryPoint;
+        for (int layer = maxLevel; layer > level; layer--) {
+            current = greedyClosest(vector, current, layer);
+        }
+
+        List<Integer> entryPoints = List.of(current);
+        for (int layer = Math.min(level, maxLevel); layer >= 0; layer--) {
+            List<Integer> candidates = searchLayer(vector, entryPoints, efConstruction, layer);
+            int limit = layer == 0 ? maxConnectionsBase : maxConnections;
+            List<Integer> neighbours = candidates.subList(0, Math.min(maxConnections, candidates.size()));
+            for (int neighbour : neighbours) {
+                node.neighbours.get(layer).add(neighbour);
+                List<Integer> reverse = nodes.get(neighbour).neighbours.get(layer);
+                reverse.add(id);
+                if (reverse.size() > limit) {
+                    shrink(nodes.get(neighbour), layer, limit);
+                }
+            }
+            entryPoints = candidates;
+        }
+
+        if (level > maxLevel) {
+            entryPoint = id;
+            maxLevel = level;
+        }
+    }
+
+    /**
+     * Оставляет у узла только limit ближайших соседей на уровне
+     */
+    private void shrink(Node<K> node, int layer, int limit) {
+        List<Integer> neighbours = node.neighbours.get(layer);
+        neighbours.sort(Comparator.comparingDouble(id -> -similarity(node.vector, nodes.get(id).vector)));
+        neighbours.subList(limit, neighbours.size()).clear();
+    }
+
+    private int greedyClosest(float[] query, int start, int layer) {
+        int current = start;
+        double best = similarity(query, nodes.get(current).vector);
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            for (int neighbour : nodes.get(current).neighbours.get(layer)) {
+                double candidate = similarity(query, nodes.get(neighbour).vector);
+                if (candidate > best) {
+                    best = candidate;
+                    current = neighbour;
+                    improved = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Поиск на одном уровне графа; возвращает до ef узлов по убыванию сходства
+     */
+    private List<Integer> searchLayer(float[] query, List<Integer> entryPoints, int ef, int layer) {
+        Set<Integer> visited = new HashSet<>(entryPoints);
+        PriorityQueue<Scored> candidates = new PriorityQueue<>(Comparator.comparingDouble(Scored::similarity).reversed());
+        PriorityQueue<Scored> results = new PriorityQueue<>(Comparator.comparingDouble(Scored::similarity));
+        for (int id : entryPoints) {
+            Scored scored = new Scored(id, similarity(query, nodes.get(id).vector));
+            candidates.add(scored);
+            results.add(scored);
+            if (results.size() > ef) {
+                results.poll();
+            }
+        }
+
+        while (!candidates.isEmpty()) {
+            Scored closest = candidates.poll();
+            if (results.size() >= ef && closest.similarity() < results.peek().similarity()) {
+                break;
+            }
+            for (int neighbour : nodes.get(closest.id()).neighbours.get(layer)) {
+                if (visited.add(neighbour)) {
+                    double similarity = similarity(query, nodes.get(neighbour).vector);
+                    if (results.size() < ef || similarity > results.peek().similarity()) {
+                        Scored scored = new Scored(neighbour, similarity);
+                        candidates.add(scored);
+                        results.add(scored);
+                        if (results.size() > ef) {
+                            results.poll();
+                        }
+                    }
+                }
+            }
+        }
+
+        List<Integer> ordered = new ArrayList<>(results.size());
+        while (!results.isEmpty()) {
+            ordered.add(0, results.poll().id());
+        }
+        return ordered;
+    }
+
+    private void markDeleted(int id) {
+        nodes.get(id).deleted = true;
+        deletedCount++;
+        if (deletedCount > Math.max(16, idsByKey.size())) {
+            rebuild();
+        }
+    }
+
+    private void rebuild() {
+        List<Node<K>> live = nodes.stream().filter(node -> !node.deleted).toList();
+        nodes = new ArrayList<>(live.size());
+        idsByKey.clear();
+        entryPoint = -1;
+        maxLevel = -1;
+        deletedCount = 0;
+        live.forEach(node -> insert(node.key, node.vector));
+    }
+
+    private static float[] normalize(float[] vector) {
+        double norm = 0;
+        for (float value : vector) {
+            norm += value * value;
+        }
+        norm = Math.sqrt(norm);
+        float[] normalized = new float[vector.length];
+        if (norm == 0) {
+            return normalized;
+        }
+        for (int i = 0; i < vector.length; i++) {
+            normalized[i] = (float) (vector[i] / norm);
+        }
+        return normalized;
+    }
+
+    private static double similarity(float[] a, float[] b) {
+        if (a.length != b.length) {
+            throw new IllegalArgumentException("Размерность вектора " + a.length + " не совпадает с размерностью индекса " + b.length);
+        }
+        double dot = 0;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+        }
+        return dot;
+    }
+
+    private static final class Node<K> {
+
+        private final K key;
+
+        private final float[] vector;
+
+        private final List<List<Integer>> neighbours;
+
+        private boolean deleted;
+
+        private Node(K key, float[] vector, int level) {
+            this.key = key;
+            this.vector = vector;
+            this.neighbours = new ArrayList<>(level + 1);
+            for (int i = 0; i <= level; i++) {
+                neighbours.add(new ArrayList<>());
+            }
+        }
+    }
+
+    private record Scored(int id, double similarity) {
+    }
+
+    /**
+     * Найденный элемент и его косинусное сходство с запросом
+     */
+    public record Match<K>(K key, double similarity) {
+    }
+}
@@ -3,6 +3,7 @@ package com.multiagent;
 import com.multiagent.agent.FundamentalAnalysisAgent;
 import com.multiagent.agent.SentimentAnalysisAgent;
 import com.multiagent.agent.TechnicalAnalysisAgent;
+import com.multiagent.market.IndicatorEngine;
 import org.springframework.ai.chat.model.ChatModel;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
@@ -18,6 +19,10 @@ public abstract class BaseTestConfiguration {
     @MockBean
     protected ChatModel chatModel;
 
+    // Индикаторы не должны зависеть от локальных свечей в каталоге разработчика
+    @MockBean
+    protected IndicatorEngine indicatorEngine;
+
     @Autowired
     protected TechnicalAnalysisAgent technicalAnalysisAgent;
 
@@ -0,0 +1,160 @@
+package com.multiagent.agent;
+
+import com.multiagent.config.AgentProperties;
+import com.multiagent.model.AgentAnalysis;
+import com.multiagent.model.AnalysisOptions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Тесты для AgentRegistry")
+class AgentRegistryTest {
+
+    private AgentProperties properties;
+
+    private StubAgent alpha;
+
+    private StubAgent beta;
+
+    @BeforeEach
+    void setUp() {
+        properties = new AgentProperties();
+        alpha = new StubAgent("alpha");
+        beta = new StubAgent("beta");
+    }
+
+    @Test
+    @DisplayName("Без явного выбора должны использоваться агенты, включенные в конфигурации")
+    void shouldResolveEnabledAgentsByDefault() {
+        AgentProperties.AgentSettings disabled = new AgentProperties.AgentSettings();
+        disabled.setEnabled(false);
+        properties.getAgents().put("beta", disabled);
+        AgentRegistry registry = new AgentRegistry(List.of(alpha, beta), properties);
+
+        assertEquals(List.of(alpha), registry.resolve(null));
+    }
+
+    @Test
+    @DisplayName("Явно запрошенный агент должен использоваться даже если отключен по умолчанию")
+    void shouldResolveRequestedAgents() {
+        AgentProperties.AgentSettings disabled = new AgentProperties.AgentSettings();
+        disabled.setEnabled(false);
+        properties.getAgents().put("beta", disabled);
+        AgentRegistry registry = new AgentRegistry(List.of(alpha, beta), properties);
+
+        assertEquals(List.of(beta), registry.resolve(List.of("beta")));
+    }
+
+    @Test
+    @DisplayName("Неизвестный агент должен приводить к IllegalArgumentException")
+    void shouldRejectUnknownAgent() {
+        AgentRegistry registry = new AgentRegistry(List.of(alpha, beta), properties);
+
+        assertThrows(IllegalArgumentException.class, () -> registry.resolve(List.of("gamma")));
+    }
+
+    @Test
+    @DisplayName("Дублирующиеся идентификаторы агентов недопустимы")
+    void shouldRejectDuplicateIds() {
+        assertThrows(IllegalStateException.class,
+                () -> new AgentRegistry(List.of(alpha, new StubAgent("alpha")), properties));
+    }
+
+    @Test
+    @DisplayName("Количество одновременных вызовов агента должно ограничиваться")
+    void shouldLimitConcurrentInvocations() throws Exception {
+        AgentProperties.AgentSettings limited = new AgentProperties.AgentSettings();
+        limited.setMaxConcurrency(1);
+        properties.getAgents().put("alpha", limited);
+        AgentRegistry registry = new AgentRegistry(List.of(alpha), properties);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        CountDownLatch done = new CountDownLatch(4);
+        for (int i = 0; i < 4; i++) {
+            executor.submit(() -> {
+                registry.invoke(alpha, "Bitcoin", "1 месяц");
+                done.countDown();
+            });
+        }
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        executor.shutdown();
+        assertEquals(1, alpha.maxObservedConcurrency.get());
+    }
+
+    @Test
+    @DisplayName("Лимит токенов должен быть минимумом из настройки агента и лимита запроса")
+    void shouldResolveMaxTokens() {
+        AgentProperties.AgentSettings limited = new AgentProperties.AgentSettings();
+        limited.setMaxTokens(800);
+        properties.getAgents().put("alpha", limited);
+        AgentRegistry registry = new AgentRegistry(List.of(alpha, beta), properties);
+        AnalysisOptions brief = AnalysisOptions.defaults();
+        brief.setMaxTokens(250);
+
+        assertEquals(800, registry.getMaxTokens(alpha, AnalysisOptions.defaults()));
+        assertEquals(250, registry.getMaxTokens(alpha, brief));
+        assertEquals(250, registry.getMaxTokens(beta, brief));
+        assertNull(registry.getMaxTokens(beta, AnalysisOptions.defaults()));
+    }
+
+    @Test
+    @DisplayName("Лимит запроса не должен задаваться, если не ограничивает ни одного агента запроса")
+    void shouldDropNonLimitingMaxTokens() {
+        AgentProperties.AgentSettings limited = new AgentProperties.AgentSettings();
+        limited.setMaxTokens(800);
+        properties.getAgents().put("alpha", limited);
+        AgentRegistry registry = new AgentRegistry(List.of(alpha, beta), properties);
+
+        assertNull(registry.limitingMaxTokens(List.of("alpha"), 800));
+        assertEquals(600, registry.limitingMaxTokens(List.of("alpha"), 600));
+        assertEquals(800, registry.limitingMaxTokens(null, 800), "У beta нет собственного лимита");
+        assertNull(registry.limitingMaxTokens(null, null));
+    }
+
+    private static class StubAgent extends BaseAgent {
+
+        private final String id;
+
+        private final AtomicInteger active = new AtomicInteger();
+
+        private final AtomicInteger maxObservedConcurrency = new AtomicInteger();
+
+        StubAgent(String id) {
+            super(null);
+            this.id = id;
+        }
+
+        @Override
+        public String getId() {
+            return id;
+        }
+
+        @Override
+        public String getName() {
+            return "Агент " + id;
+        }
+
+        @Override
+        public AgentAnalysis analyze(String cryptocurrency, String timeframe) {
+            int current = active.incrementAndGet();
+            maxObservedConcurrency.accumulateAndGet(current, Math::max);
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            active.decrementAndGet();
+            return new AgentAnalysis(getName(), "анализ", "ДЕРЖАТЬ", 0.6);
+        }
+    }
+}
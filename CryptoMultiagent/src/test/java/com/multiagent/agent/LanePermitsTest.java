@@ -0,0 +1,104 @@
+package com.multiagent.agent;
+
+import com.multiagent.model.ExecutionLane;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Тесты для LanePermits")
+class LanePermitsTest {
+
+    @Test
+    @DisplayName("Пакетная полоса может занять общую емкость, но не резерв интерактивной")
+    void bulkShouldUseSharedCapacityButNotInteractiveReserve() throws Exception {
+        // Arrange: лимит 4, резерв интерактивной полосы 2, пакетной 1, общий 1
+        LanePermits permits = new LanePermits(4, 2, 1);
+
+        // Act
+        permits.acquire(ExecutionLane.BULK);
+        permits.acquire(ExecutionLane.BULK);
+        CompletableFuture<Void> third = acquireAsync(permits, ExecutionLane.BULK);
+
+        // Assert
+        assertThrows(TimeoutException.class, () -> third.get(200, TimeUnit.MILLISECONDS));
+        assertEquals(2, permits.active(ExecutionLane.BULK));
+        assertEquals(1, permits.waiting(ExecutionLane.BULK));
+        permits.acquire(ExecutionLane.INTERACTIVE);
+        permits.acquire(ExecutionLane.INTERACTIVE);
+        assertEquals(2, permits.active(ExecutionLane.INTERACTIVE));
+        permits.release(ExecutionLane.BULK);
+        third.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    @DisplayName("Освободившееся место должно достаться интерактивному вызову раньше пакетного")
+    void releasedPermitShouldGoToInteractiveFirst() throws Exception {
+        // Arrange: резервов нет, вся емкость общая
+        LanePermits permits = new LanePermits(1, 0, 0);
+        permits.acquire(ExecutionLane.BULK);
+        CompletableFuture<Void> bulk = acquireAsync(permits, ExecutionLane.BULK);
+        awaitWaiting(permits, ExecutionLane.BULK);
+        CompletableFuture<Void> interactive = acquireAsync(permits, ExecutionLane.INTERACTIVE);
+        awaitWaiting(permits, ExecutionLane.INTERACTIVE);
+
+        // Act
+        permits.release(ExecutionLane.BULK);
+
+        // Assert
+        interactive.get(5, TimeUnit.SECONDS);
+        assertFalse(bulk.isDone(), "Пакетный вызов должен ждать, пока не освободится место");
+        permits.release(ExecutionLane.INTERACTIVE);
+        bulk.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    @DisplayName("Пакетная полоса должна получать свой резерв, даже когда ждут интерактивные вызовы")
+    void bulkReserveShouldNotStarve() throws Exception {
+        // Arrange: лимит 2, по одному месту в резерве каждой полосы
+        LanePermits permits = new LanePermits(2, 1, 1);
+        permits.acquire(ExecutionLane.INTERACTIVE);
+        CompletableFuture<Void> interactive = acquireAsync(permits, ExecutionLane.INTERACTIVE);
+        awaitWaiting(permits, ExecutionLane.INTERACTIVE);
+
+        // Act
+        permits.acquire(ExecutionLane.BULK);
+
+        // Assert
+        assertEquals(1, permits.active(ExecutionLane.BULK));
+        assertFalse(interactive.isDone());
+        assertEquals(3, permits.ahead(ExecutionLane.INTERACTIVE));
+        assertEquals(3, permits.ahead(ExecutionLane.BULK));
+        permits.release(ExecutionLane.INTERACTIVE);
+        interactive.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    @DisplayName("Резервы полос не должны превышать лимит вызовов")
+    void shouldRejectReservesAboveCapacity() {
+        assertThrows(IllegalArgumentException.class, () -> new LanePermits(2, 2, 1));
+    }
+
+    private static CompletableFuture<Void> acquireAsync(LanePermits permits, ExecutionLane lane) {
+        return CompletableFuture.runAsync(() -> {
+            try {
+                permits.acquire(lane);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    private static void awaitWaiting(LanePermits permits, ExecutionLane lane) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (permits.waiting(lane) == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(permits.waiting(lane) > 0, "Вызов должен ожидать разрешения");
+    }
+}
@@ -0,0 +1,58 @@
+package com.multiagent.agent;
+
+import com.multiagent.model.AgentAnalysis;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ModeratorAgentTest extends BaseAgentTest {
+
+    @Autowired
+    private ModeratorAgent moderatorAgent;
+
+    @Autowired
+    private AgentRegistry agentRegistry;
+
+    @Test
+    @DisplayName("Модератор не должен участвовать в общем запуске агентов")
+    void testModeratorIsNotRegistered() {
+        assertTrue(moderatorAgent.isModerator());
+        assertTrue(agentRegistry.getAgents().stream().noneMatch(BaseAgent::isModerator));
+        assertThrows(IllegalArgumentException.class,
+                () -> agentRegistry.validate(java.util.List.of(ModeratorAgent.ID)));
+    }
+
+    @Test
+    @DisplayName("Модератор должен выносить решение по выводам аналитиков")
+    void testModeratorSynthesizesAnalyses() {
+        // Arrange
+        when(chatModel.call(any(Prompt.class))).thenReturn(createMockChatResponse(
+                "Аргументы продавцов убедительнее. Рекомендация: ПРОДАВАТЬ. Высокая уверенность."));
+        Map<String, AgentAnalysis> inputs = Map.of(
+                TechnicalAnalysisAgent.ID, new AgentAnalysis(TechnicalAnalysisAgent.NAME, "Пробой поддержки", "ПРОДАВАТЬ", 0.9),
+                SentimentAnalysisAgent.ID, new AgentAnalysis(SentimentAnalysisAgent.NAME, "Жадность в соцсетях", "ПОКУПАТЬ", 0.5)
+        );
+
+        // Act
+        AgentAnalysis result = moderatorAgent.analyze("Bitcoin", "1 месяц", inputs);
+
+        // Assert
+        ArgumentCaptor<Prompt> prompt = ArgumentCaptor.forClass(Prompt.class);
+        verify(chatModel).call(prompt.capture());
+        String promptText = prompt.getValue().getContents();
+        assertTrue(promptText.contains("Пробой поддержки"));
+        assertTrue(promptText.contains("Жадность в соцсетях"));
+        assertBasicAgentAnalysis(result, "Модератор");
+        assertSellRecommendation(result);
+        assertHighConfidence(result);
+    }
+}
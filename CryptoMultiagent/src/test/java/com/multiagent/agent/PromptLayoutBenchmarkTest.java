@@ -0,0 +1,129 @@
+package com.multiagent.agent;
+
+import com.multiagent.config.IndicatorProperties;
+import com.multiagent.config.PromptProperties;
+import com.multiagent.config.PromptProperties.Layout;
+import com.multiagent.market.IndicatorEngine;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Сравнение раскладок промптов: доля промпта, общая для запросов по разным криптовалютам
+ * (ее провайдер может взять из кэша префиксов), и время построения промпта
+ */
+@Slf4j
+@DisplayName("Сравнение раскладок промптов")
+class PromptLayoutBenchmarkTest {
+
+    private static final List<String> COINS = List.of("Bitcoin", "Ethereum", "Solana", "Cardano", "Dogecoin",
+            "Polkadot", "Chainlink", "Litecoin", "Avalanche", "Toncoin");
+
+    private static final int ITERATIONS = 200;
+
+    @Test
+    @DisplayName("Раскладка split должна сохранять общий префикс промпта для разных криптовалют")
+    void shouldKeepStablePrefix() {
+        // Прогрев JIT и шаблонизатора, чтобы первая раскладка не измерялась в холодном состоянии
+        measure(Layout.SPLIT);
+        measure(Layout.LEGACY);
+
+        LayoutStats split = measure(Layout.SPLIT);
+        LayoutStats legacy = measure(Layout.LEGACY);
+
+        log.info("Раскладка split: общий префикс {}%, построение {} мкс", split.prefixPercent(),
+                String.format("%.1f", split.renderMicros()));
+        log.info("Раскладка legacy: общий префикс {}%, построение {} мкс", legacy.prefixPercent(),
+                String.format("%.1f", legacy.renderMicros()));
+
+        assertTrue(split.prefixShare() > 0.8, "Общий префикс split: " + split.prefixPercent() + "%");
+        assertTrue(legacy.prefixShare() < 0.2, "Общий префикс legacy: " + legacy.prefixPercent() + "%");
+    }
+
+    private LayoutStats measure(Layout layout) {
+        PromptProperties properties = new PromptProperties();
+        properties.setLayout(layout);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        PromptRenderer renderer = new PromptRenderer(properties, meterRegistry);
+
+        List<BiFunction<ChatModel, PromptRenderer, BaseAgent>> factories = List.of(
+                (model, promptRenderer) -> new TechnicalAnalysisAgent(model, promptRenderer,
+                        mock(IndicatorEngine.class), new IndicatorProperties()),
+                FundamentalAnalysisAgent::new, SentimentAnalysisAgent::new);
+        double prefixShare = 1;
+        for (BiFunction<ChatModel, PromptRenderer, BaseAgent> factory : factories) {
+            ChatModel chatModel = mock(ChatModel.class);
+            when(chatModel.call(any(Prompt.class))).thenReturn(new ChatResponse(
+                    List.of(new Generation(new AssistantMessage("Рекомендация: ДЕРЖАТЬ. Умеренная уверенность.")))));
+            BaseAgent agent = factory.apply(chatModel, renderer);
+            for (int i = 0; i < ITERATIONS; i++) {
+                agent.analyze(COINS.get(i % COINS.size()), "1 месяц");
+            }
+
+            ArgumentCaptor<Prompt> prompts = ArgumentCaptor.forClass(Prompt.class);
+            verify(chatModel, atLeastOnce()).call(prompts.capture());
+            List<String> texts = prompts.getAllValues().subList(0, COINS.size()).stream()
+                    .map(PromptLayoutBenchmarkTest::serialize)
+                    .toList();
+            prefixShare = Math.min(prefixShare, (double) commonPrefix(texts) / texts.get(0).length());
+        }
+
+        double totalMicros = 0;
+        long count = 0;
+        for (Timer timer : meterRegistry.get("crypto.prompt.render").timers()) {
+            totalMicros += timer.totalTime(TimeUnit.MICROSECONDS);
+            count += timer.count();
+        }
+        return new LayoutStats(prefixShare, totalMicros / count);
+    }
+
+    /**
+     * Промпт в том виде, в каком провайдер сравнивает префиксы: сообщения по порядку с ролями
+     */
+    private static String serialize(Prompt prompt) {
+        return prompt.getInstructions().stream()
+                .map(message -> message.getMessageType() + ":" + message.getText())
+                .collect(Collectors.joining("\n"));
+    }
+
+    private static int commonPrefix(List<String> texts) {
+        String first = texts.get(0);
+        int length = first.length();
+        for (String text : texts) {
+            int i = 0;
+            while (i < Math.min(length, text.length()) && first.charAt(i) == text.charAt(i)) {
+                i++;
+            }
+            length = i;
+        }
+        return length;
+    }
+
+    private record LayoutStats(double prefixShare, double renderMicros) {
+
+        long prefixPercent() {
+            return Math.round(prefixShare * 100);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.multiagent.agent;
+
+import com.multiagent.model.AgentAnalysis;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RiskAssessmentAgentTest extends BaseAgentTest {
+
+    @Autowired
+    private RiskAssessmentAgent riskAssessmentAgent;
+
+    @Test
+    @DisplayName("Риск-менеджер должен зависеть от технического анализа и анализа настроений")
+    void testDependencies() {
+        assertEquals(2, riskAssessmentAgent.getDependencies().size());
+        assertTrue(riskAssessmentAgent.getDependencies().contains(TechnicalAnalysisAgent.ID));
+        assertTrue(riskAssessmentAgent.getDependencies().contains(SentimentAnalysisAgent.ID));
+        assertFalse(riskAssessmentAgent.isEnabledByDefault());
+    }
+
+    @Test
+    @DisplayName("Риск-менеджер должен включать выводы других агентов в промпт")
+    void testInputsArePassedToPrompt() {
+        // Arrange
+        when(chatModel.call(any(Prompt.class))).thenReturn(createMockChatResponse(
+                "Риски умеренные, рекомендую покупать. Умеренная уверенность."));
+        Map<String, AgentAnalysis> inputs = Map.of(
+                TechnicalAnalysisAgent.ID, new AgentAnalysis(TechnicalAnalysisAgent.NAME, "Восходящий тренд", "ПОКУПАТЬ", 0.9),
+                SentimentAnalysisAgent.ID, new AgentAnalysis(SentimentAnalysisAgent.NAME, "Страх на рынке", "ПРОДАВАТЬ", 0.5)
+        );
+
+        // Act
+        AgentAnalysis result = riskAssessmentAgent.analyze("Bitcoin", "1 месяц", inputs);
+
+        // Assert
+        ArgumentCaptor<Prompt> prompt = ArgumentCaptor.forClass(Prompt.class);
+        verify(chatModel).call(prompt.capture());
+        String promptText = prompt.getValue().getContents();
+        assertTrue(promptText.contains("Восходящий тренд"));
+        assertTrue(promptText.contains("Страх на рынке"));
+        assertBasicAgentAnalysis(result, "Риск-Менеджер");
+        assertBuyRecommendation(result);
+        assertModerateConfidence(result);
+    }
+}
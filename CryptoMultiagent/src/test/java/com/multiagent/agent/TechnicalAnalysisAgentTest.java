@@ -1,14 +1,30 @@
 package com.multiagent.agent;
 
+import com.multiagent.market.CandleInterval;
+import com.multiagent.market.IndicatorSnapshot;
 import com.multiagent.model.AgentAnalysis;
+import com.multiagent.model.TokenUsage;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.DisplayName;
+import org.mockito.ArgumentCaptor;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.MessageType;
+import org.springframework.ai.chat.metadata.ChatResponseMetadata;
+import org.springframework.ai.chat.metadata.DefaultUsage;
 import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
 import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.openai.api.OpenAiApi;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 class TechnicalAnalysisAgentTest extends BaseAgentTest {
@@ -69,4 +85,58 @@ class TechnicalAnalysisAgentTest extends BaseAgentTest {
         assertErrorInAnalysis(result);
         assertHoldRecommendation(result); // Дефолтная рекомендация при ошибке
     }
+
+    @Test
+    @DisplayName("Инструкции агента должны передаваться неизменным системным сообщением, а токены из кэша - учитываться")
+    void testSystemMessageAndCachedTokens() {
+        // Arrange
+        OpenAiApi.Usage nativeUsage = new OpenAiApi.Usage(40, 500, 540,
+                new OpenAiApi.Usage.PromptTokensDetails(null, 448), null, null, null);
+        when(chatModel.call(any(Prompt.class))).thenReturn(new ChatResponse(
+                List.of(new Generation(new AssistantMessage("Рекомендация: ДЕРЖАТЬ. Умеренная уверенность."))),
+                ChatResponseMetadata.builder().usage(new DefaultUsage(500, 40, 540, nativeUsage)).build()));
+        AgentCallContext context = new AgentCallContext(null, false);
+
+        // Act
+        AgentCallContext.callWith(context, () -> technicalAnalysisAgent.analyze("Bitcoin", "1 месяц"));
+        AgentCallContext.callWith(context, () -> technicalAnalysisAgent.analyze("Solana", "1 неделя"));
+
+        // Assert
+        ArgumentCaptor<Prompt> prompts = ArgumentCaptor.forClass(Prompt.class);
+        verify(chatModel, times(2)).call(prompts.capture());
+        Prompt bitcoin = prompts.getAllValues().get(0);
+        Prompt solana = prompts.getAllValues().get(1);
+        assertEquals(MessageType.SYSTEM, bitcoin.getInstructions().get(0).getMessageType());
+        assertEquals(bitcoin.getInstructions().get(0).getText(), solana.getInstructions().get(0).getText());
+        assertFalse(bitcoin.getInstructions().get(0).getText().contains("Bitcoin"));
+        assertTrue(bitcoin.getInstructions().get(1).getText().contains("Bitcoin"));
+        assertEquals(new TokenUsage(1000, 80, 896), context.getUsage());
+    }
+
+    @Test
+    @DisplayName("Технический агент должен передавать в промпт рассчитанные значения индикаторов")
+    void testIndicatorsArePassedToPrompt() {
+        // Arrange
+        IndicatorSnapshot snapshot = new IndicatorSnapshot("BTC", CandleInterval.DAY_1,
+                Instant.parse("2024-03-01T00:00:00Z"), 500, 61234.5, 58000, 60100, 67.25,
+                850.5, 700.25, 150.25, 64000, 60000, 56000, Double.NaN);
+        when(indicatorEngine.forAnalysis("Bitcoin", "1 месяц")).thenReturn(Optional.of(snapshot));
+        when(chatModel.call(any(Prompt.class))).thenReturn(createMockChatResponse(
+                "RSI близок к перекупленности. Рекомендация: ДЕРЖАТЬ. Умеренная уверенность."));
+
+        // Act
+        AgentAnalysis result = technicalAnalysisAgent.analyze("Bitcoin", "1 месяц");
+        technicalAnalysisAgent.analyze("Ethereum", "1 месяц");
+
+        // Assert
+        ArgumentCaptor<Prompt> prompts = ArgumentCaptor.forClass(Prompt.class);
+        verify(chatModel, times(2)).call(prompts.capture());
+        String bitcoin = prompts.getAllValues().get(0).getInstructions().get(1).getText();
+        String ethereum = prompts.getAllValues().get(1).getInstructions().get(1).getText();
+        assertTrue(bitcoin.contains("RSI(14): 67.25"));
+        assertTrue(bitcoin.contains("MACD(12, 26, 9): линия 850.5, сигнальная 700.25, гистограмма 150.25"));
+        assertTrue(bitcoin.contains("VWAP с начала суток UTC: недостаточно данных"));
+        assertTrue(ethereum.contains("локальные рыночные данные отсутствуют"));
+        assertHoldRecommendation(result);
+    }
 }
@@ -0,0 +1,229 @@
+package com.multiagent.backtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.multiagent.agent.AgentRegistry;
+import com.multiagent.agent.BaseAgent;
+import com.multiagent.backtest.BacktestReport.PerformanceStats;
+import com.multiagent.config.AgentProperties;
+import com.multiagent.config.BacktestProperties;
+import com.multiagent.config.IndicatorProperties;
+import com.multiagent.config.MarketDataProperties;
+import com.multiagent.market.CandleInterval;
+import com.multiagent.market.CandleSeries;
+import com.multiagent.market.IndicatorEngine;
+import com.multiagent.market.MarketDataStore;
+import com.multiagent.model.AgentAnalysis;
+import com.multiagent.model.CryptoAnalysisResponse;
+import com.multiagent.service.RecommendationAggregator;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Slf4j
+@DisplayName("Тесты для BacktestEngine")
+class BacktestEngineTest {
+
+    private static final long HOUR = 3_600_000L;
+
+    private static final long DAY = 24 * HOUR;
+
+    private static final long START = 1_609_459_200_000L;
+
+    @TempDir
+    Path directory;
+
+    private MarketDataStore store;
+
+    private IndicatorEngine indicatorEngine;
+
+    private RecommendationJournal journal;
+
+    private BacktestProperties properties;
+
+    private BacktestEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        MarketDataProperties storeProperties = new MarketDataProperties();
+        storeProperties.setDirectory(directory.resolve("store").toString());
+        store = new MarketDataStore(storeProperties);
+        IndicatorProperties indicatorProperties = new IndicatorProperties();
+        indicatorProperties.getSymbols().put("bitcoin", "BTC");
+        indicatorEngine = new IndicatorEngine(store, indicatorProperties);
+        properties = new BacktestProperties();
+        properties.setJournalFile(directory.resolve("journal/recommendations.jsonl").toString());
+        journal = new RecommendationJournal(properties, new ObjectMapper().findAndRegisterModules());
+        engine = new BacktestEngine(store, indicatorEngine, indicatorProperties, journal,
+                new RecommendationAggregator(), new AgentRegistry(List.of(), new AgentProperties()), properties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        engine.shutdown();
+        indicatorEngine.shutdown();
+        journal.close();
+        store.close();
+    }
+
+    @Test
+    @DisplayName("Воспроизведение по индикаторам на многолетней часовой истории нескольких монет должно занимать секунды")
+    void shouldBacktestMultiYearHistoryInParallel() {
+        // Arrange
+        int candles = 4 * 365 * 24;
+        String[] symbols = {"BTC", "ETH", "SOL", "ADA", "XRP"};
+        Random random = new Random(3);
+        for (String symbol : symbols) {
+            CandleSeries series = store.series(symbol, CandleInterval.HOUR_1);
+            double price = 100;
+            for (int i = 0; i < candles; i++) {
+                double open = price;
+                price *= Math.exp(0.00005 + random.nextGaussian() * 0.01);
+                series.append(START + i * HOUR, open, Math.max(open, price) * 1.002, Math.min(open, price) * 0.998,
+                        price, 10 + random.nextDouble());
+            }
+        }
+        BacktestRequest request = new BacktestRequest();
+        request.setInterval("1h");
+        request.setHorizon("1 день");
+
+        // Act
+        BacktestReport report = engine.run(request);
+        BacktestReport repeated = engine.run(request);
+
+        // Assert
+        log.info("Бэктест {} свечей: {} окон, {} рекомендаций за {} мс",
+                candles * symbols.length, report.windows(), report.signals(), report.elapsedMillis());
+        assertEquals(List.of("ADA", "BTC", "ETH", "SOL", "XRP"), report.symbols());
+        assertEquals(5 * 4, report.windows(), "Четыре года делятся на четыре окна по 365 дней");
+        assertTrue(report.signals() > 5 * 1400, "Рекомендация на каждые сутки истории: " + report.signals());
+        assertEquals(List.of(BacktestEngine.MOMENTUM_RULE, BacktestEngine.OSCILLATOR_RULE, BacktestEngine.TREND_RULE),
+                report.agents().stream().map(PerformanceStats::name).toList());
+        assertEquals(List.of(BacktestEngine.WEIGHTED_STRATEGY, BacktestEngine.MAJORITY_STRATEGY,
+                        BacktestEngine.UNANIMOUS_STRATEGY, BacktestEngine.BUY_AND_HOLD_STRATEGY),
+                report.strategies().stream().map(PerformanceStats::name).toList());
+        report.strategies().forEach(stats -> assertEquals(report.signals(), stats.signals()));
+        assertEquals(report.strategies(), repeated.strategies(), "Воспроизведение детерминировано");
+        assertTrue(report.elapsedMillis() < Duration.ofSeconds(10).toMillis(), "Бэктест занял " + report.elapsedMillis() + " мс");
+    }
+
+    @Test
+    @DisplayName("На растущей цене следование тренду и покупка должны быть верны всегда")
+    void shouldScoreTrendFollowingOnRisingPrice() {
+        // Arrange
+        CandleSeries series = store.series("UP", CandleInterval.DAY_1);
+        for (int i = 0; i < 400; i++) {
+            double close = 100 * Math.pow(1.01, i);
+            series.append(START + i * DAY, close / 1.01, close * 1.001, close / 1.011, close, 1);
+        }
+        BacktestRequest request = new BacktestRequest();
+        request.setSymbols(List.of("up"));
+
+        // Act
+        BacktestReport report = engine.run(request);
+
+        // Assert
+        PerformanceStats trend = stats(report.agents(), BacktestEngine.TREND_RULE);
+        PerformanceStats buyAndHold = stats(report.strategies(), BacktestEngine.BUY_AND_HOLD_STRATEGY);
+        assertEquals("1 неделя", report.horizon());
+        assertTrue(trend.signals() > 40);
+        assertEquals(trend.signals(), trend.buySignals());
+        assertEquals(1.0, trend.hitRate());
+        assertEquals(1.0, buyAndHold.hitRate());
+        assertEquals(Math.pow(1.01, 7) - 1, buyAndHold.averageReturn(), 1e-9);
+        assertEquals(0.0, stats(report.agents(), BacktestEngine.OSCILLATOR_RULE).activeHitRate(),
+                "RSI 100 - сигнал перекупленности, который на росте всегда ошибочен");
+    }
+
+    @Test
+    @DisplayName("Рекомендации журнала должны проверяться по ценам на горизонте периода анализа")
+    void shouldBacktestJournal() throws Exception {
+        // Arrange
+        CandleSeries series = store.series("BTC", CandleInterval.DAY_1);
+        for (int i = 0; i < 40; i++) {
+            double open = i < 20 ? 100 + i : 120 - (i - 20);
+            double close = i < 20 ? open + 0.5 : open - 0.5;
+            series.append(START + i * DAY, open, Math.max(open, close), Math.min(open, close), close, 1);
+        }
+        journal.record(response(START + HOUR, "ПОКУПАТЬ", "ПОКУПАТЬ", "ПРОДАВАТЬ"));
+        journal.record(response(START + 25 * DAY + HOUR, "ПРОДАВАТЬ", "ПРОДАВАТЬ", "ПРОДАВАТЬ"));
+        journal.record(response(START + 36 * DAY + HOUR, "ПОКУПАТЬ", "ПОКУПАТЬ", "ПОКУПАТЬ"));
+        CryptoAnalysisResponse failed = response(START + 2 * DAY, "ДЕРЖАТЬ", "ДЕРЖАТЬ", "ДЕРЖАТЬ");
+        failed.getAgentAnalyses().get(0).setAnalysis(BaseAgent.AI_ERROR_PREFIX + ": timeout");
+        journal.record(failed);
+        BacktestRequest request = new BacktestRequest();
+        request.setSource(BacktestSource.JOURNAL);
+
+        // Act
+        BacktestReport report = engine.run(request);
+
+        // Assert
+        double rising = 107.5 / 101 - 1;
+        double falling = 107.5 / 114 - 1;
+        assertEquals(3, recorded().size(), "Ответ с ошибкой агента не записывается");
+        assertEquals(2, report.signals());
+        assertEquals(1, report.skipped(), "Для последней рекомендации нет цен на весь горизонт");
+        PerformanceStats technical = stats(report.agents(), "Технический Аналитик");
+        assertEquals(2, technical.hits());
+        assertEquals(rising - falling, technical.cumulativeReturn(), 1e-9);
+        assertEquals(0.5, stats(report.agents(), "Аналитик Настроений").hitRate());
+        assertEquals(1.0, stats(report.strategies(), BacktestEngine.RECORDED_STRATEGY).hitRate());
+        assertEquals(1.0, stats(report.strategies(), BacktestEngine.WEIGHTED_STRATEGY).hitRate());
+        assertEquals(0.5, stats(report.strategies(), BacktestEngine.BUY_AND_HOLD_STRATEGY).hitRate());
+    }
+
+    @Test
+    @DisplayName("Журнал должен ротироваться по размеру и читаться от старых записей к новым")
+    void shouldRotateJournal() throws Exception {
+        // Arrange
+        properties.setJournalMaxFileSize(1);
+        properties.setJournalMaxFiles(2);
+
+        // Act
+        for (int i = 0; i < 5; i++) {
+            journal.record(response(START + i * DAY, "ПОКУПАТЬ", "ПОКУПАТЬ", "ПОКУПАТЬ"));
+        }
+        List<RecordedRecommendation> recommendations = recorded();
+
+        // Assert
+        Path file = Path.of(properties.getJournalFile());
+        assertTrue(Files.exists(file.resolveSibling(file.getFileName() + ".2")));
+        assertFalse(Files.exists(file.resolveSibling(file.getFileName() + ".3")), "Старые файлы удаляются");
+        assertEquals(List.of(Instant.ofEpochMilli(START + 2 * DAY), Instant.ofEpochMilli(START + 3 * DAY),
+                        Instant.ofEpochMilli(START + 4 * DAY)),
+                recommendations.stream().map(RecordedRecommendation::analyzedAt).toList());
+    }
+
+    private List<RecordedRecommendation> recorded() throws Exception {
+        List<RecordedRecommendation> recommendations = new ArrayList<>();
+        journal.forEach(recommendations::add);
+        return recommendations;
+    }
+
+    private static CryptoAnalysisResponse response(long analyzedAt, String finalRecommendation,
+                                                   String technical, String sentiment) {
+        CryptoAnalysisResponse response = new CryptoAnalysisResponse("Bitcoin", List.of(
+                new AgentAnalysis("Технический Аналитик", "Анализ", technical, 0.9),
+                new AgentAnalysis("Аналитик Настроений", "Анализ", sentiment, 0.6)),
+                finalRecommendation, 0.75);
+        response.setTimeframe("1 неделя");
+        response.setAnalyzedAt(Instant.ofEpochMilli(analyzedAt));
+        return response;
+    }
+
+    private static PerformanceStats stats(List<PerformanceStats> stats, String name) {
+        return stats.stream().filter(entry -> entry.name().equals(name)).findFirst().orElseThrow();
+    }
+}
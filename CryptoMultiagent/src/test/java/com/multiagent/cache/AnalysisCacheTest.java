@@ -0,0 +1,220 @@
+package com.multiagent.cache;
+
+import com.multiagent.config.CacheProperties;
+import com.multiagent.config.PopularityProperties;
+import com.multiagent.model.AgentAnalysis;
+import com.multiagent.model.CryptoAnalysisResponse;
+import com.multiagent.service.RequestPopularityTracker;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Тесты для AnalysisCache")
+class AnalysisCacheTest {
+
+    private CacheProperties properties;
+
+    private RequestPopularityTracker popularityTracker;
+
+    private AnalysisCache cache;
+
+    @BeforeEach
+    void setUp() {
+        properties = new CacheProperties();
+        properties.setTtl(Duration.ofMinutes(10));
+        properties.setMaxEntries(2);
+        popularityTracker = new RequestPopularityTracker(new PopularityProperties());
+        cache = new AnalysisCache(properties, popularityTracker);
+    }
+
+    @Test
+    @DisplayName("Ключ кэша не должен зависеть от регистра и лишних пробелов")
+    void shouldNormalizeKey() {
+        assertEquals(AnalysisCache.key("Bitcoin", "1 месяц"), AnalysisCache.key(" bitcoin ", "1  Месяц"));
+    }
+
+    @Test
+    @DisplayName("Повторный запрос должен возвращаться из кэша без повторного вычисления")
+    void shouldReturnCachedResponse() {
+        AtomicInteger calls = new AtomicInteger();
+        String key = AnalysisCache.key("Bitcoin", "1 месяц");
+
+        cache.getOrCompute(key, () -> response("Bitcoin", calls));
+        CryptoAnalysisResponse second = cache.getOrCompute(key, () -> response("Bitcoin", calls));
+
+        assertEquals(1, calls.get());
+        assertEquals("Bitcoin", second.getCryptocurrency());
+    }
+
+    @Test
+    @DisplayName("Устаревшая запись не должна возвращаться из кэша")
+    void shouldExpireEntries() {
+        Instant now = Instant.parse("2024-01-15T10:00:00Z");
+        cache.setClock(Clock.fixed(now, ZoneOffset.UTC));
+        String key = AnalysisCache.key("Bitcoin", "1 месяц");
+        cache.put(key, response("Bitcoin", new AtomicInteger()));
+
+        cache.setClock(Clock.fixed(now.plus(Duration.ofMinutes(11)), ZoneOffset.UTC));
+
+        assertTrue(cache.get(key).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Ответы с ошибками агентов не должны кэшироваться")
+    void shouldNotCacheFailedAnalyses() {
+        String key = AnalysisCache.key("Bitcoin", "1 месяц");
+        CryptoAnalysisResponse failed = new CryptoAnalysisResponse("Bitcoin",
+                List.of(new AgentAnalysis("Технический Аналитик", "Ошибка при получении анализа: timeout", "ДЕРЖАТЬ", 0.6)),
+                "ДЕРЖАТЬ", 0.6);
+
+        cache.getOrCompute(key, () -> failed);
+
+        assertTrue(cache.get(key).isEmpty());
+    }
+
+    @Test
+    @DisplayName("При переполнении должна вытесняться самая старая запись")
+    void shouldEvictOldestEntry() {
+        Instant now = Instant.parse("2024-01-15T10:00:00Z");
+        cache.setClock(Clock.fixed(now, ZoneOffset.UTC));
+        cache.put("a", response("A", new AtomicInteger()));
+        cache.setClock(Clock.fixed(now.plusSeconds(1), ZoneOffset.UTC));
+        cache.put("b", response("B", new AtomicInteger()));
+        cache.setClock(Clock.fixed(now.plusSeconds(2), ZoneOffset.UTC));
+        cache.put("c", response("C", new AtomicInteger()));
+
+        assertEquals(2, cache.size());
+        assertTrue(cache.get("a").isEmpty());
+        assertTrue(cache.get("c").isPresent());
+    }
+
+    @Test
+    @DisplayName("При переполнении редкий запрос не должен вытеснять популярный")
+    void shouldRejectLessPopularCandidate() {
+        String popular = AnalysisCache.key("Bitcoin", "1 месяц");
+        String rare = AnalysisCache.key("Dogecoin", "1 месяц");
+        for (int i = 0; i < 5; i++) {
+            popularityTracker.record("Bitcoin", "1 месяц");
+        }
+        Instant now = Instant.parse("2024-01-15T10:00:00Z");
+        cache.setClock(Clock.fixed(now, ZoneOffset.UTC));
+        cache.put(popular, response("Bitcoin", new AtomicInteger()));
+        cache.setClock(Clock.fixed(now.plusSeconds(1), ZoneOffset.UTC));
+        cache.put(AnalysisCache.key("Ethereum", "1 месяц"), response("Ethereum", new AtomicInteger()));
+
+        cache.setClock(Clock.fixed(now.plusSeconds(2), ZoneOffset.UTC));
+        cache.put(rare, response("Dogecoin", new AtomicInteger()));
+
+        assertTrue(cache.get(popular).isPresent());
+        assertTrue(cache.get(rare).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Популярность ключа с параметрами запроса должна оцениваться по криптовалюте и периоду")
+    void shouldAdmitPopularCandidateWithOptionsSuffix() {
+        // Arrange
+        String popularBrief = AnalysisCache.key("Bitcoin", "1 месяц") + "|brief";
+        String ethereum = AnalysisCache.key("Ethereum", "1 месяц");
+        String dogecoin = AnalysisCache.key("Dogecoin", "1 месяц");
+        for (int i = 0; i < 5; i++) {
+            popularityTracker.record("Bitcoin", "1 месяц");
+        }
+        popularityTracker.record("Ethereum", "1 месяц");
+        popularityTracker.record("Dogecoin", "1 месяц");
+        Instant now = Instant.parse("2024-01-15T10:00:00Z");
+        cache.setClock(Clock.fixed(now, ZoneOffset.UTC));
+        cache.put(ethereum, response("Ethereum", new AtomicInteger()));
+        cache.setClock(Clock.fixed(now.plusSeconds(1), ZoneOffset.UTC));
+        cache.put(dogecoin, response("Dogecoin", new AtomicInteger()));
+
+        // Act
+        cache.setClock(Clock.fixed(now.plusSeconds(2), ZoneOffset.UTC));
+        cache.put(popularBrief, response("Bitcoin", new AtomicInteger()));
+
+        // Assert
+        assertTrue(cache.get(popularBrief).isPresent());
+        assertTrue(cache.get(ethereum).isEmpty());
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    @DisplayName("Одновременные записи при переполнении не должны превышать максимальный размер")
+    void shouldKeepSizeBoundUnderConcurrentPuts() throws Exception {
+        // Arrange
+        properties.setMaxEntries(8);
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicInteger maxObserved = new AtomicInteger();
+        Thread observer = new Thread(() -> {
+            while (running.get()) {
+                maxObserved.accumulateAndGet(cache.size(), Math::max);
+            }
+        });
+        observer.start();
+        ExecutorService writers = Executors.newFixedThreadPool(8);
+
+        // Act
+        List<Future<?>> tasks = new ArrayList<>();
+        for (int writer = 0; writer < 8; writer++) {
+            int id = writer;
+            tasks.add(writers.submit(() -> {
+                for (int i = 0; i < 2_000; i++) {
+                    cache.put("key-" + id + "-" + i, response("Bitcoin", new AtomicInteger()));
+                }
+            }));
+        }
+        for (Future<?> task : tasks) {
+            task.get();
+        }
+        running.set(false);
+        observer.join();
+        writers.shutdown();
+
+        // Assert
+        assertEquals(8, cache.size());
+        assertTrue(maxObserved.get() <= 8, "Размер кэша превысил предел: " + maxObserved.get());
+    }
+
+    @Test
+    @DisplayName("Одновременные асинхронные запросы должны объединяться в одно вычисление")
+    void shouldCoalesceConcurrentAsyncRequests() {
+        AtomicInteger calls = new AtomicInteger();
+        CompletableFuture<CryptoAnalysisResponse> pending = new CompletableFuture<>();
+        String key = AnalysisCache.key("Ethereum", "2 недели");
+
+        CompletableFuture<CryptoAnalysisResponse> first = cache.getOrComputeAsync(key, () -> {
+            calls.incrementAndGet();
+            return pending;
+        });
+        CompletableFuture<CryptoAnalysisResponse> second = cache.getOrComputeAsync(key, () -> {
+            calls.incrementAndGet();
+            return pending;
+        });
+        pending.complete(response("Ethereum", new AtomicInteger()));
+
+        assertEquals(1, calls.get());
+        assertSame(first.join(), second.join());
+        assertTrue(cache.get(key).isPresent());
+    }
+
+    private CryptoAnalysisResponse response(String cryptocurrency, AtomicInteger calls) {
+        calls.incrementAndGet();
+        return new CryptoAnalysisResponse(cryptocurrency,
+                List.of(new AgentAnalysis("Технический Аналитик", "Восходящий тренд", "ПОКУПАТЬ", 0.9)),
+                "ПОКУПАТЬ", 0.9);
+    }
+}
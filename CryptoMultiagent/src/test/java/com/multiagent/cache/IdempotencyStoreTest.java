@@ -0,0 +1,142 @@
+package com.multiagent.cache;
+
+import com.multiagent.agent.BaseAgent;
+import com.multiagent.config.IdempotencyProperties;
+import com.multiagent.model.AgentAnalysis;
+import com.multiagent.model.CryptoAnalysisResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Тесты для IdempotencyStore")
+class IdempotencyStoreTest {
+
+    private static final Instant NOW = Instant.parse("2025-01-15T10:00:00Z");
+
+    private IdempotencyProperties properties;
+
+    private IdempotencyStore store;
+
+    @BeforeEach
+    void setUp() {
+        properties = new IdempotencyProperties();
+        properties.setRetention(Duration.ofMinutes(10));
+        properties.setMaxEntries(2);
+        store = new IdempotencyStore(properties, new SimpleMeterRegistry());
+        store.setClock(Clock.fixed(NOW, ZoneOffset.UTC));
+    }
+
+    @Test
+    @DisplayName("Повтор с тем же ключом должен присоединиться к выполняющемуся анализу")
+    void shouldAttachRetryToInFlightAnalysis() {
+        // Arrange
+        CompletableFuture<CryptoAnalysisResponse> analysis = new CompletableFuture<>();
+        AtomicInteger started = new AtomicInteger();
+
+        // Act
+        IdempotencyStore.Execution first = store.execute("key-1", "bitcoin|1 месяц", () -> {
+            started.incrementAndGet();
+            return analysis;
+        });
+        IdempotencyStore.Execution retry = store.execute("key-1", "bitcoin|1 месяц", () -> {
+            started.incrementAndGet();
+            return CompletableFuture.completedFuture(response("Bitcoin"));
+        });
+        analysis.complete(response("Bitcoin"));
+
+        // Assert
+        assertEquals(1, started.get());
+        assertFalse(first.replayed());
+        assertTrue(retry.replayed());
+        assertSame(first.response().join(), retry.response().join());
+    }
+
+    @Test
+    @DisplayName("Ключ с другими параметрами запроса должен отклоняться")
+    void shouldRejectKeyReuseWithDifferentRequest() {
+        store.execute("key-1", "bitcoin|1 месяц", () -> CompletableFuture.completedFuture(response("Bitcoin")));
+
+        assertThrows(IdempotencyKeyReuseException.class, () -> store.execute("key-1", "ethereum|1 месяц",
+                () -> CompletableFuture.completedFuture(response("Ethereum"))));
+    }
+
+    @Test
+    @DisplayName("Неудачный анализ не должен сохраняться, чтобы повтор выполнил его заново")
+    void shouldNotStoreFailedAnalysis() {
+        // Act
+        IdempotencyStore.Execution failed = store.execute("key-1", "bitcoin|1 месяц", () -> {
+            throw new IllegalStateException("Модель недоступна");
+        });
+        IdempotencyStore.Execution retry = store.execute("key-1", "bitcoin|1 месяц",
+                () -> CompletableFuture.completedFuture(response("Bitcoin")));
+
+        // Assert
+        assertTrue(failed.response().isCompletedExceptionally());
+        assertFalse(retry.replayed());
+        assertEquals("Bitcoin", retry.response().join().getCryptocurrency());
+    }
+
+    @Test
+    @DisplayName("Ответ с ошибками агентов не должен сохраняться, чтобы повтор выполнил анализ заново")
+    void shouldNotStoreResponseWithAgentErrors() {
+        // Arrange
+        CryptoAnalysisResponse failed = new CryptoAnalysisResponse("Bitcoin",
+                List.of(new AgentAnalysis("Технический Аналитик", BaseAgent.AI_ERROR_PREFIX + ": timeout", "ДЕРЖАТЬ", 0.0)),
+                "ДЕРЖАТЬ", 0.0);
+
+        // Act
+        IdempotencyStore.Execution first = store.execute("key-1", "bitcoin|1 месяц",
+                () -> CompletableFuture.completedFuture(failed));
+        IdempotencyStore.Execution retry = store.execute("key-1", "bitcoin|1 месяц",
+                () -> CompletableFuture.completedFuture(response("Bitcoin")));
+
+        // Assert
+        assertSame(failed, first.response().join());
+        assertFalse(retry.replayed());
+        assertEquals("ПОКУПАТЬ", retry.response().join().getFinalRecommendation());
+    }
+
+    @Test
+    @DisplayName("Ключи должны удаляться по истечении срока хранения и при переполнении")
+    void shouldExpireAndEvictKeys() {
+        // Arrange
+        store.execute("key-1", "a", () -> CompletableFuture.completedFuture(response("A")));
+        store.execute("key-2", "b", () -> CompletableFuture.completedFuture(response("B")));
+        store.execute("key-3", "c", () -> CompletableFuture.completedFuture(response("C")));
+        assertEquals(2, store.size());
+
+        // Act
+        store.setClock(Clock.fixed(NOW.plus(Duration.ofMinutes(11)), ZoneOffset.UTC));
+        IdempotencyStore.Execution afterExpiry = store.execute("key-3", "c",
+                () -> CompletableFuture.completedFuture(response("C")));
+
+        // Assert
+        assertFalse(afterExpiry.replayed());
+        assertEquals(1, store.size());
+    }
+
+    @Test
+    @DisplayName("Пустой или слишком длинный ключ должен отклоняться")
+    void shouldValidateKey() {
+        properties.setMaxKeyLength(8);
+
+        assertThrows(IllegalArgumentException.class, () -> store.validate(" "));
+        assertThrows(IllegalArgumentException.class, () -> store.validate("0123456789"));
+        assertDoesNotThrow(() -> store.validate(null));
+    }
+
+    private static CryptoAnalysisResponse response(String cryptocurrency) {
+        return new CryptoAnalysisResponse(cryptocurrency, List.of(), "ПОКУПАТЬ", 0.8);
+    }
+}
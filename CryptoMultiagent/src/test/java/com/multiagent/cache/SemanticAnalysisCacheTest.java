@@ -0,0 +1,177 @@
+package com.multiagent.cache;
+
+import com.multiagent.config.SemanticCacheProperties;
+import com.multiagent.model.AgentAnalysis;
+import com.multiagent.model.CryptoAnalysisResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Тесты для SemanticAnalysisCache")
+class SemanticAnalysisCacheTest {
+
+    private SemanticCacheProperties properties;
+
+    private StubEmbeddingModel embeddingModel;
+
+    private SemanticAnalysisCache cache;
+
+    @BeforeEach
+    void setUp() {
+        properties = new SemanticCacheProperties();
+        properties.setEnabled(true);
+        properties.setSimilarityThreshold(0.9);
+        properties.setMaxEntries(2);
+        properties.getAliases().put("bitcoin", "BTC");
+        properties.getAliases().put("ethereum", "ETH");
+        embeddingModel = new StubEmbeddingModel();
+        cache = new SemanticAnalysisCache(properties,
+                new StaticListableBeanFactory(Map.of("embeddingModel", embeddingModel)).getBeanProvider(EmbeddingModel.class));
+    }
+
+    @Test
+    @DisplayName("Тикер и название криптовалюты должны использовать один ответ")
+    void shouldReuseResponseForSimilarRequest() {
+        cache.store("Bitcoin", "1 месяц", response("Bitcoin"));
+
+        assertEquals("Bitcoin", cache.lookup("BTC", "1 месяц").orElseThrow().getCryptocurrency());
+        assertTrue(cache.lookup("Ethereum", "1 месяц").isEmpty());
+    }
+
+    @Test
+    @DisplayName("Запрос с тем же тикером должен попадать в кэш без сравнения эмбеддингов")
+    void shouldMatchSameTickerWithoutEmbeddings() {
+        properties.setSimilarityThreshold(0.999);
+        cache.store("Bitcoin", "1 месяц", response("Bitcoin"));
+
+        assertEquals("Bitcoin", cache.lookup("BTC", "1 месяц").orElseThrow().getCryptocurrency());
+        assertEquals(0, embeddingModel.calls.get());
+    }
+
+    @Test
+    @DisplayName("Название без псевдонима должно искаться по сходству эмбеддингов")
+    void shouldMatchUnknownNamesBySimilarity() {
+        cache.store("Solana", "1 месяц", response("Solana"));
+
+        assertEquals("Solana", cache.lookup("Solana Token", "1 месяц").orElseThrow().getCryptocurrency());
+        assertTrue(cache.lookup("Ethereum", "1 месяц").isEmpty());
+    }
+
+    @Test
+    @DisplayName("Ответ не должен использоваться для другого актива с близким эмбеддингом")
+    void shouldNotReuseResponseForDifferentAsset() {
+        cache.store("Bitcoin", "1 месяц", response("Bitcoin"));
+
+        assertTrue(cache.lookup("Bitcoin Cash", "1 месяц").isEmpty());
+        assertTrue(cache.lookup("bitcoin", "1 месяц").isPresent());
+    }
+
+    @Test
+    @DisplayName("Ответ не должен использоваться для другого временного периода")
+    void shouldRespectPartition() {
+        cache.store("Bitcoin", "1 месяц", response("Bitcoin"));
+
+        assertTrue(cache.lookup("BTC", "1 неделя").isEmpty());
+    }
+
+    @Test
+    @DisplayName("Количество записей должно быть ограничено")
+    void shouldEvictOldestEntries() {
+        cache.store("Bitcoin", "1 месяц", response("Bitcoin"));
+        cache.store("Ethereum", "1 месяц", response("Ethereum"));
+        cache.store("Solana", "1 месяц", response("Solana"));
+
+        assertEquals(2, cache.size());
+        assertTrue(cache.lookup("BTC", "1 месяц").isEmpty());
+        assertTrue(cache.lookup("ETH", "1 месяц").isPresent());
+    }
+
+    @Test
+    @DisplayName("Устаревшая запись не должна возвращаться")
+    void shouldExpireEntries() {
+        Instant now = Instant.parse("2025-01-01T00:00:00Z");
+        cache.setClock(Clock.fixed(now, ZoneOffset.UTC));
+        cache.store("Bitcoin", "1 месяц", response("Bitcoin"));
+
+        cache.setClock(Clock.fixed(now.plus(properties.getTtl()).plus(Duration.ofSeconds(1)), ZoneOffset.UTC));
+
+        assertTrue(cache.lookup("BTC", "1 месяц").isEmpty());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    @DisplayName("Эмбеддинг повторного запроса должен браться из локального кэша")
+    void shouldReuseEmbeddings() {
+        cache.store("Solana", "1 месяц", response("Solana"));
+        cache.lookup(" solana ", "1 месяц");
+        cache.lookup("Solana", "1 месяц");
+
+        assertEquals(1, embeddingModel.calls.get());
+    }
+
+    @Test
+    @DisplayName("Ошибка модели эмбеддингов должна приводить к промаху, а не к ошибке")
+    void shouldIgnoreEmbeddingFailures() {
+        cache.store("Bitcoin", "1 месяц", response("Bitcoin"));
+
+        assertTrue(cache.lookup("unknown-coin", "1 месяц").isEmpty());
+    }
+
+    private CryptoAnalysisResponse response(String cryptocurrency) {
+        return new CryptoAnalysisResponse(cryptocurrency,
+                List.of(new AgentAnalysis("Технический Аналитик", "анализ", "ПОКУПАТЬ", 0.8)), "ПОКУПАТЬ", 0.8);
+    }
+
+    /**
+     * Локальная модель эмбеддингов: синонимы одной криптовалюты получают почти одинаковые векторы
+     */
+    private static class StubEmbeddingModel implements EmbeddingModel {
+
+        private static final Map<String, float[]> VECTORS = Map.of(
+                "bitcoin", new float[]{1, 0, 0, 0},
+                "btc", new float[]{0.98f, 0.05f, 0, 0},
+                "bitcoin cash", new float[]{0.99f, 0, 0.03f, 0},
+                "ethereum", new float[]{0, 1, 0, 0},
+                "eth", new float[]{0.02f, 0.97f, 0, 0},
+                "solana", new float[]{0, 0, 1, 0},
+                "solana token", new float[]{0, 0.02f, 0.99f, 0});
+
+        private final AtomicInteger calls = new AtomicInteger();
+
+        @Override
+        public EmbeddingResponse call(EmbeddingRequest request) {
+            List<Embedding> embeddings = new ArrayList<>();
+            for (String text : request.getInstructions()) {
+                calls.incrementAndGet();
+                float[] vector = VECTORS.get(text);
+                if (vector == null) {
+                    throw new IllegalStateException("Нет эмбеддинга для " + text);
+                }
+                embeddings.add(new Embedding(vector, embeddings.size()));
+            }
+            return new EmbeddingResponse(embeddings);
+        }
+
+        @Override
+        public float[] embed(Document document) {
+            return call(new EmbeddingRequest(List.of(document.getText()), null)).getResult().getOutput();
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.multiagent.cluster;
+
+import com.multiagent.config.ClusterProperties;
+import com.multiagent.model.AnalysisOptions;
+import com.multiagent.model.CryptoAnalysisResponse;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.RestClient;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClusterRouterTest {
+
+    private static final String SELF_URL = "http://localhost:1";
+
+    private static final String OWNER_RESPONSE = """
+            {"cryptocurrency":"%s","timeframe":"1 месяц","finalRecommendation":"ПОКУПАТЬ","averageConfidence":0.9,
+             "agentAnalyses":[{"agentName":"Технический Аналитик","analysis":"Восходящий тренд",
+             "recommendation":"ПОКУПАТЬ","confidence":0.9,"tokenUsage":{"promptTokens":100,"completionTokens":20,
+             "cachedTokens":0,"totalTokens":120}}]}
+            """;
+
+    private final AtomicReference<String> receivedBody = new AtomicReference<>();
+
+    private final AtomicInteger ownerStatus = new AtomicInteger(200);
+
+    private HttpServer owner;
+
+    private String ownerUrl;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private ClusterRouter router;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        owner = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        owner.createContext(ClusterRouter.FORWARD_PATH, exchange -> {
+            String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            receivedBody.set(body);
+            if (ownerStatus.get() != 200) {
+                exchange.getResponseHeaders().add("Retry-After", "7");
+                exchange.sendResponseHeaders(ownerStatus.get(), -1);
+                exchange.close();
+                return;
+            }
+            String coin = body.replaceAll(".*\"cryptocurrency\":\"([^\"]+)\".*", "$1");
+            byte[] response = OWNER_RESPONSE.formatted(coin).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, response.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(response);
+            }
+        });
+        owner.start();
+        ownerUrl = "http://localhost:" + owner.getAddress().getPort();
+
+        ClusterProperties properties = new ClusterProperties();
+        properties.setEnabled(true);
+        properties.setSelfUrl(SELF_URL);
+        properties.setPeers(List.of(SELF_URL, ownerUrl + "/"));
+        meterRegistry = new SimpleMeterRegistry();
+        router = new ClusterRouter(properties, RestClient.builder(), meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        owner.stop(0);
+        router.shutdown();
+    }
+
+    @Test
+    @DisplayName("Криптовалюты должны распределяться между этой и другой репликой")
+    void shouldSplitOwnership() {
+        List<String> coins = IntStream.range(0, 50).mapToObj(i -> "Coin" + i).toList();
+
+        long remote = coins.stream().filter(coin -> router.remoteOwner(coin).isPresent()).count();
+
+        assertTrue(remote > 0 && remote < coins.size());
+        coins.forEach(coin -> router.remoteOwner(coin).ifPresent(url -> assertEquals(ownerUrl, url)));
+        assertEquals(router.remoteOwner("Bitcoin"), router.remoteOwner("  BITCOIN "));
+    }
+
+    @Test
+    @DisplayName("Анализ должен передаваться владельцу вместе с параметрами запроса")
+    void shouldForwardToOwner() {
+        // Arrange
+        String coin = remoteCoin();
+        AnalysisOptions options = AnalysisOptions.forAgents(List.of("technical"));
+        options.setMaxTokens(250);
+
+        // Act
+        Optional<CryptoAnalysisResponse> response = router.forwardAsync(ownerUrl, coin, "1 месяц", options).join();
+
+        // Assert
+        assertTrue(response.isPresent());
+        assertEquals(coin, response.get().getCryptocurrency());
+        assertEquals(120, response.get().getAgentAnalyses().get(0).getTokenUsage().getTotalTokens());
+        assertTrue(receivedBody.get().contains("\"maxTokens\":250"));
+        assertEquals(1, meterRegistry.counter("crypto.cluster.forwards", "outcome", "success").count());
+    }
+
+    @Test
+    @DisplayName("Если владелец недоступен, анализ должен выполняться локально")
+    void shouldFallBackWhenOwnerUnavailable() {
+        // Arrange
+        String coin = remoteCoin();
+        owner.stop(0);
+
+        // Act
+        Optional<CryptoAnalysisResponse> response = router.forward(ownerUrl, coin, "1 месяц", AnalysisOptions.defaults());
+
+        // Assert
+        assertTrue(response.isEmpty());
+        assertEquals(1, meterRegistry.counter("crypto.cluster.forwards", "outcome", "failed").count());
+    }
+
+    @Test
+    @DisplayName("Отказ перегруженного владельца должен передаваться клиенту, а не выполняться локально")
+    void shouldPassOwnerRejection() {
+        // Arrange
+        String coin = remoteCoin();
+        ownerStatus.set(503);
+
+        // Act
+        OwnerRejectedException rejected = assertThrows(OwnerRejectedException.class,
+                () -> router.forward(ownerUrl, coin, "1 месяц", AnalysisOptions.defaults()));
+        CompletionException asyncRejected = assertThrows(CompletionException.class,
+                () -> router.forwardAsync(ownerUrl, coin, "1 месяц", AnalysisOptions.defaults()).join());
+
+        // Assert
+        assertEquals(Duration.ofSeconds(7), rejected.getRetryAfter());
+        assertInstanceOf(OwnerRejectedException.class, asyncRejected.getCause());
+        assertEquals(2, meterRegistry.counter("crypto.cluster.forwards", "outcome", "rejected").count());
+        assertEquals(0, meterRegistry.counter("crypto.cluster.forwards", "outcome", "failed").count());
+    }
+
+    @Test
+    @DisplayName("Без кластера все криптовалюты должны принадлежать этой реплике")
+    void shouldOwnEverythingWhenStandalone() {
+        ClusterRouter standalone = ClusterRouter.standalone();
+
+        assertFalse(standalone.isEnabled());
+        assertTrue(standalone.isOwnedLocally("Bitcoin"));
+        standalone.shutdown();
+    }
+
+    private String remoteCoin() {
+        return IntStream.range(0, 100).mapToObj(i -> "Coin" + i)
+                .filter(coin -> router.remoteOwner(coin).isPresent())
+                .findFirst()
+                .orElseThrow();
+    }
+}
@@ -0,0 +1,79 @@
+package com.multiagent.controller;
+
+import com.multiagent.agent.BaseAgent;
+import com.multiagent.config.CacheProperties;
+import com.multiagent.config.HttpCacheProperties;
+import com.multiagent.model.AgentAnalysis;
+import com.multiagent.model.CryptoAnalysisResponse;
+import com.multiagent.model.ResponseView;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Тесты для AnalysisHttpCaching")
+class AnalysisHttpCachingTest {
+
+    private static final Instant ANALYZED_AT = Instant.parse("2025-01-15T10:00:00Z");
+
+    private AnalysisHttpCaching httpCaching;
+
+    @BeforeEach
+    void setUp() {
+        CacheProperties cacheProperties = new CacheProperties();
+        cacheProperties.setTtl(Duration.ofMinutes(10));
+        httpCaching = new AnalysisHttpCaching(new HttpCacheProperties(), cacheProperties);
+    }
+
+    @Test
+    @DisplayName("Свежесть ответа должна равняться оставшемуся времени жизни в кэше")
+    void shouldUseRemainingCacheTtlAsMaxAge() {
+        // Arrange
+        httpCaching.setClock(Clock.fixed(ANALYZED_AT.plus(Duration.ofMinutes(4)), ZoneOffset.UTC));
+
+        // Act
+        ResponseEntity<CryptoAnalysisResponse> fresh = httpCaching.ok(response(), "bitcoin|1 месяц", ResponseView.FULL);
+        httpCaching.setClock(Clock.fixed(ANALYZED_AT.plus(Duration.ofMinutes(15)), ZoneOffset.UTC));
+        ResponseEntity<CryptoAnalysisResponse> stale = httpCaching.ok(response(), "bitcoin|1 месяц", ResponseView.FULL);
+
+        // Assert
+        assertEquals("max-age=360, public, stale-while-revalidate=60", fresh.getHeaders().getCacheControl());
+        assertEquals("no-cache", stale.getHeaders().getCacheControl());
+        assertEquals(fresh.getHeaders().getETag(), stale.getHeaders().getETag());
+    }
+
+    @Test
+    @DisplayName("ETag должен зависеть от версии анализа и представления, а ответ с ошибкой агента - не кэшироваться")
+    void shouldVersionEtagAndSkipFailedResponses() {
+        // Arrange
+        CryptoAnalysisResponse newer = response();
+        newer.setAnalyzedAt(ANALYZED_AT.plusSeconds(1));
+        CryptoAnalysisResponse failed = response();
+        failed.setAgentAnalyses(List.of(new AgentAnalysis("Технический Аналитик",
+                BaseAgent.AI_ERROR_PREFIX + "модель недоступна", "ДЕРЖАТЬ", 0.0)));
+
+        // Act
+        String etag = httpCaching.ok(response(), "bitcoin|1 месяц", ResponseView.FULL).getHeaders().getETag();
+
+        // Assert
+        assertNotEquals(etag, httpCaching.ok(newer, "bitcoin|1 месяц", ResponseView.FULL).getHeaders().getETag());
+        assertNotEquals(etag, httpCaching.ok(response(), "bitcoin|1 месяц", ResponseView.COMPACT).getHeaders().getETag());
+        ResponseEntity<CryptoAnalysisResponse> notCached = httpCaching.ok(failed, "bitcoin|1 месяц", ResponseView.FULL);
+        assertNull(notCached.getHeaders().getETag());
+        assertEquals("no-store", notCached.getHeaders().getCacheControl());
+    }
+
+    private static CryptoAnalysisResponse response() {
+        CryptoAnalysisResponse response = new CryptoAnalysisResponse("Bitcoin", List.of(), "ПОКУПАТЬ", 0.8);
+        response.setAnalyzedAt(ANALYZED_AT);
+        return response;
+    }
+}
@@ -1,8 +1,11 @@
 package com.multiagent.controller;
 
 import com.multiagent.BaseTestConfiguration;
+import com.multiagent.model.AgentAnalysis;
+import com.multiagent.model.AnalysisOptions;
 import com.multiagent.model.CryptoAnalysisRequest;
 import com.multiagent.model.CryptoAnalysisResponse;
+import com.multiagent.service.AnalysisRejectedException;
 import com.multiagent.service.CryptoAnalysisService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
@@ -12,9 +15,19 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Collections;
+import java.util.List;
 
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -38,7 +51,7 @@ class CryptoAnalysisControllerTest extends BaseTestConfiguration {
         CryptoAnalysisResponse mockResponse = new CryptoAnalysisResponse(
                 "Bitcoin", Collections.emptyList(), "ПОКУПАТЬ", 0.8);
 
-        when(cryptoAnalysisService.analyzeCryptocurrency(anyString(), anyString()))
+        when(cryptoAnalysisService.analyzeCryptocurrency(anyString(), anyString(), any(AnalysisOptions.class)))
                 .thenReturn(mockResponse);
 
         // Act & Assert
@@ -51,6 +64,36 @@ class CryptoAnalysisControllerTest extends BaseTestConfiguration {
                 .andExpect(jsonPath("$.averageConfidence").value(0.8));
     }
 
+    @Test
+    @DisplayName("POST /api/crypto/analyze с тем же Idempotency-Key должен возвращать сохраненный ответ")
+    void testAnalyzeCryptocurrencyPostIdempotent() throws Exception {
+        // Arrange
+        String body = objectMapper.writeValueAsString(new CryptoAnalysisRequest("Solana", "1 месяц"));
+        when(cryptoAnalysisService.analyzeCryptocurrency(anyString(), anyString(), any(AnalysisOptions.class)))
+                .thenReturn(new CryptoAnalysisResponse("Solana", Collections.emptyList(), "ПОКУПАТЬ", 0.8));
+
+        // Act & Assert
+        mockMvc.perform(post("/api/crypto/analyze")
+                        .header("Idempotency-Key", "controller-test-1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("Idempotent-Replayed"));
+        mockMvc.perform(post("/api/crypto/analyze")
+                        .header("Idempotency-Key", "controller-test-1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Idempotent-Replayed", "true"))
+                .andExpect(jsonPath("$.cryptocurrency").value("Solana"));
+        mockMvc.perform(post("/api/crypto/analyze")
+                        .header("Idempotency-Key", "controller-test-1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new CryptoAnalysisRequest("Cardano", "1 месяц"))))
+                .andExpect(status().isUnprocessableEntity());
+        verify(cryptoAnalysisService, times(1)).analyzeCryptocurrency(anyString(), anyString(), any(AnalysisOptions.class));
+    }
+
     @Test
     @DisplayName("POST /api/crypto/analyze должен возвращать 400 при невалидных данных")
     void testAnalyzeCryptocurrencyPostValidation() throws Exception {
@@ -71,7 +114,7 @@ class CryptoAnalysisControllerTest extends BaseTestConfiguration {
         CryptoAnalysisResponse mockResponse = new CryptoAnalysisResponse(
                 "Ethereum", Collections.emptyList(), "ДЕРЖАТЬ", 0.6);
 
-        when(cryptoAnalysisService.analyzeCryptocurrency(anyString(), anyString()))
+        when(cryptoAnalysisService.analyzeCryptocurrency(anyString(), anyString(), any(AnalysisOptions.class)))
                 .thenReturn(mockResponse);
 
         // Act & Assert
@@ -81,4 +124,116 @@ class CryptoAnalysisControllerTest extends BaseTestConfiguration {
                 .andExpect(jsonPath("$.cryptocurrency").value("Ethereum"))
                 .andExpect(jsonPath("$.finalRecommendation").value("ДЕРЖАТЬ"));
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("GET /api/crypto/analyze/{crypto} должен отвечать 304 на If-None-Match с текущим ETag")
+    void testAnalyzeCryptocurrencyConditionalGet() throws Exception {
+        // Arrange
+        CryptoAnalysisResponse mockResponse = new CryptoAnalysisResponse(
+                "Ethereum", Collections.emptyList(), "ДЕРЖАТЬ", 0.6);
+        mockResponse.setAnalyzedAt(Instant.now());
+        when(cryptoAnalysisService.analyzeCryptocurrency(anyString(), anyString(), any(AnalysisOptions.class)))
+                .thenReturn(mockResponse);
+
+        // Act
+        String etag = mockMvc.perform(get("/api/crypto/analyze/Ethereum"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Cache-Control", containsString("max-age=")))
+                .andExpect(header().string("Cache-Control", containsString("stale-while-revalidate=60")))
+                .andReturn().getResponse().getHeader("ETag");
+
+        // Assert
+        assertNotNull(etag);
+        mockMvc.perform(get("/api/crypto/analyze/Ethereum").header("If-None-Match", etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+        mockMvc.perform(get("/api/crypto/analyze/Ethereum").param("view", "compact").header("If-None-Match", etag))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    @DisplayName("GET /api/crypto/analyze/{crypto} должен передавать в сервис канонический период")
+    void testAnalyzeCryptocurrencyCanonicalTimeframe() throws Exception {
+        // Arrange
+        CryptoAnalysisResponse mockResponse = new CryptoAnalysisResponse(
+                "Ethereum", Collections.emptyList(), "ДЕРЖАТЬ", 0.6);
+
+        when(cryptoAnalysisService.analyzeCryptocurrency(anyString(), anyString(), any(AnalysisOptions.class)))
+                .thenReturn(mockResponse);
+
+        // Act
+        mockMvc.perform(get("/api/crypto/analyze/Ethereum")
+                        .param("timeframe", "30 days"))
+                .andExpect(status().isOk());
+
+        // Assert
+        verify(cryptoAnalysisService).analyzeCryptocurrency(eq("Ethereum"), eq("1 месяц"), any(AnalysisOptions.class));
+    }
+
+    @Test
+    @DisplayName("GET /api/crypto/analyze/{crypto} должен возвращать 503 с Retry-After при остановке сервиса")
+    void testAnalyzeCryptocurrencyRejected() throws Exception {
+        // Arrange
+        when(cryptoAnalysisService.analyzeCryptocurrency(anyString(), anyString(), any(AnalysisOptions.class)))
+                .thenThrow(new AnalysisRejectedException("Сервис останавливается", Duration.ofSeconds(5)));
+
+        // Act & Assert
+        mockMvc.perform(get("/api/crypto/analyze/Ethereum"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "5"));
+    }
+
+    @Test
+    @DisplayName("GET /api/crypto/analyze/{crypto} должен возвращать 400 для неизвестного агента")
+    void testAnalyzeCryptocurrencyUnknownAgent() throws Exception {
+        mockMvc.perform(get("/api/crypto/analyze/Ethereum")
+                        .param("agents", "technical,astrology"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errorCode").value("BAD_REQUEST"));
+    }
+
+    @Test
+    @DisplayName("Компактное представление не должно содержать текстов анализа")
+    void testCompactView() throws Exception {
+        // Arrange
+        when(cryptoAnalysisService.analyzeCryptocurrency(anyString(), anyString(), any(AnalysisOptions.class)))
+                .thenReturn(detailedResponse());
+
+        // Act
+        String compact = mockMvc.perform(get("/api/crypto/analyze/Bitcoin").param("view", "compact"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.finalRecommendation").value("ПОКУПАТЬ"))
+                .andExpect(jsonPath("$.agentAnalyses[0].recommendation").value("ПОКУПАТЬ"))
+                .andExpect(jsonPath("$.agentAnalyses[0].confidence").value(0.9))
+                .andExpect(jsonPath("$.agentAnalyses[0].analysis").doesNotExist())
+                .andExpect(jsonPath("$.criticalPath").doesNotExist())
+                .andReturn().getResponse().getContentAsString();
+        String full = mockMvc.perform(get("/api/crypto/analyze/Bitcoin"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.agentAnalyses[0].analysis").exists())
+                .andExpect(jsonPath("$.executionMillis").value(8350))
+                .andReturn().getResponse().getContentAsString();
+
+        // Assert
+        assertTrue(compact.length() * 10 < full.length(),
+                "Компактный ответ должен быть на порядок меньше: " + compact.length() + " vs " + full.length());
+    }
+
+    @Test
+    @DisplayName("Неизвестное представление ответа должно отклоняться с кодом 400")
+    void testUnknownView() throws Exception {
+        mockMvc.perform(get("/api/crypto/analyze/Bitcoin").param("view", "tiny"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private CryptoAnalysisResponse detailedResponse() {
+        String analysis = "Подробный технический анализ с уровнями поддержки и сопротивления. ".repeat(40);
+        CryptoAnalysisResponse response = new CryptoAnalysisResponse("Bitcoin", List.of(
+                new AgentAnalysis("Технический Аналитик", analysis, "ПОКУПАТЬ", 0.9),
+                new AgentAnalysis("Фундаментальный Аналитик", analysis, "ПОКУПАТЬ", 0.7),
+                new AgentAnalysis("Аналитик Настроений", analysis, "ДЕРЖАТЬ", 0.5)), "ПОКУПАТЬ", 0.7);
+        response.setCriticalPath(List.of("Технический Аналитик"));
+        response.setExecutionMillis(8350);
+        return response;
+    }
+}
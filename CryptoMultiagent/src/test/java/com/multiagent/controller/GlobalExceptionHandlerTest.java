@@ -52,15 +52,27 @@ class GlobalExceptionHandlerTest extends BaseTestConfiguration {
     }
 
     @Test
-    @DisplayName("Должен обрабатывать неправильный тип аргументов и возвращать 400")
-    void testHandleTypeMismatchException() throws Exception {
-        // Arrange - тестируем с неправильным типом параметра
-        // Используем GET запрос с неправильным типом параметра
+    @DisplayName("Должен отклонять нераспознанный временной период и возвращать 400")
+    void testHandleUnparseableTimeframe() throws Exception {
+        // Arrange - используем GET запрос с периодом, который не удается распознать
 
         // Act & Assert
         mockMvc.perform(get("/api/crypto/analyze/invalid")
                         .param("timeframe", "invalid_timeframe"))
-                .andExpect(status().isOk()); // В данном случае параметр timeframe - String, поэтому исключения не будет
+                .andExpect(status().isBadRequest()) // Период проверяется до запуска анализа
+                .andExpect(jsonPath("$.errorCode").value("BAD_REQUEST"));
+    }
+
+    @Test
+    @DisplayName("Должен отклонять период короче суток и возвращать 400")
+    void testHandleIntradayTimeframe() throws Exception {
+        // Arrange - часовой период не подменяется анализом на сутки
+
+        // Act & Assert
+        mockMvc.perform(get("/api/crypto/analyze/Bitcoin")
+                        .param("timeframe", "4h"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errorCode").value("BAD_REQUEST"));
     }
 
     @Test
@@ -0,0 +1,163 @@
+package com.multiagent.grpc;
+
+import com.multiagent.BaseTestConfiguration;
+import com.multiagent.grpc.proto.AnalysisEvent;
+import com.multiagent.grpc.proto.AnalyzeRequest;
+import com.multiagent.grpc.proto.AnalyzeResponse;
+import com.multiagent.grpc.proto.CryptoAnalysisGrpc;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.StreamObserver;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+class CryptoAnalysisGrpcServiceTest extends BaseTestConfiguration {
+
+    @Autowired
+    private CryptoAnalysisGrpcService grpcService;
+
+    private Server server;
+
+    private ManagedChannel channel;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        String name = InProcessServerBuilder.generateName();
+        server = InProcessServerBuilder.forName(name).addService(grpcService).build().start();
+        channel = InProcessChannelBuilder.forName(name).build();
+        when(chatModel.call(any(Prompt.class))).thenReturn(createMockChatResponse(
+                "Восходящий тренд. Рекомендация: ПОКУПАТЬ. Высокая уверенность."));
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        channel.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+        server.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    @DisplayName("Унарный вызов должен возвращать тот же результат, что и REST API")
+    void testUnaryAnalyze() {
+        // Act
+        AnalyzeResponse response = CryptoAnalysisGrpc.newBlockingStub(channel).analyze(AnalyzeRequest.newBuilder()
+                .setRequestId("r-1")
+                .setCryptocurrency("Stellar")
+                .setTimeframe("30 days")
+                .build());
+
+        // Assert
+        assertEquals("r-1", response.getRequestId());
+        assertEquals("Stellar", response.getCryptocurrency());
+        assertEquals("1 месяц", response.getTimeframe());
+        assertEquals(3, response.getAgentAnalysesCount());
+        assertEquals("ПОКУПАТЬ", response.getFinalRecommendation());
+        assertFalse(response.getAgentAnalyses(0).getAnalysis().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Потоковый вызов должен отдавать результат каждого агента, а затем итог")
+    void testStreamAnalysis() {
+        // Act
+        Iterator<AnalysisEvent> events = CryptoAnalysisGrpc.newBlockingStub(channel).streamAnalysis(
+                AnalyzeRequest.newBuilder().setCryptocurrency("Monero").setCompact(true).build());
+        List<AnalysisEvent> received = new ArrayList<>();
+        events.forEachRemaining(received::add);
+
+        // Assert
+        assertEquals(4, received.size());
+        List<String> agentNames = received.subList(0, 3).stream()
+                .peek(event -> assertTrue(event.hasAgentResult()))
+                .map(event -> event.getAgentResult().getAgentName())
+                .toList();
+        assertEquals(3, agentNames.stream().distinct().count());
+        assertTrue(received.subList(0, 3).stream().allMatch(event -> event.getAgentResult().getAnalysis().isEmpty()));
+        AnalysisEvent summary = received.get(3);
+        assertTrue(summary.hasSummary());
+        assertEquals("1 месяц", summary.getSummary().getTimeframe());
+        assertEquals(3, summary.getSummary().getAgentAnalysesCount());
+    }
+
+    @Test
+    @DisplayName("Пакетный поток должен отвечать на все запросы, возвращая ошибки в ответе")
+    void testAnalyzeBatch() throws Exception {
+        // Arrange
+        CompletableFuture<List<AnalyzeResponse>> completed = new CompletableFuture<>();
+        List<AnalyzeResponse> responses = new ArrayList<>();
+        StreamObserver<AnalyzeRequest> requests = CryptoAnalysisGrpc.newStub(channel).analyzeBatch(
+                new StreamObserver<>() {
+                    @Override
+                    public void onNext(AnalyzeResponse response) {
+                        responses.add(response);
+                    }
+
+                    @Override
+                    public void onError(Throwable error) {
+                        completed.completeExceptionally(error);
+                    }
+
+                    @Override
+                    public void onCompleted() {
+                        completed.complete(responses);
+                    }
+                });
+
+        // Act
+        for (String coin : List.of("Cosmos", "Algorand", "Tezos", "Cosmos", "Stellar", "Algorand")) {
+            requests.onNext(AnalyzeRequest.newBuilder().setRequestId("id-" + coin).setCryptocurrency(coin).build());
+        }
+        requests.onNext(AnalyzeRequest.newBuilder().setRequestId("bad").setCryptocurrency("Bitcoin")
+                .setTimeframe("когда-нибудь").build());
+        requests.onCompleted();
+
+        // Assert
+        List<AnalyzeResponse> result = completed.get(10, TimeUnit.SECONDS);
+        assertEquals(7, result.size());
+        Map<String, AnalyzeResponse> byId = result.stream()
+                .collect(Collectors.toMap(AnalyzeResponse::getRequestId, Function.identity(), (first, second) -> first));
+        assertTrue(byId.get("bad").getError().contains("временной период"));
+        assertEquals("ПОКУПАТЬ", byId.get("id-Tezos").getFinalRecommendation());
+        assertTrue(byId.get("id-Tezos").getError().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Некорректный запрос должен завершаться статусом INVALID_ARGUMENT")
+    void testInvalidArgument() {
+        // Arrange
+        CryptoAnalysisGrpc.CryptoAnalysisBlockingStub stub = CryptoAnalysisGrpc.newBlockingStub(channel);
+
+        // Act
+        StatusRuntimeException exception = assertThrows(StatusRuntimeException.class, () ->
+                stub.analyze(AnalyzeRequest.newBuilder().setCryptocurrency("Bitcoin").addAgents("unknown").build()));
+
+        // Assert
+        assertEquals(Status.Code.INVALID_ARGUMENT, exception.getStatus().getCode());
+    }
+
+    private ChatResponse createMockChatResponse(String content) {
+        return new ChatResponse(List.of(new Generation(new AssistantMessage(content))));
+    }
+}
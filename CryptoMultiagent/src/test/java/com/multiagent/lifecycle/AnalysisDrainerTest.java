@@ -0,0 +1,94 @@
+package com.multiagent.lifecycle;
+
+import com.multiagent.config.LifecycleProperties;
+import com.multiagent.service.AnalysisRejectedException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+@DisplayName("Тесты для AnalysisDrainer")
+class AnalysisDrainerTest {
+
+    private CacheSnapshotStore snapshotStore;
+
+    private AnalysisDrainer drainer;
+
+    @BeforeEach
+    void setUp() {
+        LifecycleProperties properties = new LifecycleProperties();
+        properties.setDrainTimeout(Duration.ofSeconds(5));
+        snapshotStore = mock(CacheSnapshotStore.class);
+        drainer = new AnalysisDrainer(properties, snapshotStore, new SimpleMeterRegistry());
+        drainer.start();
+    }
+
+    @Test
+    @DisplayName("Остановка должна дождаться начатого анализа и затем сохранить снимок кэша")
+    void shouldWaitForInFlightAnalysisBeforeSnapshot() throws Exception {
+        // Arrange
+        CompletableFuture<String> analysis = new CompletableFuture<>();
+        CompletableFuture<String> tracked = drainer.track(() -> analysis);
+        CountDownLatch stopped = new CountDownLatch(1);
+
+        // Act
+        drainer.stop(stopped::countDown);
+
+        // Assert
+        assertFalse(stopped.await(200, TimeUnit.MILLISECONDS), "Остановка не должна завершиться до окончания анализа");
+        assertEquals(1, drainer.getInFlight());
+        analysis.complete("ПОКУПАТЬ");
+        assertTrue(stopped.await(5, TimeUnit.SECONDS));
+        assertEquals("ПОКУПАТЬ", tracked.join());
+        assertFalse(drainer.isRunning());
+        verify(snapshotStore).save();
+    }
+
+    @Test
+    @DisplayName("После начала остановки новые анализы должны отклоняться")
+    void shouldRejectNewAnalysesWhileDraining() throws Exception {
+        // Act
+        drainer.stop();
+
+        // Assert
+        AnalysisRejectedException rejected = assertThrows(AnalysisRejectedException.class,
+                () -> drainer.run(() -> "ПОКУПАТЬ"));
+        assertTrue(rejected.getRetryAfter().toSeconds() > 0);
+        assertEquals(0, drainer.getInFlight());
+    }
+
+    @Test
+    @DisplayName("Ожидание должно завершаться по истечении времени, если анализ не закончился")
+    void shouldGiveUpAfterTimeout() throws Exception {
+        // Arrange
+        drainer.track(CompletableFuture::new);
+
+        // Act
+        boolean drained = drainer.drain(Duration.ofMillis(100));
+
+        // Assert
+        assertFalse(drained);
+        assertEquals(1, drainer.getInFlight());
+    }
+
+    @Test
+    @DisplayName("Ошибка синхронного анализа не должна оставлять его в числе выполняющихся")
+    void shouldReleaseFailedAnalysis() {
+        // Act
+        assertThrows(IllegalStateException.class, () -> drainer.run(() -> {
+            throw new IllegalStateException("Ошибка анализа");
+        }));
+
+        // Assert
+        assertEquals(0, drainer.getInFlight());
+    }
+}
@@ -0,0 +1,98 @@
+package com.multiagent.lifecycle;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.multiagent.cache.AnalysisCache;
+import com.multiagent.config.CacheProperties;
+import com.multiagent.config.LifecycleProperties;
+import com.multiagent.config.PopularityProperties;
+import com.multiagent.model.AgentAnalysis;
+import com.multiagent.model.CryptoAnalysisResponse;
+import com.multiagent.service.RequestPopularityTracker;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Тесты для CacheSnapshotStore")
+class CacheSnapshotStoreTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    @DisplayName("Записи кэша должны переживать перезапуск через снимок")
+    void shouldRestoreSavedEntries() {
+        // Arrange
+        LifecycleProperties properties = new LifecycleProperties();
+        properties.setSnapshotFile(directory.resolve("cache.json").toString());
+        AnalysisCache source = cache();
+        String key = AnalysisCache.key("Bitcoin", "1 месяц");
+        source.put(key, response("Bitcoin"));
+
+        // Act
+        int saved = new CacheSnapshotStore(source, properties, objectMapper).save();
+        AnalysisCache restarted = cache();
+        int restored = new CacheSnapshotStore(restarted, properties, objectMapper).restore();
+
+        // Assert
+        assertEquals(1, saved);
+        assertEquals(1, restored);
+        CryptoAnalysisResponse response = restarted.get(key).orElseThrow();
+        assertEquals("Bitcoin", response.getCryptocurrency());
+        assertEquals("ПОКУПАТЬ", response.getAgentAnalyses().get(0).getRecommendation());
+    }
+
+    @Test
+    @DisplayName("Устаревшие записи снимка не должны загружаться")
+    void shouldSkipExpiredEntries() {
+        // Arrange
+        AnalysisCache cache = cache();
+        Instant past = Instant.now().minus(Duration.ofHours(1));
+        List<AnalysisCache.SnapshotEntry> snapshot = List.of(new AnalysisCache.SnapshotEntry(
+                AnalysisCache.key("Ethereum", "1 месяц"), response("Ethereum"), past, past.plusSeconds(60)));
+
+        // Act
+        int restored = cache.restore(snapshot);
+
+        // Assert
+        assertEquals(0, restored);
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    @DisplayName("Поврежденный снимок не должен мешать запуску")
+    void shouldIgnoreCorruptedSnapshot() throws Exception {
+        // Arrange
+        Path file = Files.writeString(directory.resolve("cache.json"), "{не json");
+        LifecycleProperties properties = new LifecycleProperties();
+        properties.setSnapshotFile(file.toString());
+        AnalysisCache cache = cache();
+
+        // Act
+        int restored = new CacheSnapshotStore(cache, properties, objectMapper).restore();
+
+        // Assert
+        assertEquals(0, restored);
+        assertEquals(0, cache.size());
+    }
+
+    private static AnalysisCache cache() {
+        return new AnalysisCache(new CacheProperties(), new RequestPopularityTracker(new PopularityProperties()));
+    }
+
+    private static CryptoAnalysisResponse response(String cryptocurrency) {
+        return new CryptoAnalysisResponse(cryptocurrency,
+                List.of(new AgentAnalysis("Технический Аналитик", "Восходящий тренд", "ПОКУПАТЬ", 0.9)),
+                "ПОКУПАТЬ", 0.9);
+    }
+}
@@ -0,0 +1,40 @@
+package com.multiagent.logging;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class LogPayloadTest {
+
+    @AfterEach
+    void restoreDefault() {
+        LogPayload.setMaxLength(500);
+    }
+
+    @Test
+    @DisplayName("Короткий текст должен логироваться без изменений")
+    void shouldKeepShortText() {
+        LogPayload.setMaxLength(20);
+
+        assertEquals("Восходящий тренд", LogPayload.of("Восходящий тренд").toString());
+        assertEquals("null", LogPayload.of(null).toString());
+    }
+
+    @Test
+    @DisplayName("Длинный текст должен обрезаться с указанием остатка")
+    void shouldTruncateLongText() {
+        LogPayload.setMaxLength(10);
+
+        assertEquals("Восходящий... <еще 6 символов>", LogPayload.of("Восходящий тренд").toString());
+    }
+
+    @Test
+    @DisplayName("При нулевом ограничении должна логироваться только длина текста")
+    void shouldLogOnlyLengthWhenLimitIsZero() {
+        LogPayload.setMaxLength(0);
+
+        assertEquals("<16 символов>", LogPayload.of("Восходящий тренд").toString());
+    }
+}
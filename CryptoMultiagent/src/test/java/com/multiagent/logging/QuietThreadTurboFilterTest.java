@@ -0,0 +1,36 @@
+package com.multiagent.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.core.spi.FilterReply;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.slf4j.MDC;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class QuietThreadTurboFilterTest {
+
+    private final LoggerContext context = new LoggerContext();
+
+    private final QuietThreadTurboFilter filter = new QuietThreadTurboFilter();
+
+    @Test
+    @DisplayName("События ниже WARN должны подавляться только в потоке с ключом MDC")
+    void shouldQuietOnlyMarkedThread() throws Exception {
+        Logger logger = context.getLogger("com.multiagent.agent.TechnicalAnalysisAgent");
+
+        try (MDC.MDCCloseable quiet = MDC.putCloseable(QuietThreadTurboFilter.MDC_KEY, "warmup")) {
+            assertEquals(FilterReply.DENY, filter.decide(null, logger, Level.INFO, "Анализ", null, null));
+            assertEquals(FilterReply.NEUTRAL, filter.decide(null, logger, Level.WARN, "Ошибка", null, null));
+            FilterReply otherThread = CompletableFuture.supplyAsync(() ->
+                    filter.decide(null, logger, Level.INFO, "Анализ", null, null)).get();
+            assertEquals(FilterReply.NEUTRAL, otherThread, "Одновременные запросы логируются как обычно");
+        }
+
+        assertEquals(FilterReply.NEUTRAL, filter.decide(null, logger, Level.INFO, "Анализ", null, null));
+    }
+}
@@ -0,0 +1,85 @@
+package com.multiagent.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.core.spi.FilterReply;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SamplingTurboFilterTest {
+
+    private final LoggerContext context = new LoggerContext();
+
+    private final SamplingTurboFilter filter = new SamplingTurboFilter(Map.of(
+            "com.multiagent.agent", 0.0,
+            "com.multiagent.agent.ModeratorAgent", 1.0,
+            "com.multiagent.util", 0.5));
+
+    @Test
+    @DisplayName("События ниже WARN категории с нулевой долей должны отбрасываться и учитываться")
+    void shouldDropSampledCategory() {
+        Logger logger = context.getLogger("com.multiagent.agent.TechnicalAnalysisAgent");
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals(FilterReply.DENY, filter.decide(null, logger, Level.DEBUG, "Полный анализ: {}", null, null));
+        }
+
+        assertEquals(10, filter.getDropped().get("com.multiagent.agent").sum());
+    }
+
+    @Test
+    @DisplayName("WARN, ERROR и проверки уровня не должны затрагиваться выборкой")
+    void shouldKeepWarningsAndLevelChecks() {
+        Logger logger = context.getLogger("com.multiagent.agent.TechnicalAnalysisAgent");
+
+        assertEquals(FilterReply.NEUTRAL, filter.decide(null, logger, Level.WARN, "Ошибка", null, null));
+        assertEquals(FilterReply.NEUTRAL, filter.decide(null, logger, Level.ERROR, "Ошибка", null, null));
+        assertEquals(FilterReply.NEUTRAL, filter.decide(null, logger, Level.DEBUG, null, null, null));
+    }
+
+    @Test
+    @DisplayName("События ниже уровня логгера не должны попадать в выборку и учитываться как отброшенные")
+    void shouldIgnoreDisabledLevels() {
+        Logger logger = context.getLogger("com.multiagent.agent.RiskAssessmentAgent");
+        logger.setLevel(Level.INFO);
+
+        assertEquals(FilterReply.NEUTRAL, filter.decide(null, logger, Level.TRACE, "Сигналы", null, null));
+        assertEquals(FilterReply.NEUTRAL, filter.decide(null, logger, Level.DEBUG, "Сигналы", null, null));
+
+        assertEquals(0, filter.getDropped().get("com.multiagent.agent").sum());
+    }
+
+    @Test
+    @DisplayName("Должна применяться доля самой точной категории, а логгеры вне категорий не затрагиваться")
+    void shouldUseLongestPrefix() {
+        Logger moderator = context.getLogger("com.multiagent.agent.ModeratorAgent");
+        Logger service = context.getLogger("com.multiagent.service.CryptoAnalysisService");
+        Logger similarName = context.getLogger("com.multiagent.agentx.Other");
+
+        assertEquals(FilterReply.NEUTRAL, filter.decide(null, moderator, Level.DEBUG, "Полный анализ: {}", null, null));
+        assertEquals(FilterReply.NEUTRAL, filter.decide(null, service, Level.DEBUG, "Анализ", null, null));
+        assertEquals(FilterReply.NEUTRAL, filter.decide(null, similarName, Level.DEBUG, "Анализ", null, null));
+    }
+
+    @Test
+    @DisplayName("Доля сохраняемых событий должна соответствовать настройке категории")
+    void shouldSampleByRate() {
+        Logger logger = context.getLogger("com.multiagent.util.AnalysisUtils");
+        logger.setLevel(Level.TRACE);
+
+        int kept = 0;
+        for (int i = 0; i < 10_000; i++) {
+            if (filter.decide(null, logger, Level.TRACE, "Сигналы", null, null) == FilterReply.NEUTRAL) {
+                kept++;
+            }
+        }
+
+        assertTrue(kept > 4_000 && kept < 6_000, "Сохранено событий: " + kept);
+    }
+}
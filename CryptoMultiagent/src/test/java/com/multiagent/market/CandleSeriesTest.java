@@ -0,0 +1,146 @@
+package com.multiagent.market;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Тесты для CandleSeries")
+class CandleSeriesTest {
+
+    private static final long HOUR = 3_600_000L;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("Диапазон должен находиться по времени и не копировать столбцы")
+    void shouldReadRangeByTime() throws Exception {
+        try (CandleSeries series = CandleSeries.open(directory.resolve("BTC/1h.ohlcv"), CandleInterval.HOUR_1, 16)) {
+            for (int i = 0; i < 10; i++) {
+                series.append(i * HOUR, 100 + i, 101 + i, 99 + i, 100.5 + i, 10 * i);
+            }
+
+            CandleRange range = series.range(3 * HOUR, 6 * HOUR);
+
+            assertEquals(3, range.size());
+            assertEquals(3 * HOUR, range.timestamp(0));
+            assertEquals(105.5, range.close(2));
+            assertTrue(range.closes().isDirect(), "Столбец должен быть представлением отображенного файла");
+            assertEquals(2, series.latest(2).size());
+            assertEquals(9 * HOUR, series.latest(2).timestamp(1));
+            assertTrue(series.range(20 * HOUR, 30 * HOUR).isEmpty());
+        }
+    }
+
+    @Test
+    @DisplayName("Файл должен расширяться при заполнении, сохраняя ранее выданные диапазоны")
+    void shouldGrowAndKeepEarlierRanges() throws Exception {
+        try (CandleSeries series = CandleSeries.open(directory.resolve("ETH/1h.ohlcv"), CandleInterval.HOUR_1, 16)) {
+            for (int i = 0; i < 16; i++) {
+                series.append(i * HOUR, i, i, i, i, i);
+            }
+            CandleRange before = series.latest(16);
+
+            for (int i = 16; i < 100; i++) {
+                series.append(i * HOUR, i, i, i, i, i);
+            }
+
+            assertEquals(100, series.size());
+            assertTrue(series.capacity() >= 100);
+            assertEquals(15.0, before.close(15));
+            assertEquals(99.0, series.latest(1).close(0));
+            assertEquals(50, series.range(0, 50 * HOUR).size());
+        }
+    }
+
+    @Test
+    @DisplayName("Свеча с тем же временем должна заменять последнюю, а более ранняя - пропускаться")
+    void shouldReplaceLastAndSkipOlderCandles() throws Exception {
+        try (CandleSeries series = CandleSeries.open(directory.resolve("SOL/1h.ohlcv"), CandleInterval.HOUR_1, 16)) {
+            series.append(HOUR, 1, 1, 1, 1, 1);
+            series.append(2 * HOUR, 2, 2, 2, 2, 2);
+
+            assertTrue(series.append(2 * HOUR, 2, 3, 2, 3, 5));
+            assertFalse(series.append(HOUR / 2, 1, 1, 1, 1, 1));
+
+            assertEquals(2, series.size());
+            assertEquals(3.0, series.latest(1).close(0));
+        }
+    }
+
+    @Test
+    @DisplayName("Читатель не должен видеть частично обновленную последнюю свечу")
+    void shouldPublishLastCandleRevisionAtomically() throws Exception {
+        try (CandleSeries series = CandleSeries.open(directory.resolve("DOT/1m.ohlcv"), CandleInterval.MINUTE_1, 16)) {
+            series.append(0, 0, 0, 0, 0, 0);
+            AtomicBoolean running = new AtomicBoolean(true);
+            AtomicInteger torn = new AtomicInteger();
+            Thread reader = new Thread(() -> {
+                while (running.get()) {
+                    CandleRange last = series.latest(1);
+                    double value = last.open(0);
+                    if (last.high(0) != value || last.low(0) != value || last.close(0) != value
+                            || last.volume(0) != value) {
+                        torn.incrementAndGet();
+                    }
+                }
+            });
+            reader.start();
+
+            for (int i = 1; i <= 200_000; i++) {
+                series.append(0, i, i, i, i, i);
+            }
+            running.set(false);
+            reader.join();
+
+            assertEquals(0, torn.get());
+            assertEquals(1, series.size());
+            assertEquals(200_000.0, series.latest(1).close(0));
+        }
+    }
+
+    @Test
+    @DisplayName("Неиспользуемые после расширения блоки должны удаляться при следующем открытии")
+    void shouldCompactGrownFileOnOpen() throws Exception {
+        Path file = directory.resolve("LTC/1h.ohlcv");
+        try (CandleSeries series = CandleSeries.open(file, CandleInterval.HOUR_1, 16)) {
+            for (int i = 0; i < 100; i++) {
+                series.append(i * HOUR, i, i, i, i, i);
+            }
+        }
+        long grownSize = Files.size(file);
+
+        try (CandleSeries reopened = CandleSeries.open(file, CandleInterval.HOUR_1, 16)) {
+            assertEquals(100, reopened.size());
+            assertEquals(128, reopened.capacity());
+            assertEquals(64 + 6 * 128 * Long.BYTES, Files.size(file));
+            assertTrue(grownSize > Files.size(file));
+            assertEquals(42.0, reopened.range(42 * HOUR, 43 * HOUR).close(0));
+            assertEquals(99.0, reopened.latest(1).close(0));
+        }
+    }
+
+    @Test
+    @DisplayName("Свечи должны сохраняться между открытиями файла")
+    void shouldPersistBetweenOpens() throws Exception {
+        Path file = directory.resolve("ADA/1d.ohlcv");
+        try (CandleSeries series = CandleSeries.open(file, CandleInterval.DAY_1, 16)) {
+            for (int i = 0; i < 40; i++) {
+                series.append(i * 24 * HOUR, i, i, i, i, i);
+            }
+        }
+
+        try (CandleSeries reopened = CandleSeries.open(file, CandleInterval.DAY_1, 16)) {
+            assertEquals(40, reopened.size());
+            assertEquals(39 * 24 * HOUR, reopened.lastTimestamp());
+        }
+        assertThrows(IllegalStateException.class, () -> CandleSeries.open(file, CandleInterval.HOUR_1, 16));
+    }
+}
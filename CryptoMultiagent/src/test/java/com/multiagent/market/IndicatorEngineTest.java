@@ -0,0 +1,271 @@
+package com.multiagent.market;
+
+import com.multiagent.config.IndicatorProperties;
+import com.multiagent.config.MarketDataProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Тесты для IndicatorEngine")
+class IndicatorEngineTest {
+
+    private static final long HOUR = 3_600_000L;
+
+    private static final long START = 1_704_067_200_000L;
+
+    private static final double TOLERANCE = 1e-9;
+
+    @TempDir
+    Path directory;
+
+    private MarketDataStore store;
+
+    private IndicatorProperties properties;
+
+    private IndicatorEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        MarketDataProperties storeProperties = new MarketDataProperties();
+        storeProperties.setDirectory(directory.resolve("store").toString());
+        storeProperties.setInitialCapacity(256);
+        store = new MarketDataStore(storeProperties);
+        properties = new IndicatorProperties();
+        properties.setWarmupCandles(10_000);
+        properties.getSymbols().put("bitcoin", "BTC");
+        engine = new IndicatorEngine(store, properties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        engine.shutdown();
+        store.close();
+    }
+
+    @Test
+    @DisplayName("Инкрементальные индикаторы должны совпадать с расчетом по всей истории")
+    void shouldMatchFullRecalculation() {
+        // Arrange
+        int count = 300;
+        double[] high = new double[count];
+        double[] low = new double[count];
+        double[] close = new double[count];
+        double[] volume = new double[count];
+        Random random = new Random(7);
+        double price = 42_000;
+        for (int i = 0; i < count; i++) {
+            double open = price;
+            price = Math.max(1, price + random.nextGaussian() * 300);
+            close[i] = price;
+            high[i] = Math.max(open, price) + random.nextDouble() * 100;
+            low[i] = Math.min(open, price) - random.nextDouble() * 100;
+            volume[i] = 10 + random.nextDouble() * 50;
+        }
+
+        // Act
+        for (int i = 0; i < count; i++) {
+            engine.onCandle("BTC", CandleInterval.HOUR_1, START + i * HOUR, close[Math.max(0, i - 1)],
+                    high[i], low[i], close[i], volume[i]);
+        }
+        IndicatorSnapshot snapshot = engine.snapshot("BTC", CandleInterval.HOUR_1).orElseThrow();
+
+        // Assert
+        assertEquals(count, snapshot.candles());
+        assertEquals(close[count - 1], snapshot.close());
+        assertClose(mean(close, count - 50, count), snapshot.sma());
+        assertClose(ema(close, 20)[count - 1], snapshot.ema());
+        assertClose(rsi(close, 14), snapshot.rsi());
+
+        double[] fast = ema(close, 12);
+        double[] slow = ema(close, 26);
+        double[] macd = new double[count - 25];
+        for (int i = 25; i < count; i++) {
+            macd[i - 25] = fast[i] - slow[i];
+        }
+        double signal = ema(macd, 9)[macd.length - 1];
+        assertClose(macd[macd.length - 1], snapshot.macd());
+        assertClose(signal, snapshot.macdSignal());
+        assertClose(macd[macd.length - 1] - signal, snapshot.macdHistogram());
+
+        double middle = mean(close, count - 20, count);
+        double variance = 0;
+        for (int i = count - 20; i < count; i++) {
+            variance += (close[i] - middle) * (close[i] - middle) / 20;
+        }
+        assertClose(middle, snapshot.bollingerMiddle());
+        assertClose(middle + 2 * Math.sqrt(variance), snapshot.bollingerUpper());
+        assertClose(middle - 2 * Math.sqrt(variance), snapshot.bollingerLower());
+
+        // Последние 300 часовых свечей начинаются с полуночи UTC, текущие сутки - последние 12 свечей
+        double priceVolume = 0;
+        double totalVolume = 0;
+        for (int i = count - 12; i < count; i++) {
+            priceVolume += (high[i] + low[i] + close[i]) / 3 * volume[i];
+            totalVolume += volume[i];
+        }
+        assertClose(priceVolume / totalVolume, snapshot.vwap());
+    }
+
+    @Test
+    @DisplayName("Сделки должны агрегироваться в свечу, а обновления свечи - не искажать индикаторы")
+    void shouldAggregateTicksIntoCandles() {
+        // Arrange
+        IndicatorEngine reference = new IndicatorEngine(store, properties);
+        Random random = new Random(11);
+        double price = 100;
+
+        // Act
+        for (int candle = 0; candle < 120; candle++) {
+            double open = price;
+            double high = price;
+            double low = price;
+            double volume = 0;
+            for (int tick = 0; tick < 10; tick++) {
+                price = Math.max(1, price + random.nextGaussian());
+                double size = random.nextDouble();
+                high = Math.max(high, price);
+                low = Math.min(low, price);
+                volume += size;
+                if (tick == 0) {
+                    open = price;
+                    high = price;
+                    low = price;
+                }
+                assertTrue(engine.onTick("ETH", CandleInterval.HOUR_1, START + candle * HOUR + tick * 60_000L, price, size));
+            }
+            reference.onCandle("SOL", CandleInterval.HOUR_1, START + candle * HOUR, open, high, low, price, volume);
+        }
+        boolean late = engine.onTick("ETH", CandleInterval.HOUR_1, START, 1, 1);
+
+        // Assert
+        IndicatorSnapshot ticks = engine.snapshot("ETH", CandleInterval.HOUR_1).orElseThrow();
+        IndicatorSnapshot candles = reference.snapshot("SOL", CandleInterval.HOUR_1).orElseThrow();
+        assertFalse(late, "Сделка по закрытой свече пропускается");
+        assertEquals(120, ticks.candles());
+        assertClose(candles.sma(), ticks.sma());
+        assertClose(candles.ema(), ticks.ema());
+        assertClose(candles.rsi(), ticks.rsi());
+        assertClose(candles.macdHistogram(), ticks.macdHistogram());
+        assertClose(candles.bollingerUpper(), ticks.bollingerUpper());
+        assertClose(candles.vwap(), ticks.vwap());
+
+        CandleRange stored = store.series("ETH", CandleInterval.HOUR_1).latest(1);
+        CandleRange expected = store.series("SOL", CandleInterval.HOUR_1).latest(1);
+        assertEquals(expected.timestamp(0), stored.timestamp(0));
+        assertClose(expected.open(0), stored.open(0));
+        assertClose(expected.high(0), stored.high(0));
+        assertClose(expected.low(0), stored.low(0));
+        assertClose(expected.volume(0), stored.volume(0));
+        reference.shutdown();
+    }
+
+    @Test
+    @DisplayName("Свечи, загруженные в хранилище, должны досчитываться по всем символам и выбираться по горизонту")
+    void shouldRefreshStoredSeries() {
+        // Arrange
+        for (String symbol : new String[]{"BTC", "ETH", "SOL"}) {
+            CandleSeries series = store.series(symbol, CandleInterval.DAY_1);
+            for (int i = 0; i < 400; i++) {
+                double close = 100 + i;
+                series.append(START + i * 24 * HOUR, close - 1, close + 2, close - 2, close, 5);
+            }
+        }
+        CandleSeries hourly = store.series("BTC", CandleInterval.HOUR_1);
+        for (int i = 0; i < 100; i++) {
+            hourly.append(START + i * HOUR, 50, 51, 49, 50, 1);
+        }
+
+        // Act
+        int applied = engine.refreshAll();
+        int repeated = engine.refreshAll();
+        IndicatorSnapshot longTerm = engine.forAnalysis("Bitcoin", "3 месяца").orElseThrow();
+        IndicatorSnapshot shortTerm = engine.forAnalysis("btc", "1 день").orElseThrow();
+
+        // Assert
+        assertEquals(3 * 400 + 100, applied);
+        assertEquals(4, repeated, "Повторно применяется только последняя свеча каждой серии");
+        assertEquals(CandleInterval.DAY_1, longTerm.interval());
+        assertEquals("BTC", longTerm.symbol());
+        assertClose(499, longTerm.close());
+        assertEquals(100, longTerm.rsi(), 1e-9, "Цена только росла");
+        assertEquals(CandleInterval.HOUR_1, shortTerm.interval());
+        assertTrue(engine.forAnalysis("Dogecoin", "1 месяц").isEmpty());
+        assertTrue(engine.forAnalysis("Не символ", "1 месяц").isEmpty());
+    }
+
+    @Test
+    @DisplayName("Символ без свечей должен запоминаться до следующего фонового обновления")
+    void shouldCacheMissingSymbol() {
+        // Arrange
+        boolean missing = engine.forAnalysis("Dogecoin", "1 месяц").isEmpty();
+        CandleSeries series = store.series("DOGECOIN", CandleInterval.DAY_1);
+        for (int i = 0; i < 30; i++) {
+            series.append(START + i * 24 * HOUR, 1, 1, 1, 1, 1);
+        }
+
+        // Act
+        boolean cached = engine.forAnalysis("Dogecoin", "1 месяц").isEmpty();
+        engine.refreshAll();
+        IndicatorSnapshot refreshed = engine.forAnalysis("Dogecoin", "1 месяц").orElseThrow();
+
+        // Assert
+        assertTrue(missing);
+        assertTrue(cached, "До фонового обновления файлы символа повторно не проверяются");
+        assertEquals(CandleInterval.DAY_1, refreshed.interval());
+    }
+
+    private static void assertClose(double expected, double actual) {
+        assertEquals(expected, actual, Math.max(1, Math.abs(expected)) * TOLERANCE);
+    }
+
+    private static double mean(double[] values, int from, int to) {
+        double sum = 0;
+        for (int i = from; i < to; i++) {
+            sum += values[i];
+        }
+        return sum / (to - from);
+    }
+
+    /**
+     * EMA с затравкой простым средним первых period значений; до нее - NaN
+     */
+    private static double[] ema(double[] values, int period) {
+        double[] result = new double[values.length];
+        double alpha = 2.0 / (period + 1);
+        for (int i = 0; i < values.length; i++) {
+            if (i < period - 1) {
+                result[i] = Double.NaN;
+            } else if (i == period - 1) {
+                result[i] = mean(values, 0, period);
+            } else {
+                result[i] = result[i - 1] + alpha * (values[i] - result[i - 1]);
+            }
+        }
+        return result;
+    }
+
+    private static double rsi(double[] close, int period) {
+        double gain = 0;
+        double loss = 0;
+        for (int i = 1; i <= period; i++) {
+            double change = close[i] - close[i - 1];
+            gain += Math.max(change, 0);
+            loss += Math.max(-change, 0);
+        }
+        gain /= period;
+        loss /= period;
+        for (int i = period + 1; i < close.length; i++) {
+            double change = close[i] - close[i - 1];
+            gain = (gain * (period - 1) + Math.max(change, 0)) / period;
+            loss = (loss * (period - 1) + Math.max(-change, 0)) / period;
+        }
+        return 100 - 100 / (1 + gain / loss);
+    }
+}
@@ -0,0 +1,130 @@
+package com.multiagent.market;
+
+import com.multiagent.config.MarketDataProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.StringReader;
+import java.nio.DoubleBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Slf4j
+@DisplayName("Тесты для MarketDataStore")
+class MarketDataStoreTest {
+
+    @TempDir
+    Path directory;
+
+    private MarketDataStore store;
+
+    @BeforeEach
+    void setUp() {
+        MarketDataProperties properties = new MarketDataProperties();
+        properties.setDirectory(directory.resolve("store").toString());
+        properties.setInitialCapacity(1024);
+        store = new MarketDataStore(properties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        store.close();
+    }
+
+    @Test
+    @DisplayName("CSV с заголовком и разными форматами времени должен загружаться идемпотентно")
+    void shouldIngestCsvIdempotently() throws Exception {
+        // Arrange
+        String csv = """
+                timestamp,open,high,low,close,volume
+                1704067200,42000,42500,41800,42300,120.5
+                1704070800000,42300,42600,42100,42550,98.1
+                2024-01-01T02:00:00Z;42550;42700;42400;42600;80
+                """;
+
+        // Act
+        int first = store.ingestCsv("btc", CandleInterval.HOUR_1, new StringReader(csv));
+        int repeated = store.ingestCsv("BTC", CandleInterval.HOUR_1, new StringReader(csv));
+
+        // Assert
+        assertEquals(3, first);
+        assertEquals(1, repeated, "Повтор заменяет только последнюю свечу");
+        CandleRange range = store.range("BTC", CandleInterval.HOUR_1,
+                Instant.parse("2024-01-01T01:00:00Z"), Instant.parse("2024-01-02T00:00:00Z"));
+        assertEquals(2, range.size());
+        assertEquals(42550, range.close(0));
+        assertEquals(80, range.volume(1));
+        assertTrue(Files.exists(directory.resolve("store/BTC/1h.ohlcv")));
+    }
+
+    @Test
+    @DisplayName("ISO-время должно учитывать любое смещение, а время без смещения - считаться UTC")
+    void shouldParseIsoTimestampOffsets() throws Exception {
+        // Arrange
+        String csv = """
+                2024-01-01T00:00:00,1,1,1,1,1
+                2024-01-01T02:00:00+01:00,2,2,2,2,2
+                2023-12-31T23:00:00-03:00,3,3,3,3,3
+                """;
+
+        // Act
+        int ingested = store.ingestCsv("XRP", CandleInterval.HOUR_1, new StringReader(csv));
+
+        // Assert
+        CandleRange range = store.find("XRP", CandleInterval.HOUR_1).orElseThrow().latest(3);
+        assertEquals(3, ingested);
+        assertEquals(Instant.parse("2024-01-01T00:00:00Z").toEpochMilli(), range.timestamp(0));
+        assertEquals(Instant.parse("2024-01-01T01:00:00Z").toEpochMilli(), range.timestamp(1));
+        assertEquals(Instant.parse("2024-01-01T02:00:00Z").toEpochMilli(), range.timestamp(2));
+    }
+
+    @Test
+    @DisplayName("Импорт каталога должен определять символ и интервал по имени файла")
+    void shouldImportDirectory() throws Exception {
+        Path imports = Files.createDirectories(directory.resolve("import"));
+        Files.writeString(imports.resolve("ETH_1d.csv"), "1704067200000,2300,2400,2250,2350,1000\n");
+        Files.writeString(imports.resolve("readme.txt"), "не CSV");
+
+        assertEquals(1, store.importDirectory(imports));
+        assertEquals(1, store.find("eth", CandleInterval.DAY_1).orElseThrow().size());
+        assertTrue(store.find("ETH", CandleInterval.HOUR_1).isEmpty());
+        assertThrows(IllegalArgumentException.class,
+                () -> store.ingestCsv("ETH", CandleInterval.DAY_1, new StringReader("1704153600000,abc,1,1,1,1")));
+    }
+
+    @Test
+    @DisplayName("Чтение диапазона из миллиона свечей не должно копировать данные")
+    void shouldReadMillionsOfCandlesWithoutCopying() {
+        // Arrange
+        CandleSeries series = store.series("BENCH", CandleInterval.MINUTE_1);
+        int candles = 1_000_000;
+        long startedAt = System.nanoTime();
+        for (int i = 0; i < candles; i++) {
+            series.append(i * 60_000L, i, i + 1, i - 1, i + 0.5, 1);
+        }
+        long appendMillis = (System.nanoTime() - startedAt) / 1_000_000;
+
+        // Act
+        startedAt = System.nanoTime();
+        CandleRange range = series.range(100_000 * 60_000L, 900_000 * 60_000L);
+        DoubleBuffer closes = range.closes();
+        double sum = 0;
+        while (closes.hasRemaining()) {
+            sum += closes.get();
+        }
+        long readMicros = (System.nanoTime() - startedAt) / 1_000;
+        log.info("Свечи: запись {} за {} мс, чтение и суммирование {} за {} мкс",
+                candles, appendMillis, range.size(), readMicros);
+
+        // Assert
+        assertEquals(800_000, range.size());
+        assertEquals(800_000 * 0.5 + (100_000L + 899_999L) * 800_000 / 2.0, sum, 1e-3);
+    }
+}
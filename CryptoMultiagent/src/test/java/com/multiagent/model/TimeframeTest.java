@@ -0,0 +1,63 @@
+package com.multiagent.model;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Тесты для Timeframe")
+class TimeframeTest {
+
+    @ParameterizedTest
+    @ValueSource(strings = {"1 месяц", "месяц", "30 дней", "1 month", "1M", "1 мес.", "4 недели", " 1  Month "})
+    @DisplayName("Варианты записи месяца должны приводиться к одному каноническому периоду")
+    void shouldCollapseMonthVariants(String value) {
+        assertEquals("1 месяц", Timeframe.canonicalize(value));
+    }
+
+    @Test
+    @DisplayName("Должен распознавать русские и английские единицы измерения")
+    void shouldParseUnits() {
+        assertEquals(Timeframe.WEEK, Timeframe.parse("1 week"));
+        assertEquals(Timeframe.WEEK, Timeframe.parse("7d"));
+        assertEquals(Timeframe.TWO_WEEKS, Timeframe.parse("2 недели"));
+        assertEquals(Timeframe.QUARTER, Timeframe.parse("квартал"));
+        assertEquals(Timeframe.HALF_YEAR, Timeframe.parse("полгода"));
+        assertEquals(Timeframe.YEAR, Timeframe.parse("1y"));
+        assertEquals(Timeframe.TWO_YEARS, Timeframe.parse("2 года"));
+        assertEquals(Timeframe.DAY, Timeframe.parse("24h"));
+        assertEquals(Timeframe.DAY, Timeframe.parse("24 часа"));
+    }
+
+    @Test
+    @DisplayName("Промежуточные значения должны округляться до ближайшего периода")
+    void shouldRoundToNearestBucket() {
+        assertEquals(Timeframe.WEEK, Timeframe.parse("5 дней"));
+        assertEquals(Timeframe.QUARTER, Timeframe.parse("2 месяца"));
+        assertEquals(Timeframe.MONTH, Timeframe.parse("1,5 months"));
+    }
+
+    @Test
+    @DisplayName("Компактная запись должна различать минуты и месяцы по регистру")
+    void shouldDistinguishMinutesFromMonths() {
+        assertThrows(IllegalArgumentException.class, () -> Timeframe.parse("1m"));
+        assertEquals(Timeframe.MONTH, Timeframe.parse("1M"));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"15m", "4h", "12 часов", "30 минут", "1 hour", "0,5 дня"})
+    @DisplayName("Периоды короче суток должны отклоняться, а не подменяться одним днем")
+    void shouldRejectIntradayValues(String value) {
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class, () -> Timeframe.parse(value));
+        assertTrue(error.getMessage().contains("короче суток"));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "invalid_timeframe", "скоро", "0 дней", "50 лет", "1 месяц 2 дня"})
+    @DisplayName("Нераспознанные периоды должны отклоняться")
+    void shouldRejectUnparseableValues(String value) {
+        assertThrows(IllegalArgumentException.class, () -> Timeframe.parse(value));
+    }
+}
@@ -0,0 +1,166 @@
+package com.multiagent.service;
+
+import com.multiagent.agent.AgentRegistry;
+import com.multiagent.agent.BaseAgent;
+import com.multiagent.config.AdmissionProperties;
+import com.multiagent.config.AgentProperties;
+import com.multiagent.model.AgentAnalysis;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Тесты для AdmissionControl")
+class AdmissionControlTest {
+
+    private AgentRegistry registry;
+
+    private AdmissionControl admissionControl;
+
+    private List<BaseAgent> agents;
+
+    @BeforeEach
+    void setUp() {
+        AgentProperties agentProperties = new AgentProperties();
+        AgentProperties.AgentSettings single = new AgentProperties.AgentSettings();
+        single.setMaxConcurrency(1);
+        agentProperties.getAgents().put("a", single);
+        registry = new AgentRegistry(List.of(new StubAgent("a"), new StubAgent("b"), new StubAgent("c", "a", "b")),
+                agentProperties);
+        agents = registry.resolve(null);
+
+        AdmissionProperties properties = new AdmissionProperties();
+        properties.setInitialLatency(Duration.ofSeconds(10));
+        admissionControl = new AdmissionControl(registry, properties, new SimpleMeterRegistry());
+    }
+
+    @Test
+    @DisplayName("Оценка должна суммировать агентов последовательно и брать самый длинный путь параллельно")
+    void shouldEstimateByExecutionMode() {
+        // Act
+        Duration sequential = admissionControl.estimate(agents, false);
+        Duration parallel = admissionControl.estimate(agents, true);
+
+        // Assert: a и b выполняются параллельно, c ждет обоих
+        assertEquals(Duration.ofSeconds(30), sequential);
+        assertEquals(Duration.ofSeconds(20), parallel);
+    }
+
+    @Test
+    @DisplayName("Допущенный анализ должен занимать очередь к агенту до закрытия допуска")
+    void shouldCountAdmittedAnalysesAsQueue() {
+        // Arrange: у агента a одно место, второй анализ ждет целую волну вызовов
+        AdmissionControl.Admission first = admissionControl.admit(agents, true, Duration.ofSeconds(60));
+
+        // Act
+        Duration queued = admissionControl.estimate(agents, true);
+        first.close();
+        Duration released = admissionControl.estimate(agents, true);
+
+        // Assert
+        assertEquals(Duration.ofSeconds(30), queued);
+        assertEquals(Duration.ofSeconds(20), released);
+    }
+
+    @Test
+    @DisplayName("Анализ, который не успеет до дедлайна, должен отклоняться с Retry-After по оценке")
+    void shouldRejectWhenDeadlineCannotBeMet() {
+        // Arrange
+        admissionControl.admit(agents, true, Duration.ofSeconds(60));
+
+        // Act
+        AnalysisRejectedException rejected = assertThrows(AnalysisRejectedException.class,
+                () -> admissionControl.admit(agents, true, Duration.ofSeconds(25)));
+
+        // Assert: оценка 30 секунд при дедлайне 25
+        assertEquals(Duration.ofSeconds(5), rejected.getRetryAfter());
+    }
+
+    @Test
+    @DisplayName("Из одновременного всплеска должен допускаться только анализ, который успеет")
+    void shouldAdmitConcurrentBurstOnce() throws Exception {
+        // Arrange: каждый следующий анализ ждет еще одну волну вызовов агента a
+        int threads = 8;
+        CyclicBarrier start = new CyclicBarrier(threads);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<Boolean>> results = new ArrayList<>();
+
+        // Act
+        for (int i = 0; i < threads; i++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                try {
+                    admissionControl.admit(agents, true, Duration.ofSeconds(25));
+                    return true;
+                } catch (AnalysisRejectedException e) {
+                    return false;
+                }
+            }));
+        }
+        int admitted = 0;
+        for (Future<Boolean> result : results) {
+            admitted += result.get() ? 1 : 0;
+        }
+        executor.shutdown();
+
+        // Assert
+        assertEquals(1, admitted);
+        assertEquals(Duration.ofSeconds(30), admissionControl.estimate(agents, true),
+                "Отклоненные анализы не занимают очередь");
+    }
+
+    @Test
+    @DisplayName("Длительность вызова агента должна учитываться после первого вызова")
+    void shouldUseObservedLatency() {
+        // Act
+        agents.forEach(agent -> registry.invoke(agent, "Bitcoin", "1 месяц"));
+
+        // Assert
+        assertTrue(admissionControl.estimate(agents, false).compareTo(Duration.ofSeconds(1)) < 0,
+                "Ожидалась оценка по быстрым вызовам заглушек");
+    }
+
+    private static class StubAgent extends BaseAgent {
+
+        private final String id;
+
+        private final Set<String> dependencies;
+
+        StubAgent(String id, String... dependencies) {
+            super(null);
+            this.id = id;
+            this.dependencies = Set.of(dependencies);
+        }
+
+        @Override
+        public String getId() {
+            return id;
+        }
+
+        @Override
+        public String getName() {
+            return "Агент " + id;
+        }
+
+        @Override
+        public Set<String> getDependencies() {
+            return dependencies;
+        }
+
+        @Override
+        public AgentAnalysis analyze(String cryptocurrency, String timeframe) {
+            return new AgentAnalysis(getName(), "анализ", "ДЕРЖАТЬ", 0.6);
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.multiagent.service;
+
+import com.multiagent.agent.AgentRegistry;
+import com.multiagent.agent.BaseAgent;
+import com.multiagent.config.AgentProperties;
+import com.multiagent.model.AgentAnalysis;
+import com.multiagent.service.AgentDagExecutor.DagResult;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Тесты для AgentDagExecutor")
+class AgentDagExecutorTest {
+
+    private final Map<String, Map<String, AgentAnalysis>> receivedInputs = new ConcurrentHashMap<>();
+
+    private final Set<String> interrupted = ConcurrentHashMap.newKeySet();
+
+    @Test
+    @DisplayName("Зависимый агент должен получать результаты своих входов")
+    void shouldPassDependencyResults() {
+        AgentRegistry registry = registry(
+                new DelayAgent("a", 10), new DelayAgent("b", 10), new DelayAgent("c", 10, "a", "b"));
+        AgentDagExecutor executor = new AgentDagExecutor(registry);
+
+        DagResult result = executor.execute(registry.resolve(null), "Bitcoin", "1 месяц").join();
+
+        assertEquals(3, result.analyses().size());
+        assertEquals(Set.of("a", "b"), receivedInputs.get("c").keySet());
+        assertEquals("Агент a", receivedInputs.get("c").get("a").getAgentName());
+    }
+
+    @Test
+    @DisplayName("Независимые агенты должны выполняться параллельно")
+    void shouldRunIndependentAgentsInParallel() {
+        AgentRegistry registry = registry(
+                new DelayAgent("a", 300), new DelayAgent("b", 300), new DelayAgent("c", 300));
+        AgentDagExecutor executor = new AgentDagExecutor(registry);
+
+        DagResult result = executor.execute(registry.resolve(null), "Bitcoin", "1 месяц").join();
+
+        assertTrue(result.executionMillis() < 800, "Ожидалось параллельное выполнение: " + result.executionMillis());
+    }
+
+    @Test
+    @DisplayName("Критический путь должен проходить через самую длинную цепочку зависимостей")
+    void shouldReportCriticalPath() {
+        AgentRegistry registry = registry(
+                new DelayAgent("fast", 10), new DelayAgent("slow", 200), new DelayAgent("sink", 50, "fast", "slow"));
+        AgentDagExecutor executor = new AgentDagExecutor(registry);
+
+        DagResult result = executor.executeSequentially(registry.resolve(null), "Bitcoin", "1 месяц");
+
+        assertEquals(List.of("Агент slow", "Агент sink"), result.criticalPath());
+        assertTrue(result.criticalPathMillis() >= 250);
+        assertTrue(result.criticalPathMillis() < result.executionMillis() + 1);
+    }
+
+    @Test
+    @DisplayName("Запрошенный агент должен автоматически подтягивать свои зависимости")
+    void shouldResolveTransitiveDependencies() {
+        AgentRegistry registry = registry(
+                new DelayAgent("a", 0), new DelayAgent("b", 0, "a"), new DelayAgent("c", 0, "b"));
+
+        List<String> ids = registry.resolve(List.of("c")).stream().map(BaseAgent::getId).toList();
+
+        assertEquals(List.of("a", "b", "c"), ids);
+    }
+
+    @Test
+    @DisplayName("Циклические зависимости должны отклоняться при регистрации")
+    void shouldRejectCycles() {
+        assertThrows(IllegalStateException.class,
+                () -> registry(new DelayAgent("a", 0, "b"), new DelayAgent("b", 0, "a")));
+    }
+
+    @Test
+    @DisplayName("В режиме кворума оставшиеся агенты должны отменяться после выполнения условия")
+    void shouldCancelOutstandingAgentsOnQuorum() {
+        AgentRegistry registry = registry(
+                new DelayAgent("a", 10), new DelayAgent("b", 20), new DelayAgent("slow", 5000), new DelayAgent("d", 0, "slow"));
+        AgentDagExecutor executor = new AgentDagExecutor(registry);
+
+        DagResult result = executor.executeWithQuorum(registry.resolve(null), "Bitcoin", "1 месяц",
+                completed -> completed.size() >= 2).join();
+
+        assertEquals(2, result.analyses().size());
+        assertEquals(List.of("Агент slow", "Агент d"), result.skippedAgents());
+        assertTrue(result.executionMillis() < 2000, "Ожидалась отмена медленного агента: " + result.executionMillis());
+        assertTimeoutPreemptively(java.time.Duration.ofSeconds(2), () -> {
+            while (!interrupted.contains("slow")) {
+                TimeUnit.MILLISECONDS.sleep(10);
+            }
+        });
+        assertFalse(receivedInputs.containsKey("d"));
+        executor.shutdown();
+    }
+
+    @Test
+    @DisplayName("Без выполнения условия кворума должны выполняться все агенты")
+    void shouldRunAllAgentsWhenQuorumNotReached() {
+        AgentRegistry registry = registry(new DelayAgent("a", 10), new DelayAgent("b", 10, "a"));
+        AgentDagExecutor executor = new AgentDagExecutor(registry);
+
+        DagResult result = executor.executeWithQuorum(registry.resolve(null), "Bitcoin", "1 месяц",
+                completed -> false).join();
+
+        assertEquals(2, result.analyses().size());
+        assertTrue(result.skippedAgents().isEmpty());
+        assertEquals(0, result.savedMillis());
+        executor.shutdown();
+    }
+
+    @Test
+    @DisplayName("Последовательный режим кворума должен пропускать оставшихся агентов и оценивать экономию")
+    void shouldSkipRemainingAgentsSequentially() {
+        AgentRegistry registry = registry(new DelayAgent("a", 10), new DelayAgent("b", 100), new DelayAgent("c", 100));
+        AgentDagExecutor executor = new AgentDagExecutor(registry);
+        // Первый полный прогон накапливает среднюю длительность агентов
+        executor.executeSequentially(registry.resolve(null), "Bitcoin", "1 месяц");
+
+        DagResult result = executor.executeSequentially(registry.resolve(null), "Bitcoin", "1 месяц",
+                completed -> completed.containsKey("a"));
+
+        assertEquals(1, result.analyses().size());
+        assertEquals(List.of("Агент b", "Агент c"), result.skippedAgents());
+        assertTrue(result.savedMillis() >= 150, "Ожидалась оценка экономии: " + result.savedMillis());
+    }
+
+    private AgentRegistry registry(BaseAgent... agents) {
+        return new AgentRegistry(List.of(agents), new AgentProperties());
+    }
+
+    private class DelayAgent extends BaseAgent {
+
+        private final String id;
+
+        private final long delayMillis;
+
+        private final Set<String> dependencies;
+
+        DelayAgent(String id, long delayMillis, String... dependencies) {
+            super(null);
+            this.id = id;
+            this.delayMillis = delayMillis;
+            this.dependencies = Set.of(dependencies);
+        }
+
+        @Override
+        public String getId() {
+            return id;
+        }
+
+        @Override
+        public String getName() {
+            return "Агент " + id;
+        }
+
+        @Override
+        public Set<String> getDependencies() {
+            return dependencies;
+        }
+
+        @Override
+        public AgentAnalysis analyze(String cryptocurrency, String timeframe) {
+            return analyze(cryptocurrency, timeframe, Map.of());
+        }
+
+        @Override
+        public AgentAnalysis analyze(String cryptocurrency, String timeframe, Map<String, AgentAnalysis> inputs) {
+            receivedInputs.put(id, inputs);
+            try {
+                TimeUnit.MILLISECONDS.sleep(delayMillis);
+            } catch (InterruptedException e) {
+                interrupted.add(id);
+                Thread.currentThread().interrupt();
+            }
+            return new AgentAnalysis(getName(), "анализ", "ДЕРЖАТЬ", 0.6);
+        }
+    }
+}
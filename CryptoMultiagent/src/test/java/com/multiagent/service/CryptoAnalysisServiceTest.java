@@ -1,19 +1,27 @@
 package com.multiagent.service;
 
 import com.multiagent.BaseTestConfiguration;
+import com.multiagent.model.AnalysisOptions;
 import com.multiagent.model.CryptoAnalysisResponse;
+import com.multiagent.model.TokenUsage;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.DisplayName;
+import org.mockito.ArgumentCaptor;
+import org.springframework.ai.chat.metadata.ChatResponseMetadata;
+import org.springframework.ai.chat.metadata.DefaultUsage;
 import org.springframework.ai.chat.model.ChatResponse;
 import org.springframework.ai.chat.model.Generation;
 import org.springframework.ai.chat.messages.AssistantMessage;
 import org.springframework.ai.chat.prompt.Prompt;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 class CryptoAnalysisServiceTest extends BaseTestConfiguration {
@@ -21,6 +29,9 @@ class CryptoAnalysisServiceTest extends BaseTestConfiguration {
     @Autowired
     private CryptoAnalysisService cryptoAnalysisService;
 
+    @Autowired
+    private TokenUsageTracker tokenUsageTracker;
+
     @Test
     @DisplayName("Синхронный анализ должен возвращать корректный результат")
     void testSynchronousAnalysis() {
@@ -103,6 +114,82 @@ class CryptoAnalysisServiceTest extends BaseTestConfiguration {
         assertTrue(response.getAverageConfidence() >= 0.0);
     }
 
+    @Test
+    @DisplayName("Анализ должен выполняться только запрошенными агентами")
+    void testAnalysisWithSelectedAgents() {
+        // Arrange
+        String technicalResponse = "Восходящий тренд. Рекомендация: ПОКУПАТЬ. Высокая уверенность.";
+        String sentimentResponse = "Позитивные настроения. Рекомендация: ПОКУПАТЬ. Умеренная уверенность.";
+
+        when(chatModel.call(any(Prompt.class)))
+                .thenReturn(createMockChatResponse(technicalResponse))
+                .thenReturn(createMockChatResponse(sentimentResponse));
+
+        // Act
+        CryptoAnalysisResponse response = cryptoAnalysisService.analyzeCryptocurrency(
+                "Solana", "1 месяц", AnalysisOptions.forAgents(List.of("technical", "sentiment")));
+
+        // Assert
+        assertEquals(2, response.getAgentAnalyses().size());
+        assertEquals("Технический Аналитик", response.getAgentAnalyses().get(0).getAgentName());
+        assertEquals("Аналитик Настроений", response.getAgentAnalyses().get(1).getAgentName());
+        assertEquals("ПОКУПАТЬ", response.getFinalRecommendation());
+    }
+
+    @Test
+    @DisplayName("В режиме кворума агент, не влияющий на итог, должен пропускаться")
+    void testQuorumSkipsUndecisiveAgent() {
+        // Arrange
+        when(chatModel.call(any(Prompt.class)))
+                .thenReturn(createMockChatResponse("Восходящий тренд. Рекомендация: ПОКУПАТЬ. Высокая уверенность."))
+                .thenReturn(createMockChatResponse("Сильные показатели. Рекомендация: ПОКУПАТЬ. Высокая уверенность."))
+                .thenReturn(createMockChatResponse("Паника в сообществе. Рекомендация: ПРОДАВАТЬ. Высокая уверенность."));
+        AnalysisOptions options = AnalysisOptions.defaults();
+        options.setQuorum(true);
+
+        // Act
+        CryptoAnalysisResponse response = cryptoAnalysisService.analyzeCryptocurrency("Litecoin", "1 месяц", options);
+
+        // Assert
+        verify(chatModel, times(2)).call(any(Prompt.class));
+        assertEquals(2, response.getAgentAnalyses().size());
+        assertEquals(List.of("Аналитик Настроений"), response.getSkippedAgents());
+        assertEquals("ПОКУПАТЬ", response.getFinalRecommendation());
+    }
+
+    @Test
+    @DisplayName("Краткий режим должен ограничивать токены ответа и учитывать их расход")
+    void testBriefModeLimitsTokens() {
+        // Arrange
+        when(chatModel.call(any(Prompt.class))).thenReturn(new ChatResponse(
+                List.of(new Generation(new AssistantMessage("Рост. Рекомендация: ПОКУПАТЬ. Высокая уверенность."))),
+                ChatResponseMetadata.builder().usage(new DefaultUsage(120, 40)).build()));
+        AnalysisOptions options = AnalysisOptions.forAgents(List.of("technical"));
+        options.setBrief(true);
+        options.setMaxTokens(250);
+
+        // Act
+        CryptoAnalysisResponse response = cryptoAnalysisService.analyzeCryptocurrency("Zcash", "1 месяц", options);
+
+        // Assert
+        ArgumentCaptor<Prompt> prompt = ArgumentCaptor.forClass(Prompt.class);
+        verify(chatModel).call(prompt.capture());
+        assertEquals(250, prompt.getValue().getOptions().getMaxTokens());
+        assertTrue(prompt.getValue().getContents().contains("Ответь кратко"));
+        assertEquals(new TokenUsage(120, 40), response.getAgentAnalyses().get(0).getTokenUsage());
+        assertEquals(160, tokenUsageTracker.getCoinUsage("Zcash").orElseThrow().get("technical").totalTokens());
+    }
+
+    @Test
+    @DisplayName("Статус агентов должен перечислять всех зарегистрированных агентов")
+    void testAgentsStatus() {
+        String status = cryptoAnalysisService.getAgentsStatus();
+
+        assertTrue(status.contains("Технический Аналитик"));
+        assertTrue(status.contains("Фундаментальный Аналитик"));
+        assertTrue(status.contains("Аналитик Настроений"));
+    }
+
     private ChatResponse createMockChatResponse(String content) {
         AssistantMessage message = new AssistantMessage(content);
         Generation generation = new Generation(message);
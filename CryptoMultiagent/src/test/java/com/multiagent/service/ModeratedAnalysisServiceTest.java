@@ -0,0 +1,90 @@
+package com.multiagent.service;
+
+import com.multiagent.BaseTestConfiguration;
+import com.multiagent.model.CryptoAnalysisResponse;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@TestPropertySource(properties = "crypto.moderator.enabled=true")
+class ModeratedAnalysisServiceTest extends BaseTestConfiguration {
+
+    @Autowired
+    private CryptoAnalysisService cryptoAnalysisService;
+
+    @Test
+    @DisplayName("При согласии агентов модератор не должен вызываться")
+    void testModeratorSkippedWhenAgentsAgree() {
+        // Arrange
+        when(chatModel.call(any(Prompt.class)))
+                .thenReturn(createMockChatResponse("Восходящий тренд. Рекомендация: ПОКУПАТЬ. Высокая уверенность."))
+                .thenReturn(createMockChatResponse("Сильные показатели. Рекомендация: ПОКУПАТЬ. Высокая уверенность."))
+                .thenReturn(createMockChatResponse("Позитивные настроения. Рекомендация: ПОКУПАТЬ. Умеренная уверенность."));
+
+        // Act
+        CryptoAnalysisResponse response = cryptoAnalysisService.analyzeCryptocurrency("Cardano", "1 месяц");
+
+        // Assert
+        verify(chatModel, times(3)).call(any(Prompt.class));
+        assertNull(response.getModeratorAnalysis());
+        assertEquals("ПОКУПАТЬ", response.getFinalRecommendation());
+    }
+
+    @Test
+    @DisplayName("При разногласиях агентов решение должен выносить модератор")
+    void testModeratorResolvesDisagreement() {
+        // Arrange
+        when(chatModel.call(any(Prompt.class)))
+                .thenReturn(createMockChatResponse("Пробой поддержки. Рекомендация: ПРОДАВАТЬ. Высокая уверенность."))
+                .thenReturn(createMockChatResponse("Рост экосистемы. Рекомендация: ПОКУПАТЬ. Умеренная уверенность."))
+                .thenReturn(createMockChatResponse("Страх на рынке. Рекомендация: ПРОДАВАТЬ. Низкая уверенность."))
+                .thenReturn(createMockChatResponse("Сигналы противоречивы, позицию не открывать. Высокая уверенность."));
+
+        // Act
+        CryptoAnalysisResponse response = cryptoAnalysisService.analyzeCryptocurrency("Polkadot", "2 недели");
+
+        // Assert
+        verify(chatModel, times(4)).call(any(Prompt.class));
+        assertNotNull(response.getModeratorAnalysis());
+        assertEquals("Модератор", response.getModeratorAnalysis().getAgentName());
+        assertEquals("ДЕРЖАТЬ", response.getFinalRecommendation());
+        assertEquals(3, response.getAgentAnalyses().size());
+    }
+
+    @Test
+    @DisplayName("При ошибке модератора должен использоваться результат взвешенного голосования")
+    void testFallbackToWeightedVoteWhenModeratorFails() {
+        // Arrange
+        when(chatModel.call(any(Prompt.class)))
+                .thenReturn(createMockChatResponse("Пробой поддержки. Рекомендация: ПРОДАВАТЬ. Высокая уверенность."))
+                .thenReturn(createMockChatResponse("Рост экосистемы. Рекомендация: ПОКУПАТЬ. Умеренная уверенность."))
+                .thenReturn(createMockChatResponse("Страх на рынке. Рекомендация: ПРОДАВАТЬ. Низкая уверенность."))
+                .thenThrow(new RuntimeException("API недоступен"));
+
+        // Act
+        CryptoAnalysisResponse response = cryptoAnalysisService.analyzeCryptocurrency("Avalanche", "2 недели");
+
+        // Assert
+        assertNull(response.getModeratorAnalysis());
+        assertEquals("ПРОДАВАТЬ", response.getFinalRecommendation());
+    }
+
+    private ChatResponse createMockChatResponse(String content) {
+        AssistantMessage message = new AssistantMessage(content);
+        Generation generation = new Generation(message);
+        return new ChatResponse(List.of(generation));
+    }
+}
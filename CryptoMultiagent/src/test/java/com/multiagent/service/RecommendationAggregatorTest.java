@@ -0,0 +1,73 @@
+package com.multiagent.service;
+
+import com.multiagent.model.AgentAnalysis;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Тесты для RecommendationAggregator")
+class RecommendationAggregatorTest {
+
+    private final RecommendationAggregator aggregator = new RecommendationAggregator();
+
+    @Test
+    @DisplayName("Два уверенных согласных агента должны фиксировать результат до ответа третьего")
+    void shouldDecideWhenLeaderCannotBeOvertaken() {
+        List<AgentAnalysis> completed = List.of(
+                new AgentAnalysis("A", "анализ", "ПОКУПАТЬ", 0.9),
+                new AgentAnalysis("B", "анализ", "ПОКУПАТЬ", 0.9));
+
+        assertTrue(aggregator.isDecided(completed, Map.of(), 1.0, 1));
+        assertEquals("ПОКУПАТЬ", aggregator.determineFinalRecommendation(completed, Map.of()));
+    }
+
+    @Test
+    @DisplayName("Результат не фиксируется, если оставшийся агент может изменить лидера")
+    void shouldNotDecideWhenRemainingAgentCanFlipResult() {
+        List<AgentAnalysis> completed = List.of(
+                new AgentAnalysis("A", "анализ", "ПОКУПАТЬ", 0.9),
+                new AgentAnalysis("B", "анализ", "ПРОДАВАТЬ", 0.7));
+
+        assertFalse(aggregator.isDecided(completed, Map.of(), 1.0, 1));
+    }
+
+    @Test
+    @DisplayName("Вес оставшегося агента должен учитываться при проверке кворума")
+    void shouldRespectRemainingWeight() {
+        List<AgentAnalysis> completed = List.of(
+                new AgentAnalysis("A", "анализ", "ПОКУПАТЬ", 0.9),
+                new AgentAnalysis("B", "анализ", "ПОКУПАТЬ", 0.9));
+
+        assertFalse(aggregator.isDecided(completed, Map.of(), 2.0, 1));
+    }
+
+    @Test
+    @DisplayName("Неизбежно низкая уверенность должна фиксировать ДЕРЖАТЬ")
+    void shouldDecideHoldWhenConfidenceStaysLow() {
+        List<AgentAnalysis> completed = List.of(
+                new AgentAnalysis("A", "анализ", "ПОКУПАТЬ", 0.1),
+                new AgentAnalysis("B", "анализ", "ПРОДАВАТЬ", 0.1),
+                new AgentAnalysis("C", "анализ", "ПОКУПАТЬ", 0.1));
+
+        assertTrue(aggregator.isDecided(completed, Map.of(), 1.0, 1));
+        assertEquals("ДЕРЖАТЬ", aggregator.determineFinalRecommendation(completed, Map.of()));
+    }
+
+    @Test
+    @DisplayName("Разные рекомендации или низкая уверенность должны считаться спорными")
+    void shouldDetectContestedResults() {
+        assertTrue(aggregator.isContested(List.of(
+                new AgentAnalysis("A", "анализ", "ПОКУПАТЬ", 0.9),
+                new AgentAnalysis("B", "анализ", "ПРОДАВАТЬ", 0.9)), 0.6));
+        assertTrue(aggregator.isContested(List.of(
+                new AgentAnalysis("A", "анализ", "ПОКУПАТЬ", 0.5),
+                new AgentAnalysis("B", "анализ", "ПОКУПАТЬ", 0.5)), 0.6));
+        assertFalse(aggregator.isContested(List.of(
+                new AgentAnalysis("A", "анализ", "ПОКУПАТЬ", 0.9),
+                new AgentAnalysis("B", "анализ", "ПОКУПАТЬ", 0.7)), 0.6));
+    }
+}
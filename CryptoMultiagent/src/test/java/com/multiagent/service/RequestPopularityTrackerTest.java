@@ -0,0 +1,78 @@
+package com.multiagent.service;
+
+import com.multiagent.config.PopularityProperties;
+import com.multiagent.model.PopularRequest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Тесты для RequestPopularityTracker")
+class RequestPopularityTrackerTest {
+
+    private RequestPopularityTracker tracker;
+
+    @BeforeEach
+    void setUp() {
+        PopularityProperties properties = new PopularityProperties();
+        properties.setTopK(2);
+        tracker = new RequestPopularityTracker(properties);
+    }
+
+    @Test
+    @DisplayName("Должен возвращать самые популярные запросы в порядке убывания")
+    void shouldReturnHeavyHittersInDescendingOrder() {
+        record("Bitcoin", "1 месяц", 10);
+        record("Ethereum", "1 месяц", 5);
+        record("Dogecoin", "1 месяц", 1);
+
+        List<PopularRequest> heavyHitters = tracker.getHeavyHitters();
+
+        assertEquals(2, heavyHitters.size());
+        assertEquals("Bitcoin", heavyHitters.get(0).getCryptocurrency());
+        assertEquals(10, heavyHitters.get(0).getEstimatedCount());
+        assertEquals("Ethereum", heavyHitters.get(1).getCryptocurrency());
+    }
+
+    @Test
+    @DisplayName("Новый частый запрос должен вытеснять наименее популярный из top-K")
+    void shouldReplaceWeakestHeavyHitter() {
+        record("Bitcoin", "1 месяц", 3);
+        record("Ethereum", "1 месяц", 2);
+        record("Solana", "1 месяц", 4);
+
+        List<String> coins = tracker.getHeavyHitters().stream()
+                .map(PopularRequest::getCryptocurrency)
+                .toList();
+
+        assertEquals(List.of("Solana", "Bitcoin"), coins);
+    }
+
+    @Test
+    @DisplayName("Запросы с разным регистром должны учитываться как один")
+    void shouldTreatKeysCaseInsensitively() {
+        record("Bitcoin", "1 месяц", 2);
+        record("bitcoin ", "1 Месяц", 2);
+
+        assertEquals(4, tracker.getHeavyHitters().get(0).getEstimatedCount());
+    }
+
+    @Test
+    @DisplayName("Затухание должно уменьшать счетчики")
+    void shouldDecayCounters() {
+        record("Bitcoin", "1 месяц", 8);
+
+        tracker.decay();
+
+        assertEquals(4, tracker.getHeavyHitters().get(0).getEstimatedCount());
+    }
+
+    private void record(String cryptocurrency, String timeframe, int times) {
+        for (int i = 0; i < times; i++) {
+            tracker.record(cryptocurrency, timeframe);
+        }
+    }
+}
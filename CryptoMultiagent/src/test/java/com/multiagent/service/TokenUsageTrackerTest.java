@@ -0,0 +1,77 @@
+package com.multiagent.service;
+
+import com.multiagent.config.TokenBudgetProperties;
+import com.multiagent.model.TokenUsage;
+import com.multiagent.model.TokenUsageReport;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Тесты для TokenUsageTracker")
+class TokenUsageTrackerTest {
+
+    private TokenBudgetProperties properties;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private TokenUsageTracker tracker;
+
+    @BeforeEach
+    void setUp() {
+        properties = new TokenBudgetProperties();
+        properties.setMaxTrackedCoins(2);
+        meterRegistry = new SimpleMeterRegistry();
+        tracker = new TokenUsageTracker(properties, meterRegistry);
+    }
+
+    @Test
+    @DisplayName("Расход должен суммироваться по криптовалютам и агентам")
+    void shouldAggregateByCoinAndAgent() {
+        tracker.record("Bitcoin", "technical", new TokenUsage(100, 50));
+        tracker.record("bitcoin ", "technical", new TokenUsage(100, 30));
+        tracker.record("Bitcoin", "sentiment", new TokenUsage(80, 20));
+        tracker.record("Ethereum", "technical", new TokenUsage(90, 10));
+
+        TokenUsageReport report = tracker.getReport();
+
+        assertEquals(4, report.total().calls());
+        assertEquals(480, report.total().totalTokens());
+        assertEquals(3, report.byAgent().get("technical").calls());
+        assertEquals(90, report.byAgent().get("technical").completionTokens());
+        assertEquals(200, report.byCoin().get("bitcoin").get("technical").promptTokens());
+        assertEquals(90, meterRegistry.counter("crypto.tokens", "agent", "technical", "type", "completion").count());
+    }
+
+    @Test
+    @DisplayName("Криптовалюты сверх лимита должны учитываться в общей группе")
+    void shouldGroupCoinsOverLimit() {
+        tracker.record("Bitcoin", "technical", new TokenUsage(10, 10));
+        tracker.record("Ethereum", "technical", new TokenUsage(10, 10));
+        tracker.record("Dogecoin", "technical", new TokenUsage(10, 10));
+        tracker.record("Bitcoin", "technical", new TokenUsage(10, 10));
+
+        TokenUsageReport report = tracker.getReport();
+
+        assertEquals(3, report.byCoin().size());
+        assertEquals(1, report.byCoin().get(TokenUsageTracker.OTHER_COINS).get("technical").calls());
+        assertEquals(2, report.byCoin().get("bitcoin").get("technical").calls());
+        assertTrue(tracker.getCoinUsage("Dogecoin").isEmpty());
+    }
+
+    @Test
+    @DisplayName("Лимит эндпоинта и краткого режима должен выбираться по минимуму")
+    void shouldResolveEndpointBudget() {
+        properties.setBriefMaxTokens(250);
+        properties.getEndpoints().put(TokenBudgetProperties.ENDPOINT_ANALYZE_ASYNC, 800);
+        properties.getEndpoints().put(TokenBudgetProperties.ENDPOINT_GRPC, 200);
+
+        assertNull(properties.resolveMaxTokens(TokenBudgetProperties.ENDPOINT_ANALYZE, false));
+        assertEquals(250, properties.resolveMaxTokens(TokenBudgetProperties.ENDPOINT_ANALYZE, true));
+        assertEquals(800, properties.resolveMaxTokens(TokenBudgetProperties.ENDPOINT_ANALYZE_ASYNC, false));
+        assertEquals(250, properties.resolveMaxTokens(TokenBudgetProperties.ENDPOINT_ANALYZE_ASYNC, true));
+        assertEquals(200, properties.resolveMaxTokens(TokenBudgetProperties.ENDPOINT_GRPC, true));
+    }
+}
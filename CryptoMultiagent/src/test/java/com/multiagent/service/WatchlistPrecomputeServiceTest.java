@@ -0,0 +1,83 @@
+package com.multiagent.service;
+
+import com.multiagent.config.PopularityProperties;
+import com.multiagent.config.WatchlistProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@DisplayName("Тесты для WatchlistPrecomputeService")
+class WatchlistPrecomputeServiceTest {
+
+    private CryptoAnalysisService analysisService;
+
+    private RequestPopularityTracker popularityTracker;
+
+    private WatchlistPrecomputeService precomputeService;
+
+    @BeforeEach
+    void setUp() {
+        WatchlistProperties properties = new WatchlistProperties();
+        properties.setCoins(List.of("Bitcoin", "Ethereum"));
+        properties.setTimeframes(List.of("1 месяц", "1 неделя"));
+        properties.setMaxConcurrency(2);
+        properties.setMaxRequestsPerMinute(60_000);
+        properties.setIncludeTopRequested(1);
+
+        analysisService = mock(CryptoAnalysisService.class);
+        popularityTracker = new RequestPopularityTracker(new PopularityProperties());
+        precomputeService = new WatchlistPrecomputeService(analysisService, properties, popularityTracker);
+    }
+
+    @AfterEach
+    void tearDown() {
+        precomputeService.shutdown();
+    }
+
+    @Test
+    @DisplayName("Должен строить задачи для каждой пары криптовалюта/период")
+    void shouldBuildEntriesForEveryCoinAndTimeframe() {
+        assertEquals(4, precomputeService.buildEntries().size());
+    }
+
+    @Test
+    @DisplayName("Должен добавлять самые популярные запросы к списку наблюдения")
+    void shouldIncludeHeavyHitters() {
+        popularityTracker.record("Solana", "3 месяца");
+        popularityTracker.record("Solana", "3 месяца");
+        popularityTracker.record("bitcoin", "1 месяц");
+
+        List<WatchlistPrecomputeService.WatchlistEntry> entries = precomputeService.buildEntries();
+
+        assertEquals(5, entries.size());
+        assertEquals(new WatchlistPrecomputeService.WatchlistEntry("Solana", "3 месяца"), entries.get(4));
+    }
+
+    @Test
+    @DisplayName("Цикл предрасчета должен обновить все элементы списка наблюдения")
+    void shouldRefreshWholeWatchlist() {
+        precomputeService.refreshWatchlist();
+
+        verify(analysisService, timeout(2000)).refreshCryptocurrency("Bitcoin", "1 месяц");
+        verify(analysisService, timeout(2000)).refreshCryptocurrency("Bitcoin", "1 неделя");
+        verify(analysisService, timeout(2000)).refreshCryptocurrency("Ethereum", "1 месяц");
+        verify(analysisService, timeout(2000)).refreshCryptocurrency("Ethereum", "1 неделя");
+    }
+
+    @Test
+    @DisplayName("Ошибка одного анализа не должна прерывать цикл")
+    void shouldContinueAfterFailure() {
+        when(analysisService.refreshCryptocurrency("Bitcoin", "1 месяц"))
+                .thenThrow(new RuntimeException("AI Service Error"));
+
+        precomputeService.refreshWatchlist();
+
+        verify(analysisService, timeout(2000)).refreshCryptocurrency("Ethereum", "1 неделя");
+    }
+}
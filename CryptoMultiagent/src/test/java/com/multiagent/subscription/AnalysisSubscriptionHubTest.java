@@ -0,0 +1,266 @@
+package com.multiagent.subscription;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.multiagent.config.SubscriptionProperties;
+import com.multiagent.model.AgentAnalysis;
+import com.multiagent.model.CryptoAnalysisResponse;
+import com.multiagent.model.ResponseView;
+import com.multiagent.service.CryptoAnalysisService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@DisplayName("Тесты для AnalysisSubscriptionHub")
+class AnalysisSubscriptionHubTest {
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    private final Map<String, List<String>> received = new ConcurrentHashMap<>();
+
+    private CryptoAnalysisService analysisService;
+
+    private SubscriptionProperties properties;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private AnalysisSubscriptionHub hub;
+
+    @BeforeEach
+    void setUp() {
+        analysisService = mock(CryptoAnalysisService.class);
+        properties = new SubscriptionProperties();
+        properties.setSendThreads(4);
+        meterRegistry = new SimpleMeterRegistry();
+        hub = new AnalysisSubscriptionHub(analysisService, properties, objectMapper, meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        hub.shutdown();
+    }
+
+    @Test
+    @DisplayName("Тысяча подписчиков одной монеты должна стоить один расчет на обновление")
+    void shouldComputeOncePerUpdate() throws Exception {
+        // Arrange
+        CompletableFuture<CryptoAnalysisResponse> first = new CompletableFuture<>();
+        when(analysisService.analyzeCryptocurrencyAsync(anyString(), anyString(), any()))
+                .thenReturn(first)
+                .thenReturn(CompletableFuture.completedFuture(response(1, "Анализ")))
+                .thenReturn(CompletableFuture.completedFuture(response(2, "Новый анализ")));
+        List<WebSocketSession> sessions = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            WebSocketSession session = session("client-" + i, null);
+            hub.register(session);
+            hub.subscribe(session, i % 2 == 0 ? "Bitcoin" : " bitcoin", i % 3 == 0 ? "1 month" : "1 месяц",
+                    ResponseView.COMPACT);
+            sessions.add(session);
+        }
+
+        // Act
+        first.complete(response(1, "Анализ"));
+        awaitMessages(sessions, 2);
+        int unchanged = hub.refreshAll();
+        int changed = hub.refreshAll();
+        awaitMessages(sessions, 3);
+
+        // Assert
+        verify(analysisService, times(3)).analyzeCryptocurrencyAsync(eq("Bitcoin"), eq("1 месяц"), any());
+        assertEquals(1, unchanged);
+        assertEquals(1, changed);
+        assertEquals(1, hub.topicCount());
+        assertEquals(2.0, meterRegistry.get("crypto.subscriptions.updates").counter().count(),
+                "Неизменившийся результат повторно не рассылается");
+        for (WebSocketSession session : sessions) {
+            List<String> messages = received.get(session.getId());
+            assertEquals(3, messages.size());
+            assertTrue(messages.get(0).contains("\"type\":\"subscribed\""));
+            assertTrue(messages.get(1).contains("\"finalRecommendation\":\"ПОКУПАТЬ\""));
+            assertFalse(messages.get(1).contains("Анализ"), "Компактное представление не содержит текстов анализа");
+        }
+        assertSame(received.get("client-0").get(2), received.get("client-999").get(2));
+    }
+
+    @Test
+    @DisplayName("Медленный подписчик должен отключаться, не задерживая остальных")
+    void shouldDropSlowConsumer() throws Exception {
+        // Arrange
+        properties.setSendBufferSizeLimit(1024);
+        hub = new AnalysisSubscriptionHub(analysisService, properties, objectMapper, meterRegistry);
+        String text = "Длинный анализ ".repeat(100);
+        when(analysisService.analyzeCryptocurrencyAsync(anyString(), anyString(), any()))
+                .thenReturn(CompletableFuture.completedFuture(response(1, text)))
+                .thenReturn(CompletableFuture.completedFuture(response(2, text)))
+                .thenReturn(CompletableFuture.completedFuture(response(3, text)));
+        CountDownLatch stalled = new CountDownLatch(1);
+        WebSocketSession slow = session("slow", stalled);
+        WebSocketSession fast = session("fast", null);
+        hub.register(slow);
+        hub.register(fast);
+        hub.subscribe(fast, "Ethereum", "1 неделя", ResponseView.FULL);
+
+        // Act
+        hub.subscribe(slow, "Ethereum", "1 неделя", ResponseView.FULL);
+        awaitMessages(List.of(fast), 2);
+        hub.refreshAll();
+        awaitMessages(List.of(fast), 3);
+        hub.refreshAll();
+        awaitMessages(List.of(fast), 4);
+        awaitUntil(() -> hub.sessionCount() == 1);
+        stalled.countDown();
+
+        // Assert
+        verify(slow).close(CloseStatus.SESSION_NOT_RELIABLE);
+        verify(fast, never()).close(any());
+        assertEquals(1.0, meterRegistry.get("crypto.subscriptions.dropped").tag("reason", "slow").counter().count());
+        assertEquals(1, hub.topicCount());
+        assertTrue(received.get("fast").get(3).contains("Длинный анализ"));
+    }
+
+    @Test
+    @DisplayName("Зависший подписчик должен отключаться проверкой, даже если новых сообщений нет")
+    void shouldDropStuckConsumerWithoutNewMessages() throws Exception {
+        // Arrange
+        properties.setSendTimeLimit(Duration.ofMillis(100));
+        hub = new AnalysisSubscriptionHub(analysisService, properties, objectMapper, meterRegistry);
+        when(analysisService.analyzeCryptocurrencyAsync(anyString(), anyString(), any()))
+                .thenReturn(CompletableFuture.completedFuture(response(1, "Анализ")));
+        CountDownLatch stalled = new CountDownLatch(1);
+        WebSocketSession stuck = session("stuck", stalled);
+        hub.register(stuck);
+        hub.subscribe(stuck, "Cardano", "1 месяц", ResponseView.COMPACT);
+        awaitMessages(List.of(stuck), 2);
+        Thread.sleep(200);
+
+        // Act
+        int dropped = hub.dropStuckSubscribers();
+        stalled.countDown();
+
+        // Assert
+        assertEquals(1, dropped);
+        assertEquals(0, hub.sessionCount());
+        assertEquals(0, hub.topicCount());
+        verify(stuck, timeout(5000)).close(CloseStatus.SESSION_NOT_RELIABLE);
+        assertEquals(1.0, meterRegistry.get("crypto.subscriptions.dropped").tag("reason", "slow").counter().count());
+    }
+
+    @Test
+    @DisplayName("Количество тем на сервере должно ограничиваться")
+    void shouldLimitTopicsPerServer() throws Exception {
+        // Arrange
+        properties.setMaxTopics(2);
+        when(analysisService.analyzeCryptocurrencyAsync(anyString(), anyString(), any()))
+                .thenReturn(new CompletableFuture<>());
+        WebSocketSession first = session("first", null);
+        WebSocketSession second = session("second", null);
+        hub.register(first);
+        hub.register(second);
+        hub.subscribe(first, "Bitcoin", "1 месяц", ResponseView.COMPACT);
+        hub.subscribe(first, "Ethereum", "1 месяц", ResponseView.COMPACT);
+
+        // Act
+        hub.subscribe(second, "Bitcoin", "1 месяц", ResponseView.COMPACT);
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class,
+                () -> hub.subscribe(second, "Solana", "1 месяц", ResponseView.COMPACT));
+        hub.unregister(first);
+        hub.subscribe(second, "Solana", "1 месяц", ResponseView.COMPACT);
+
+        // Assert
+        assertTrue(error.getMessage().contains("тем подписок сервера"));
+        assertEquals(2, hub.topicCount(), "После отключения первого клиента место освобождается");
+    }
+
+    @Test
+    @DisplayName("Обработчик должен проверять команды и удалять тему после отписки")
+    void shouldHandleCommands() throws Exception {
+        // Arrange
+        when(analysisService.analyzeCryptocurrencyAsync(anyString(), anyString(), any()))
+                .thenReturn(CompletableFuture.completedFuture(response(1, "Анализ")));
+        AnalysisSubscriptionHandler handler = new AnalysisSubscriptionHandler(hub, objectMapper);
+        WebSocketSession session = session("client", null);
+        handler.afterConnectionEstablished(session);
+
+        // Act
+        handler.handleMessage(session, new TextMessage("не json"));
+        handler.handleMessage(session, new TextMessage("{\"action\":\"subscribe\",\"cryptocurrency\":\"<script>\"}"));
+        handler.handleMessage(session, new TextMessage("{\"action\":\"subscribe\",\"cryptocurrency\":\"Solana\",\"timeframe\":\"вечность\"}"));
+        handler.handleMessage(session, new TextMessage("{\"action\":\"subscribe\",\"cryptocurrency\":\"Solana\"}"));
+        awaitMessages(List.of(session), 5);
+        int topics = hub.topicCount();
+        handler.handleMessage(session, new TextMessage("{\"action\":\"unsubscribe\",\"cryptocurrency\":\"Solana\",\"timeframe\":\"1 month\"}"));
+        awaitMessages(List.of(session), 6);
+        handler.afterConnectionClosed(session, CloseStatus.NORMAL);
+
+        // Assert
+        List<String> messages = received.get("client");
+        assertTrue(messages.subList(0, 3).stream().allMatch(message -> message.contains("\"type\":\"error\"")));
+        assertTrue(messages.get(3).contains("\"timeframe\":\"1 месяц\""));
+        assertTrue(messages.get(4).contains("\"analysis\""));
+        assertTrue(messages.get(5).contains("\"type\":\"unsubscribed\""));
+        assertEquals(1, topics);
+        assertEquals(0, hub.topicCount());
+        assertEquals(0, hub.sessionCount());
+    }
+
+    private WebSocketSession session(String id, CountDownLatch stalled) throws Exception {
+        WebSocketSession session = mock(WebSocketSession.class);
+        when(session.getId()).thenReturn(id);
+        when(session.isOpen()).thenReturn(true);
+        List<String> messages = received.computeIfAbsent(id, key -> new CopyOnWriteArrayList<>());
+        doAnswer(invocation -> {
+            String payload = ((WebSocketMessage<?>) invocation.getArgument(0)).getPayload().toString();
+            messages.add(payload);
+            if (stalled != null && payload.contains("\"type\":\"analysis\"")) {
+                // Клиент не читает данные: отправка блокируется, пока тест не завершится
+                stalled.await();
+            }
+            return null;
+        }).when(session).sendMessage(any());
+        return session;
+    }
+
+    private void awaitMessages(List<WebSocketSession> sessions, int count) throws InterruptedException {
+        awaitUntil(() -> sessions.stream().allMatch(session -> received.get(session.getId()).size() >= count));
+    }
+
+    private static void awaitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "Условие не выполнено за 10 секунд");
+            Thread.sleep(10);
+        }
+    }
+
+    private static CryptoAnalysisResponse response(long version, String analysis) {
+        CryptoAnalysisResponse response = new CryptoAnalysisResponse("Bitcoin",
+                List.of(new AgentAnalysis("Технический Аналитик", analysis, "ПОКУПАТЬ", 0.8)),
+                "ПОКУПАТЬ", 0.8);
+        response.setTimeframe("1 месяц");
+        response.setAnalyzedAt(Instant.ofEpochSecond(1_700_000_000L + version));
+        return response;
+    }
+}
@@ -0,0 +1,146 @@
+package com.multiagent.tracing;
+
+import com.multiagent.BaseTestConfiguration;
+import com.multiagent.agent.TechnicalAnalysisAgent;
+import com.multiagent.model.AnalysisOptions;
+import com.multiagent.model.CryptoAnalysisResponse;
+import com.multiagent.service.CryptoAnalysisService;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.metadata.ChatResponseMetadata;
+import org.springframework.ai.chat.metadata.DefaultUsage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.retry.TransientAiException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.retry.support.RetryTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@AutoConfigureObservability(metrics = false)
+@TestPropertySource(properties = {
+        "spring.ai.retry.backoff.initial-interval=10ms",
+        "management.tracing.sampling.probability=1.0"
+})
+class AnalysisTracingTest extends BaseTestConfiguration {
+
+    @Autowired
+    private CryptoAnalysisService cryptoAnalysisService;
+
+    @Autowired
+    private InMemorySpanExporter spanExporter;
+
+    @Autowired
+    private SdkTracerProvider tracerProvider;
+
+    @Autowired
+    private RetryTemplate retryTemplate;
+
+    @BeforeEach
+    void clearSpans() {
+        spanExporter.clear();
+    }
+
+    @Test
+    @DisplayName("Спаны агентов и вызовов модели должны входить в трассировку асинхронного анализа")
+    void shouldPropagateTraceAcrossAsyncAgents() {
+        // Arrange
+        when(chatModel.call(any(Prompt.class))).thenReturn(createChatResponse(
+                "Восходящий тренд, рекомендую покупать. Высокая уверенность.", 120, 40));
+
+        // Act
+        CryptoAnalysisResponse response = cryptoAnalysisService
+                .analyzeCryptocurrencyAsync("Litecoin", "1 неделя", AnalysisOptions.defaults())
+                .join();
+        List<SpanRecord> spans = exportedSpans();
+
+        // Assert
+        assertEquals("ПОКУПАТЬ", response.getFinalRecommendation());
+        SpanRecord analysis = findSingle(spans, AnalysisObservations.ANALYSIS);
+        assertEquals("Litecoin", analysis.attributes().get(AnalysisObservations.COIN));
+        assertEquals("async", analysis.attributes().get(AnalysisObservations.MODE));
+
+        List<SpanRecord> agents = spans.stream()
+                .filter(span -> span.attributes().containsKey(AnalysisObservations.AGENT_ID)
+                        && span.name().startsWith(AnalysisObservations.AGENT))
+                .toList();
+        assertEquals(3, agents.size());
+        agents.forEach(agent -> {
+            assertEquals(analysis.traceId(), agent.traceId());
+            assertEquals(analysis.spanId(), agent.parentSpanId());
+            assertEquals("1 неделя", agent.attributes().get(AnalysisObservations.TIMEFRAME));
+            assertEquals("120", agent.attributes().get(AnalysisObservations.PROMPT_TOKENS));
+        });
+
+        Map<String, String> agentSpanIds = agents.stream()
+                .collect(Collectors.toMap(SpanRecord::spanId, span -> span.attributes().get(AnalysisObservations.AGENT_ID)));
+        List<SpanRecord> modelCalls = spans.stream()
+                .filter(span -> span.name().equals(AnalysisObservations.MODEL_CALL))
+                .toList();
+        assertEquals(3, modelCalls.size());
+        modelCalls.forEach(call -> {
+            assertEquals(call.attributes().get(AnalysisObservations.AGENT_ID), agentSpanIds.get(call.parentSpanId()));
+            assertEquals("40", call.attributes().get(AnalysisObservations.COMPLETION_TOKENS));
+            assertEquals("0", call.attributes().get(AnalysisObservations.RETRY_ATTEMPTS));
+        });
+    }
+
+    @Test
+    @DisplayName("Повторные попытки вызова модели должны отражаться в спане вызова")
+    void shouldRecordRetryAttempts() {
+        // Arrange
+        ChatResponse chatResponse = createChatResponse("Восходящий тренд, рекомендую покупать.", 100, 30);
+        when(chatModel.call(any(Prompt.class))).thenAnswer(invocation -> retryTemplate.execute(context -> {
+            if (context.getRetryCount() < 2) {
+                throw new TransientAiException("Провайдер перегружен");
+            }
+            return chatResponse;
+        }));
+
+        // Act
+        cryptoAnalysisService.analyzeCryptocurrency("Polkadot", "1 месяц",
+                AnalysisOptions.forAgents(List.of(TechnicalAnalysisAgent.ID)));
+        List<SpanRecord> spans = exportedSpans();
+
+        // Assert
+        SpanRecord modelCall = findSingle(spans, AnalysisObservations.MODEL_CALL);
+        assertEquals("2", modelCall.attributes().get(AnalysisObservations.RETRY_ATTEMPTS));
+        assertEquals(2, modelCall.events().stream()
+                .filter(event -> event.startsWith(AnalysisObservations.RETRY_EVENT)).count());
+        assertEquals("100", modelCall.attributes().get(AnalysisObservations.PROMPT_TOKENS));
+        assertEquals("sync", findSingle(spans, AnalysisObservations.ANALYSIS).attributes().get(AnalysisObservations.MODE));
+    }
+
+    private List<SpanRecord> exportedSpans() {
+        tracerProvider.forceFlush().join(5, TimeUnit.SECONDS);
+        return spanExporter.getRecentTraces(1).stream()
+                .flatMap(trace -> spanExporter.getTrace(trace.traceId()).stream())
+                .toList();
+    }
+
+    private static SpanRecord findSingle(List<SpanRecord> spans, String name) {
+        List<SpanRecord> matching = spans.stream().filter(span -> span.name().equals(name)).toList();
+        assertEquals(1, matching.size(), "Спаны " + name + ": " + spans);
+        return matching.get(0);
+    }
+
+    private static ChatResponse createChatResponse(String content, int promptTokens, int completionTokens) {
+        ChatResponseMetadata metadata = ChatResponseMetadata.builder()
+                .usage(new DefaultUsage(promptTokens, completionTokens))
+                .build();
+        return new ChatResponse(List.of(new Generation(new AssistantMessage(content))), metadata);
+    }
+}
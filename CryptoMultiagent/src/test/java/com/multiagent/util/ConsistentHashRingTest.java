@@ -0,0 +1,60 @@
+package com.multiagent.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConsistentHashRingTest {
+
+    private static final List<String> NODES = List.of("http://node-a:8080", "http://node-b:8080", "http://node-c:8080");
+
+    @Test
+    @DisplayName("Владелец ключа должен определяться одинаково независимо от порядка узлов")
+    void shouldBeDeterministic() {
+        ConsistentHashRing<String> ring = new ConsistentHashRing<>(NODES, 64);
+        ConsistentHashRing<String> reordered = new ConsistentHashRing<>(List.of(NODES.get(2), NODES.get(0), NODES.get(1)), 64);
+
+        for (int i = 0; i < 100; i++) {
+            assertEquals(ring.owner("coin-" + i), reordered.owner("coin-" + i));
+        }
+    }
+
+    @Test
+    @DisplayName("Ключи должны распределяться между узлами равномерно")
+    void shouldBalanceKeys() {
+        ConsistentHashRing<String> ring = new ConsistentHashRing<>(NODES, 128);
+        Map<String, Integer> counts = new HashMap<>();
+
+        for (int i = 0; i < 3000; i++) {
+            counts.merge(ring.owner("coin-" + i), 1, Integer::sum);
+        }
+
+        assertEquals(3, counts.size());
+        counts.values().forEach(count -> assertTrue(count > 700 && count < 1300, "Распределение: " + counts));
+    }
+
+    @Test
+    @DisplayName("При добавлении узла должны переезжать только ключи, доставшиеся новому узлу")
+    void shouldMoveOnlyKeysOfNewNode() {
+        ConsistentHashRing<String> before = new ConsistentHashRing<>(NODES, 128);
+        String added = "http://node-d:8080";
+        ConsistentHashRing<String> after = new ConsistentHashRing<>(
+                List.of(NODES.get(0), NODES.get(1), NODES.get(2), added), 128);
+
+        int moved = 0;
+        for (int i = 0; i < 2000; i++) {
+            String key = "coin-" + i;
+            if (!before.owner(key).equals(after.owner(key))) {
+                assertEquals(added, after.owner(key));
+                moved++;
+            }
+        }
+
+        assertTrue(moved > 300 && moved < 700, "Переехало ключей: " + moved);
+    }
+}
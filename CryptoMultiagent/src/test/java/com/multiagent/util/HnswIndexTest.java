@@ -0,0 +1,98 @@
+package com.multiagent.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Тесты для HnswIndex")
+class HnswIndexTest {
+
+    private static final int DIMENSIONS = 32;
+
+    @Test
+    @DisplayName("Должен находить точное совпадение со сходством 1")
+    void shouldFindExactMatch() {
+        HnswIndex<String> index = new HnswIndex<>(8, 50);
+        index.add("a", new float[]{1, 0, 0});
+        index.add("b", new float[]{0, 1, 0});
+        index.add("c", new float[]{0.9f, 0.1f, 0});
+
+        List<HnswIndex.Match<String>> matches = index.search(new float[]{2, 0, 0}, 2, 10);
+
+        assertEquals("a", matches.get(0).key());
+        assertEquals(1.0, matches.get(0).similarity(), 1e-6);
+        assertEquals("c", matches.get(1).key());
+    }
+
+    @Test
+    @DisplayName("Приближенный поиск должен совпадать с полным перебором в большинстве случаев")
+    void shouldHaveHighRecall() {
+        Random random = new Random(7);
+        HnswIndex<Integer> index = new HnswIndex<>(16, 100);
+        List<float[]> vectors = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            float[] vector = randomVector(random);
+            vectors.add(vector);
+            index.add(i, vector);
+        }
+
+        int hits = 0;
+        int queries = 100;
+        for (int q = 0; q < queries; q++) {
+            float[] query = randomVector(random);
+            int exact = IntStream.range(0, vectors.size()).boxed()
+                    .max(Comparator.comparingDouble(i -> cosine(query, vectors.get(i))))
+                    .orElseThrow();
+            if (index.search(query, 1, 50).get(0).key() == exact) {
+                hits++;
+            }
+        }
+
+        assertTrue(hits >= 90, "Полнота поиска слишком низкая: " + hits + "/" + queries);
+    }
+
+    @Test
+    @DisplayName("Удаленные элементы не должны возвращаться, а граф должен перестраиваться")
+    void shouldRemoveAndCompact() {
+        Random random = new Random(11);
+        HnswIndex<Integer> index = new HnswIndex<>(8, 50);
+        for (int i = 0; i < 100; i++) {
+            index.add(i, randomVector(random));
+        }
+        for (int i = 0; i < 80; i++) {
+            index.remove(i);
+        }
+
+        assertEquals(20, index.size());
+        assertTrue(index.nodeCount() <= 40, "Граф не был перестроен: " + index.nodeCount());
+        index.search(randomVector(random), 20, 50)
+                .forEach(match -> assertTrue(match.key() >= 80));
+    }
+
+    private static float[] randomVector(Random random) {
+        float[] vector = new float[DIMENSIONS];
+        for (int i = 0; i < DIMENSIONS; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return vector;
+    }
+
+    private static double cosine(float[] a, float[] b) {
+        double dot = 0;
+        double normA = 0;
+        double normB = 0;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+            normA += a[i] * a[i];
+            normB += b[i] * b[i];
+        }
+        return dot / Math.sqrt(normA * normB);
+    }
+}